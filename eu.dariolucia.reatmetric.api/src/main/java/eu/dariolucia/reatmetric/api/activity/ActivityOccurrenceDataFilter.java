@@ -17,14 +17,14 @@
 
 package eu.dariolucia.reatmetric.api.activity;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItemFilter;
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDataFilter;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -32,7 +32,7 @@ import java.util.Set;
  *
  * Objects of this class are immutable.
  */
-public final class ActivityOccurrenceDataFilter extends AbstractDataItemFilter<ActivityOccurrenceData> implements Serializable {
+public final class ActivityOccurrenceDataFilter extends AbstractSystemEntityDataFilter<ActivityOccurrenceData> implements Serializable {
 
 	/**
 	 *
@@ -64,7 +64,7 @@ public final class ActivityOccurrenceDataFilter extends AbstractDataItemFilter<A
      * @param sourceList the list of sources to select. It can be null: if so, all sources are selected.
      * @param externalIdList the list of activity IDs to select. It can be null: if so, all activities are selected.
      */
-    public ActivityOccurrenceDataFilter(SystemEntityPath parentPath, List<SystemEntityPath> activityPathList, List<String> routeList, List<String> typeList, List<ActivityOccurrenceState> stateList, List<String> sourceList, List<Integer> externalIdList) {
+    public ActivityOccurrenceDataFilter(SystemEntityPath parentPath, Collection<SystemEntityPath> activityPathList, Collection<String> routeList, Collection<String> typeList, Collection<ActivityOccurrenceState> stateList, Collection<String> sourceList, Collection<Integer> externalIdList) {
         this.parentPath = parentPath;
         if(activityPathList != null) {
             this.activityPathList = Collections.unmodifiableSet(new LinkedHashSet<>(activityPathList));
@@ -182,6 +182,17 @@ public final class ActivityOccurrenceDataFilter extends AbstractDataItemFilter<A
         return externalIdList;
     }
 
+    @Override
+    public ActivityOccurrenceDataFilter withAddedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        checkAddition(activityPathList, externalIdList, paths, externalIds);
+        return new ActivityOccurrenceDataFilter(parentPath, addToSelection(activityPathList, paths), routeList, typeList, stateList, sourceList, addToSelection(externalIdList, externalIds));
+    }
+
+    @Override
+    public ActivityOccurrenceDataFilter withRemovedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        return new ActivityOccurrenceDataFilter(parentPath, removeFromSelection(activityPathList, paths), routeList, typeList, stateList, sourceList, removeFromSelection(externalIdList, externalIds));
+    }
+
     @Override
     public boolean isClear() {
         return this.parentPath == null && this.activityPathList == null && this.stateList == null && this.routeList == null && this.typeList == null && this.sourceList == null && this.externalIdList == null;
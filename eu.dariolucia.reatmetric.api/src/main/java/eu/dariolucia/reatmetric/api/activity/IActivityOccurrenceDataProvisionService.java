@@ -18,6 +18,7 @@
 package eu.dariolucia.reatmetric.api.activity;
 
 import eu.dariolucia.reatmetric.api.common.IDataItemStateProvisionService;
+import eu.dariolucia.reatmetric.api.common.ISystemEntityDataProvisionService;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
@@ -27,7 +28,7 @@ import java.rmi.RemoteException;
  * This interface is a specialisation of the {@link IDataItemStateProvisionService}, for activity occurrences. In addition, it provides
  * descriptors for the specified activity.
  */
-public interface IActivityOccurrenceDataProvisionService extends IDataItemStateProvisionService<IActivityOccurrenceDataSubscriber, ActivityOccurrenceDataFilter, ActivityOccurrenceData> {
+public interface IActivityOccurrenceDataProvisionService extends IDataItemStateProvisionService<IActivityOccurrenceDataSubscriber, ActivityOccurrenceDataFilter, ActivityOccurrenceData>, ISystemEntityDataProvisionService<IActivityOccurrenceDataSubscriber, ActivityOccurrenceDataFilter, ActivityOccurrenceData> {
 
     /**
      * Return the descriptor of the provided path.
@@ -15,7 +15,7 @@
  */
 package eu.dariolucia.reatmetric.api.alarms;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItemFilter;
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDataFilter;
 import eu.dariolucia.reatmetric.api.model.AlarmState;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
@@ -29,7 +29,7 @@ import java.util.*;
  *
  * Objects of this class are immutable.
  */
-public final class AlarmParameterDataFilter extends AbstractDataItemFilter<AlarmParameterData> implements Serializable {
+public final class AlarmParameterDataFilter extends AbstractSystemEntityDataFilter<AlarmParameterData> implements Serializable {
 
 	/**
 	 * 
@@ -119,6 +119,17 @@ public final class AlarmParameterDataFilter extends AbstractDataItemFilter<Alarm
         return externalIdList;
     }
 
+    @Override
+    public AlarmParameterDataFilter withAddedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        checkAddition(parameterPathList, externalIdList, paths, externalIds);
+        return new AlarmParameterDataFilter(parentPath, addToSelection(parameterPathList, paths), alarmStateList, addToSelection(externalIdList, externalIds));
+    }
+
+    @Override
+    public AlarmParameterDataFilter withRemovedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        return new AlarmParameterDataFilter(parentPath, removeFromSelection(parameterPathList, paths), alarmStateList, removeFromSelection(externalIdList, externalIds));
+    }
+
     @Override
     public boolean isClear() {
         return this.parentPath == null && this.parameterPathList == null && this.alarmStateList == null && this.externalIdList == null;
@@ -16,10 +16,11 @@
 package eu.dariolucia.reatmetric.api.alarms;
 
 import eu.dariolucia.reatmetric.api.common.IDataItemProvisionService;
+import eu.dariolucia.reatmetric.api.common.ISystemEntityDataProvisionService;
 
 /**
  * This interface is a specialisation of the {@link IDataItemProvisionService}, for parameter alarms.
  */
-public interface IAlarmParameterDataProvisionService extends IDataItemProvisionService<IAlarmParameterDataSubscriber, AlarmParameterDataFilter, AlarmParameterData> {
+public interface IAlarmParameterDataProvisionService extends ISystemEntityDataProvisionService<IAlarmParameterDataSubscriber, AlarmParameterDataFilter, AlarmParameterData> {
 
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.api.common;
+
+import eu.dariolucia.reatmetric.api.model.SystemEntity;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Abstract filter definition for filters on data items managed by the processing model as {@link SystemEntity}, which
+ * select data items by exact path and by external ID. Such filters can be incrementally updated, to add or remove
+ * entities from the selection.
+ *
+ * The path and external ID selections are both applied: a data item is selected only if its path and its external ID
+ * are both selected. Entities can be therefore added only to a selection that is used by the filter.
+ */
+public abstract class AbstractSystemEntityDataFilter<T extends AbstractDataItem> extends AbstractDataItemFilter<T> {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Return a filter equal to this one, with the provided paths and external IDs added to the exact path and external
+	 * ID selections.
+	 *
+	 * A selection that is not specified (i.e. null) already selects all entities and it is not modified. If the filter
+	 * selects entities only by path (resp. external ID), only paths (resp. external IDs) can be added. If the filter
+	 * selects entities by path and by external ID, both the paths and the external IDs of the entities must be provided.
+	 *
+	 * @param paths the paths to add, can be null
+	 * @param externalIds the external IDs to add, can be null
+	 * @return the new filter
+	 * @throws IllegalArgumentException if the provided entities cannot be added to the selection of this filter
+	 */
+	public abstract AbstractSystemEntityDataFilter<T> withAddedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds);
+
+	/**
+	 * Return a filter equal to this one, with the provided paths and external IDs removed from the exact path and external
+	 * ID selections. A selection that is not specified (i.e. null) cannot be restricted and it is not modified.
+	 *
+	 * @param paths the paths to remove, can be null
+	 * @param externalIds the external IDs to remove, can be null
+	 * @return the new filter
+	 */
+	public abstract AbstractSystemEntityDataFilter<T> withRemovedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds);
+
+	/**
+	 * Check that the provided paths and external IDs can be added to the provided selections, as per
+	 * {@link #withAddedEntities(Collection, Collection)}.
+	 *
+	 * @param pathSelection the current path selection, can be null
+	 * @param externalIdSelection the current external ID selection, can be null
+	 * @param paths the paths to add, can be null
+	 * @param externalIds the external IDs to add, can be null
+	 * @throws IllegalArgumentException if the provided entities cannot be added to the selections
+	 */
+	protected static void checkAddition(Set<SystemEntityPath> pathSelection, Set<Integer> externalIdSelection, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+		boolean addingPaths = paths != null && !paths.isEmpty();
+		boolean addingExternalIds = externalIds != null && !externalIds.isEmpty();
+		if(addingExternalIds && externalIdSelection == null && pathSelection != null) {
+			throw new IllegalArgumentException("Cannot add external IDs " + externalIds + " to a filter selecting by path only: provide the paths");
+		}
+		if(addingPaths && pathSelection == null && externalIdSelection != null) {
+			throw new IllegalArgumentException("Cannot add paths " + paths + " to a filter selecting by external ID only: provide the external IDs");
+		}
+		if(pathSelection != null && externalIdSelection != null && addingPaths != addingExternalIds) {
+			throw new IllegalArgumentException("Cannot add entities to a filter selecting by path and external ID: provide both the paths and the external IDs");
+		}
+	}
+
+	protected static <E> Set<E> addToSelection(Set<E> selection, Collection<E> toAdd) {
+		if(selection == null || toAdd == null || toAdd.isEmpty()) {
+			return selection;
+		}
+		Set<E> result = new LinkedHashSet<>(selection);
+		result.addAll(toAdd);
+		return result;
+	}
+
+	protected static <E> Set<E> removeFromSelection(Set<E> selection, Collection<E> toRemove) {
+		if(selection == null || toRemove == null || toRemove.isEmpty()) {
+			return selection;
+		}
+		Set<E> result = new LinkedHashSet<>(selection);
+		result.removeAll(toRemove);
+		return result;
+	}
+}
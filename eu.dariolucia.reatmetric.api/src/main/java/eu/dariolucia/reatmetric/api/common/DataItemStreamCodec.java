@@ -0,0 +1,477 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.api.common;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceReport;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
+import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.messages.Severity;
+import eu.dariolucia.reatmetric.api.model.AlarmState;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+import eu.dariolucia.reatmetric.api.parameters.Validity;
+import eu.dariolucia.reatmetric.api.value.ValueUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary encoding of batches of data items, used by the streaming transport of subscriptions (see
+ * {@link IDataItemStreamReceiver}).
+ *
+ * A batch is encoded as a flag byte (bit 0 set if the rest of the batch is deflated), followed by the number of items
+ * and by the items. Each item starts with a type tag: {@link ParameterData}, {@link EventData} and
+ * {@link ActivityOccurrenceData} are encoded field by field, any other type is encoded using Java serialization.
+ * Strings (names, paths, routes, types, ...) are stored once per batch and then referenced by index, values are
+ * encoded with {@link ValueUtil#serialize(Object)}, enumerations by ordinal.
+ *
+ * This class is stateless and thread-safe.
+ */
+public final class DataItemStreamCodec {
+
+    private static final int FLAG_COMPRESSED = 0x01;
+
+    private static final byte TAG_SERIALIZED = 0;
+    private static final byte TAG_PARAMETER = 1;
+    private static final byte TAG_EVENT = 2;
+    private static final byte TAG_ACTIVITY_OCCURRENCE = 3;
+
+    private static final int STRING_NULL = -1;
+    private static final int STRING_NEW = -2;
+
+    private static final byte OBJECT_NULL = 0;
+    private static final byte OBJECT_STRING = 1;
+    private static final byte OBJECT_VALUE = 2;
+
+    private static final byte ID_NULL = 0;
+    private static final byte ID_LONG = 1;
+    private static final byte ID_OBJECT = 2;
+
+    private static final Validity[] VALIDITY_VALUES = Validity.values();
+    private static final AlarmState[] ALARM_STATE_VALUES = AlarmState.values();
+    private static final Severity[] SEVERITY_VALUES = Severity.values();
+    private static final ActivityOccurrenceState[] ACTIVITY_STATE_VALUES = ActivityOccurrenceState.values();
+    private static final ActivityReportState[] REPORT_STATE_VALUES = ActivityReportState.values();
+
+    private DataItemStreamCodec() {
+        // Private constructor
+    }
+
+    /**
+     * Encode the provided data items.
+     *
+     * @param items the items to encode
+     * @param compress true if the encoded items shall be deflated
+     * @return the encoded batch
+     * @throws IOException in case of encoding problems (e.g. not serializable objects)
+     */
+    public static byte[] encode(List<? extends AbstractDataItem> items, boolean compress) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + items.size() * 64);
+        bos.write(compress ? FLAG_COMPRESSED : 0);
+        OutputStream os = compress ? new DeflaterOutputStream(bos) : bos;
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+            ItemWriter writer = new ItemWriter(dos);
+            dos.writeInt(items.size());
+            for (AbstractDataItem item : items) {
+                writer.writeItem(item);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decode the provided batch.
+     *
+     * @param batch the batch, as created by {@link DataItemStreamCodec#encode(List, boolean)}
+     * @return the decoded data items, in the same order they were encoded
+     * @throws IOException in case of decoding problems
+     */
+    public static List<AbstractDataItem> decode(byte[] batch) throws IOException {
+        if (batch.length == 0) {
+            throw new IOException("Empty batch");
+        }
+        InputStream is = new ByteArrayInputStream(batch, 1, batch.length - 1);
+        if ((batch[0] & FLAG_COMPRESSED) != 0) {
+            is = new InflaterInputStream(is);
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(is))) {
+            ItemReader reader = new ItemReader(dis);
+            int size = dis.readInt();
+            List<AbstractDataItem> result = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                result.add(reader.readItem());
+            }
+            return result;
+        }
+    }
+
+    private static final class ItemWriter {
+
+        private final DataOutputStream dos;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private ItemWriter(DataOutputStream dos) {
+            this.dos = dos;
+        }
+
+        private void writeItem(AbstractDataItem item) throws IOException {
+            Class<?> itemClass = item.getClass();
+            if (itemClass == ParameterData.class) {
+                dos.writeByte(TAG_PARAMETER);
+                writeParameter((ParameterData) item);
+            } else if (itemClass == EventData.class) {
+                dos.writeByte(TAG_EVENT);
+                writeEvent((EventData) item);
+            } else if (itemClass == ActivityOccurrenceData.class) {
+                dos.writeByte(TAG_ACTIVITY_OCCURRENCE);
+                writeActivityOccurrence((ActivityOccurrenceData) item);
+            } else {
+                dos.writeByte(TAG_SERIALIZED);
+                writeSerialized(item);
+            }
+        }
+
+        private void writeParameter(ParameterData item) throws IOException {
+            writeId(item.getInternalId());
+            writeInstant(item.getGenerationTime());
+            dos.writeInt(item.getExternalId());
+            writeString(item.getName());
+            writePath(item.getPath());
+            writeObject(item.getEngValue());
+            writeObject(item.getSourceValue());
+            writeString(item.getRoute());
+            writeEnum(item.getValidity());
+            writeEnum(item.getAlarmState());
+            writeId(item.getRawDataContainerId());
+            writeInstant(item.getReceptionTime());
+            writeObject(item.getExtension());
+        }
+
+        private void writeEvent(EventData item) throws IOException {
+            writeId(item.getInternalId());
+            writeInstant(item.getGenerationTime());
+            dos.writeInt(item.getExternalId());
+            writeString(item.getName());
+            writePath(item.getPath());
+            writeString(item.getQualifier());
+            writeString(item.getType());
+            writeString(item.getRoute());
+            writeString(item.getSource());
+            writeEnum(item.getSeverity());
+            writeObject(item.getReport());
+            writeId(item.getRawDataContainerId());
+            writeInstant(item.getReceptionTime());
+            writeObject(item.getExtension());
+        }
+
+        private void writeActivityOccurrence(ActivityOccurrenceData item) throws IOException {
+            writeId(item.getInternalId());
+            writeInstant(item.getGenerationTime());
+            writeObject(item.getExtension());
+            dos.writeInt(item.getExternalId());
+            writeString(item.getName());
+            writePath(item.getPath());
+            writeString(item.getType());
+            dos.writeInt(item.getArguments().size());
+            for (Map.Entry<String, Object> e : item.getArguments().entrySet()) {
+                writeString(e.getKey());
+                writeObject(e.getValue());
+            }
+            dos.writeInt(item.getProperties().size());
+            for (Map.Entry<String, String> e : item.getProperties().entrySet()) {
+                writeString(e.getKey());
+                writeString(e.getValue());
+            }
+            dos.writeInt(item.getProgressReports().size());
+            for (ActivityOccurrenceReport report : item.getProgressReports()) {
+                writeId(report.getInternalId());
+                writeInstant(report.getGenerationTime());
+                writeObject(report.getExtension());
+                writeString(report.getName());
+                writeEnum(report.getState());
+                writeInstant(report.getExecutionTime());
+                writeEnum(report.getStatus());
+                writeEnum(report.getStateTransition());
+                writeObject(report.getResult());
+            }
+            writeString(item.getRoute());
+            writeString(item.getSource());
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                dos.writeInt(STRING_NULL);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                dos.writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                dos.writeInt(STRING_NEW);
+                writeBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void writePath(SystemEntityPath path) throws IOException {
+            writeString(path == null ? null : path.asString());
+        }
+
+        private void writeBytes(byte[] data) throws IOException {
+            dos.writeInt(data.length);
+            dos.write(data);
+        }
+
+        private void writeInstant(Instant t) throws IOException {
+            if (t == null) {
+                dos.writeBoolean(false);
+            } else {
+                dos.writeBoolean(true);
+                dos.writeLong(t.getEpochSecond());
+                dos.writeInt(t.getNano());
+            }
+        }
+
+        private void writeEnum(Enum<?> e) throws IOException {
+            dos.writeByte(e == null ? -1 : e.ordinal());
+        }
+
+        private void writeId(IUniqueId id) throws IOException {
+            if (id == null) {
+                dos.writeByte(ID_NULL);
+            } else if (id.getClass() == LongUniqueId.class) {
+                dos.writeByte(ID_LONG);
+                dos.writeLong(id.asLong());
+            } else {
+                dos.writeByte(ID_OBJECT);
+                writeSerialized(id);
+            }
+        }
+
+        private void writeObject(Object o) throws IOException {
+            if (o == null) {
+                dos.writeByte(OBJECT_NULL);
+            } else if (o instanceof String) {
+                // ValueUtil encodes strings as US-ASCII: keep the full content
+                dos.writeByte(OBJECT_STRING);
+                writeString((String) o);
+            } else {
+                dos.writeByte(OBJECT_VALUE);
+                writeBytes(ValueUtil.serialize(o));
+            }
+        }
+
+        private void writeSerialized(Object o) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(o);
+            }
+            writeBytes(bos.toByteArray());
+        }
+    }
+
+    private static final class ItemReader {
+
+        private final DataInputStream dis;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, SystemEntityPath> paths = new HashMap<>();
+
+        private ItemReader(DataInputStream dis) {
+            this.dis = dis;
+        }
+
+        private AbstractDataItem readItem() throws IOException {
+            byte tag = dis.readByte();
+            switch (tag) {
+                case TAG_PARAMETER:
+                    return readParameter();
+                case TAG_EVENT:
+                    return readEvent();
+                case TAG_ACTIVITY_OCCURRENCE:
+                    return readActivityOccurrence();
+                case TAG_SERIALIZED:
+                    return (AbstractDataItem) readSerialized();
+                default:
+                    throw new IOException("Unknown data item tag " + tag);
+            }
+        }
+
+        private ParameterData readParameter() throws IOException {
+            IUniqueId internalId = readId();
+            Instant generationTime = readInstant();
+            int externalId = dis.readInt();
+            String name = readString();
+            SystemEntityPath path = readPath();
+            Object engValue = readObject();
+            Object sourceValue = readObject();
+            String route = readString();
+            Validity validity = readEnum(VALIDITY_VALUES);
+            AlarmState alarmState = readEnum(ALARM_STATE_VALUES);
+            IUniqueId rawDataContainerId = readId();
+            Instant receptionTime = readInstant();
+            Object extension = readObject();
+            return new ParameterData(internalId, generationTime, externalId, name, path, engValue, sourceValue, route, validity, alarmState, rawDataContainerId, receptionTime, extension);
+        }
+
+        private EventData readEvent() throws IOException {
+            IUniqueId internalId = readId();
+            Instant generationTime = readInstant();
+            int externalId = dis.readInt();
+            String name = readString();
+            SystemEntityPath path = readPath();
+            String qualifier = readString();
+            String type = readString();
+            String route = readString();
+            String source = readString();
+            Severity severity = readEnum(SEVERITY_VALUES);
+            Object report = readObject();
+            IUniqueId rawDataContainerId = readId();
+            Instant receptionTime = readInstant();
+            Object extension = readObject();
+            return new EventData(internalId, generationTime, externalId, name, path, qualifier, type, route, source, severity, report, rawDataContainerId, receptionTime, extension);
+        }
+
+        private ActivityOccurrenceData readActivityOccurrence() throws IOException {
+            IUniqueId internalId = readId();
+            Instant generationTime = readInstant();
+            Object extension = readObject();
+            int externalId = dis.readInt();
+            String name = readString();
+            SystemEntityPath path = readPath();
+            String type = readString();
+            int numArguments = dis.readInt();
+            Map<String, Object> arguments = new LinkedHashMap<>();
+            for (int i = 0; i < numArguments; ++i) {
+                arguments.put(readString(), readObject());
+            }
+            int numProperties = dis.readInt();
+            Map<String, String> properties = new LinkedHashMap<>();
+            for (int i = 0; i < numProperties; ++i) {
+                properties.put(readString(), readString());
+            }
+            int numReports = dis.readInt();
+            List<ActivityOccurrenceReport> reports = new ArrayList<>(numReports);
+            for (int i = 0; i < numReports; ++i) {
+                IUniqueId reportId = readId();
+                Instant reportGenerationTime = readInstant();
+                Object reportExtension = readObject();
+                String reportName = readString();
+                ActivityOccurrenceState state = readEnum(ACTIVITY_STATE_VALUES);
+                Instant executionTime = readInstant();
+                ActivityReportState status = readEnum(REPORT_STATE_VALUES);
+                ActivityOccurrenceState stateTransition = readEnum(ACTIVITY_STATE_VALUES);
+                Object result = readObject();
+                reports.add(new ActivityOccurrenceReport(reportId, reportGenerationTime, reportExtension, reportName, state, executionTime, status, stateTransition, result));
+            }
+            String route = readString();
+            String source = readString();
+            return new ActivityOccurrenceData(internalId, generationTime, extension, externalId, name, path, type, arguments, properties, reports, route, source);
+        }
+
+        private String readString() throws IOException {
+            int code = dis.readInt();
+            if (code == STRING_NULL) {
+                return null;
+            } else if (code == STRING_NEW) {
+                String s = new String(readBytes(), StandardCharsets.UTF_8);
+                strings.add(s);
+                return s;
+            } else if (code >= 0 && code < strings.size()) {
+                return strings.get(code);
+            } else {
+                throw new IOException("Invalid string reference " + code);
+            }
+        }
+
+        private SystemEntityPath readPath() throws IOException {
+            String path = readString();
+            return path == null ? null : paths.computeIfAbsent(path, SystemEntityPath::fromString);
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = dis.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid length " + length);
+            }
+            byte[] data = new byte[length];
+            dis.readFully(data);
+            return data;
+        }
+
+        private Instant readInstant() throws IOException {
+            if (dis.readBoolean()) {
+                return Instant.ofEpochSecond(dis.readLong(), dis.readInt());
+            } else {
+                return null;
+            }
+        }
+
+        private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+            int ordinal = dis.readByte();
+            if (ordinal < 0) {
+                return null;
+            } else if (ordinal < values.length) {
+                return values[ordinal];
+            } else {
+                throw new IOException("Invalid ordinal " + ordinal + " for enumeration " + values.getClass().getComponentType().getSimpleName());
+            }
+        }
+
+        private IUniqueId readId() throws IOException {
+            byte tag = dis.readByte();
+            switch (tag) {
+                case ID_NULL:
+                    return null;
+                case ID_LONG:
+                    return new LongUniqueId(dis.readLong());
+                case ID_OBJECT:
+                    return (IUniqueId) readSerialized();
+                default:
+                    throw new IOException("Unknown unique ID tag " + tag);
+            }
+        }
+
+        private Object readObject() throws IOException {
+            byte tag = dis.readByte();
+            switch (tag) {
+                case OBJECT_NULL:
+                    return null;
+                case OBJECT_STRING:
+                    return readString();
+                case OBJECT_VALUE:
+                    return ValueUtil.deserialize(readBytes());
+                default:
+                    throw new IOException("Unknown object tag " + tag);
+            }
+        }
+
+        private Object readSerialized() throws IOException {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.api.common;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * This interface can be implemented, in addition to the type-specific subscription interface, by remote subscribers
+ * that want to receive data items in batches encoded with the {@link DataItemStreamCodec}, rather than as serialized
+ * lists of objects. Providers that do not support the streaming transport simply ignore this interface and invoke
+ * {@link IDataItemSubscriber#dataItemsReceived(java.util.List)}.
+ */
+public interface IDataItemStreamReceiver extends Remote {
+
+    /**
+     * Inform the receiver that a new batch of data items is available. Batches are delivered in sequence, one at a
+     * time: the provider does not deliver the next batch, until this call returns. A receiver can therefore apply
+     * back-pressure by blocking this call, when its local delivery window is full.
+     *
+     * @param sequenceNumber the sequence number of the batch, starting from 0 and increasing by 1 at each batch
+     * @param batch the batch, encoded by {@link DataItemStreamCodec#encode(java.util.List, boolean)}
+     * @return the sequence number of the last batch fully delivered to the final subscriber, or -1 if none
+     * @throws RemoteException in case of remoting problems
+     */
+    long dataBatchReceived(long sequenceNumber, byte[] batch) throws RemoteException;
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.api.common;
+
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+
+import java.rmi.RemoteException;
+import java.util.Collection;
+
+/**
+ * This interface extends the {@link IDataItemProvisionService} with the possibility to incrementally update the
+ * selection of an existing subscription, for data items managed by the processing model as system entities.
+ *
+ * Differently from a new invocation of {@link IDataItemProvisionService#subscribe(IDataItemSubscriber, AbstractDataItemFilter)},
+ * which re-delivers the state of all the data items matching the new filter, the incremental update delivers only the
+ * state of the newly selected entities.
+ *
+ * @param <T> subscriber type
+ * @param <R> filter type
+ * @param <K> item type
+ */
+public interface ISystemEntityDataProvisionService<T extends IDataItemSubscriber<K>, R extends AbstractSystemEntityDataFilter<K>, K extends AbstractDataItem> extends IDataItemProvisionService<T, R, K> {
+
+    /**
+     * Add the provided paths and external IDs to the filter of the subscription, as per
+     * {@link AbstractSystemEntityDataFilter#withAddedEntities(Collection, Collection)}. The current state of the newly selected
+     * entities is delivered to the subscriber.
+     *
+     * @param subscriber the already registered subscriber, cannot be null
+     * @param paths the paths to add, can be null
+     * @param externalIds the external IDs to add, can be null
+     * @throws ReatmetricException if the subscriber is not registered, or if the entities cannot be added to the filter
+     * @throws RemoteException in case of remoting problem
+     */
+    void addToSubscription(T subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException;
+
+    /**
+     * Remove the provided paths and external IDs from the filter of the subscription, as per
+     * {@link AbstractSystemEntityDataFilter#withRemovedEntities(Collection, Collection)}. No data item is re-delivered.
+     *
+     * @param subscriber the already registered subscriber, cannot be null
+     * @param paths the paths to remove, can be null
+     * @param externalIds the external IDs to remove, can be null
+     * @throws ReatmetricException if the subscriber is not registered
+     * @throws RemoteException in case of remoting problem
+     */
+    void removeFromSubscription(T subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException;
+}
@@ -17,7 +17,7 @@
 
 package eu.dariolucia.reatmetric.api.events;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItemFilter;
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDataFilter;
 import eu.dariolucia.reatmetric.api.messages.Severity;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
@@ -31,7 +31,7 @@ import java.util.*;
  *
  * Objects of this class are immutable.
  */
-public final class EventDataFilter extends AbstractDataItemFilter<EventData> implements Serializable {
+public final class EventDataFilter extends AbstractSystemEntityDataFilter<EventData> implements Serializable {
     
 	/**
 	 * 
@@ -181,6 +181,17 @@ public final class EventDataFilter extends AbstractDataItemFilter<EventData> imp
         return externalIdList;
     }
 
+    @Override
+    public EventDataFilter withAddedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        checkAddition(eventPathList, externalIdList, paths, externalIds);
+        return new EventDataFilter(parentPath, addToSelection(eventPathList, paths), routeList, typeList, sourceList, severityList, addToSelection(externalIdList, externalIds));
+    }
+
+    @Override
+    public EventDataFilter withRemovedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        return new EventDataFilter(parentPath, removeFromSelection(eventPathList, paths), routeList, typeList, sourceList, severityList, removeFromSelection(externalIdList, externalIds));
+    }
+
     @Override
     public boolean isClear() {
         return this.parentPath == null && this.eventPathList == null &&this.severityList == null && this.sourceList == null && this.routeList == null && this.typeList == null && this.externalIdList == null;
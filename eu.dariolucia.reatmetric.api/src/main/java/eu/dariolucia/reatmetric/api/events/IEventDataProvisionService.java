@@ -18,6 +18,7 @@
 package eu.dariolucia.reatmetric.api.events;
 
 import eu.dariolucia.reatmetric.api.common.IDataItemProvisionService;
+import eu.dariolucia.reatmetric.api.common.ISystemEntityDataProvisionService;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
@@ -27,7 +28,7 @@ import java.rmi.RemoteException;
  * This interface is a specialisation of the {@link IDataItemProvisionService}, for event occurrences. In addition, it provides
  * descriptors for the specified event.
  */
-public interface IEventDataProvisionService extends IDataItemProvisionService<IEventDataSubscriber, EventDataFilter, EventData> {
+public interface IEventDataProvisionService extends ISystemEntityDataProvisionService<IEventDataSubscriber, EventDataFilter, EventData> {
 
     /**
      * Return the descriptor of the provided path.
@@ -67,6 +67,20 @@ public interface ISystemModelProvisionService extends Remote {
      */
     List<SystemEntity> getContainedEntities(SystemEntityPath path) throws ReatmetricException, RemoteException;
 
+    /**
+     * This method returns a page of the depth-first, pre-order traversal of the subtree rooted at the specified path,
+     * including the specified system entity as first element of the traversal. This method allows to retrieve large
+     * portions of the processing model tree with a limited number of requests.
+     *
+     * @param path the path of the root of the subtree
+     * @param offset the index of the first entity to return, 0 to start from the root of the subtree
+     * @param maxEntities the maximum number of entities to return, 0 or negative means no limit
+     * @return the requested page of the subtree
+     * @throws ReatmetricException if the path does not exist
+     * @throws RemoteException in case of remoting problem
+     */
+    SystemEntityTreePage getSubtree(SystemEntityPath path, int offset, int maxEntities) throws ReatmetricException, RemoteException;
+
     /**
      * This method returns the {@link SystemEntity} at the specified path in the processing model tree.
      *
@@ -167,4 +181,16 @@ public interface ISystemModelProvisionService extends Remote {
      */
     AbstractSystemEntityDescriptor getDescriptorOf(SystemEntityPath path) throws ReatmetricException, RemoteException;
 
+    /**
+     * This method retrieves and returns the {@link AbstractSystemEntityDescriptor} objects of the system entities
+     * specified by ID, in a single request.
+     *
+     * @param ids the IDs of the system entities
+     * @return the list of {@link AbstractSystemEntityDescriptor}, in the same order of the provided IDs: the list
+     * contains null for the IDs that do not exist
+     * @throws ReatmetricException in case of issues during the execution of the operation
+     * @throws RemoteException in case of remoting problem
+     */
+    List<AbstractSystemEntityDescriptor> getDescriptorsOf(List<Integer> ids) throws ReatmetricException, RemoteException;
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.api.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the depth-first, pre-order traversal of a subtree of the ReatMetric processing model, as returned by
+ * {@link ISystemModelProvisionService#getSubtree(SystemEntityPath, int, int)}.
+ *
+ * Each entity in the page is paired with the index of its parent in the complete traversal, so that the tree can be
+ * rebuilt by the client without additional requests: since the traversal is pre-order, the parent of an entity is
+ * always located before the entity itself.
+ *
+ * Objects of this class are immutable.
+ */
+public final class SystemEntityTreePage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int offset;
+
+    private final List<SystemEntity> entities;
+
+    private final int[] parentIndexes;
+
+    private final boolean last;
+
+    /**
+     * Class constructor.
+     *
+     * @param offset the index, in the complete traversal, of the first entity of this page
+     * @param entities the entities of this page
+     * @param parentIndexes the index, in the complete traversal, of the parent of each entity, -1 for the root of the subtree
+     * @param last true if this is the last page of the traversal
+     */
+    public SystemEntityTreePage(int offset, List<SystemEntity> entities, int[] parentIndexes, boolean last) {
+        if(entities.size() != parentIndexes.length) {
+            throw new IllegalArgumentException("Entities and parent indexes size mismatch: " + entities.size() + " != " + parentIndexes.length);
+        }
+        this.offset = offset;
+        this.entities = Collections.unmodifiableList(entities);
+        this.parentIndexes = parentIndexes.clone();
+        this.last = last;
+    }
+
+    /**
+     * Return the index, in the complete traversal, of the first entity of this page.
+     *
+     * @return the offset of this page
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Return the entities of this page, in pre-order.
+     *
+     * @return the entities of this page
+     */
+    public List<SystemEntity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Return the index, in the complete traversal, of the parent of the entity at the specified position of this page.
+     *
+     * @param position the position of the entity in this page
+     * @return the index of the parent, or -1 if the entity is the root of the subtree
+     */
+    public int getParentIndex(int position) {
+        return parentIndexes[position];
+    }
+
+    /**
+     * Return whether this is the last page of the traversal.
+     *
+     * @return true if there are no more entities to retrieve
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    /**
+     * Return the offset of the next page.
+     *
+     * @return the offset to use to retrieve the next page
+     */
+    public int getNextOffset() {
+        return offset + entities.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SystemEntityTreePage{" +
+                "offset=" + offset +
+                ", entities=" + entities.size() +
+                ", last=" + last +
+                '}';
+    }
+}
@@ -18,6 +18,7 @@
 package eu.dariolucia.reatmetric.api.parameters;
 
 import eu.dariolucia.reatmetric.api.common.IDataItemStateProvisionService;
+import eu.dariolucia.reatmetric.api.common.ISystemEntityDataProvisionService;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
@@ -27,7 +28,7 @@ import java.rmi.RemoteException;
  *
  * @author dario
  */
-public interface IParameterDataProvisionService extends IDataItemStateProvisionService<IParameterDataSubscriber, ParameterDataFilter, ParameterData> {
+public interface IParameterDataProvisionService extends IDataItemStateProvisionService<IParameterDataSubscriber, ParameterDataFilter, ParameterData>, ISystemEntityDataProvisionService<IParameterDataSubscriber, ParameterDataFilter, ParameterData> {
 
     ParameterDescriptor getDescriptor(SystemEntityPath path) throws ReatmetricException, RemoteException;
 
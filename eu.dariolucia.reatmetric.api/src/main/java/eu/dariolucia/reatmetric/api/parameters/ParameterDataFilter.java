@@ -17,7 +17,7 @@
 
 package eu.dariolucia.reatmetric.api.parameters;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItemFilter;
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDataFilter;
 import eu.dariolucia.reatmetric.api.model.AlarmState;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
@@ -30,7 +30,7 @@ import java.util.*;
  *
  * @author dario
  */
-public final class ParameterDataFilter extends AbstractDataItemFilter<ParameterData> implements Serializable {
+public final class ParameterDataFilter extends AbstractSystemEntityDataFilter<ParameterData> implements Serializable {
    
     /**
 	 * 
@@ -102,6 +102,17 @@ public final class ParameterDataFilter extends AbstractDataItemFilter<ParameterD
         return externalIdList;
     }
 
+    @Override
+    public ParameterDataFilter withAddedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        checkAddition(parameterPathList, externalIdList, paths, externalIds);
+        return new ParameterDataFilter(parentPath, addToSelection(parameterPathList, paths), routeList, validityList, alarmStateList, addToSelection(externalIdList, externalIds));
+    }
+
+    @Override
+    public ParameterDataFilter withRemovedEntities(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        return new ParameterDataFilter(parentPath, removeFromSelection(parameterPathList, paths), routeList, validityList, alarmStateList, removeFromSelection(externalIdList, externalIds));
+    }
+
     @Override
     public boolean isClear() {
         return this.parentPath == null && this.parameterPathList == null && this.routeList == null && this.alarmStateList == null && this.validityList == null && this.externalIdList == null;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.api.processing;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.alarms.AlarmParameterData;
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.model.SystemEntity;
+import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The output of a single processing model update, partitioned by data item type. The partitioning is performed once,
+ * when the batch is created, so that consumers interested in a single type do not need to scan and filter the
+ * complete list of items.
+ *
+ * Objects of this class are immutable.
+ */
+public final class DataItemBatch {
+
+    /**
+     * Partition the provided list of data items by type, in a single pass. The relative order of the items of each type
+     * is preserved.
+     *
+     * @param items the items to partition
+     * @return the partitioned batch
+     */
+    public static DataItemBatch of(List<AbstractDataItem> items) {
+        List<ParameterData> parameters = null;
+        List<AlarmParameterData> alarms = null;
+        List<EventData> events = null;
+        List<ActivityOccurrenceData> activityOccurrences = null;
+        List<SystemEntity> systemEntities = null;
+        for(AbstractDataItem item : items) {
+            if(item instanceof ParameterData) {
+                if(parameters == null) {
+                    parameters = new ArrayList<>(items.size());
+                }
+                parameters.add((ParameterData) item);
+            } else if(item instanceof SystemEntity) {
+                if(systemEntities == null) {
+                    systemEntities = new ArrayList<>();
+                }
+                systemEntities.add((SystemEntity) item);
+            } else if(item instanceof AlarmParameterData) {
+                if(alarms == null) {
+                    alarms = new ArrayList<>();
+                }
+                alarms.add((AlarmParameterData) item);
+            } else if(item instanceof EventData) {
+                if(events == null) {
+                    events = new ArrayList<>();
+                }
+                events.add((EventData) item);
+            } else if(item instanceof ActivityOccurrenceData) {
+                if(activityOccurrences == null) {
+                    activityOccurrences = new ArrayList<>();
+                }
+                activityOccurrences.add((ActivityOccurrenceData) item);
+            }
+        }
+        return new DataItemBatch(items, wrap(parameters), wrap(alarms), wrap(events), wrap(activityOccurrences), wrap(systemEntities));
+    }
+
+    private static <T> List<T> wrap(List<T> list) {
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    private final List<AbstractDataItem> items;
+    private final List<ParameterData> parameters;
+    private final List<AlarmParameterData> alarms;
+    private final List<EventData> events;
+    private final List<ActivityOccurrenceData> activityOccurrences;
+    private final List<SystemEntity> systemEntities;
+
+    private DataItemBatch(List<AbstractDataItem> items, List<ParameterData> parameters, List<AlarmParameterData> alarms, List<EventData> events, List<ActivityOccurrenceData> activityOccurrences, List<SystemEntity> systemEntities) {
+        this.items = Collections.unmodifiableList(items);
+        this.parameters = parameters;
+        this.alarms = alarms;
+        this.events = events;
+        this.activityOccurrences = activityOccurrences;
+        this.systemEntities = systemEntities;
+    }
+
+    /**
+     * @return all the items of the batch, in the original order
+     */
+    public List<AbstractDataItem> getItems() {
+        return items;
+    }
+
+    public List<ParameterData> getParameters() {
+        return parameters;
+    }
+
+    public List<AlarmParameterData> getAlarms() {
+        return alarms;
+    }
+
+    public List<EventData> getEvents() {
+        return events;
+    }
+
+    public List<ActivityOccurrenceData> getActivityOccurrences() {
+        return activityOccurrences;
+    }
+
+    public List<SystemEntity> getSystemEntities() {
+        return systemEntities;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "DataItemBatch{" +
+                "parameters=" + parameters.size() +
+                ", alarms=" + alarms.size() +
+                ", events=" + events.size() +
+                ", activityOccurrences=" + activityOccurrences.size() +
+                ", systemEntities=" + systemEntities.size() +
+                '}';
+    }
+}
@@ -24,4 +24,14 @@ public interface IProcessingModelOutput {
 
     void notifyUpdate(List<AbstractDataItem> items);
 
+    /**
+     * Notify the output of a processing model update, already partitioned by type. Implementations that dispatch the
+     * items by type should override this method, to avoid re-scanning the complete list of items.
+     *
+     * @param batch the processing model update
+     */
+    default void notifyUpdate(DataItemBatch batch) {
+        notifyUpdate(batch.getItems());
+    }
+
 }
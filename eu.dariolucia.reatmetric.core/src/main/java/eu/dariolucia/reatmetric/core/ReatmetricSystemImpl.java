@@ -136,7 +136,7 @@ public class ReatmetricSystemImpl implements IReatmetricSystem, IServiceCoreCont
         rawDataBroker = new RawDataBrokerImpl(this, rawDataArchive);
         // Load the processing model manager and services
         LOG.info("Loading processing model");
-        processingModelManager = new ProcessingModelManager(archive, configuration.getDefinitionsLocation(), configuration.getInitialisation());
+        processingModelManager = new ProcessingModelManager(archive, configuration.getDefinitionsLocation(), configuration.getInitialisation(), configuration.getArchiving());
         // Load the scheduler
         LOG.info("Loading scheduler");
         ServiceLoader<ISchedulerFactory> scheduleLoader = ServiceLoader.load(ISchedulerFactory.class);
@@ -459,6 +459,7 @@ public class ReatmetricSystemImpl implements IReatmetricSystem, IServiceCoreCont
         }
         List<DebugInformation> toReturn = new ArrayList<>(100);
         toReturn.addAll(this.processingModelManager.getProcessingModel().currentDebugInfo());
+        toReturn.addAll(this.processingModelManager.currentDebugInfo());
         if(this.archive != null) {
             toReturn.addAll(this.archive.currentDebugInfo());
         }
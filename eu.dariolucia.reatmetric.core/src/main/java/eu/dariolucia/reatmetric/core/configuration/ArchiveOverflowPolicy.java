@@ -0,0 +1,36 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.core.configuration;
+
+import jakarta.xml.bind.annotation.XmlEnum;
+
+/**
+ * Behaviour of the archiving path of the data access managers, when the archiving queue is full.
+ */
+@XmlEnum
+public enum ArchiveOverflowPolicy {
+    /**
+     * The producer (i.e. the processing model) is blocked until space is available in the archiving queue. No data is lost,
+     * but a slow archive will eventually slow down the processing and the live distribution of the following batches.
+     */
+    BLOCK,
+    /**
+     * The batch that cannot be inserted in the archiving queue is discarded and the loss is reported. Live distribution
+     * is never affected by the archive performance. This is the default policy.
+     */
+    DISCARD
+}
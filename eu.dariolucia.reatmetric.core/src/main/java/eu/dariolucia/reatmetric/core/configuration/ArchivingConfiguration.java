@@ -0,0 +1,58 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.core.configuration;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ArchivingConfiguration {
+
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * Maximum number of batches waiting to be stored, for each data type.
+     */
+    @XmlAttribute(name = "queue-size")
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    /**
+     * Behaviour when the archiving queue is full. The default never blocks the processing and the live distribution.
+     */
+    @XmlAttribute(name = "overflow-policy")
+    private ArchiveOverflowPolicy overflowPolicy = ArchiveOverflowPolicy.DISCARD;
+
+    public ArchivingConfiguration() {
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public ArchiveOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(ArchiveOverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+}
@@ -87,6 +87,9 @@ public class ServiceCoreConfiguration {
     @XmlElement(name = "autostart-connectors")
     private AutostartConnectorsConfiguration autostartConnectors = new AutostartConnectorsConfiguration();
 
+    @XmlElement(name = "archiving")
+    private ArchivingConfiguration archiving = new ArchivingConfiguration();
+
     public ServiceCoreConfiguration() {
     }
 
@@ -158,4 +161,12 @@ public class ServiceCoreConfiguration {
     public void setAutostartConnectors(AutostartConnectorsConfiguration autostartConnectors) {
         this.autostartConnectors = autostartConnectors;
     }
+
+    public ArchivingConfiguration getArchiving() {
+        return archiving;
+    }
+
+    public void setArchiving(ArchivingConfiguration archiving) {
+        this.archiving = archiving;
+    }
 }
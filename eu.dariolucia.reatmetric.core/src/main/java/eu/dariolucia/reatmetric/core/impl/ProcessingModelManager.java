@@ -31,16 +31,20 @@ import eu.dariolucia.reatmetric.api.model.ISystemModelProvisionService;
 import eu.dariolucia.reatmetric.api.model.ISystemModelSubscriber;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.model.SystemEntityTreePage;
+import eu.dariolucia.reatmetric.api.model.SystemEntityType;
 import eu.dariolucia.reatmetric.api.parameters.IParameterDataArchive;
 import eu.dariolucia.reatmetric.api.parameters.IParameterDataProvisionService;
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModelFactory;
+import eu.dariolucia.reatmetric.api.processing.DataItemBatch;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModelOutput;
 import eu.dariolucia.reatmetric.api.processing.input.ActivityProgress;
 import eu.dariolucia.reatmetric.api.processing.input.ActivityRequest;
 import eu.dariolucia.reatmetric.api.processing.input.SetParameterRequest;
 import eu.dariolucia.reatmetric.core.configuration.AbstractInitialisationConfiguration;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 import eu.dariolucia.reatmetric.core.configuration.TimeInitialisationConfiguration;
 import eu.dariolucia.reatmetric.core.impl.managers.ActivityOccurrenceDataAccessManager;
 import eu.dariolucia.reatmetric.core.impl.managers.AlarmParameterDataAccessManager;
@@ -55,7 +59,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class ProcessingModelManager implements IProcessingModelOutput, ISystemModelProvisionService, IActivityExecutionService {
 
@@ -70,7 +73,7 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
 
     private final Map<ISystemModelSubscriber, SystemModelSubscriberWrapper> subscribers = new LinkedHashMap<>();
 
-    public ProcessingModelManager(IArchive archive, String definitionsLocation, AbstractInitialisationConfiguration initialisation) throws ReatmetricException {
+    public ProcessingModelManager(IArchive archive, String definitionsLocation, AbstractInitialisationConfiguration initialisation, ArchivingConfiguration archivingConfiguration) throws ReatmetricException {
         if(initialisation instanceof TimeInitialisationConfiguration) {
             // Clean up required
             cleanUp(archive, ((TimeInitialisationConfiguration) initialisation).getTime());
@@ -121,10 +124,10 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
         ProcessingDefinition definitions = ProcessingDefinition.loadAll(definitionsLocation);
         definitions.setCacheFolder(definitionsLocation);
         // Create the access services
-        parameterDataAccessManager = new ParameterDataAccessManager(parameterArchive);
-        alarmDataAccessManager = new AlarmParameterDataAccessManager(alarmArchive);
-        eventDataAccessManager = new EventDataAccessManager(eventArchive);
-        activityOccurrenceDataAccessManager = new ActivityOccurrenceDataAccessManager(activityArchive);
+        parameterDataAccessManager = new ParameterDataAccessManager(parameterArchive, archivingConfiguration);
+        alarmDataAccessManager = new AlarmParameterDataAccessManager(alarmArchive, archivingConfiguration);
+        eventDataAccessManager = new EventDataAccessManager(eventArchive, archivingConfiguration);
+        activityOccurrenceDataAccessManager = new ActivityOccurrenceDataAccessManager(activityArchive, archivingConfiguration);
         // If the processing model initialisation is needed, create the initializer
         ArchiveInitialiser initializer = null;
         if(initialisation != null) {
@@ -172,13 +175,20 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
 
     @Override
     public void notifyUpdate(List<AbstractDataItem> items) {
-        parameterDataAccessManager.distribute(items);
-        alarmDataAccessManager.distribute(items);
-        eventDataAccessManager.distribute(items);
-        activityOccurrenceDataAccessManager.distribute(items);
+        notifyUpdate(DataItemBatch.of(items));
+    }
 
-        for(SystemModelSubscriberWrapper w : subscribers.values()) {
-            w.notifyItems(items);
+    @Override
+    public void notifyUpdate(DataItemBatch batch) {
+        parameterDataAccessManager.distribute(batch.getParameters());
+        alarmDataAccessManager.distribute(batch.getAlarms());
+        eventDataAccessManager.distribute(batch.getEvents());
+        activityOccurrenceDataAccessManager.distribute(batch.getActivityOccurrences());
+
+        if(!batch.getSystemEntities().isEmpty()) {
+            for (SystemModelSubscriberWrapper w : subscribers.values()) {
+                w.notifyItems(batch.getSystemEntities());
+            }
         }
     }
 
@@ -223,6 +233,37 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
         return processingModel.getContainedEntities(se);
     }
 
+    @Override
+    public SystemEntityTreePage getSubtree(SystemEntityPath path, int offset, int maxEntities) throws ReatmetricException {
+        if(offset < 0) {
+            throw new ReatmetricException("Negative offset " + offset + " for subtree of " + path);
+        }
+        int end = maxEntities > 0 ? offset + maxEntities : Integer.MAX_VALUE;
+        List<SystemEntity> entities = new ArrayList<>();
+        List<Integer> parentIndexes = new ArrayList<>();
+        // Pre-order traversal: each stack item is the entity and the traversal index of its parent
+        Deque<Pair<SystemEntity, Integer>> stack = new ArrayDeque<>();
+        stack.push(Pair.of(processingModel.getSystemEntityAt(path), -1));
+        int index = 0;
+        while(!stack.isEmpty() && index < end) {
+            Pair<SystemEntity, Integer> toProcess = stack.pop();
+            SystemEntity entity = toProcess.getFirst();
+            if(index >= offset) {
+                entities.add(entity);
+                parentIndexes.add(toProcess.getSecond());
+            }
+            if(entity.getType() == SystemEntityType.CONTAINER) {
+                List<SystemEntity> children = processingModel.getContainedEntities(entity.getPath());
+                // Push in reverse order, so that children are visited in their original order
+                for(int i = children.size() - 1; i >= 0; --i) {
+                    stack.push(Pair.of(children.get(i), index));
+                }
+            }
+            ++index;
+        }
+        return new SystemEntityTreePage(offset, entities, parentIndexes.stream().mapToInt(Integer::intValue).toArray(), stack.isEmpty());
+    }
+
     @Override
     public SystemEntity getSystemEntityAt(SystemEntityPath path) throws ReatmetricException {
         return processingModel.getSystemEntityAt(path);
@@ -268,6 +309,23 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
         return processingModel.getDescriptorOf(path);
     }
 
+    @Override
+    public List<AbstractSystemEntityDescriptor> getDescriptorsOf(List<Integer> ids) {
+        List<AbstractSystemEntityDescriptor> toReturn = new ArrayList<>(ids.size());
+        for(Integer id : ids) {
+            AbstractSystemEntityDescriptor descriptor = null;
+            try {
+                descriptor = processingModel.getDescriptorOf(id);
+            } catch (ReatmetricException e) {
+                if(LOG.isLoggable(Level.FINE)) {
+                    LOG.log(Level.FINE, "Cannot retrieve descriptor of " + id + ": " + e.getMessage());
+                }
+            }
+            toReturn.add(descriptor);
+        }
+        return toReturn;
+    }
+
     @Override
     public IUniqueId startActivity(ActivityRequest request) throws ReatmetricException {
         return processingModel.startActivity(request);
@@ -307,6 +365,15 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
         return processingModel;
     }
 
+    public List<DebugInformation> currentDebugInfo() {
+        List<DebugInformation> toReturn = new ArrayList<>(12);
+        toReturn.addAll(parameterDataAccessManager.currentDebugInfo());
+        toReturn.addAll(alarmDataAccessManager.currentDebugInfo());
+        toReturn.addAll(eventDataAccessManager.currentDebugInfo());
+        toReturn.addAll(activityOccurrenceDataAccessManager.currentDebugInfo());
+        return toReturn;
+    }
+
     public void dispose() {
         // Kill subscribers
         for(SystemModelSubscriberWrapper s : subscribers.values()) {
@@ -337,18 +404,15 @@ public class ProcessingModelManager implements IProcessingModelOutput, ISystemMo
             });
         }
 
-        public void notifyItems(List<AbstractDataItem> toDistribute) {
+        public void notifyItems(List<SystemEntity> toDistribute) {
             if(this.dispatcher.isShutdown()) {
                 return;
             }
-            List<SystemEntity> filtered = toDistribute.stream().filter((i) -> i.getClass().equals(SystemEntity.class)).map(o -> (SystemEntity) o).collect(Collectors.toList());
-            if(!filtered.isEmpty()) {
-                try {
-                    subscriber.dataItemsReceived(filtered);
-                } catch (RemoteException e) {
-                    LOG.log(Level.SEVERE, "Cannot notify subscriber, terminating...", e);
-                    manager.unsubscribe(subscriber);
-                }
+            try {
+                subscriber.dataItemsReceived(toDistribute);
+            } catch (RemoteException e) {
+                LOG.log(Level.SEVERE, "Cannot notify subscriber, terminating...", e);
+                manager.unsubscribe(subscriber);
             }
         }
 
@@ -18,41 +18,67 @@ package eu.dariolucia.reatmetric.core.impl.managers;
 
 import eu.dariolucia.reatmetric.api.archive.IDataItemArchive;
 import eu.dariolucia.reatmetric.api.archive.exceptions.ArchiveException;
-import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
-import eu.dariolucia.reatmetric.api.common.AbstractDataItemFilter;
-import eu.dariolucia.reatmetric.api.common.IDataItemSubscriber;
-import eu.dariolucia.reatmetric.api.common.RetrievalDirection;
+import eu.dariolucia.reatmetric.api.common.*;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.core.configuration.ArchiveOverflowPolicy;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
-public abstract class AbstractAccessManager<T extends AbstractDataItem, K extends AbstractDataItemFilter<T>, J extends IDataItemSubscriber<T>> {
+public abstract class AbstractAccessManager<T extends AbstractDataItem, K extends AbstractSystemEntityDataFilter<T>, J extends IDataItemSubscriber<T>> {
 
     private static final Logger LOG = Logger.getLogger(AbstractAccessManager.class.getName());
 
+    // Maximum wait for an archiving slot, before checking again if the archiver is shut down (BLOCK policy)
+    private static final long ARCHIVE_SLOT_WAIT = 500; // In milliseconds
+
+    // Minimum period between two log messages reporting discarded items (DISCARD policy)
+    private static final long DISCARD_LOG_PERIOD = 10000; // In milliseconds
+
     protected IDataItemArchive<T, K> archive;
-    protected ExecutorService dispatcher; // XXX not sure that this is useful...
+    // Live distribution to subscribers: it never waits for the archive
+    protected final ThreadPoolExecutor dispatcher;
+    // Storage to the archive: bounded, overflow handled according to the configured policy
+    protected final ThreadPoolExecutor archiver;
+
+    private final int archiveQueueSize;
+    private final ArchiveOverflowPolicy archiveOverflowPolicy;
+    // One permit for each batch that can be queued to the archiver
+    private final Semaphore archiveSlots;
+    private final AtomicLong discardedArchiveItems = new AtomicLong();
+    private final AtomicLong discardedSinceLastLog = new AtomicLong();
+    private final AtomicLong lastDiscardLogTime = new AtomicLong();
 
     protected Map<J, AbstractAccessSubscriber<T, K, J>> subscribers;
     protected IProcessingModel model;
 
-    public AbstractAccessManager(IDataItemArchive<T, K> archive) {
+    public AbstractAccessManager(IDataItemArchive<T, K> archive, ArchivingConfiguration archivingConfiguration) {
         this.archive = archive;
-        this.dispatcher = Executors.newFixedThreadPool(1, (runnable) -> {
+        this.archiveQueueSize = archivingConfiguration.getQueueSize();
+        this.archiveOverflowPolicy = archivingConfiguration.getOverflowPolicy();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), (runnable) -> {
             Thread t = new Thread(runnable);
             t.setDaemon(true);
             t.setName(getName() + " Dispatcher Thread");
             return t;
         });
+        this.archiveSlots = new Semaphore(this.archiveQueueSize);
+        this.archiver = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), (runnable) -> {
+            Thread t = new Thread(runnable);
+            t.setDaemon(true);
+            t.setName(getName() + " Archiver Thread");
+            return t;
+        });
         this.subscribers = new ConcurrentHashMap<>();
     }
 
@@ -60,11 +86,75 @@ public abstract class AbstractAccessManager<T extends AbstractDataItem, K extend
         this.model = model;
     }
 
-    public void distribute(List<AbstractDataItem> items) {
-        this.dispatcher.execute(new DispatchJob(items));
+    /**
+     * Distribute the provided items to the subscribers and store them in the archive. The provided list is already
+     * restricted to the items handled by this access manager and it is not modified.
+     *
+     * Live distribution and storage are independent: subscribers can receive the items before they are stored in the
+     * archive. If the archiving queue is full, the configured {@link ArchiveOverflowPolicy} is applied.
+     *
+     * @param toDistribute the items to distribute and store
+     */
+    public void distribute(List<T> toDistribute) {
+        if(this.dispatcher.isShutdown() || toDistribute.isEmpty()) {
+            return;
+        }
+        // Live path first, so that a full archive queue cannot delay the delivery to the subscribers
+        this.dispatcher.execute(new DispatchJob(toDistribute));
+        if(archive != null && acquireArchiveSlot(toDistribute.size())) {
+            try {
+                this.archiver.execute(new ArchiveJob(toDistribute));
+            } catch (RejectedExecutionException e) {
+                // Archiver shut down in the meantime
+                this.archiveSlots.release();
+            }
+        }
+    }
+
+    private boolean acquireArchiveSlot(int items) {
+        if(archiveOverflowPolicy == ArchiveOverflowPolicy.BLOCK) {
+            try {
+                // Wait for a free slot, unless the archiver is shut down in the meantime
+                while(!this.archiver.isShutdown()) {
+                    if(this.archiveSlots.tryAcquire(ARCHIVE_SLOT_WAIT, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        } else {
+            if(this.archiver.isShutdown()) {
+                return false;
+            }
+            if(this.archiveSlots.tryAcquire()) {
+                return true;
+            }
+            reportDiscarded(items);
+            return false;
+        }
     }
 
-    protected abstract Class<? extends AbstractDataItem> getSupportedClass();
+    private void reportDiscarded(int lost) {
+        long totalLost = discardedArchiveItems.addAndGet(lost);
+        discardedSinceLastLog.addAndGet(lost);
+        // Under sustained overload, report the loss at most once per period
+        long now = System.currentTimeMillis();
+        long lastLogTime = lastDiscardLogTime.get();
+        if(now - lastLogTime >= DISCARD_LOG_PERIOD && lastDiscardLogTime.compareAndSet(lastLogTime, now)) {
+            long reported = discardedSinceLastLog.getAndSet(0);
+            LOG.log(Level.WARNING, getName() + " - Archive queue full, " + reported + " data items not stored since last report (total discarded: " + totalLost + ")");
+        }
+    }
+
+    public List<DebugInformation> currentDebugInfo() {
+        return Arrays.asList(
+                DebugInformation.of(getName(), "Live Distribution Queue", dispatcher.getQueue().size(), null, "batches"),
+                DebugInformation.of(getName(), "Archive Queue", archiveQueueSize - archiveSlots.availablePermits(), archiveQueueSize, "batches"),
+                DebugInformation.of(getName(), "Archive Discarded Items", discardedArchiveItems.get(), null, "items")
+        );
+    }
 
     protected abstract String getName();
 
@@ -86,6 +176,26 @@ public abstract class AbstractAccessManager<T extends AbstractDataItem, K extend
 
     protected abstract AbstractAccessSubscriber<T, K, J> createSubscriber(J subscriber, K filter, IProcessingModel model);
 
+    public void addToSubscription(J subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException {
+        AbstractAccessSubscriber<T, K, J> sub = subscribers.get(subscriber);
+        if(sub == null) {
+            throw new ReatmetricException(getName() + " - Subscriber " + subscriber + " not registered");
+        }
+        try {
+            sub.addToFilter(paths, externalIds);
+        } catch (IllegalArgumentException e) {
+            throw new ReatmetricException(getName() + " - Subscription of " + subscriber + " not updated: " + e.getMessage(), e);
+        }
+    }
+
+    public void removeFromSubscription(J subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException {
+        AbstractAccessSubscriber<T, K, J> sub = subscribers.get(subscriber);
+        if(sub == null) {
+            throw new ReatmetricException(getName() + " - Subscriber " + subscriber + " not registered");
+        }
+        sub.removeFromFilter(paths, externalIds);
+    }
+
     public void unsubscribe(J subscriber) {
         AbstractAccessSubscriber<T, K, J> sub = subscribers.remove(subscriber);
         if(sub != null) {
@@ -122,35 +232,53 @@ public abstract class AbstractAccessManager<T extends AbstractDataItem, K extend
             aas.terminate();
         }
         this.subscribers.clear();
+        this.dispatcher.shutdownNow();
+        // Pending archive jobs are still stored, before the archive is disposed
+        this.archiver.shutdown();
+        try {
+            if(!this.archiver.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.log(Level.WARNING, getName() + " - Archive queue not emptied on disposal, " + this.archiver.getQueue().size() + " batches not stored");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private class DispatchJob implements Runnable {
 
-        private List<AbstractDataItem> items;
+        private final List<T> items;
 
-        public DispatchJob(List<AbstractDataItem> items) {
+        public DispatchJob(List<T> items) {
             this.items = items;
         }
 
         public void run() {
-            // Remove the items that are not handled by this access manager
-            List<T> toDistribute = items.stream().filter((i) -> i.getClass().equals(getSupportedClass())).map(o -> (T) o).collect(Collectors.toList());
-            // Store
-            if(archive != null) {
-                try {
-                    archive.store(toDistribute);
-                } catch (ArchiveException e) {
-                    LOG.log(Level.SEVERE, getName() + " - Cannot store data items inside the archive", e);
-                }
-            }
-            // Distribute
             for(Map.Entry<J, AbstractAccessSubscriber<T, K, J>> entry : subscribers.entrySet()) {
                 try {
-                    entry.getValue().notifyItems(toDistribute);
+                    entry.getValue().notifyItems(items);
                 } catch(Exception e) {
                     LOG.log(Level.SEVERE, getName() + " - Cannot notify data items to subscriber " + entry.getValue(), e);
                 }
             }
         }
     }
+
+    private class ArchiveJob implements Runnable {
+
+        private final List<T> items;
+
+        public ArchiveJob(List<T> items) {
+            this.items = items;
+        }
+
+        public void run() {
+            try {
+                archive.store(items);
+            } catch (ArchiveException e) {
+                LOG.log(Level.SEVERE, getName() + " - Cannot store data items inside the archive", e);
+            } finally {
+                archiveSlots.release();
+            }
+        }
+    }
 }
@@ -17,7 +17,9 @@
 package eu.dariolucia.reatmetric.core.impl.managers;
 
 import eu.dariolucia.reatmetric.api.common.*;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.api.processing.exceptions.ProcessingModelException;
 
 import java.rmi.RemoteException;
 import java.util.*;
@@ -27,7 +29,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K extends AbstractDataItemFilter<T>, J extends IDataItemSubscriber<T>> {
+public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K extends AbstractSystemEntityDataFilter<T>, J extends IDataItemSubscriber<T>> {
 
     private static final Logger LOG = Logger.getLogger(AbstractAccessSubscriber.class.getName());
 
@@ -38,6 +40,13 @@ public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K ext
     private final AbstractAccessManager<T, K, J> manager;
     private volatile K filter;
 
+    // Pending filter changes, protected by the queue lock
+    private boolean reinitialisationRequested = true;
+    private boolean selectionReduced = false;
+    private final Set<SystemEntityPath> addedPaths = new LinkedHashSet<>();
+    private final Set<Integer> addedExternalIds = new LinkedHashSet<>();
+    private K filterBeforeAddition = null;
+
     private volatile boolean running;
 
     public AbstractAccessSubscriber(AbstractAccessManager<T, K, J> manager, J subscriber, K filter, IProcessingModel model) {
@@ -54,17 +63,59 @@ public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K ext
     }
 
     private void runDistribution() {
-        boolean initialiseFromModel = true;
         boolean firstInitialisation = false;
         Map<Pair<Integer, Long>, IUniqueId> lastDelivered = new HashMap<>();
 
         while(running) {
-            K theFilter = filter;
-            // And here we start first by getting the current values subject to filter, by retrieving them from the model and
-            // distributing them
-            if(initialiseFromModel) {
-                lastDelivered.clear();
-                List<T> initialItems = (List<T>) model.get(theFilter);
+            K theFilter;
+            boolean reinitialise;
+            List<SystemEntityPath> newPaths = null;
+            List<Integer> newExternalIds = null;
+            K previousFilter = null;
+            boolean reduced = false;
+            List<T> toDistribute = new LinkedList<>();
+            // Wait to have elements in the queue or a filter change
+            synchronized (queue) {
+                while(queue.isEmpty() && running && !reinitialisationRequested && addedPaths.isEmpty() && addedExternalIds.isEmpty()) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                if(!running) {
+                    return;
+                }
+                theFilter = filter;
+                reinitialise = reinitialisationRequested;
+                reinitialisationRequested = false;
+                if(!reinitialise && (!addedPaths.isEmpty() || !addedExternalIds.isEmpty())) {
+                    newPaths = new ArrayList<>(addedPaths);
+                    newExternalIds = new ArrayList<>(addedExternalIds);
+                    previousFilter = filterBeforeAddition;
+                }
+                addedPaths.clear();
+                addedExternalIds.clear();
+                filterBeforeAddition = null;
+                // If there is no (re)initialisation to do, drain the queue now
+                if(!reinitialise && newPaths == null) {
+                    queue.drainTo(toDistribute);
+                    reduced = selectionReduced;
+                    selectionReduced = false;
+                }
+            }
+
+            // First by getting the current values subject to filter, by retrieving them from the model and
+            // distributing them: in case of full filter change, all the matching items are retrieved; in case
+            // of incremental filter change, only the items of the newly selected entities are retrieved
+            if(reinitialise || newPaths != null) {
+                List<T> initialItems;
+                if(reinitialise) {
+                    lastDelivered.clear();
+                    initialItems = (List<T>) model.get(theFilter);
+                } else {
+                    initialItems = retrieveStates(theFilter, previousFilter, newPaths, newExternalIds);
+                }
                 // Remember what you are sending
                 for(T pd : initialItems) {
                     lastDelivered.put(computeId(pd), computeUniqueCounter(pd));
@@ -79,43 +130,16 @@ public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K ext
                     manager.unsubscribe(subscriber);
                     return;
                 }
-                initialiseFromModel = false;
                 firstInitialisation = true;
+                // Process the queue in the next cycle
+                continue;
             }
             // Once the initial distribution is done, all the items currently in the queue must be verified:
             // for each element in the queue that we distribute, we check if we have to deliver the data item (i.e. if the unique id of the item
             // is greater than the one in the lastDelivered map). If no delivery is needed, then the item is discarded,
             // if delivery is needed, the map is updated and the item is not discarded. This algorithm is used only immediately after
             // the first initialisation.
-
-            // Wait to have elements in the queue
-            List<T> toDistribute = new LinkedList<>();
-            synchronized (queue) {
-                while(queue.isEmpty() && running && theFilter == filter) {
-                    try {
-                        queue.wait();
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-                // If the queue is still empty, repeat the outer cycle
-                if(queue.isEmpty()) {
-                    if(theFilter != filter) {
-                        initialiseFromModel = true;
-                    }
-                    continue;
-                } else if(theFilter == filter) {
-                    // If you are here, there are elements in the queue: so drain them
-                    queue.drainTo(toDistribute);
-                } else {
-                    // Filter updated in the meantime, repeat the outer cycle
-                    // XXX: to be evaluated if a reset of the subscription (i.e. with retrieval from model) is needed. So far this is enabled.
-                    initialiseFromModel = true;
-                    continue;
-                }
-            }
-
-            if(firstInitialisation) {
+            if(firstInitialisation && !toDistribute.isEmpty()) {
                 for(Iterator<T> it = toDistribute.iterator(); it.hasNext();) {
                     T pd = it.next();
                     IUniqueId lastDeliveredId = lastDelivered.get(computeId(pd));
@@ -125,20 +149,62 @@ public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K ext
                 }
                 firstInitialisation = false;
             }
+            // Items queued before a reduction of the selection could be no longer selected
+            if(reduced) {
+                toDistribute.removeIf(theFilter.negate());
+            }
             // Distribute the elements
             try {
-                subscriber.dataItemsReceived(toDistribute);
+                if(!toDistribute.isEmpty()) {
+                    subscriber.dataItemsReceived(toDistribute);
+                }
             } catch (RemoteException e) {
                 LOG.log(Level.SEVERE, "Remote exception when notifying subscriber, terminating...", e);
                 manager.unsubscribe(subscriber);
                 return;
             }
+        }
+    }
 
-            // XXX: to be evaluated if a reset of the subscription (i.e. with retrieval from model) is needed. So far this is enabled.
-            if(theFilter != filter) {
-                initialiseFromModel = true;
+    private List<T> retrieveStates(K theFilter, K previousFilter, List<SystemEntityPath> paths, List<Integer> externalIds) {
+        List<AbstractDataItem> states = new LinkedList<>();
+        if(!paths.isEmpty()) {
+            try {
+                states.addAll(model.getByPath(paths));
+            } catch (ProcessingModelException e) {
+                // At least one path is unknown, go one by one
+                for(SystemEntityPath path : paths) {
+                    try {
+                        states.addAll(model.getByPath(Collections.singletonList(path)));
+                    } catch (ProcessingModelException ex) {
+                        LOG.log(Level.WARNING, getName() + " - Cannot retrieve state of " + path + ": " + ex.getMessage());
+                    }
+                }
+            }
+        }
+        if(!externalIds.isEmpty()) {
+            try {
+                states.addAll(model.getById(externalIds));
+            } catch (ProcessingModelException e) {
+                // At least one ID is unknown, go one by one
+                for(Integer externalId : externalIds) {
+                    try {
+                        states.addAll(model.getById(Collections.singletonList(externalId)));
+                    } catch (ProcessingModelException ex) {
+                        LOG.log(Level.WARNING, getName() + " - Cannot retrieve state of " + externalId + ": " + ex.getMessage());
+                    }
+                }
+            }
+        }
+        // Keep only the items of the right type that are selected now but were not selected before, without duplicates
+        Map<Pair<Integer, Long>, T> selected = new LinkedHashMap<>();
+        Class<T> type = theFilter.getDataItemType();
+        for(AbstractDataItem item : states) {
+            if(item != null && item.getClass().equals(type) && theFilter.test((T) item) && !previousFilter.test((T) item)) {
+                selected.putIfAbsent(computeId((T) item), (T) item);
             }
         }
+        return new ArrayList<>(selected.values());
     }
 
     protected IUniqueId computeUniqueCounter(T pd) {
@@ -162,8 +228,42 @@ public abstract class AbstractAccessSubscriber<T extends AbstractDataItem, K ext
     }
 
     public void update(K filter) {
-        this.filter = filter;
         synchronized (queue) {
+            this.filter = filter;
+            this.reinitialisationRequested = true;
+            queue.notifyAll();
+        }
+    }
+
+    public void addToFilter(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        synchronized (queue) {
+            // Fails if the entities cannot be added: in such case, nothing is changed
+            K newFilter = (K) this.filter.withAddedEntities(paths, externalIds);
+            // Remember the selection before the first pending addition, to deliver only what was not selected
+            if(filterBeforeAddition == null) {
+                filterBeforeAddition = this.filter;
+            }
+            this.filter = newFilter;
+            if(paths != null) {
+                addedPaths.addAll(paths);
+            }
+            if(externalIds != null) {
+                addedExternalIds.addAll(externalIds);
+            }
+            queue.notifyAll();
+        }
+    }
+
+    public void removeFromFilter(Collection<SystemEntityPath> paths, Collection<Integer> externalIds) {
+        synchronized (queue) {
+            this.filter = (K) this.filter.withRemovedEntities(paths, externalIds);
+            if(paths != null) {
+                addedPaths.removeAll(paths);
+            }
+            if(externalIds != null) {
+                addedExternalIds.removeAll(externalIds);
+            }
+            this.selectionReduced = true;
             queue.notifyAll();
         }
     }
@@ -17,23 +17,18 @@
 package eu.dariolucia.reatmetric.core.impl.managers;
 
 import eu.dariolucia.reatmetric.api.activity.*;
-import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
 import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 
 import java.util.Objects;
 
 public class ActivityOccurrenceDataAccessManager extends AbstractAccessManager<ActivityOccurrenceData, ActivityOccurrenceDataFilter, IActivityOccurrenceDataSubscriber> implements IActivityOccurrenceDataProvisionService {
 
-    public ActivityOccurrenceDataAccessManager(IActivityOccurrenceDataArchive archive) {
-        super(archive);
-    }
-
-    @Override
-    protected Class<? extends AbstractDataItem> getSupportedClass() {
-        return ActivityOccurrenceData.class;
+    public ActivityOccurrenceDataAccessManager(IActivityOccurrenceDataArchive archive, ArchivingConfiguration archivingConfiguration) {
+        super(archive, archivingConfiguration);
     }
 
     @Override
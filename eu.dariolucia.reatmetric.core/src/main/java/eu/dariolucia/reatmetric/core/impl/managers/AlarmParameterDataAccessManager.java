@@ -17,18 +17,13 @@
 package eu.dariolucia.reatmetric.core.impl.managers;
 
 import eu.dariolucia.reatmetric.api.alarms.*;
-import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 
 public class AlarmParameterDataAccessManager extends AbstractAccessManager<AlarmParameterData, AlarmParameterDataFilter, IAlarmParameterDataSubscriber> implements IAlarmParameterDataProvisionService {
 
-    public AlarmParameterDataAccessManager(IAlarmParameterDataArchive archive) {
-        super(archive);
-    }
-
-    @Override
-    protected Class<? extends AbstractDataItem> getSupportedClass() {
-        return AlarmParameterData.class;
+    public AlarmParameterDataAccessManager(IAlarmParameterDataArchive archive, ArchivingConfiguration archivingConfiguration) {
+        super(archive, archivingConfiguration);
     }
 
     @Override
@@ -16,26 +16,21 @@
 
 package eu.dariolucia.reatmetric.core.impl.managers;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
 import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.events.*;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.parameters.*;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 import org.w3c.dom.events.Event;
 
 import java.util.Objects;
 
 public class EventDataAccessManager extends AbstractAccessManager<EventData, EventDataFilter, IEventDataSubscriber> implements IEventDataProvisionService {
 
-    public EventDataAccessManager(IEventDataArchive archive) {
-        super(archive);
-    }
-
-    @Override
-    protected Class<? extends AbstractDataItem> getSupportedClass() {
-        return EventData.class;
+    public EventDataAccessManager(IEventDataArchive archive, ArchivingConfiguration archivingConfiguration) {
+        super(archive, archivingConfiguration);
     }
 
     @Override
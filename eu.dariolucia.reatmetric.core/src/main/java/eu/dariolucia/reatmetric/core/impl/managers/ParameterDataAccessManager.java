@@ -16,24 +16,19 @@
 
 package eu.dariolucia.reatmetric.core.impl.managers;
 
-import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
 import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.parameters.*;
 import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
 
 import java.util.Objects;
 
 public class ParameterDataAccessManager extends AbstractAccessManager<ParameterData, ParameterDataFilter, IParameterDataSubscriber> implements IParameterDataProvisionService {
 
-    public ParameterDataAccessManager(IParameterDataArchive archive) {
-        super(archive);
-    }
-
-    @Override
-    protected Class<? extends AbstractDataItem> getSupportedClass() {
-        return ParameterData.class;
+    public ParameterDataAccessManager(IParameterDataArchive archive, ArchivingConfiguration archivingConfiguration) {
+        super(archive, archivingConfiguration);
     }
 
     @Override
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.core.impl.managers;
+
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.events.IEventDataArchive;
+import eu.dariolucia.reatmetric.core.configuration.ArchiveOverflowPolicy;
+import eu.dariolucia.reatmetric.core.configuration.ArchivingConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbstractAccessManagerTest {
+
+    private static final List<EventData> BATCH = Collections.singletonList(null);
+
+    private final CountDownLatch storeLatch = new CountDownLatch(1);
+    private final AtomicInteger storedBatches = new AtomicInteger();
+
+    private IEventDataArchive buildSlowArchive() {
+        return (IEventDataArchive) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IEventDataArchive.class }, (proxy, method, args) -> {
+            if(method.getName().equals("store")) {
+                // Simulate a slow archive
+                storeLatch.await();
+                storedBatches.incrementAndGet();
+            }
+            return null;
+        });
+    }
+
+    private EventDataAccessManager buildManager(int queueSize, ArchiveOverflowPolicy policy) {
+        ArchivingConfiguration configuration = new ArchivingConfiguration();
+        configuration.setQueueSize(queueSize);
+        configuration.setOverflowPolicy(policy);
+        return new EventDataAccessManager(buildSlowArchive(), configuration);
+    }
+
+    private static Object debugMeasure(EventDataAccessManager manager, String name) {
+        return manager.currentDebugInfo().stream().filter(o -> o.getName().equals(name)).map(DebugInformation::getMeasure).findFirst().orElse(null);
+    }
+
+    @Test
+    void testDiscardPolicy() throws Exception {
+        EventDataAccessManager manager = buildManager(2, ArchiveOverflowPolicy.DISCARD);
+        for(int i = 0; i < 5; ++i) {
+            manager.distribute(BATCH);
+        }
+        // Two batches accepted, three discarded without blocking the producer
+        assertEquals(2, debugMeasure(manager, "Archive Queue"));
+        assertEquals(3L, debugMeasure(manager, "Archive Discarded Items"));
+        storeLatch.countDown();
+        manager.dispose();
+        assertEquals(2, storedBatches.get());
+        // Slots are released after storage
+        assertEquals(0, debugMeasure(manager, "Archive Queue"));
+    }
+
+    @Test
+    void testDefaultPolicyDoesNotBlock() throws Exception {
+        ArchivingConfiguration configuration = new ArchivingConfiguration();
+        configuration.setQueueSize(1);
+        EventDataAccessManager manager = new EventDataAccessManager(buildSlowArchive(), configuration);
+        Thread producer = new Thread(() -> {
+            for(int i = 0; i < 3; ++i) {
+                manager.distribute(BATCH);
+            }
+        });
+        producer.start();
+        producer.join(5000);
+        // The producer is never blocked by a full archive queue
+        assertFalse(producer.isAlive());
+        assertEquals(2L, debugMeasure(manager, "Archive Discarded Items"));
+        storeLatch.countDown();
+        manager.dispose();
+        assertEquals(1, storedBatches.get());
+    }
+
+    @Test
+    void testLiveDeliveryBeforeArchiveSlot() throws Exception {
+        EventDataAccessManager manager = buildManager(1, ArchiveOverflowPolicy.BLOCK);
+        manager.distribute(BATCH);
+        Thread producer = new Thread(() -> manager.distribute(BATCH));
+        producer.start();
+        producer.join(300);
+        assertTrue(producer.isAlive());
+        // The blocked batch is already handed to the live distribution
+        assertEquals(2L, manager.dispatcher.getTaskCount());
+        storeLatch.countDown();
+        producer.join(5000);
+        manager.dispose();
+    }
+
+    @Test
+    void testBlockPolicy() throws Exception {
+        EventDataAccessManager manager = buildManager(1, ArchiveOverflowPolicy.BLOCK);
+        manager.distribute(BATCH);
+        Thread producer = new Thread(() -> manager.distribute(BATCH));
+        producer.start();
+        producer.join(300);
+        // The producer waits for a free slot
+        assertTrue(producer.isAlive());
+        storeLatch.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        manager.dispose();
+        assertEquals(2, storedBatches.get());
+        assertEquals(0L, debugMeasure(manager, "Archive Discarded Items"));
+    }
+
+    @Test
+    void testBlockPolicyReleasedOnShutdown() throws Exception {
+        EventDataAccessManager manager = buildManager(1, ArchiveOverflowPolicy.BLOCK);
+        manager.distribute(BATCH);
+        Thread producer = new Thread(() -> manager.distribute(BATCH));
+        producer.start();
+        producer.join(300);
+        assertTrue(producer.isAlive());
+        // A blocked producer must not queue jobs to a shut down archiver
+        manager.archiver.shutdown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        storeLatch.countDown();
+        assertTrue(manager.archiver.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, storedBatches.get());
+    }
+}
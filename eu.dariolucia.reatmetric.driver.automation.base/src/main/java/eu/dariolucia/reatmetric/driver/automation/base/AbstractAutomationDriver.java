@@ -44,6 +44,7 @@ import java.nio.file.Files;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,8 +74,12 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
 
     private volatile String apiData;
 
+    // Script file contents, re-read only if the file changes on disk
+    private final Map<String, ScriptFile> scriptFiles = new ConcurrentHashMap<>();
+
     // For activity execution
     private volatile ExecutorService executor;
+    private final AtomicInteger threadCounter = new AtomicInteger(0);
     private volatile DataSubscriptionManager dataSubscriptionManager;
 
     // For activity abortion (done under lock)
@@ -93,17 +98,22 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
             this.subscriber = subscriber;
 
             this.configuration = AutomationConfiguration.load(new FileInputStream(driverConfigurationDirectory + File.separator + CONFIGURATION_FILE));
-            this.executor = new ThreadPoolExecutor(configuration.getMaxParallelScripts(), // start with 1 thread
+            // Threads are created on demand and released when idle: a script waiting for data does not consume
+            // CPU, so max-parallel-scripts can be set high enough to keep many monitoring procedures running.
+            long stackSize = configuration.getScriptThreadStackSize() * 1024L;
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(configuration.getMaxParallelScripts(),
                     configuration.getMaxParallelScripts(), // max size
-                    600, // idle timeout
+                    60, // idle timeout
                     TimeUnit.SECONDS,
-                    new ArrayBlockingQueue<>(100), // more than 100 automation procedures in the queue means that the next one is rejected
+                    configuration.getMaxQueuedScripts() > 0 ? new ArrayBlockingQueue<>(configuration.getMaxQueuedScripts()) : new SynchronousQueue<>(), // when the queue is full, the next one is rejected
                     (t) -> {
-                        Thread toReturn = new Thread(t, this.name + " - Activity Handler Thread");
+                        Thread toReturn = new Thread(null, t, this.name + " - Activity Handler Thread #" + threadCounter.incrementAndGet(), stackSize);
                         toReturn.setDaemon(true);
                         return toReturn;
                     }
-            ); // queue with a size
+            );
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
 
             this.dataSubscriptionManager = new DataSubscriptionManager(context.getServiceFactory().getActivityOccurrenceDataMonitorService(),
                     context.getServiceFactory().getEventDataMonitorService(),
@@ -114,6 +124,9 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
             InputStream is = getApiDataFileInputStream();
             apiData = readContents(is);
 
+            // Initialise the language engine
+            initialiseEngine(configuration);
+
             this.running = true;
             // Inform that everything is fine
             subscriber.driverStatusUpdate(this.name, SystemStatus.NOMINAL);
@@ -126,6 +139,15 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
 
     protected abstract InputStream getApiDataFileInputStream();
 
+    /**
+     * Initialise the language-specific resources (shared engines, compiled script caches), which are reused across
+     * the script executions. Called once, after the configuration and the API data are loaded.
+     *
+     * @param configuration the driver configuration
+     * @throws Exception in case of problems while initialising the engine
+     */
+    protected abstract void initialiseEngine(AutomationConfiguration configuration) throws Exception;
+
     private String readContents(InputStream is) throws IOException {
         BufferedReader br = new BufferedReader(new InputStreamReader(is));
         StringBuilder sb = new StringBuilder();
@@ -180,6 +202,10 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
         }
         runningExecutors.clear();
         pendingAborts.clear();
+        scriptFiles.clear();
+        if(executor != null) {
+            executor.shutdown();
+        }
         // Clean up omitted... it should be done
         cleanUp();
     }
@@ -216,7 +242,11 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
         if (activityInvocation.getArguments() == null) {
             throw new ActivityHandlingException("Activity invocation has null argument map");
         }
-        executor.submit(() -> execute(activityInvocation, model));
+        try {
+            executor.submit(() -> execute(activityInvocation, model));
+        } catch (RejectedExecutionException e) {
+            throw new ActivityHandlingException("Too many scripts running or queued: activity rejected", e);
+        }
     }
 
     @Override
@@ -246,11 +276,7 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
                 // Use the full path name as automation name
                 fileName = activityInvocation.getPath().asString();
             }
-            File f = new File(configuration.getScriptFolder() + File.separator + fileName);
-            if (!f.exists()) {
-                throw new FileNotFoundException("File " + f.getAbsolutePath() + " does not exist");
-            }
-            String contents = Files.readString(f.toPath());
+            String contents = readScript(fileName);
             Object result;
             IScriptExecutor exec = buildScriptExecutor(activityInvocation, fileName, contents);
             // Execute the script and retrieve result
@@ -266,6 +292,23 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
         }
     }
 
+    private String readScript(String fileName) throws IOException {
+        File f = new File(configuration.getScriptFolder() + File.separator + fileName);
+        if (!f.exists()) {
+            scriptFiles.remove(f.getAbsolutePath());
+            throw new FileNotFoundException("File " + f.getAbsolutePath() + " does not exist");
+        }
+        long lastModified = f.lastModified();
+        long length = f.length();
+        ScriptFile cached = scriptFiles.get(f.getAbsolutePath());
+        if(cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.contents;
+        }
+        String contents = Files.readString(f.toPath());
+        scriptFiles.put(f.getAbsolutePath(), new ScriptFile(lastModified, length, contents));
+        return contents;
+    }
+
     protected abstract IScriptExecutor buildScriptExecutor(ActivityInvocation activityInvocation, String fileName, String contents) throws ActivityHandlingException;
 
     private synchronized void deregisterExecution(ActivityInvocation activityInvocation) {
@@ -309,4 +352,16 @@ public abstract class AbstractAutomationDriver implements IDriver, IActivityHand
     protected DataSubscriptionManager getDataSubscriptionManager() {
         return dataSubscriptionManager;
     }
+
+    private static class ScriptFile {
+        private final long lastModified;
+        private final long length;
+        private final String contents;
+
+        public ScriptFile(long lastModified, long length, String contents) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.contents = contents;
+        }
+    }
 }
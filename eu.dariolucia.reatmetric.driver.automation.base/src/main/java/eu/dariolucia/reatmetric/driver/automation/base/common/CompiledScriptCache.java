@@ -0,0 +1,122 @@
+/*
+ * Copyright (c)  2022 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package eu.dariolucia.reatmetric.driver.automation.base.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of compiled script artefacts (compiled code objects, parsed sources, script classes), keyed by the
+ * hash of the source code they were compiled from. A change in the source code results in a different key, hence
+ * there is no need for explicit invalidation: stale entries are evicted in least-recently-used order when the cache
+ * is full.
+ * <p>
+ * Compilation is performed outside the cache lock: if two threads request the same missing entry at the same time,
+ * the source may be compiled twice, but only the first stored result is returned to both.
+ *
+ * @param <T> the type of the compiled artefact
+ */
+public class CompiledScriptCache<T> {
+
+    private final Map<String, T> cache;
+
+    private long hits;
+    private long misses;
+
+    public CompiledScriptCache(int maxEntries) {
+        if(maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxEntries);
+        }
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the compiled artefact for the provided source code, compiling it with the provided compiler if not
+     * present in the cache.
+     *
+     * @param source the source code
+     * @param compiler the function to compile the source code
+     * @return the compiled artefact
+     * @throws Exception if the compilation fails
+     */
+    public T get(String source, ICompiler<T> compiler) throws Exception {
+        String key = hash(source);
+        synchronized (this) {
+            T compiled = cache.get(key);
+            if(compiled != null) {
+                ++hits;
+                return compiled;
+            }
+            ++misses;
+        }
+        T compiled = compiler.compile(source);
+        synchronized (this) {
+            T existing = cache.putIfAbsent(key, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private static String hash(String source) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for(byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The compilation function of a {@link CompiledScriptCache}.
+     *
+     * @param <T> the type of the compiled artefact
+     */
+    @FunctionalInterface
+    public interface ICompiler<T> {
+
+        T compile(String source) throws Exception;
+    }
+}
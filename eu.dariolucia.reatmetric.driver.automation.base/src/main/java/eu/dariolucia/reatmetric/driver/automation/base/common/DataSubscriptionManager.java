@@ -21,6 +21,7 @@ import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
 import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceDataFilter;
 import eu.dariolucia.reatmetric.api.activity.IActivityOccurrenceDataProvisionService;
 import eu.dariolucia.reatmetric.api.activity.IActivityOccurrenceDataSubscriber;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.events.EventData;
 import eu.dariolucia.reatmetric.api.events.EventDataFilter;
 import eu.dariolucia.reatmetric.api.events.IEventDataProvisionService;
@@ -57,6 +58,11 @@ public class DataSubscriptionManager {
 
     private final IParameterDataSubscriber parameterDataSubscriber = this::processParameters;
 
+    // Set when the subscription to the corresponding service is in place: if not, incremental updates cannot be used
+    private boolean eventSubscriptionActive = false;
+    private boolean activitySubscriptionActive = false;
+    private boolean parameterSubscriptionActive = false;
+
     private final ExecutorService invocationDispatcher = Executors.newFixedThreadPool(1, t -> {
        Thread thr = new Thread(t);
        thr.setName("Automation - Data Subscription Manager - Dispatcher");
@@ -82,9 +88,14 @@ public class DataSubscriptionManager {
         subs.add(s);
         if(!alreadyRegistered) {
             try {
-                eventService.subscribe(eventDataSubscriber, new EventDataFilter(null, null, null, null, null, null, new ArrayList<>(currentEventSubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe to event provision service: " + e.getMessage(), e);
+                if(eventSubscriptionActive) {
+                    eventService.addToSubscription(eventDataSubscriber, null, Collections.singletonList(externalId));
+                } else {
+                    subscribeEvents();
+                }
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to event provision service, subscribing again: " + e.getMessage(), e);
+                subscribeEvents();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "subscribe(IEventDataSubscriber) - External ID " + externalId + ": invocation end");
@@ -102,9 +113,14 @@ public class DataSubscriptionManager {
         subs.add(s);
         if(!alreadyRegistered) {
             try {
-                activityDataService.subscribe(activityOccurrenceDataSubscriber, new ActivityOccurrenceDataFilter(null, null, null, null, null, null, new ArrayList<>(currentActivitySubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe to activity occurrence provision service: " + e.getMessage(), e);
+                if(activitySubscriptionActive) {
+                    activityDataService.addToSubscription(activityOccurrenceDataSubscriber, null, Collections.singletonList(externalId));
+                } else {
+                    subscribeActivities();
+                }
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to activity occurrence provision service, subscribing again: " + e.getMessage(), e);
+                subscribeActivities();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "subscribe(IActivityOccurrenceDataSubscriber) - External ID " + externalId + ": invocation end");
@@ -122,9 +138,14 @@ public class DataSubscriptionManager {
         subs.add(s);
         if(!alreadyRegistered) {
             try {
-                parameterService.subscribe(parameterDataSubscriber, new ParameterDataFilter(null, null, null, null, null, new ArrayList<>(currentParameterSubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe to activity occurrence provision service: " + e.getMessage(), e);
+                if(parameterSubscriptionActive) {
+                    parameterService.addToSubscription(parameterDataSubscriber, null, Collections.singletonList(externalId));
+                } else {
+                    subscribeParameters();
+                }
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to parameter provision service, subscribing again: " + e.getMessage(), e);
+                subscribeParameters();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "subscribe(IParameterDataSubscriber) - External ID " + externalId + ": invocation end");
@@ -143,15 +164,17 @@ public class DataSubscriptionManager {
         }
         if(currentActivitySubscribers.isEmpty()) {
             try {
+                activitySubscriptionActive = false;
                 activityDataService.unsubscribe(activityOccurrenceDataSubscriber);
             } catch (RemoteException e) {
                 LOG.log(Level.SEVERE, "Cannot unsubscribe to activity occurrence provision service: " + e.getMessage(), e);
             }
         } else if(externalIdRemoved) {
             try {
-                activityDataService.subscribe(activityOccurrenceDataSubscriber, new ActivityOccurrenceDataFilter(null, null, null, null, null, null, new ArrayList<>(currentActivitySubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe (after unsubscription) to activity occurrence provision service: " + e.getMessage(), e);
+                activityDataService.removeFromSubscription(activityOccurrenceDataSubscriber, null, Collections.singletonList(externalId));
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to activity occurrence provision service, subscribing again: " + e.getMessage(), e);
+                subscribeActivities();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "unsubscribe(IActivityOccurrenceDataSubscriber) - External ID " + externalId + ": invocation end");
@@ -170,15 +193,17 @@ public class DataSubscriptionManager {
         }
         if(currentEventSubscribers.isEmpty()) {
             try {
+                eventSubscriptionActive = false;
                 eventService.unsubscribe(eventDataSubscriber);
             } catch (RemoteException e) {
                 LOG.log(Level.SEVERE, "Cannot unsubscribe to event provision service: " + e.getMessage(), e);
             }
         } else if(externalIdRemoved) {
             try {
-                eventService.subscribe(eventDataSubscriber, new EventDataFilter(null, null, null, null, null, null, new ArrayList<>(currentEventSubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe (after unsubscription) to event provision service: " + e.getMessage(), e);
+                eventService.removeFromSubscription(eventDataSubscriber, null, Collections.singletonList(externalId));
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to event provision service, subscribing again: " + e.getMessage(), e);
+                subscribeEvents();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "unsubscribe(IEventDataSubscriber) - External ID " + externalId + ": invocation end");
@@ -197,20 +222,55 @@ public class DataSubscriptionManager {
         }
         if(currentParameterSubscribers.isEmpty()) {
             try {
+                parameterSubscriptionActive = false;
                 parameterService.unsubscribe(parameterDataSubscriber);
             } catch (RemoteException e) {
                 LOG.log(Level.SEVERE, "Cannot unsubscribe to event provision service: " + e.getMessage(), e);
             }
         } else if(externalIdRemoved) {
             try {
-                parameterService.subscribe(parameterDataSubscriber, new ParameterDataFilter(null, null, null, null, null, new ArrayList<>(currentParameterSubscribers.keySet())));
-            } catch (RemoteException e) {
-                LOG.log(Level.SEVERE, "Cannot subscribe (after unsubscription) to event provision service: " + e.getMessage(), e);
+                parameterService.removeFromSubscription(parameterDataSubscriber, null, Collections.singletonList(externalId));
+            } catch (RemoteException | ReatmetricException e) {
+                LOG.log(Level.WARNING, "Cannot update subscription to parameter provision service, subscribing again: " + e.getMessage(), e);
+                subscribeParameters();
             }
         }
         LOG.fine(Thread.currentThread().getName() + " || " + "unsubscribe(IParameterDataSubscriber) - External ID " + externalId + ": invocation end");
     }
 
+    // To be called with the lock on this object: subscribe with the full set of external IDs
+    private void subscribeEvents() {
+        try {
+            eventService.subscribe(eventDataSubscriber, new EventDataFilter(null, null, null, null, null, null, new ArrayList<>(currentEventSubscribers.keySet())));
+            eventSubscriptionActive = true;
+        } catch (RemoteException e) {
+            eventSubscriptionActive = false;
+            LOG.log(Level.SEVERE, "Cannot subscribe to event provision service: " + e.getMessage(), e);
+        }
+    }
+
+    // To be called with the lock on this object: subscribe with the full set of external IDs
+    private void subscribeActivities() {
+        try {
+            activityDataService.subscribe(activityOccurrenceDataSubscriber, new ActivityOccurrenceDataFilter(null, null, null, null, null, null, new ArrayList<>(currentActivitySubscribers.keySet())));
+            activitySubscriptionActive = true;
+        } catch (RemoteException e) {
+            activitySubscriptionActive = false;
+            LOG.log(Level.SEVERE, "Cannot subscribe to activity occurrence provision service: " + e.getMessage(), e);
+        }
+    }
+
+    // To be called with the lock on this object: subscribe with the full set of external IDs
+    private void subscribeParameters() {
+        try {
+            parameterService.subscribe(parameterDataSubscriber, new ParameterDataFilter(null, null, null, null, null, new ArrayList<>(currentParameterSubscribers.keySet())));
+            parameterSubscriptionActive = true;
+        } catch (RemoteException e) {
+            parameterSubscriptionActive = false;
+            LOG.log(Level.SEVERE, "Cannot subscribe to parameter provision service: " + e.getMessage(), e);
+        }
+    }
+
     public void processParameters(List<ParameterData> dataItems) {
         invocationDispatcher.execute(() -> {
             LOG.fine(Thread.currentThread().getName() + " || " + "processParameters() - dataItems.size() " + dataItems.size() + ": invoked");
@@ -43,7 +43,7 @@ import java.rmi.RemoteException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -59,6 +59,9 @@ public class ScriptExecutionManager {
 
     private volatile boolean aborted = false;
 
+    // Monitors of the waits currently in progress, woken up in case of abort
+    private final Set<Object> waitMonitors = ConcurrentHashMap.newKeySet();
+
     public ScriptExecutionManager(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
         this.context = context;
         this.activityInvocation = activityInvocation;
@@ -69,6 +72,11 @@ public class ScriptExecutionManager {
     public synchronized void _abort() {
         this.aborted = true;
         notifyAll();
+        for(Object monitor : waitMonitors) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
     }
 
     private void checkAborted() {
@@ -77,6 +85,52 @@ public class ScriptExecutionManager {
         }
     }
 
+    /**
+     * Compute the deadline of a wait, as per {@link System#nanoTime()}.
+     *
+     * @param timeoutSeconds the timeout in seconds, 0 or negative means no timeout
+     * @return the deadline, or 0 if there is no timeout
+     */
+    private static long deadlineOf(int timeoutSeconds) {
+        if(timeoutSeconds <= 0) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        return deadline == 0 ? 1 : deadline;
+    }
+
+    private static boolean isExpired(long deadline) {
+        return deadline != 0 && deadline - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Wait on the provided monitor, which must be locked by the caller, until it is notified, the deadline expires or
+     * the script is aborted. No polling is performed: the abort of the script wakes up the waiting thread.
+     *
+     * @param monitor the monitor to wait on
+     * @param deadline the deadline as computed by {@link #deadlineOf(int)}
+     * @throws InterruptedException if the thread is interrupted
+     * @throws IllegalStateException if the script is aborted
+     */
+    private void waitOn(Object monitor, long deadline) throws InterruptedException {
+        // Register before checking: an abort after the check will find the monitor and notify it
+        waitMonitors.add(monitor);
+        try {
+            checkAborted();
+            if(deadline == 0) {
+                monitor.wait();
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if(remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                }
+            }
+        } finally {
+            waitMonitors.remove(monitor);
+        }
+        checkAborted();
+    }
+
     public void info(String message) {
         logMessage(message, Severity.INFO);
     }
@@ -343,38 +397,40 @@ public class ScriptExecutionManager {
 
     private class EventWait implements IEventDataSubscriber {
 
-        private final Semaphore semaphore;
         private final int externalId;
         private final int timeout;
-        private volatile EventData receivedEvent;
+        private EventData receivedEvent;
 
         public EventWait(String path, int timeoutSeconds) throws ReatmetricException, RemoteException {
             this.externalId = context.getServiceFactory().getSystemModelMonitorService().getExternalIdOf(SystemEntityPath.fromString(path));
             this.timeout = timeoutSeconds;
-            this.semaphore = new Semaphore(0);
         }
 
         @Override
-        public void dataItemsReceived(List<EventData> dataItems) {
+        public synchronized void dataItemsReceived(List<EventData> dataItems) {
             for(EventData ed : dataItems) {
-                if(ed.getExternalId() == externalId) {
+                if(ed.getExternalId() == externalId && receivedEvent == null) {
                     receivedEvent = ed;
-                    semaphore.release();
+                    notifyAll();
                 }
             }
         }
 
         public EventData waitForEvent() {
+            if(timeout <= 0) {
+                return null;
+            }
             dataSubscriptionManager.subscribe(this, externalId);
-            try {
-                for(int i = 0; i < timeout; ++i) {
-                    checkAborted();
-                    semaphore.tryAcquire(1, TimeUnit.SECONDS);
+            long deadline = deadlineOf(timeout);
+            synchronized (this) {
+                try {
+                    while (receivedEvent == null && !isExpired(deadline)) {
+                        waitOn(this, deadline);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-                return receivedEvent; // Do not bother about concurrency, return one of the events you got if more than one
-            } catch (InterruptedException e) {
-                // No event
-                return null;
+                return receivedEvent;
             }
         }
 
@@ -385,38 +441,40 @@ public class ScriptExecutionManager {
 
     private class ParameterWait implements IParameterDataSubscriber {
 
-        private final Semaphore semaphore;
         private final int externalId;
         private final int timeout;
-        private volatile ParameterData receivedParameter;
+        private ParameterData receivedParameter;
 
         public ParameterWait(String path, int timeoutSeconds) throws ReatmetricException, RemoteException {
             this.externalId = context.getServiceFactory().getSystemModelMonitorService().getExternalIdOf(SystemEntityPath.fromString(path));
             this.timeout = timeoutSeconds;
-            this.semaphore = new Semaphore(0);
         }
 
         @Override
-        public void dataItemsReceived(List<ParameterData> dataItems) {
+        public synchronized void dataItemsReceived(List<ParameterData> dataItems) {
             for(ParameterData ed : dataItems) {
-                if(ed.getExternalId() == externalId) {
+                if(ed.getExternalId() == externalId && receivedParameter == null) {
                     receivedParameter = ed;
-                    semaphore.release();
+                    notifyAll();
                 }
             }
         }
 
         public ParameterData waitForParameter() {
+            if(timeout <= 0) {
+                return null;
+            }
             dataSubscriptionManager.subscribe(this, externalId);
-            try {
-                for(int i = 0; i < timeout; ++i) {
-                    checkAborted();
-                    semaphore.tryAcquire(1, TimeUnit.SECONDS);
+            long deadline = deadlineOf(timeout);
+            synchronized (this) {
+                try {
+                    while (receivedParameter == null && !isExpired(deadline)) {
+                        waitOn(this, deadline);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-                return receivedParameter; // Do not bother about concurrency, return one of the parameters you got if more than one
-            } catch (InterruptedException e) {
-                // No parameter
-                return null;
+                return receivedParameter;
             }
         }
 
@@ -577,7 +635,7 @@ public class ScriptExecutionManager {
 
         private volatile IUniqueId activityId;
 
-        private final Queue<ActivityOccurrenceData> dataToProcess = new LinkedList<>();
+        private final Queue<ActivityOccurrenceData> dataToProcess = new ArrayDeque<>();
         private volatile ActivityOccurrenceData lastReport = null;
         private volatile boolean invocationFailed = false;
         private volatile boolean completed = false;
@@ -616,41 +674,30 @@ public class ScriptExecutionManager {
             if(invocationFailed) {
                 return false;
             }
-            boolean interrupted = false;
-            boolean timeoutElapsed = false;
-            Instant timeoutDate = Instant.now().plusSeconds(timeoutSeconds);
+            long deadline = deadlineOf(timeoutSeconds);
             synchronized (this) {
-                while(true) {
-                    while (dataToProcess.isEmpty()) {
-                        checkAborted();
-                        try {
-                            wait(1000, 0);
-                        } catch (InterruptedException e) {
-                            //
-                            interrupted = true;
-                            break;
-                        }
-                    }
-                    if(timeoutSeconds > 0 && timeoutDate.isBefore(Instant.now())) {
-                        // timeout elapsed
-                        timeoutElapsed = true;
-                    }
-                    while (!dataToProcess.isEmpty()) {
-                        ActivityOccurrenceData aod = dataToProcess.remove();
-                        if(aod.getInternalId().equals(this.activityId)) {
-                            this.lastReport = aod;
-                            if(aod.getCurrentState() == ActivityOccurrenceState.COMPLETED) {
-                                completed = true;
-                                return aod.aggregateStatus() == ActivityReportState.OK;
+                try {
+                    while (true) {
+                        while (!dataToProcess.isEmpty()) {
+                            ActivityOccurrenceData aod = dataToProcess.remove();
+                            if (aod.getInternalId().equals(this.activityId)) {
+                                this.lastReport = aod;
+                                if (aod.getCurrentState() == ActivityOccurrenceState.COMPLETED) {
+                                    completed = true;
+                                    return aod.aggregateStatus() == ActivityReportState.OK;
+                                }
                             }
                         }
+                        if (isExpired(deadline)) {
+                            // Timeout elapsed
+                            return false;
+                        }
+                        waitOn(this, deadline);
                     }
-                    if(interrupted || timeoutElapsed) {
-                        break;
-                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
                 }
-                // If you are here, it means the thread was interrupted
-                return false;
             }
         }
 
@@ -52,9 +52,21 @@ public class AutomationConfiguration {
     @XmlElement(name = "max-parallel-scripts")
     private int maxParallelScripts = 1;
 
+    // Maximum number of scripts waiting for execution, when max-parallel-scripts are already running
+    @XmlElement(name = "max-queued-scripts")
+    private int maxQueuedScripts = 100;
+
+    // Stack size in KB of the script execution threads, 0 means JVM default
+    @XmlElement(name = "script-thread-stack-size")
+    private int scriptThreadStackSize = 0;
+
     @XmlElement(name = "script-folder", required = true)
     private String scriptFolder;
 
+    // Maximum number of compiled scripts kept in memory by the language engine
+    @XmlElement(name = "script-cache-size")
+    private int scriptCacheSize = 64;
+
     public int getMaxParallelScripts() {
         return maxParallelScripts;
     }
@@ -63,6 +75,22 @@ public class AutomationConfiguration {
         this.maxParallelScripts = maxParallelScripts;
     }
 
+    public int getMaxQueuedScripts() {
+        return maxQueuedScripts;
+    }
+
+    public void setMaxQueuedScripts(int maxQueuedScripts) {
+        this.maxQueuedScripts = maxQueuedScripts;
+    }
+
+    public int getScriptThreadStackSize() {
+        return scriptThreadStackSize;
+    }
+
+    public void setScriptThreadStackSize(int scriptThreadStackSize) {
+        this.scriptThreadStackSize = scriptThreadStackSize;
+    }
+
     public String getScriptFolder() {
         return scriptFolder;
     }
@@ -71,4 +99,12 @@ public class AutomationConfiguration {
         this.scriptFolder = scriptFolder;
     }
 
+    public int getScriptCacheSize() {
+        return scriptCacheSize;
+    }
+
+    public void setScriptCacheSize(int scriptCacheSize) {
+        this.scriptCacheSize = scriptCacheSize;
+    }
+
 }
@@ -19,9 +19,13 @@ package eu.dariolucia.reatmetric.driver.automation.groovy;
 
 import eu.dariolucia.reatmetric.api.processing.exceptions.ActivityHandlingException;
 import eu.dariolucia.reatmetric.driver.automation.base.AbstractAutomationDriver;
+import eu.dariolucia.reatmetric.driver.automation.base.common.CompiledScriptCache;
 import eu.dariolucia.reatmetric.driver.automation.base.common.IScriptExecutor;
+import eu.dariolucia.reatmetric.driver.automation.base.definition.AutomationConfiguration;
 import eu.dariolucia.reatmetric.driver.automation.groovy.common.Constants;
 import eu.dariolucia.reatmetric.driver.automation.groovy.internal.GroovyExecutor;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 
 import java.io.InputStream;
 import java.util.Collections;
@@ -32,9 +36,13 @@ import java.util.List;
  * <p>
  * The driver provides a simple API to scripts under execution, to easily access archived and processing data.
  * <p>
+ * Scripts are compiled once, together with the API, into a script class: each execution creates a new instance of
+ * such class, with its own binding.
  */
 public class GroovyAutomationDriver extends AbstractAutomationDriver {
 
+    private volatile CompiledScriptCache<Class<? extends Script>> classCache;
+
     public GroovyAutomationDriver() {
         //
     }
@@ -44,9 +52,17 @@ public class GroovyAutomationDriver extends AbstractAutomationDriver {
         return this.getClass().getClassLoader().getResourceAsStream(Constants.API_GROOVY_RESOURCE_FILE);
     }
 
+    @Override
+    protected void initialiseEngine(AutomationConfiguration configuration) {
+        this.classCache = new CompiledScriptCache<>(configuration.getScriptCacheSize());
+    }
+
     @Override
     protected void cleanUp() {
-        // Do nothing
+        CompiledScriptCache<Class<? extends Script>> cache = this.classCache;
+        if(cache != null) {
+            cache.clear();
+        }
     }
 
     @Override
@@ -57,7 +73,15 @@ public class GroovyAutomationDriver extends AbstractAutomationDriver {
     @Override
     protected IScriptExecutor buildScriptExecutor(ActivityInvocation activityInvocation, String fileName, String contents) throws ActivityHandlingException {
         if (fileName.endsWith(Constants.GROOVY_EXTENSION)) {
-            return new GroovyExecutor(getDataSubscriptionManager(), getContext(), getApiData(), contents, activityInvocation, fileName);
+            Class<? extends Script> scriptClass;
+            try {
+                // The API functions become methods of the script class, so they are compiled together with the script.
+                // A new shell (hence class loader) is used for each compilation, to allow evicted classes to be unloaded.
+                scriptClass = classCache.get(getApiData() + "\n\n" + contents, source -> new GroovyShell().parse(source).getClass());
+            } catch (Exception e) {
+                throw new ActivityHandlingException("Cannot compile script " + fileName + ": " + e.getMessage(), e);
+            }
+            return new GroovyExecutor(getDataSubscriptionManager(), getContext(), scriptClass, activityInvocation, fileName);
         } else {
             throw new ActivityHandlingException("Script type of " + fileName + " not supported: extension not recognized");
         }
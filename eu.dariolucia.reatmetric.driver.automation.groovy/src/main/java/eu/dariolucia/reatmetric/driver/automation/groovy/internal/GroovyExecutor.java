@@ -25,8 +25,8 @@ import eu.dariolucia.reatmetric.driver.automation.base.common.IScriptExecutor;
 import eu.dariolucia.reatmetric.driver.automation.base.common.ScriptExecutionManager;
 import eu.dariolucia.reatmetric.driver.automation.groovy.common.Constants;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 import javax.script.ScriptException;
 import java.util.Map;
@@ -37,26 +37,27 @@ public class GroovyExecutor implements IScriptExecutor {
 
     private static final Logger LOG = Logger.getLogger(GroovyExecutor.class.getName());
 
-    private final String contents;
+    private final Class<? extends Script> scriptClass;
     private final IActivityHandler.ActivityInvocation invocation;
     private final String fileName;
     private final IServiceCoreContext context;
-    private final String groovyApiData;
-    private final eu.dariolucia.reatmetric.driver.automation.base.common.DataSubscriptionManager dataSubscriptionManager;
+    private final DataSubscriptionManager dataSubscriptionManager;
 
-    private volatile GroovyShell groovyShell;
     private volatile Binding groovyBinding;
     private volatile Script groovyScript;
     private volatile boolean aborted;
     private volatile ScriptExecutionManager manager;
 
-    public GroovyExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, String initData, String contents, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
+    /**
+     * Build an executor, which runs a new instance of the provided (already compiled) script class, with its own
+     * binding.
+     */
+    public GroovyExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, Class<? extends Script> scriptClass, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
         this.dataSubscriptionManager = dataSubscriptionManager;
-        this.contents = contents;
+        this.scriptClass = scriptClass;
         this.invocation = activityInvocation;
         this.fileName = fileName;
         this.context = context;
-        this.groovyApiData = initData;
     }
 
     @Override
@@ -65,10 +66,8 @@ public class GroovyExecutor implements IScriptExecutor {
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
-            groovyShell = new GroovyShell();
             groovyBinding = new Binding();
-            groovyScript = groovyShell.parse(groovyApiData + "\n\n" + contents);
-            groovyScript.setBinding(groovyBinding);
+            groovyScript = InvokerHelper.createScript(scriptClass, groovyBinding);
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
@@ -90,7 +89,6 @@ public class GroovyExecutor implements IScriptExecutor {
             throw new ScriptException(e.getMessage());
         } finally {
             manager = null;
-            groovyShell = null;
             groovyScript = null;
             groovyBinding = null;
         }
@@ -103,7 +101,6 @@ public class GroovyExecutor implements IScriptExecutor {
         if(theManager != null) {
             theManager._abort();
         }
-        groovyShell = null;
         groovyScript = null;
         groovyBinding = null;
     }
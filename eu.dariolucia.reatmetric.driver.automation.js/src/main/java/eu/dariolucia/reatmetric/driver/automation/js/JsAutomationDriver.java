@@ -19,9 +19,13 @@ package eu.dariolucia.reatmetric.driver.automation.js;
 
 import eu.dariolucia.reatmetric.api.processing.exceptions.ActivityHandlingException;
 import eu.dariolucia.reatmetric.driver.automation.base.AbstractAutomationDriver;
+import eu.dariolucia.reatmetric.driver.automation.base.common.CompiledScriptCache;
 import eu.dariolucia.reatmetric.driver.automation.base.common.IScriptExecutor;
+import eu.dariolucia.reatmetric.driver.automation.base.definition.AutomationConfiguration;
 import eu.dariolucia.reatmetric.driver.automation.js.common.Constants;
 import eu.dariolucia.reatmetric.driver.automation.js.internal.JavascriptExecutor;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
 
 import java.io.InputStream;
 import java.util.Collections;
@@ -32,9 +36,15 @@ import java.util.List;
  * <p>
  * The driver provides a simple API to scripts under execution, to easily access archived and processing data.
  * <p>
+ * All executions share the same GraalVM engine, so that the code parsed and optimised in one execution is reused by
+ * the following ones. Each execution runs in its own context, hence with its own global scope.
  */
 public class JsAutomationDriver extends AbstractAutomationDriver {
 
+    private volatile Engine jsEngine;
+    private volatile Source apiSource;
+    private volatile CompiledScriptCache<Source> sourceCache;
+
     public JsAutomationDriver() {
         //
     }
@@ -44,9 +54,25 @@ public class JsAutomationDriver extends AbstractAutomationDriver {
         return this.getClass().getClassLoader().getResourceAsStream(Constants.API_JS_RESOURCE_FILE);
     }
 
+    @Override
+    protected void initialiseEngine(AutomationConfiguration configuration) {
+        this.jsEngine = Engine.create();
+        this.apiSource = Source.newBuilder("js", getApiData(), Constants.API_JS_RESOURCE_FILE).cached(true).buildLiteral();
+        this.sourceCache = new CompiledScriptCache<>(configuration.getScriptCacheSize());
+    }
+
     @Override
     protected void cleanUp() {
-        // Do nothing
+        Engine toClose = this.jsEngine;
+        this.jsEngine = null;
+        if(toClose != null) {
+            // Running executions were aborted by the caller
+            toClose.close(true);
+        }
+        CompiledScriptCache<Source> cache = this.sourceCache;
+        if(cache != null) {
+            cache.clear();
+        }
     }
 
     @Override
@@ -57,7 +83,13 @@ public class JsAutomationDriver extends AbstractAutomationDriver {
     @Override
     protected IScriptExecutor buildScriptExecutor(ActivityInvocation activityInvocation, String fileName, String contents) throws ActivityHandlingException {
         if (fileName.endsWith(Constants.JS_EXTENSION)) {
-            return new JavascriptExecutor(getDataSubscriptionManager(), getContext(), getApiData(), contents, activityInvocation, fileName);
+            Source scriptSource;
+            try {
+                scriptSource = sourceCache.get(contents, source -> Source.newBuilder("js", source, fileName).cached(true).buildLiteral());
+            } catch (Exception e) {
+                throw new ActivityHandlingException("Cannot prepare script " + fileName + ": " + e.getMessage(), e);
+            }
+            return new JavascriptExecutor(getDataSubscriptionManager(), getContext(), jsEngine, apiSource, scriptSource, activityInvocation, fileName);
         } else {
             throw new ActivityHandlingException("Script type of " + fileName + " not supported: extension not recognized");
         }
@@ -26,6 +26,7 @@ import eu.dariolucia.reatmetric.driver.automation.base.common.ScriptExecutionMan
 import eu.dariolucia.reatmetric.driver.automation.js.common.Constants;
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 import javax.script.ScriptException;
@@ -37,33 +38,35 @@ public class JavascriptExecutor implements IScriptExecutor {
 
     private static final Logger LOG = Logger.getLogger(JavascriptExecutor.class.getName());
 
-    private final String contents;
+    private final Engine jsEngine;
+    private final Source apiSource;
+    private final Source scriptSource;
     private final IActivityHandler.ActivityInvocation invocation;
     private final String fileName;
     private final IServiceCoreContext context;
-    private final String jsApiData;
     private final DataSubscriptionManager dataSubscriptionManager;
 
-    private volatile Engine jsEngine = null;
+    private volatile Context jsContext = null;
     private volatile boolean aborted = false;
     private ScriptExecutionManager manager;
 
-    public JavascriptExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, String initData, String contents, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
+    /**
+     * Build an executor, which runs the provided (cached) sources in a dedicated context, created from the provided
+     * shared engine. The engine is owned by the caller and it is not closed by the executor.
+     */
+    public JavascriptExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, Engine jsEngine, Source apiSource, Source scriptSource, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
         this.dataSubscriptionManager = dataSubscriptionManager;
-        this.contents = contents;
+        this.jsEngine = jsEngine;
+        this.apiSource = apiSource;
+        this.scriptSource = scriptSource;
         this.invocation = activityInvocation;
         this.fileName = fileName;
         this.context = context;
-        this.jsApiData = initData;
     }
 
     @Override
     public Object execute() throws ScriptException {
         try {
-            if(aborted) {
-                throw new IllegalStateException("Script " + fileName + " aborted");
-            }
-            jsEngine = Engine.create();
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
@@ -71,6 +74,7 @@ public class JavascriptExecutor implements IScriptExecutor {
                     .engine(jsEngine)
                     .allowAllAccess(true)
                     .build()) {
+                jsContext = context;
                 if(aborted) {
                     throw new IllegalStateException("Script " + fileName + " aborted");
                 }
@@ -89,11 +93,11 @@ public class JavascriptExecutor implements IScriptExecutor {
                 if(aborted) {
                     throw new IllegalStateException("Script " + fileName + " aborted");
                 }
-                context.eval("js", jsApiData);
+                context.eval(apiSource);
                 if(aborted) {
                     throw new IllegalStateException("Script " + fileName + " aborted");
                 }
-                Value returnValue = context.eval("js", this.contents);
+                Value returnValue = context.eval(scriptSource);
                 if(returnValue != null) {
                     return returnValue.as(Object.class);
                 } else {
@@ -106,8 +110,7 @@ public class JavascriptExecutor implements IScriptExecutor {
             LOG.log(Level.SEVERE, "Unexpected error when executing script " + fileName + ": " + e.getMessage(), e);
             throw new ScriptException(e.getMessage());
         } finally {
-            jsEngine.close();
-            jsEngine = null;
+            jsContext = null;
             manager = null;
         }
     }
@@ -119,10 +122,11 @@ public class JavascriptExecutor implements IScriptExecutor {
         if(theManager != null) {
             theManager._abort();
         }
-        Engine toAbort = jsEngine;
+        // Only the context of this execution is cancelled: the engine is shared
+        Context toAbort = jsContext;
         if(toAbort != null) {
             try {
-                jsEngine.close(true);
+                toAbort.close(true);
             } catch (Throwable e) {
                 // Ignore!
             }
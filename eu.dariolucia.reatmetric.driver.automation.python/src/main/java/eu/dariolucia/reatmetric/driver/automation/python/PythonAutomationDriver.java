@@ -19,9 +19,16 @@ package eu.dariolucia.reatmetric.driver.automation.python;
 
 import eu.dariolucia.reatmetric.api.processing.exceptions.ActivityHandlingException;
 import eu.dariolucia.reatmetric.driver.automation.base.AbstractAutomationDriver;
+import eu.dariolucia.reatmetric.driver.automation.base.common.CompiledScriptCache;
 import eu.dariolucia.reatmetric.driver.automation.base.common.IScriptExecutor;
+import eu.dariolucia.reatmetric.driver.automation.base.definition.AutomationConfiguration;
 import eu.dariolucia.reatmetric.driver.automation.python.common.Constants;
 import eu.dariolucia.reatmetric.driver.automation.python.internal.PythonExecutor;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PySystemState;
 
 import java.io.InputStream;
 import java.util.Collections;
@@ -33,9 +40,15 @@ import java.util.List;
  * The driver provides a simple API to scripts under execution, to easily access archived and processing data.
  * <p>
  * As limitation related to the Python language, Python scripts will not return any value.
+ * <p>
+ * The API and the scripts are compiled once into Jython code objects, which are then executed by a new interpreter for
+ * each execution.
  */
 public class PythonAutomationDriver extends AbstractAutomationDriver {
 
+    private volatile PyCode apiCode;
+    private volatile CompiledScriptCache<PyCode> codeCache;
+
     public PythonAutomationDriver() {
         //
     }
@@ -45,9 +58,23 @@ public class PythonAutomationDriver extends AbstractAutomationDriver {
         return this.getClass().getClassLoader().getResourceAsStream(Constants.API_PYTHON_RESOURCE_FILE);
     }
 
+    @Override
+    protected void initialiseEngine(AutomationConfiguration configuration) {
+        PySystemState.initialize();
+        this.apiCode = compile(getApiData(), Constants.API_PYTHON_RESOURCE_FILE);
+        this.codeCache = new CompiledScriptCache<>(configuration.getScriptCacheSize());
+    }
+
+    private static PyCode compile(String source, String fileName) {
+        return Py.compile_flags(source, fileName, CompileMode.exec, new CompilerFlags());
+    }
+
     @Override
     protected void cleanUp() {
-        // Do nothing
+        CompiledScriptCache<PyCode> cache = this.codeCache;
+        if(cache != null) {
+            cache.clear();
+        }
     }
 
     @Override
@@ -58,7 +85,13 @@ public class PythonAutomationDriver extends AbstractAutomationDriver {
     @Override
     protected IScriptExecutor buildScriptExecutor(ActivityInvocation activityInvocation, String fileName, String contents) throws ActivityHandlingException {
         if (fileName.endsWith(Constants.PYTHON_EXTENSION)) {
-            return new PythonExecutor(getDataSubscriptionManager(), getContext(), getApiData(), contents, activityInvocation, fileName);
+            PyCode scriptCode;
+            try {
+                scriptCode = codeCache.get(contents, source -> compile(source, fileName));
+            } catch (Exception e) {
+                throw new ActivityHandlingException("Cannot compile script " + fileName + ": " + e.getMessage(), e);
+            }
+            return new PythonExecutor(getDataSubscriptionManager(), getContext(), apiCode, scriptCode, activityInvocation, fileName);
         } else {
             throw new ActivityHandlingException("Script type of " + fileName + " not supported: extension not recognized");
         }
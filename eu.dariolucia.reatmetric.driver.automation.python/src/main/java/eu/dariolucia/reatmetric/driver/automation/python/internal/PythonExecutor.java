@@ -37,35 +37,37 @@ public class PythonExecutor implements IScriptExecutor {
 
     private static final Logger LOG = Logger.getLogger(PythonExecutor.class.getName());
 
-    private final String contents;
+    private final PyCode apiCode;
+    private final PyCode scriptCode;
     private final IActivityHandler.ActivityInvocation invocation;
     private final String fileName;
     private final IServiceCoreContext context;
-    private final String pythonApiData;
     private final DataSubscriptionManager dataSubscriptionManager;
 
     private volatile PythonInterpreter pythonEngine;
     private volatile boolean aborted;
     private volatile ScriptExecutionManager manager;
 
-    public PythonExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, String initData, String contents, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
+    /**
+     * Build an executor, which runs the provided pre-compiled code objects in a dedicated interpreter, i.e. with its
+     * own global namespace.
+     */
+    public PythonExecutor(DataSubscriptionManager dataSubscriptionManager, IServiceCoreContext context, PyCode apiCode, PyCode scriptCode, IActivityHandler.ActivityInvocation activityInvocation, String fileName) {
         this.dataSubscriptionManager = dataSubscriptionManager;
-        this.contents = contents;
+        this.apiCode = apiCode;
+        this.scriptCode = scriptCode;
         this.invocation = activityInvocation;
         this.fileName = fileName;
         this.context = context;
-        this.pythonApiData = initData;
     }
 
     @Override
     public Object execute() throws ScriptException {
-        PyCode pythonCode;
         try {
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
             pythonEngine = new PythonInterpreter();
-            pythonCode = pythonEngine.compile(pythonApiData + "\n\n" + contents);
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
@@ -79,7 +81,11 @@ public class PythonExecutor implements IScriptExecutor {
             if(aborted) {
                 throw new IllegalStateException("Script " + fileName + " aborted");
             }
-            PyObject obj = pythonEngine.eval(pythonCode);
+            pythonEngine.exec(apiCode);
+            if(aborted) {
+                throw new IllegalStateException("Script " + fileName + " aborted");
+            }
+            PyObject obj = pythonEngine.eval(scriptCode);
             if(obj != null) {
                 Object returnObj = obj.__tojava__(Object.class);
                 if(returnObj == null) {
@@ -108,7 +114,6 @@ public class PythonExecutor implements IScriptExecutor {
                 toClose.close();
             }
             pythonEngine = null;
-            pythonCode = null;
         }
     }
 
@@ -2,9 +2,7 @@ package eu.dariolucia.reatmetric.driver.remote.connectors;
 
 import eu.dariolucia.reatmetric.api.IReatmetricSystem;
 import eu.dariolucia.reatmetric.api.activity.*;
-import eu.dariolucia.reatmetric.api.common.IUniqueId;
-import eu.dariolucia.reatmetric.api.common.Pair;
-import eu.dariolucia.reatmetric.api.common.SystemStatus;
+import eu.dariolucia.reatmetric.api.common.*;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.events.EventData;
 import eu.dariolucia.reatmetric.api.events.EventDataFilter;
@@ -27,9 +25,13 @@ import eu.dariolucia.reatmetric.driver.remote.definition.RemoteConfiguration;
 import eu.dariolucia.reatmetric.remoting.connector.ReatmetricConnectorRegistry;
 
 import java.rmi.RemoteException;
-import java.util.Collections;
-import java.util.List;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -43,22 +45,55 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
 
     private volatile IReatmetricSystem system;
 
+    private final ReplicationCursor<ParameterData> parameterCursor = new ReplicationCursor<>();
+    private final ReplicationCursor<EventData> eventCursor = new ReplicationCursor<>();
+    private final ReplicationCursor<ActivityOccurrenceData> activityCursor = new ReplicationCursor<>(o -> o.getCurrentState() != ActivityOccurrenceState.COMPLETED);
+
+    // Latest parameter states delivered live during a backfill, and the parameters whose state was overwritten by an
+    // older, backfilled sample: the latest state is mirrored again at the end of the backfill
+    private final Map<Integer, ParameterData> liveParameterStates = new HashMap<>();
+    private final Set<Integer> overwrittenParameterStates = new HashSet<>();
+
+    private final ExecutorService backfillExecutor;
+    private volatile Future<?> backfillTask;
+
+    private ParameterDataFilter parameterDataFilter;
+    private EventDataFilter eventDataFilter;
+    private ActivityOccurrenceDataFilter activityDataFilter;
+
     private final IParameterDataSubscriber parameterDataSubscriber = this::remoteParametersReceived;
 
     private void remoteParametersReceived(List<ParameterData> parameterData) {
-        driver.ingestProcessingData(parameterData);
+        List<ParameterData> toMirror = parameterCursor.acceptLive(parameterData);
+        if(parameterCursor.isBackfilling()) {
+            synchronized (liveParameterStates) {
+                for (ParameterData pd : toMirror) {
+                    liveParameterStates.put(pd.getExternalId(), pd);
+                    overwrittenParameterStates.remove(pd.getExternalId());
+                }
+            }
+        }
+        if(!toMirror.isEmpty()) {
+            driver.ingestProcessingData(toMirror);
+        }
     }
 
     private final IEventDataSubscriber eventDataSubscriber = this::remoteEventsReceived;
 
     private void remoteEventsReceived(List<EventData> eventData) {
-        driver.ingestProcessingData(eventData);
+        List<EventData> toMirror = eventCursor.acceptLive(eventData);
+        if(!toMirror.isEmpty()) {
+            driver.ingestProcessingData(toMirror);
+        }
     }
 
     private final IActivityOccurrenceDataSubscriber activityDataSubscriber = this::remoteActivitiesReceived;
 
     private void remoteActivitiesReceived(List<ActivityOccurrenceData> activityOccurrenceData) {
-        driver.ingestActivityProcessingData(activityOccurrenceData);
+        List<ActivityOccurrenceData> toMirror = activityCursor.acceptLive(activityOccurrenceData);
+        if(!toMirror.isEmpty()) {
+            driver.ingestActivityProcessingData(toMirror);
+        }
     }
 
     private final IOperationalMessageSubscriber messageSubscriber = this::remoteMessagesReceived;
@@ -71,6 +106,11 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
         super(configuration.getRemoteSystemName() + " connector", "Connector to remote Reatmetric system " + configuration.getRemoteSystemName());
         this.driver = remoteDriver;
         this.configuration = configuration;
+        this.backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Remote System " + configuration.getRemoteSystemName() + " - Backfill Thread");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     @Override
@@ -109,12 +149,31 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
 
             LOG.log(Level.INFO, "Remote system " + this.configuration.getRemoteSystemName() + " initialisation status: " + initResult.get());
 
+            // Enter the backfilling state before subscribing, so that the live data is checked against the gap left
+            // by a previous disconnection, if any
+            Instant parameterStart = null;
+            Instant eventStart = null;
+            Instant activityStart = null;
+            if(configuration.getBackfillPageSize() > 0) {
+                Instant now = Instant.now();
+                parameterStart = parameterCursor.startBackfill(now, configuration.getBackfillLookback());
+                eventStart = eventCursor.startBackfill(now, configuration.getBackfillLookback());
+                activityStart = activityCursor.startBackfill(now, configuration.getBackfillLookback());
+                synchronized (liveParameterStates) {
+                    liveParameterStates.clear();
+                    overwrittenParameterStates.clear();
+                }
+            }
+
             // Register to the remote system
             registerToParameters();
             registerToEvents();
             registerToActivities();
             registerToMessages();
 
+            // Fill the gap
+            startBackfill(parameterStart, eventStart, activityStart);
+
             // Done
             updateConnectionStatus(TransportConnectionStatus.OPEN);
             switch(initResult.get()) {
@@ -138,21 +197,24 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
         // Get all parameters by navigating from localPathPrefix
         List<Integer> parameters = driver.getLocalParameters();
         // Subscribe
-        system.getParameterDataMonitorService().subscribe(this.parameterDataSubscriber, new ParameterDataFilter(null, null, null, null, null, parameters));
+        this.parameterDataFilter = new ParameterDataFilter(null, null, null, null, null, parameters);
+        system.getParameterDataMonitorService().subscribe(this.parameterDataSubscriber, this.parameterDataFilter);
     }
 
     private void registerToEvents() throws RemoteException, ReatmetricException {
         // Get all events by navigating from localPathPrefix
         List<Integer> events = driver.getLocalEvents();
         // Subscribe
-        system.getEventDataMonitorService().subscribe(this.eventDataSubscriber, new EventDataFilter(null, null, null, null, null, null, events));
+        this.eventDataFilter = new EventDataFilter(null, null, null, null, null, null, events);
+        system.getEventDataMonitorService().subscribe(this.eventDataSubscriber, this.eventDataFilter);
     }
 
     private void registerToActivities() throws RemoteException, ReatmetricException {
         // Get all activities by navigating from localPathPrefix
         List<Integer> activities = driver.getLocalActivities();
         // Subscribe
-        system.getActivityOccurrenceDataMonitorService().subscribe(this.activityDataSubscriber, new ActivityOccurrenceDataFilter(null, null, null, null, null, null, activities));
+        this.activityDataFilter = new ActivityOccurrenceDataFilter(null, null, null, null, null, null, activities);
+        system.getActivityOccurrenceDataMonitorService().subscribe(this.activityDataSubscriber, this.activityDataFilter);
     }
 
     private void registerToMessages() throws RemoteException, ReatmetricException {
@@ -167,6 +229,7 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
             return;
         }
         updateConnectionStatus(TransportConnectionStatus.DISCONNECTING);
+        stopBackfill();
         try {
             // Deregister from the remote system
             try {
@@ -207,6 +270,7 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
 
     private void reportConnectionProblem(Exception e) {
         LOG.log(Level.SEVERE, "Problem when connecting to remote system " + this.configuration.getRemoteSystemName() + ": " + e.getMessage(), e);
+        stopBackfill();
         // Clean up system
         if(system != null) {
             try {
@@ -230,6 +294,7 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
             LOG.log(Level.SEVERE, "Error when disposing connector to remote system " + this.configuration.getRemoteSystemName() + ": " + e.getMessage(), e);
         }
         system = null;
+        backfillExecutor.shutdownNow();
     }
 
     @Override
@@ -237,6 +302,97 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
         disconnect();
     }
 
+    private void startBackfill(Instant parameterStart, Instant eventStart, Instant activityStart) throws ReatmetricException, RemoteException {
+        if(parameterStart == null && eventStart == null && activityStart == null) {
+            // First connection, nothing to backfill
+            return;
+        }
+        IReatmetricSystem s = this.system;
+        BackfillScan<ParameterData, ParameterDataFilter> parameterScan = new BackfillScan<>(parameterCursor, parameterStart,
+                s.getParameterDataMonitorService(), parameterDataFilter, toMirror -> {
+                    recordOverwrittenParameterStates(toMirror);
+                    driver.ingestProcessingData(toMirror);
+                });
+        BackfillScan<EventData, EventDataFilter> eventScan = new BackfillScan<>(eventCursor, eventStart,
+                s.getEventDataMonitorService(), eventDataFilter, driver::ingestProcessingData);
+        BackfillScan<ActivityOccurrenceData, ActivityOccurrenceDataFilter> activityScan = new BackfillScan<>(activityCursor, activityStart,
+                s.getActivityOccurrenceDataMonitorService(), activityDataFilter, driver::ingestActivityProcessingData);
+        this.backfillTask = backfillExecutor.submit(() -> backfill(parameterScan, eventScan, activityScan));
+    }
+
+    private void stopBackfill() {
+        Future<?> task = this.backfillTask;
+        if(task != null) {
+            task.cancel(true);
+        }
+        this.backfillTask = null;
+        // If the task did not start or did not complete, the cursors keep the gaps to backfill at the next connection
+        endBackfill();
+    }
+
+    private void endBackfill() {
+        parameterCursor.endBackfill(false);
+        eventCursor.endBackfill(false);
+        activityCursor.endBackfill(false);
+    }
+
+    private void backfill(BackfillScan<ParameterData, ?> parameterScan, BackfillScan<EventData, ?> eventScan, BackfillScan<ActivityOccurrenceData, ?> activityScan) {
+        LOG.log(Level.INFO, "Backfill of data from remote system " + this.configuration.getRemoteSystemName() + " started");
+        try {
+            // Pages are requested in round robin, so that all data types progress at the same pace
+            while(parameterScan.isActive() || eventScan.isActive() || activityScan.isActive()) {
+                if(parameterScan.isActive()) {
+                    parameterScan.nextPage();
+                    if(!parameterScan.isActive()) {
+                        restoreOverwrittenParameterStates();
+                    }
+                }
+                if(eventScan.isActive()) {
+                    eventScan.nextPage();
+                }
+                if(activityScan.isActive()) {
+                    activityScan.nextPage();
+                }
+                if(parameterScan.isActive() || eventScan.isActive() || activityScan.isActive()) {
+                    // Rate limitation
+                    Thread.sleep(configuration.getBackfillPagePeriod());
+                }
+            }
+            LOG.log(Level.INFO, String.format("Backfill of data from remote system %s completed: %d parameters, %d events, %d activity occurrences mirrored",
+                    this.configuration.getRemoteSystemName(), parameterScan.getCount(), eventScan.getCount(), activityScan.getCount()));
+        } catch (InterruptedException e) {
+            LOG.log(Level.INFO, "Backfill of data from remote system " + this.configuration.getRemoteSystemName() + " interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ReatmetricException | RemoteException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Backfill of data from remote system " + this.configuration.getRemoteSystemName() + " failed, it will be resumed at the next connection: " + e.getMessage(), e);
+            endBackfill();
+        }
+    }
+
+    private void recordOverwrittenParameterStates(List<ParameterData> backfilled) {
+        synchronized (liveParameterStates) {
+            for(ParameterData pd : backfilled) {
+                if(liveParameterStates.containsKey(pd.getExternalId())) {
+                    overwrittenParameterStates.add(pd.getExternalId());
+                }
+            }
+        }
+    }
+
+    private void restoreOverwrittenParameterStates() {
+        List<ParameterData> toRestore = new ArrayList<>();
+        synchronized (liveParameterStates) {
+            for(Integer id : overwrittenParameterStates) {
+                toRestore.add(liveParameterStates.get(id));
+            }
+            liveParameterStates.clear();
+            overwrittenParameterStates.clear();
+        }
+        if(!toRestore.isEmpty()) {
+            driver.ingestProcessingData(toRestore);
+        }
+    }
+
     /**
      * Connect to the remote system and retrieve the remote available routes.
      *
@@ -310,4 +466,69 @@ public class RemoteSystemConnector extends AbstractTransportConnector {
             throw new ActivityHandlingException("Remote system " + configuration.getRemoteSystemName() + " not available, remote abort invocation for activity " + activityId + "[" + remoteOccurrenceId + "] failed");
         }
     }
+
+    /**
+     * Backfill of a data type: pages are retrieved by generation time from the remote archive, starting from the
+     * oldest generation time of the items in the gap, and then from the last processed item.
+     *
+     * @param <T> the data item type
+     * @param <R> the filter type
+     */
+    private class BackfillScan<T extends AbstractDataItem, R extends AbstractSystemEntityDataFilter<T>> {
+
+        private final ReplicationCursor<T> cursor;
+        private final ISystemEntityDataProvisionService<?, R, T> service;
+        private final R filter;
+        private final Consumer<List<T>> mirror;
+        private boolean active;
+        private final Instant startTime;
+        private long count = 0;
+
+        private BackfillScan(ReplicationCursor<T> cursor, Instant startTime, ISystemEntityDataProvisionService<?, R, T> service, R filter, Consumer<List<T>> mirror) {
+            this.cursor = cursor;
+            this.startTime = startTime;
+            this.service = service;
+            this.filter = filter;
+            this.mirror = mirror;
+            this.active = startTime != null;
+        }
+
+        private boolean isActive() {
+            return active;
+        }
+
+        private long getCount() {
+            return count;
+        }
+
+        private void nextPage() throws ReatmetricException, RemoteException, InterruptedException {
+            T position = cursor.getBackfillPosition();
+            List<T> page;
+            int requested;
+            if(position == null) {
+                requested = configuration.getBackfillPageSize();
+                page = service.retrieve(startTime, requested, RetrievalDirection.TO_FUTURE, filter);
+            } else {
+                // The start item is returned as well
+                requested = configuration.getBackfillPageSize() + 1;
+                page = service.retrieve(position, requested, RetrievalDirection.TO_FUTURE, filter);
+            }
+            if(Thread.currentThread().isInterrupted()) {
+                // Backfill stopped while waiting for the page
+                throw new InterruptedException();
+            }
+            List<T> toMirror = cursor.acceptBackfill(page, requested);
+            if(!toMirror.isEmpty()) {
+                mirror.accept(toMirror);
+                count += toMirror.size();
+            }
+            if(!cursor.isBackfilling()) {
+                // Backfill stopped in the meantime
+                active = false;
+            } else if(cursor.isBackfillComplete()) {
+                cursor.endBackfill(true);
+                active = false;
+            }
+        }
+    }
 }
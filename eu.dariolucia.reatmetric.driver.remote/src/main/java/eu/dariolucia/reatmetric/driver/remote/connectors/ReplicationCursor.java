@@ -0,0 +1,341 @@
+/*
+ * Copyright (c)  2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package eu.dariolucia.reatmetric.driver.remote.connectors;
+
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * This class tracks the replication state of a data type mirrored from the remote system, and decides which items,
+ * delivered live or retrieved from the remote archive to fill a gap, must be mirrored.
+ *
+ * A gap is the range of remote unique IDs generated while the connection was down: it starts after the highest ID
+ * mirrored before the disconnection, and ends at the first ID delivered live after the reconnection. Since the remote
+ * archive returns items ordered by generation time (and then unique ID), and the generation time does not follow the
+ * ID order, the backfill pages by generation time, starting from the oldest generation time that an item in the gap
+ * can have (the generation time of the last mirrored item, minus a lookback period) up to the reconnection time (plus
+ * the same lookback period), and mirrors only the items whose ID is in the gap.
+ *
+ * Two kinds of data types are supported:
+ * <ul>
+ *     <li>sequential types (parameters, events), where each remote update has a new, increasing unique ID: items are
+ *     mirrored exactly once, and a backfill interrupted by a new disconnection resumes from the last backfilled item;</li>
+ *     <li>occurrence types (activity occurrences), where the unique ID identifies the occurrence and each update
+ *     carries its full state: the backfill mirrors the occurrences created during the outage, and the occurrences that
+ *     were not completed at the time of the disconnection, unless they were already delivered live after the
+ *     reconnection, since their state is more recent.</li>
+ * </ul>
+ *
+ * @param <T> the data item type
+ */
+class ReplicationCursor<T extends AbstractDataItem> {
+
+    private static final Comparator<AbstractDataItem> ARCHIVE_ORDER = Comparator.comparing(AbstractDataItem::getGenerationTime)
+            .thenComparingLong(o -> o.getInternalId().asLong());
+
+    private final boolean sequential;
+    // Occurrence types: true if the occurrence can still progress
+    private final Predicate<T> openPredicate;
+
+    // Highest ID mirrored
+    private long highestId = -1;
+    // Generation time of the item with the highest ID
+    private Instant highestIdTime;
+    // Gaps to be backfilled: for occurrence types, at most one
+    private final List<Gap> gaps = new LinkedList<>();
+    // Occurrence types: occurrences mirrored and not completed, with their generation time
+    private final Map<Long, Instant> openOccurrences = new HashMap<>();
+    // Occurrence types: IDs delivered live since the reconnection
+    private final Set<Long> liveIds = new HashSet<>();
+
+    private boolean backfilling = false;
+    private boolean backfillComplete = false;
+    // Last item processed by the current backfill
+    private T scanPosition;
+    // Generation time after which the current backfill stops
+    private Instant scanEndTime;
+
+    /**
+     * Create a cursor for a sequential type.
+     */
+    ReplicationCursor() {
+        this.sequential = true;
+        this.openPredicate = null;
+    }
+
+    /**
+     * Create a cursor for an occurrence type.
+     *
+     * @param openPredicate the predicate returning true if the occurrence can still progress
+     */
+    ReplicationCursor(Predicate<T> openPredicate) {
+        this.sequential = false;
+        this.openPredicate = openPredicate;
+    }
+
+    /**
+     * Open the gap of the current disconnection and enter the backfilling state. To be called before subscribing to
+     * the remote system, so that the live items are checked against the gap.
+     *
+     * @param reconnectionTime the reconnection time
+     * @param lookback the lookback period in milliseconds, covering items generated before (or after) the time
+     *                 positions of the gap
+     * @return the generation time to start the backfill from, or null if there is nothing to backfill
+     */
+    synchronized Instant startBackfill(Instant reconnectionTime, long lookback) {
+        endBackfill(false);
+        if(highestId < 0 && gaps.isEmpty()) {
+            // First connection, nothing to backfill
+            return null;
+        }
+        if(sequential) {
+            gaps.add(new Gap(highestId, highestIdTime.minusMillis(lookback), Collections.emptySet()));
+        } else {
+            // Occurrences carry their full state: one gap is enough, mirroring an occurrence twice is harmless
+            Set<Long> pending = new HashSet<>(openOccurrences.keySet());
+            Instant start = highestIdTime == null ? reconnectionTime : highestIdTime;
+            for(Instant t : openOccurrences.values()) {
+                start = min(start, t);
+            }
+            start = start.minusMillis(lookback);
+            long low = highestId;
+            if(!gaps.isEmpty()) {
+                // Interrupted backfill: merge
+                Gap previous = gaps.remove(0);
+                pending.addAll(previous.pending);
+                low = Math.min(low, previous.low);
+                start = min(start, previous.start);
+            }
+            gaps.add(new Gap(low, start, pending));
+            liveIds.clear();
+        }
+        backfilling = true;
+        backfillComplete = false;
+        scanPosition = null;
+        scanEndTime = reconnectionTime.plusMillis(lookback);
+        Instant startTime = null;
+        for(Gap g : gaps) {
+            startTime = min(startTime, g.resumeTime());
+        }
+        return startTime;
+    }
+
+    /**
+     * Filter the items delivered live.
+     *
+     * @param items the received items
+     * @return the items to mirror
+     */
+    synchronized List<T> acceptLive(List<T> items) {
+        List<T> toMirror = new ArrayList<>(items.size());
+        for(T item : items) {
+            long id = item.getInternalId().asLong();
+            if(sequential) {
+                Gap open = openEndedGap();
+                if(open != null) {
+                    // First item delivered live after the reconnection: the gap ends here, or after the highest ID
+                    // already mirrored by the backfill, whose items are not delivered live anymore
+                    open.high = Math.max(id, open.mirroredHigh + 1);
+                }
+                if(id <= highestId || isInGap(id)) {
+                    // Already mirrored or to be mirrored by the backfill
+                    continue;
+                }
+            } else {
+                if(backfilling) {
+                    liveIds.add(id);
+                }
+                updateOpenOccurrence(item);
+            }
+            toMirror.add(item);
+            updateHighest(item);
+        }
+        return toMirror;
+    }
+
+    /**
+     * Filter the items of a backfill page, retrieved from the remote archive.
+     *
+     * @param page the retrieved items, in archive order
+     * @param requested the requested number of items
+     * @return the items to mirror
+     */
+    synchronized List<T> acceptBackfill(List<T> page, int requested) {
+        List<T> toMirror = new ArrayList<>(page.size());
+        if(!backfilling) {
+            return toMirror;
+        }
+        for(T item : page) {
+            if(scanPosition != null && ARCHIVE_ORDER.compare(item, scanPosition) <= 0) {
+                // Already processed
+                continue;
+            }
+            if(item.getGenerationTime().isAfter(scanEndTime)) {
+                // Beyond the gap
+                backfillComplete = true;
+                break;
+            }
+            scanPosition = item;
+            long id = item.getInternalId().asLong();
+            if(sequential) {
+                for(Gap g : gaps) {
+                    if(g.contains(item)) {
+                        g.mirroredHigh = Math.max(g.mirroredHigh, id);
+                        toMirror.add(item);
+                        break;
+                    }
+                }
+                for(Gap g : gaps) {
+                    g.position = item;
+                }
+            } else {
+                Gap g = gaps.get(0);
+                if((id > g.low || g.pending.contains(id)) && !liveIds.contains(id)) {
+                    toMirror.add(item);
+                    updateOpenOccurrence(item);
+                    updateHighest(item);
+                }
+            }
+        }
+        if(page.size() < requested) {
+            backfillComplete = true;
+        }
+        return toMirror;
+    }
+
+    /**
+     * Return the last item processed by the backfill, from which the next page must be retrieved.
+     *
+     * @return the last processed item, or null if no item was processed yet
+     */
+    synchronized T getBackfillPosition() {
+        return scanPosition;
+    }
+
+    synchronized boolean isBackfillComplete() {
+        return backfillComplete;
+    }
+
+    synchronized boolean isBackfilling() {
+        return backfilling;
+    }
+
+    /**
+     * Terminate the current backfill.
+     *
+     * @param completed true if the gaps were fully backfilled, false if the backfill was interrupted
+     */
+    synchronized void endBackfill(boolean completed) {
+        if(!backfilling) {
+            return;
+        }
+        backfilling = false;
+        if(completed) {
+            for(Gap g : gaps) {
+                if(g.mirroredHigh > highestId) {
+                    // No item delivered live yet: the backfill reached the end of the remote archive. The generation
+                    // time of the highest ID is kept as it is: older, hence conservative for the next gap
+                    highestId = g.mirroredHigh;
+                }
+            }
+            gaps.clear();
+        } else if(sequential) {
+            Gap open = openEndedGap();
+            if(open != null) {
+                // No item delivered live: the items after the highest backfilled ID are part of the next gap
+                open.high = open.mirroredHigh + 1;
+                highestId = Math.max(highestId, open.mirroredHigh);
+            }
+            // Drop the gaps that cannot contain items anymore
+            gaps.removeIf(g -> g.high <= g.low + 1);
+        }
+        liveIds.clear();
+        scanPosition = null;
+    }
+
+    private void updateHighest(T item) {
+        long id = item.getInternalId().asLong();
+        if(id > highestId) {
+            highestId = id;
+            highestIdTime = item.getGenerationTime();
+        }
+    }
+
+    private void updateOpenOccurrence(T item) {
+        long id = item.getInternalId().asLong();
+        if(openPredicate.test(item)) {
+            openOccurrences.put(id, item.getGenerationTime());
+        } else {
+            openOccurrences.remove(id);
+        }
+    }
+
+    private Gap openEndedGap() {
+        for(Gap g : gaps) {
+            if(g.high == Long.MAX_VALUE) {
+                return g;
+            }
+        }
+        return null;
+    }
+
+    private boolean isInGap(long id) {
+        for(Gap g : gaps) {
+            if(id > g.low && id < g.high) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private class Gap {
+        // Highest ID mirrored before the gap, excluded
+        private final long low;
+        // First ID delivered live after the gap, excluded: Long.MAX_VALUE if not known yet
+        private long high = Long.MAX_VALUE;
+        // Oldest generation time of the items in the gap
+        private final Instant start;
+        // Occurrence types: occurrences not completed at the time of the disconnection
+        private final Set<Long> pending;
+        // Last item processed by a backfill of this gap
+        private T position;
+        // Highest ID mirrored by the backfill of this gap
+        private long mirroredHigh = -1;
+
+        private Gap(long low, Instant start, Set<Long> pending) {
+            this.low = low;
+            this.start = start;
+            this.pending = pending;
+        }
+
+        private boolean contains(T item) {
+            long id = item.getInternalId().asLong();
+            return id > low && id < high && (position == null || ARCHIVE_ORDER.compare(item, position) > 0);
+        }
+
+        private Instant resumeTime() {
+            return position == null ? start : position.getGenerationTime();
+        }
+    }
+}
@@ -81,6 +81,28 @@ public class RemoteConfiguration {
     @XmlAttribute(name = "remote-path-selector", required = true)
     private String remotePathSelector;
 
+    /**
+     * Maximum number of items retrieved from the remote archive in a single request, when the data generated by the
+     * remote system while the connection was down is backfilled after a reconnection. If 0, no backfill is performed.
+     */
+    @XmlAttribute(name = "backfill-page-size")
+    private int backfillPageSize = 500;
+
+    /**
+     * Minimum time in milliseconds between two consecutive backfill requests to the remote archive. This property
+     * limits the backfill rate, so that the live data keeps flowing while the gap is filled.
+     */
+    @XmlAttribute(name = "backfill-page-period")
+    private int backfillPagePeriod = 250;
+
+    /**
+     * Time in milliseconds by which the backfill looks before the generation time of the last item mirrored before the
+     * disconnection, and after the reconnection time. Remote items can be generated with a generation time older than
+     * the ones already processed by the remote system: this property covers such items.
+     */
+    @XmlAttribute(name = "backfill-lookback")
+    private int backfillLookback = 60000;
+
     public String getRemoteSystemName() {
         return remoteSystemName;
     }
@@ -105,4 +127,28 @@ public class RemoteConfiguration {
         this.remotePathPrefix = remotePathPrefix;
     }
 
+    public int getBackfillPageSize() {
+        return backfillPageSize;
+    }
+
+    public void setBackfillPageSize(int backfillPageSize) {
+        this.backfillPageSize = backfillPageSize;
+    }
+
+    public int getBackfillPagePeriod() {
+        return backfillPagePeriod;
+    }
+
+    public void setBackfillPagePeriod(int backfillPagePeriod) {
+        this.backfillPagePeriod = backfillPagePeriod;
+    }
+
+    public int getBackfillLookback() {
+        return backfillLookback;
+    }
+
+    public void setBackfillLookback(int backfillLookback) {
+        this.backfillLookback = backfillLookback;
+    }
+
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.remote.connectors;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceReport;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
+import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.messages.Severity;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationCursorTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final long LOOKBACK = 10000;
+    private static final Comparator<AbstractDataItem> ARCHIVE_ORDER = Comparator.comparing(AbstractDataItem::getGenerationTime)
+            .thenComparingLong(o -> o.getInternalId().asLong());
+
+    // Remote archive, in insertion order
+    private final List<AbstractDataItem> archive = new ArrayList<>();
+
+    @Test
+    void testFirstConnection() {
+        ReplicationCursor<EventData> cursor = new ReplicationCursor<>();
+        assertNull(cursor.startBackfill(T0, LOOKBACK));
+        assertFalse(cursor.isBackfilling());
+        assertEquals(idRange(1, 3), idsOf(cursor.acceptLive(events(1, 3))));
+        // Duplicates are not mirrored
+        assertEquals(ids(4), idsOf(cursor.acceptLive(events(3, 4))));
+    }
+
+    @Test
+    void testGapWithOutOfOrderGenerationTimes() {
+        ReplicationCursor<EventData> cursor = new ReplicationCursor<>();
+        cursor.startBackfill(T0, LOOKBACK);
+        List<Long> mirrored = new ArrayList<>(idsOf(cursor.acceptLive(events(1, 10))));
+        cursor.endBackfill(false);
+        // Outage: the items of the gap are archived with generation times older than the last mirrored one
+        List<EventData> gap = Arrays.asList(event(11, 8), event(12, 11), event(13, 3), event(14, 12), event(15, 9), event(16, 13));
+        archive.addAll(gap);
+        // Reconnection: live items are checked against the gap since the subscription
+        Instant start = cursor.startBackfill(T0.plusSeconds(20), LOOKBACK);
+        assertNotNull(start);
+        assertTrue(cursor.isBackfilling());
+        assertTrue(start.isBefore(T0.plusSeconds(3)));
+        List<EventData> live = Arrays.asList(event(17, 14), event(18, 15));
+        archive.addAll(live);
+        mirrored.addAll(idsOf(cursor.acceptLive(live)));
+        // Items delivered live do not move the position: the gap is still backfilled
+        mirrored.addAll(idsOf(backfill(cursor, start, 2)));
+        assertFalse(cursor.isBackfilling());
+        assertEquals(idRange(1, 18), sorted(mirrored));
+        assertEquals(new HashSet<>(mirrored).size(), mirrored.size());
+        // After the backfill, live items are mirrored as usual
+        assertEquals(ids(19), idsOf(cursor.acceptLive(events(18, 19))));
+    }
+
+    @Test
+    void testInterruptedBackfill() {
+        ReplicationCursor<EventData> cursor = new ReplicationCursor<>();
+        cursor.startBackfill(T0, LOOKBACK);
+        List<Long> mirrored = new ArrayList<>(idsOf(cursor.acceptLive(events(1, 10))));
+        cursor.endBackfill(false);
+        archive.addAll(events(11, 20));
+        // First reconnection: the backfill is interrupted after one page
+        Instant start = cursor.startBackfill(T0.plusSeconds(30), LOOKBACK);
+        List<EventData> live = events(21, 25);
+        archive.addAll(live);
+        mirrored.addAll(idsOf(cursor.acceptLive(live)));
+        mirrored.addAll(idsOf(page(cursor, start, 4)));
+        assertTrue(cursor.isBackfilling());
+        cursor.endBackfill(false);
+        // Second outage
+        archive.addAll(events(26, 30));
+        start = cursor.startBackfill(T0.plusSeconds(40), LOOKBACK);
+        live = events(31, 32);
+        archive.addAll(live);
+        mirrored.addAll(idsOf(cursor.acceptLive(live)));
+        mirrored.addAll(idsOf(backfill(cursor, start, 4)));
+        assertEquals(idRange(1, 32), sorted(mirrored));
+        assertEquals(new HashSet<>(mirrored).size(), mirrored.size());
+    }
+
+    @Test
+    void testBackfillAheadOfLiveDelivery() {
+        ReplicationCursor<EventData> cursor = new ReplicationCursor<>();
+        cursor.startBackfill(T0, LOOKBACK);
+        List<Long> mirrored = new ArrayList<>(idsOf(cursor.acceptLive(events(1, 5))));
+        cursor.endBackfill(false);
+        archive.addAll(events(6, 12));
+        Instant start = cursor.startBackfill(T0.plusSeconds(20), LOOKBACK);
+        // The first page already contains items generated after the reconnection, not yet delivered live
+        mirrored.addAll(idsOf(page(cursor, start, 20)));
+        mirrored.addAll(idsOf(cursor.acceptLive(events(10, 14))));
+        assertEquals(idRange(1, 14), sorted(mirrored));
+        assertEquals(new HashSet<>(mirrored).size(), mirrored.size());
+    }
+
+    @Test
+    void testActivityOccurrences() {
+        ReplicationCursor<ActivityOccurrenceData> cursor = new ReplicationCursor<>(o -> o.getCurrentState() != ActivityOccurrenceState.COMPLETED);
+        cursor.startBackfill(T0, LOOKBACK);
+        // Occurrence 1 in execution, occurrence 2 completed, before the outage
+        cursor.acceptLive(Arrays.asList(occurrence(1, 1, ActivityOccurrenceState.EXECUTION), occurrence(2, 2, ActivityOccurrenceState.COMPLETED)));
+        cursor.endBackfill(false);
+        // Outage: occurrence 1 completes, occurrences 3 and 4 are created. The archive returns the occurrences with
+        // their latest state, by creation time
+        archive.add(occurrence(1, 1, ActivityOccurrenceState.COMPLETED));
+        archive.add(occurrence(2, 2, ActivityOccurrenceState.COMPLETED));
+        archive.add(occurrence(3, 3, ActivityOccurrenceState.EXECUTION));
+        archive.add(occurrence(4, 4, ActivityOccurrenceState.EXECUTION));
+        Instant start = cursor.startBackfill(T0.plusSeconds(20), LOOKBACK);
+        assertFalse(start.isAfter(T0.plusSeconds(1)));
+        // Occurrence 4 progresses live, occurrence 5 is created live
+        List<ActivityOccurrenceData> live = Arrays.asList(occurrence(4, 4, ActivityOccurrenceState.COMPLETED), occurrence(5, 15, ActivityOccurrenceState.RELEASE));
+        assertEquals(2, cursor.acceptLive(live).size());
+        List<ActivityOccurrenceData> backfilled = backfill(cursor, start, 2);
+        // Occurrence 1 with its final state, occurrence 3 created during the outage: occurrence 2 was already complete,
+        // occurrence 4 has a more recent state delivered live
+        assertEquals(Arrays.asList(1L, 3L), idsOf(backfilled));
+        assertEquals(ActivityOccurrenceState.COMPLETED, backfilled.get(0).getCurrentState());
+    }
+
+    private <T extends AbstractDataItem> List<T> backfill(ReplicationCursor<T> cursor, Instant start, int pageSize) {
+        List<T> mirrored = new ArrayList<>();
+        while(cursor.isBackfilling()) {
+            mirrored.addAll(page(cursor, start, pageSize));
+        }
+        return mirrored;
+    }
+
+    /**
+     * Retrieve a page from the archive in the same way as the remote archive does (by generation time and unique ID,
+     * including the start item), and pass it to the cursor.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends AbstractDataItem> List<T> page(ReplicationCursor<T> cursor, Instant start, int pageSize) {
+        T position = cursor.getBackfillPosition();
+        int requested = position == null ? pageSize : pageSize + 1;
+        List<T> page = archive.stream()
+                .filter(o -> position == null ? !o.getGenerationTime().isBefore(start) : ARCHIVE_ORDER.compare(o, position) >= 0)
+                .sorted(ARCHIVE_ORDER)
+                .limit(requested)
+                .map(o -> (T) o)
+                .collect(Collectors.toList());
+        List<T> toMirror = cursor.acceptBackfill(page, requested);
+        if(cursor.isBackfillComplete()) {
+            cursor.endBackfill(true);
+        }
+        return toMirror;
+    }
+
+    private static List<EventData> events(long from, long to) {
+        List<EventData> toReturn = new ArrayList<>();
+        for(long i = from; i <= to; ++i) {
+            toReturn.add(event(i, i));
+        }
+        return toReturn;
+    }
+
+    private static EventData event(long id, long second) {
+        return new EventData(new LongUniqueId(id), T0.plusSeconds(second), 100, "EVENT", SystemEntityPath.fromString("STATION.EVENT"),
+                null, "Type", "Route", "Source", Severity.INFO, null, null, T0.plusSeconds(second), null);
+    }
+
+    private static ActivityOccurrenceData occurrence(long id, long second, ActivityOccurrenceState state) {
+        List<ActivityOccurrenceReport> reports = Collections.singletonList(new ActivityOccurrenceReport(new LongUniqueId(id * 100), T0.plusSeconds(second), null,
+                "Report", ActivityOccurrenceState.CREATION, null, ActivityReportState.OK, state, null));
+        return new ActivityOccurrenceData(new LongUniqueId(id), T0.plusSeconds(second), null, 200, "ACT", SystemEntityPath.fromString("STATION.ACT"),
+                "Type", Collections.emptyMap(), Collections.emptyMap(), reports, "Route", "Source");
+    }
+
+    private static List<Long> idRange(long from, long to) {
+        List<Long> toReturn = new ArrayList<>();
+        for(long i = from; i <= to; ++i) {
+            toReturn.add(i);
+        }
+        return toReturn;
+    }
+
+    private static List<Long> ids(long... ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+
+    private static List<Long> idsOf(List<? extends AbstractDataItem> items) {
+        return items.stream().map(o -> o.getInternalId().asLong()).collect(Collectors.toList());
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+}
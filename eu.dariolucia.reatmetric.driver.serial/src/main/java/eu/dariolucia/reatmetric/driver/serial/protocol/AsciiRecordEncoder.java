@@ -0,0 +1,116 @@
+/*
+ * Copyright (c)  2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.serial.protocol;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Reusable ASCII output buffer for the protocol responses. Numbers, times and fixed-length fields are written directly
+ * into a preallocated byte array, without intermediate formatting objects. Characters outside the ASCII range are
+ * written as '?'.
+ */
+class AsciiRecordEncoder {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private byte[] buffer = new byte[1024];
+
+    private int length = 0;
+
+    public AsciiRecordEncoder reset() {
+        this.length = 0;
+        return this;
+    }
+
+    /**
+     * Append the number, left-padded with zeros up to the specified number of digits. Negative numbers are not
+     * supported.
+     */
+    public AsciiRecordEncoder appendNumber(int value, int minDigits) {
+        int digits = 1;
+        for(int v = value / 10; v > 0; v /= 10) {
+            ++digits;
+        }
+        int total = Math.max(digits, minDigits);
+        ensureCapacity(total);
+        for(int i = length + total - 1; i >= length; --i) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        length += total;
+        return this;
+    }
+
+    /**
+     * Append the UTC time of the day of the provided instant, as hh:mm:ss.
+     */
+    public AsciiRecordEncoder appendTime(Instant time) {
+        int secondOfDay = (int) Math.floorMod(time.getEpochSecond(), SECONDS_PER_DAY);
+        appendNumber(secondOfDay / 3600, 2);
+        append(':');
+        appendNumber((secondOfDay / 60) % 60, 2);
+        append(':');
+        return appendNumber(secondOfDay % 60, 2);
+    }
+
+    /**
+     * Append the string, right-aligned in a field of exactly the specified length: the string is left-padded with
+     * spaces, or truncated if longer than the field.
+     */
+    public AsciiRecordEncoder appendRightAligned(String value, int fieldLength) {
+        ensureCapacity(fieldLength);
+        int padding = fieldLength - value.length();
+        for(int i = 0; i < padding; ++i) {
+            buffer[length++] = ' ';
+        }
+        int toWrite = Math.min(value.length(), fieldLength);
+        for(int i = 0; i < toWrite; ++i) {
+            buffer[length++] = toAscii(value.charAt(i));
+        }
+        return this;
+    }
+
+    public AsciiRecordEncoder append(String value) {
+        ensureCapacity(value.length());
+        for(int i = 0; i < value.length(); ++i) {
+            buffer[length++] = toAscii(value.charAt(i));
+        }
+        return this;
+    }
+
+    public AsciiRecordEncoder append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = toAscii(c);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static byte toAscii(char c) {
+        return c < 128 ? (byte) c : (byte) '?';
+    }
+
+    private void ensureCapacity(int toAdd) {
+        if(length + toAdd > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + toAdd));
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class ProtocolManager {
     private static final String C_DEREG_PARAM =         "DEREG_PARAM";
     private static final String C_DEREG_PARAM_ALL =     "DEREG_PARAM_ALL";
     private static final String C_UPDATE_PARAM =        "UPDATE_PARAM";
+    private static final String C_UPDATE_PARAM_DELTA =  "UPDATE_PARAM_DELTA";
     private static final String C_SET_MAX_LOG =         "SET_MAX_LOG";
     private static final String C_SET_LOG_LEN =         "SET_LOG_LEN";
     private static final String C_UPDATE_LOG =          "UPDATE_LOG";
@@ -53,6 +54,8 @@ public class ProtocolManager {
     private static final byte[] S_OK =      "OK".concat(EOL).getBytes(StandardCharsets.US_ASCII);
     private static final byte[] S_KO =      "KO".concat(EOL).getBytes(StandardCharsets.US_ASCII);
 
+    private static final int MAX_DELTA_UPDATE_NUMBER = 999;
+
     private int valueLength =   15;
     private int maxLogs =       4;
     private int logLength =     26;
@@ -74,6 +77,14 @@ public class ProtocolManager {
 
     private final Map<String, Integer> path2id = new TreeMap<>();
 
+    // Delivery state of the registered parameters, for delta updates
+    private final Map<Integer, ParameterDeliveryState> id2deliveryState = new HashMap<>();
+
+    // Number of the last delta update sent to the client, 0 if none
+    private int lastDeltaUpdateNumber = 0;
+
+    private final AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+
     public ProtocolManager(IMonitoringDataManager externalManager, int timeoutSeconds) {
         this.externalManager = externalManager;
         this.timeoutSeconds = timeoutSeconds;
@@ -149,6 +160,8 @@ public class ProtocolManager {
                 return updateLog();
             case C_UPDATE_PARAM:
                 return updateParameters();
+            case C_UPDATE_PARAM_DELTA:
+                return updateParametersDelta(parts);
             default:
                 return abort();
         }
@@ -162,41 +175,63 @@ public class ProtocolManager {
 
     private byte[] updateParameters() {
         List<ParameterData> params = this.externalManager.updateParameters();
-        StringBuilder sb = new StringBuilder();
+        encoder.reset();
         // Number of records
-        sb.append(String.format("%02d%s", params.size(), EOL));
+        encoder.appendNumber(params.size(), 2).append(EOL);
         // Iterate, find ID from local map, construct string
         for(ParameterData pd : params) {
             int id = this.path2id.get(pd.getPath().asString());
-            String paramStr = generateParameterString(id, pd);
-            sb.append(paramStr);
+            encodeParameter(id, pd);
         }
-        sb.append(String.format("OK%s", EOL));
-        return sb.toString().getBytes(StandardCharsets.US_ASCII);
-    }
-
-    private String generateParameterString(int id, ParameterData parameter) {
-        GregorianCalendar d = new GregorianCalendar();
-        d.setTimeZone(TimeZone.getTimeZone("UTC"));
-        d.setTime(new Date(parameter.getGenerationTime().toEpochMilli()));
-        String toReturn = String.format("%02d %02d:%02d:%02d %s %s %s", id, d.get(Calendar.HOUR_OF_DAY), d.get(Calendar.MINUTE), d.get(Calendar.SECOND),
-                getParameterValue(parameter.getEngValue()),
-                getParameterValidity(parameter.getValidity()),
-                getParameterAlarm(parameter.getAlarmState()));
-        return toReturn.concat(EOL);
+        encoder.append("OK").append(EOL);
+        return encoder.toByteArray();
     }
 
-    private String getParameterValue(Object engValue) {
-        String valStr = "<null>";
-        if(engValue != null) {
-            valStr = ValueUtil.toString(engValue);
+    private byte[] updateParametersDelta(String[] parts) {
+        int acknowledgedUpdate;
+        try {
+            acknowledgedUpdate = Integer.parseInt(parts[1]);
+        } catch (Exception e) {
+            // Stay on REGISTERED, send KO
+            return S_KO;
         }
-        if(valStr.length() < this.valueLength) {
-            valStr = String.format("%1$" + this.valueLength + "s", valStr);
+        if(acknowledgedUpdate == 0) {
+            // Client (re)synchronisation: send everything
+            this.id2deliveryState.values().forEach(ParameterDeliveryState::reset);
+        } else if(acknowledgedUpdate == this.lastDeltaUpdateNumber) {
+            // The last update was received by the client
+            this.id2deliveryState.values().forEach(ParameterDeliveryState::acknowledge);
         } else {
-            valStr = valStr.substring(0, this.valueLength);
+            // The last update was not received by the client: its changes are still to be delivered
+            this.id2deliveryState.values().forEach(ParameterDeliveryState::discard);
         }
-        return valStr;
+        List<ParameterData> params = this.externalManager.updateParameters();
+        List<ParameterData> changed = new ArrayList<>(params.size());
+        List<Integer> changedIds = new ArrayList<>(params.size());
+        for(ParameterData pd : params) {
+            Integer id = this.path2id.get(pd.getPath().asString());
+            if(id != null && this.id2deliveryState.computeIfAbsent(id, o -> new ParameterDeliveryState()).send(pd)) {
+                changed.add(pd);
+                changedIds.add(id);
+            }
+        }
+        this.lastDeltaUpdateNumber = this.lastDeltaUpdateNumber % MAX_DELTA_UPDATE_NUMBER + 1;
+        encoder.reset();
+        // Number of records and update number
+        encoder.appendNumber(changed.size(), 2).append(' ').appendNumber(this.lastDeltaUpdateNumber, 3).append(EOL);
+        for(int i = 0; i < changed.size(); ++i) {
+            encodeParameter(changedIds.get(i), changed.get(i));
+        }
+        encoder.append("OK").append(EOL);
+        return encoder.toByteArray();
+    }
+
+    private void encodeParameter(int id, ParameterData parameter) {
+        encoder.appendNumber(id, 2).append(' ')
+                .appendTime(parameter.getGenerationTime()).append(' ')
+                .appendRightAligned(parameter.getEngValue() != null ? ValueUtil.toString(parameter.getEngValue()) : "<null>", this.valueLength).append(' ')
+                .append(getParameterValidity(parameter.getValidity())).append(' ')
+                .append(getParameterAlarm(parameter.getAlarmState())).append(EOL);
     }
 
     private String getParameterAlarm(AlarmState alarmState) {
@@ -283,6 +318,7 @@ public class ProtocolManager {
         this.externalManager.deregisterAllParameter();
         // Remove all correspondences from local map
         this.path2id.clear();
+        this.id2deliveryState.clear();
         // Stay on REGISTERED, send OK
         return S_OK;
     }
@@ -318,6 +354,7 @@ public class ProtocolManager {
                 if(path != null) {
                     this.path2id.remove(path);
                 }
+                this.id2deliveryState.remove(id);
                 // Stay on REGISTERED, send OK
                 return S_OK;
             } else {
@@ -395,6 +432,8 @@ public class ProtocolManager {
         if(this.state == ProtocolState.DEREGISTERED) {
             this.externalManager.deregisterAllParameter();
             this.path2id.clear();
+            this.id2deliveryState.clear();
+            this.lastDeltaUpdateNumber = 0;
             stopReceptionTimer();
         } else if(this.state == ProtocolState.REGISTERED) {
             restartReceptionTimer();
@@ -413,4 +452,62 @@ public class ProtocolManager {
     public synchronized void dispose() {
         switchStateTo(ProtocolState.DEREGISTERED);
     }
+
+    /**
+     * Value, validity and alarm state of a parameter, as delivered to the client (i.e. acknowledged) and as sent in the
+     * last delta update (not yet acknowledged).
+     */
+    private static class ParameterDeliveryState {
+
+        private boolean delivered;
+        private Object deliveredValue;
+        private Validity deliveredValidity;
+        private AlarmState deliveredAlarmState;
+
+        private boolean sent;
+        private Object sentValue;
+        private Validity sentValidity;
+        private AlarmState sentAlarmState;
+
+        /**
+         * Mark the parameter as sent, if changed with respect to the delivered state.
+         *
+         * @return true if the parameter changed and shall be sent, otherwise false
+         */
+        public boolean send(ParameterData pd) {
+            if(delivered && Objects.deepEquals(deliveredValue, pd.getEngValue()) && deliveredValidity == pd.getValidity() && deliveredAlarmState == pd.getAlarmState()) {
+                return false;
+            }
+            sent = true;
+            sentValue = pd.getEngValue();
+            sentValidity = pd.getValidity();
+            sentAlarmState = pd.getAlarmState();
+            return true;
+        }
+
+        public void acknowledge() {
+            if(sent) {
+                delivered = true;
+                deliveredValue = sentValue;
+                deliveredValidity = sentValidity;
+                deliveredAlarmState = sentAlarmState;
+                discard();
+            }
+        }
+
+        public void discard() {
+            sent = false;
+            sentValue = null;
+            sentValidity = null;
+            sentAlarmState = null;
+        }
+
+        public void reset() {
+            discard();
+            delivered = false;
+            deliveredValue = null;
+            deliveredValidity = null;
+            deliveredAlarmState = null;
+        }
+    }
 }
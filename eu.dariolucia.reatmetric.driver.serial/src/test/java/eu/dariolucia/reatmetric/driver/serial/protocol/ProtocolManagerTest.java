@@ -31,6 +31,8 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 class ProtocolManagerTest {
 
     @Test
@@ -57,9 +59,51 @@ class ProtocolManagerTest {
 
     }
 
-    private void send(String command, ProtocolManager pm) {
+    @Test
+    public void testDeltaUpdate() {
+        MonitoringDataManagerStub man = new MonitoringDataManagerStub();
+        ProtocolManager pm = new ProtocolManager(man,10);
+
+        send("HELLO TestApp", pm);
+        send("SET_VALUE_LEN 6", pm);
+        send("REG_PARAM aa.bb.cc.dd", pm);
+        send("REG_PARAM aa.bb.cc.ee", pm);
+        send("REG_PARAM aa.bb.cc.ff", pm);
+        // Full update, same format as UPDATE_PARAM
+        String[] full = send("UPDATE_PARAM", pm);
+        String[] delta = send("UPDATE_PARAM_DELTA 000", pm);
+        assertEquals(5, delta.length);
+        assertEquals("03 001", delta[0]);
+        assertEquals(full[1], delta[1]);
+        assertTrue(delta[1].endsWith("  23.0 V WRN"));
+        assertEquals("OK", delta[4]);
+        // Acknowledged, nothing changed
+        delta = send("UPDATE_PARAM_DELTA 001", pm);
+        assertArrayEquals(new String[] {"00 002", "OK"}, delta);
+        // Value change
+        man.update(1, 24.5, AlarmState.WARNING);
+        delta = send("UPDATE_PARAM_DELTA 002", pm);
+        assertEquals("01 003", delta[0]);
+        assertTrue(delta[1].startsWith("01 "));
+        assertTrue(delta[1].endsWith("  24.5 V WRN"));
+        // Update 003 not received by the client: the change is sent again, together with the new one
+        man.update(2, 23.0, AlarmState.ALARM);
+        delta = send("UPDATE_PARAM_DELTA 002", pm);
+        assertEquals("02 004", delta[0]);
+        assertTrue(delta[1].startsWith("01 "));
+        assertTrue(delta[2].startsWith("02 ") && delta[2].endsWith("V ALM"));
+        delta = send("UPDATE_PARAM_DELTA 004", pm);
+        assertArrayEquals(new String[] {"00 005", "OK"}, delta);
+        // Wrong number
+        assertArrayEquals(new String[] {"KO"}, send("UPDATE_PARAM_DELTA abc", pm));
+        send("BYE", pm);
+    }
+
+    private String[] send(String command, ProtocolManager pm) {
         System.out.println("Sent: " + command);
-        print(pm.event(command));
+        byte[] response = pm.event(command);
+        print(response);
+        return new String(response, StandardCharsets.US_ASCII).split("\r");
     }
 
     private void print(byte[] data) {
@@ -89,6 +133,12 @@ class ProtocolManagerTest {
             return id;
         }
 
+        public void update(int parameterId, Object value, AlarmState alarmState) {
+            ParameterData old = registeredParameter.get(parameterId);
+            registeredParameter.put(parameterId, new ParameterData(new LongUniqueId(parameterId), Instant.now(), 0, old.getName(), old.getPath(), value, value, "", Validity.VALID,
+                    alarmState, null, Instant.now(), null));
+        }
+
         @Override
         public boolean deregisterParameter(int parameterId) {
             if(registeredParameter.containsKey(parameterId)) {
@@ -57,9 +57,15 @@ public class SnmpDriver extends AbstractDriver implements IRawDataRenderer {
 
     private SnmpActivityHandler activityHandler;
 
+    private SnmpSession session;
+
     @Override
     public List<DebugInformation> currentDebugInfo() {
-        return Collections.emptyList();
+        List<DebugInformation> toReturn = new LinkedList<>();
+        for(SnmpTransportConnector connector : transportConnectorMap.values()) {
+            toReturn.addAll(connector.currentDebugInfo());
+        }
+        return toReturn;
     }
 
     @Override
@@ -92,11 +98,14 @@ public class SnmpDriver extends AbstractDriver implements IRawDataRenderer {
     }
 
     private void createTransportConnectors() {
+        // All devices share the same session
+        this.session = new SnmpSession(getName());
         for(SnmpDevice device : this.configuration.getSnmpDeviceList()) {
             SnmpTransportConnector connector = new SnmpTransportConnector(getName(),
                     device,
                     getContext().getRawDataBroker(),
-                    getContext().getProcessingModel());
+                    getContext().getProcessingModel(),
+                    this.session);
             connector.prepare();
             transportConnectorMap.put(device.getName(), connector);
         }
@@ -115,6 +124,16 @@ public class SnmpDriver extends AbstractDriver implements IRawDataRenderer {
         }
     }
 
+    @Override
+    public void dispose() throws DriverException {
+        for(SnmpTransportConnector connector : transportConnectorMap.values()) {
+            connector.dispose();
+        }
+        if(this.session != null) {
+            this.session.close();
+        }
+    }
+
     @Override
     public String getHandler() {
         return getName();
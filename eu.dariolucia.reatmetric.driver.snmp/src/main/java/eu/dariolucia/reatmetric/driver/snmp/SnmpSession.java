@@ -0,0 +1,142 @@
+/*
+ * Copyright (c)  2024 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.snmp;
+
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SNMP session shared by all the devices of a driver: requests are sent asynchronously over a single UDP transport,
+ * the polling of all groups is driven by a single scheduler thread, and responses are processed by a single processing
+ * thread, so that the number of threads does not depend on the number of devices.
+ */
+public class SnmpSession {
+
+    private static final Logger LOG = Logger.getLogger(SnmpSession.class.getName());
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService processor;
+
+    private Snmp connection;
+
+    public SnmpSession(String name) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SNMP Driver " + name + " Polling Scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        this.processor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "SNMP Driver " + name + " Response Processor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Open the underlying UDP transport, if not already open.
+     *
+     * @throws IOException in case the transport cannot be opened
+     */
+    public synchronized void open() throws IOException {
+        if(this.connection != null) {
+            return;
+        }
+        TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
+        Snmp theConnection = new Snmp(transport);
+        try {
+            transport.listen();
+        } catch (IOException e) {
+            theConnection.close();
+            throw e;
+        }
+        this.connection = theConnection;
+    }
+
+    /**
+     * Send the request asynchronously. The response handler is invoked in the processing thread with the response
+     * event: if the response is null, the request timed out (after all retries). If the request cannot be sent, an
+     * exception is thrown and the handler is not invoked.
+     *
+     * @param request the request to send
+     * @param target the target device
+     * @param responseHandler the handler of the response
+     * @throws IOException if the request cannot be sent
+     */
+    public void send(PDU request, Target<Address> target, Consumer<ResponseEvent<?>> responseHandler) throws IOException {
+        Snmp theConnection;
+        synchronized (this) {
+            theConnection = this.connection;
+        }
+        if(theConnection == null) {
+            throw new IOException("SNMP session not open");
+        }
+        theConnection.send(request, target, null, new ResponseListener() {
+            @Override
+            public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                // Always cancel the request once the response is received, otherwise it is kept (and retried)
+                ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+                try {
+                    processor.execute(() -> responseHandler.accept(event));
+                } catch (RejectedExecutionException e) {
+                    // Session closed, ignore
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedule the task at fixed rate on the shared scheduler. The task shall not block.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long initialDelay, long period) {
+        return this.scheduler.scheduleAtFixedRate(task, initialDelay, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Execute the task in the processing thread.
+     */
+    public void execute(Runnable task) {
+        this.processor.execute(task);
+    }
+
+    public synchronized void close() {
+        this.scheduler.shutdownNow();
+        this.processor.shutdownNow();
+        if(this.connection != null) {
+            try {
+                this.connection.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Error while closing SNMP session: " + e.getMessage(), e);
+            }
+            this.connection = null;
+        }
+    }
+}
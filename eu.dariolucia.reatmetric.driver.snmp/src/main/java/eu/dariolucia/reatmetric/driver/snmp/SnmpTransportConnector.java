@@ -20,6 +20,7 @@ package eu.dariolucia.reatmetric.driver.snmp;
 import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceReport;
 import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
 import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
 import eu.dariolucia.reatmetric.api.common.IUniqueId;
 import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
@@ -37,20 +38,21 @@ import eu.dariolucia.reatmetric.api.transport.exceptions.TransportException;
 import eu.dariolucia.reatmetric.core.api.IRawDataBroker;
 import eu.dariolucia.reatmetric.driver.snmp.configuration.GroupConfiguration;
 import eu.dariolucia.reatmetric.driver.snmp.configuration.SnmpDevice;
+import eu.dariolucia.reatmetric.driver.snmp.configuration.SnmpVersionEnum;
 import org.snmp4j.CommunityTarget;
 import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
-import org.snmp4j.TransportMapping;
-import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.smi.*;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.rmi.RemoteException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -63,19 +65,29 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
     private final SnmpDevice device;
     private final IRawDataBroker rawDataBroker;
     private final IProcessingModel processingModel;
-    private final Timer deviceTimer;
+    private final SnmpSession session;
     private final CommunityTarget<Address> target;
-    private volatile Snmp connection;
+    private final Semaphore inFlightRequests;
 
-    private final List<TimerTask> pollingTasks = new LinkedList<>();
+    private final List<GroupPoller> pollers = new LinkedList<>();
 
-    protected SnmpTransportConnector(String driverName, SnmpDevice device, IRawDataBroker rawDataBroker, IProcessingModel processingModel) {
+    // Polling statistics
+    private final AtomicLong pollCounter = new AtomicLong(0);
+    private final AtomicLong missedCycleCounter = new AtomicLong(0);
+    private final AtomicLong timeoutCounter = new AtomicLong(0);
+    private final Object latencyLock = new Object();
+    private long latencySamples = 0;
+    private double averageLatency = 0; // in ms, exponential moving average
+    private long maxLatency = 0; // in ms, since the last debug information report
+
+    protected SnmpTransportConnector(String driverName, SnmpDevice device, IRawDataBroker rawDataBroker, IProcessingModel processingModel, SnmpSession session) {
         super(device.getName(), "");
         this.driverName = driverName;
         this.device = device;
         this.rawDataBroker = rawDataBroker;
         this.processingModel = processingModel;
-        this.deviceTimer = new Timer("SNMP Device " + getName() + " Timer Service", true);
+        this.session = session;
+        this.inFlightRequests = new Semaphore(Math.max(1, device.getMaxInFlight()));
         // Initialise
         this.device.getDeviceConfiguration().initialise(device.getPath(), this.processingModel);
         // Build the target
@@ -95,84 +107,34 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
 
     @Override
     protected synchronized void doConnect() {
-        if(this.connection != null) {
+        if(!this.pollers.isEmpty()) {
             return;
         }
         updateAlarmState(AlarmState.NOT_APPLICABLE);
         updateConnectionStatus(TransportConnectionStatus.CONNECTING);
         try {
-            TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-            this.connection = new Snmp(transport);
-            // Do not forget this line!
-            transport.listen();
-            // Check
-            updateConnectionStatus(TransportConnectionStatus.OPEN);
-            // Now activate the periodic pollings
-            for(GroupConfiguration gc : device.getDeviceConfiguration().getGroupConfigurationList()) {
-                TimerTask task = buildTimerTask(gc);
-                // Remember timer tasks, so that disconnect can stop these tasks
-                this.pollingTasks.add(task);
-                this.deviceTimer.schedule(task, 0, gc.getPollingTime());
-            }
+            this.session.open();
         } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Cannot open SNMP session for device " + device.getName() + ": " + e.getMessage(), e);
             updateConnectionStatus(TransportConnectionStatus.ERROR);
             updateAlarmState(AlarmState.ERROR);
-            if(this.connection != null) {
-                try {
-                    this.connection.close();
-                } catch (IOException ex) {
-                    // Ignore
-                }
-            }
-            this.connection = null;
+            return;
+        }
+        updateConnectionStatus(TransportConnectionStatus.OPEN);
+        // Now activate the periodic pollings
+        for(GroupConfiguration gc : device.getDeviceConfiguration().getGroupConfigurationList()) {
+            GroupPoller poller = new GroupPoller(gc);
+            poller.start();
+            // Remember the pollers, so that disconnect can stop them
+            this.pollers.add(poller);
         }
     }
 
-    private TimerTask buildTimerTask(GroupConfiguration group) {
-        return new TimerTask() {
-            @Override
-            public void run() {
-                Snmp theConnection = null;
-                synchronized (SnmpTransportConnector.this) {
-                    theConnection = connection;
-                    if (theConnection == null) {
-                        // This is weird, do nothing
-                        LOG.log(Level.WARNING, "SNMP Polling Task for group " + group.getName() + " started but no connection is available");
-                        return;
-                    }
-                }
-                PDU request = group.preparePollRequest();
-                try {
-                    ResponseEvent<?> responseEvent = sendRequest(theConnection, request);
-                    if ((responseEvent != null) && (responseEvent.getResponse() != null)) {
-                        Instant generationTime = Instant.now();
-                        distributeRawData(responseEvent, generationTime, group);
-                        List<ParameterSample> parameterSamples = group.mapResponse(device, responseEvent, generationTime);
-                        injectSamples(parameterSamples);
-                        updateAlarmState(AlarmState.NOMINAL);
-                    } else {
-                        if(LOG.isLoggable(Level.WARNING)) {
-                            LOG.log(Level.WARNING, "Response from endpoint " + device.getConnectionString() + " not received/null for group " + group.getName(), new Object[] { device.getName() });
-                        }
-                        updateAlarmState(AlarmState.ALARM);
-                    }
-                } catch (IOException e) {
-                    LOG.log(Level.WARNING, "Request to endpoint " + device.getConnectionString() + " returned an exception for group " + group.getName() + ": " + e.getMessage(), e);
-                    updateAlarmState(AlarmState.ALARM);
-                } catch (Exception e) {
-                    LOG.log(Level.WARNING, "Request to endpoint " + device.getConnectionString() + " returned an unknown exception for group " + group.getName() + ": " + e.getMessage(), e);
-                    updateAlarmState(AlarmState.ALARM);
-                }
-            }
-        };
-    }
-
-    private void distributeRawData(ResponseEvent<?> responseEvent, Instant generationTime, GroupConfiguration group) {
+    private void distributeRawData(PDU response, Instant generationTime, GroupConfiguration group) {
         if(!group.isDistributePdu()) {
             return;
         }
         try {
-            PDU response = responseEvent.getResponse();
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
             response.encodeBER(bos);
             bos.close();
@@ -193,43 +155,31 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
         this.processingModel.injectParameters(parameterSamples);
     }
 
-    private ResponseEvent<?> sendRequest(Snmp theConnection, PDU request) throws IOException {
-        synchronized (theConnection) {
-            return theConnection.send(request, target);
+    private void updateLatency(long latency) {
+        synchronized (latencyLock) {
+            this.averageLatency = this.latencySamples++ == 0 ? latency : 0.9 * this.averageLatency + 0.1 * latency;
+            this.maxLatency = Math.max(this.maxLatency, latency);
         }
     }
 
     @Override
     protected synchronized void doDisconnect() {
-        if(this.connection == null) {
+        if(this.pollers.isEmpty()) {
             return;
         }
         updateAlarmState(AlarmState.NOT_APPLICABLE);
         updateConnectionStatus(TransportConnectionStatus.DISCONNECTING);
-        this.pollingTasks.forEach(TimerTask::cancel);
-        this.pollingTasks.clear();
-        try {
-            this.connection.close();
-        } catch (IOException ex) {
-            // Ignore
-        }
-        this.connection = null;
+        this.pollers.forEach(GroupPoller::stop);
+        this.pollers.clear();
         updateConnectionStatus(TransportConnectionStatus.IDLE);
         updateAlarmState(AlarmState.NOMINAL);
     }
 
     @Override
     protected synchronized void doDispose() {
-        this.deviceTimer.purge();
-        this.deviceTimer.cancel();
-        try {
-            if(this.connection != null) {
-                this.connection.close();
-            }
-        } catch (IOException ex) {
-            // Ignore
-        }
-        this.connection = null;
+        // The session is shared and disposed by the driver
+        this.pollers.forEach(GroupPoller::stop);
+        this.pollers.clear();
     }
 
     @Override
@@ -237,11 +187,30 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
         disconnect();
     }
 
-    public synchronized void executeActivity(IActivityHandler.ActivityInvocation activityInvocation) throws ActivityHandlingException {
+    public List<DebugInformation> currentDebugInfo() {
+        String element = "SNMP Device " + getName();
+        double latency;
+        long maximum;
+        synchronized (latencyLock) {
+            latency = this.averageLatency;
+            maximum = this.maxLatency;
+            // The maximum is reported since the last request of debug information
+            this.maxLatency = 0;
+        }
+        return Arrays.asList(
+                DebugInformation.of(element, "Polls", pollCounter.get(), null, ""),
+                DebugInformation.of(element, "Poll latency", (long) latency, maximum, "ms"),
+                DebugInformation.of(element, "Missed cycles", missedCycleCounter.get(), null, ""),
+                DebugInformation.of(element, "Timeouts", timeoutCounter.get(), null, ""),
+                DebugInformation.of(element, "Requests in flight", Math.max(1, device.getMaxInFlight()) - inFlightRequests.availablePermits(), Math.max(1, device.getMaxInFlight()), "")
+        );
+    }
+
+    public void executeActivity(IActivityHandler.ActivityInvocation activityInvocation) throws ActivityHandlingException {
         if(device.getSetCommandConfiguration() == null) {
             throw new ActivityHandlingException("No device set-command configuration provided, connector " + getName() + " cannot forward");
         }
-        if(connection == null || getConnectionStatus() != TransportConnectionStatus.OPEN) {
+        if(getConnectionStatus() != TransportConnectionStatus.OPEN) {
             throw new ActivityHandlingException("Connector " + getName() + " not started");
         }
         if(!activityInvocation.getPath().asString().equals(device.getSetCommandConfiguration().getPath())) {
@@ -249,13 +218,8 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
                     "but the device configuration set command is specified as " + device.getSetCommandConfiguration().getPath() + ": activity occurrence cannot be " +
                     "processed by this connector");
         }
-        // OK, forward in separate task, use timer, one-off
-        this.deviceTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                dispatchActivity(activityInvocation);
-            }
-        }, 0);
+        // OK, forward in separate task
+        this.session.execute(() -> dispatchActivity(activityInvocation));
     }
 
     private void dispatchActivity(IActivityHandler.ActivityInvocation activityInvocation) {
@@ -264,17 +228,12 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
         reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
                 ActivityOccurrenceState.RELEASE, ActivityOccurrenceReport.RELEASE_REPORT_NAME, ActivityReportState.PENDING,
                 ActivityOccurrenceState.TRANSMISSION);
-        // Get the connection
-        Snmp theConnection = null;
-        synchronized (SnmpTransportConnector.this) {
-            theConnection = connection;
-            if (theConnection == null) {
-                // No connection, release failed
-                reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
-                        ActivityOccurrenceState.RELEASE, ActivityOccurrenceReport.RELEASE_REPORT_NAME, ActivityReportState.FATAL,
-                        ActivityOccurrenceState.RELEASE);
-                return;
-            }
+        if (getConnectionStatus() != TransportConnectionStatus.OPEN) {
+            // No connection, release failed
+            reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
+                    ActivityOccurrenceState.RELEASE, ActivityOccurrenceReport.RELEASE_REPORT_NAME, ActivityReportState.FATAL,
+                    ActivityOccurrenceState.RELEASE);
+            return;
         }
 
         PDU request = encodeSetRequest(activityInvocation);
@@ -293,19 +252,20 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
             reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
                     ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.PENDING,
                     ActivityOccurrenceState.EXECUTION);
-            ResponseEvent<?> responseEvent = sendRequest(theConnection, request);
-            if ((responseEvent != null) && (responseEvent.getResponse() != null)) {
-                reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
-                        ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.OK,
-                        ActivityOccurrenceState.VERIFICATION);
-            } else {
-                reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
-                        ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.FATAL,
-                        ActivityOccurrenceState.EXECUTION);
-                if(LOG.isLoggable(Level.WARNING)) {
-                    LOG.log(Level.SEVERE, "Response from endpoint " + device.getConnectionString() + " not received/null for activity " + activityInvocation.getPath(), new Object[] { device.getName() });
+            this.session.send(request, target, responseEvent -> {
+                if (responseEvent.getResponse() != null) {
+                    reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
+                            ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.OK,
+                            ActivityOccurrenceState.VERIFICATION);
+                } else {
+                    reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
+                            ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.FATAL,
+                            ActivityOccurrenceState.EXECUTION);
+                    if(LOG.isLoggable(Level.WARNING)) {
+                        LOG.log(Level.SEVERE, "Response from endpoint " + device.getConnectionString() + " not received/null for activity " + activityInvocation.getPath(), new Object[] { device.getName() });
+                    }
                 }
-            }
+            });
         } catch (IOException e) {
             reportActivityState(activityInvocation.getActivityId(), activityInvocation.getActivityOccurrenceId(), time,
                     ActivityOccurrenceState.EXECUTION, EXECUTION_REPORT_NAME, ActivityReportState.FATAL,
@@ -347,4 +307,188 @@ public class SnmpTransportConnector extends AbstractTransportConnector {
     public void reportActivityState(int activityId, IUniqueId activityOccurrenceId, Instant time, ActivityOccurrenceState state, String releaseReportName, ActivityReportState status, ActivityOccurrenceState nextState) {
         processingModel.reportActivityProgress(ActivityProgress.of(activityId, activityOccurrenceId, releaseReportName, time, state, null, status, nextState, null));
     }
+
+    /**
+     * Periodic poller of a group. The polling cycle is triggered by the shared scheduler, while requests, responses
+     * and the state of a GETBULK walk are handled in the processing thread of the session. A cycle is skipped (and
+     * counted as missed) if the previous poll of the group is still pending, or if the device has already the maximum
+     * number of requests in flight.
+     */
+    private class GroupPoller {
+
+        private final GroupConfiguration group;
+        private final boolean bulk;
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+        private volatile boolean active;
+        private ScheduledFuture<?> future;
+
+        // Accessed only by the processing thread
+        private long pollStartTime;
+        private final List<VariableBinding> walkBindings = new ArrayList<>();
+        private final TreeSet<OID> walkRemaining = new TreeSet<>();
+        private final List<OID> walkMissing = new ArrayList<>();
+
+        public GroupPoller(GroupConfiguration group) {
+            this.group = group;
+            this.bulk = group.getBulkRepetitions() > 0 && device.getVersion() != SnmpVersionEnum.V1 && !group.getSortedOids().isEmpty();
+        }
+
+        public void start() {
+            this.active = true;
+            // Random initial delay, to spread the polls of the different groups and devices over the polling period
+            long period = Math.max(1, group.getPollingTime());
+            this.future = session.schedule(this::cycle, ThreadLocalRandom.current().nextLong(period), period);
+        }
+
+        public void stop() {
+            this.active = false;
+            this.future.cancel(false);
+        }
+
+        private void cycle() {
+            if(!active) {
+                return;
+            }
+            if(!pending.compareAndSet(false, true)) {
+                missedCycle("previous poll still pending");
+                return;
+            }
+            if(!inFlightRequests.tryAcquire()) {
+                pending.set(false);
+                missedCycle("too many requests in flight");
+                return;
+            }
+            session.execute(this::poll);
+        }
+
+        private void missedCycle(String reason) {
+            missedCycleCounter.incrementAndGet();
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.log(Level.FINE, "SNMP polling cycle of group " + group.getName() + " on device " + device.getName() + " skipped: " + reason);
+            }
+        }
+
+        private void poll() {
+            this.pollStartTime = System.nanoTime();
+            try {
+                if(bulk) {
+                    walkBindings.clear();
+                    walkMissing.clear();
+                    walkRemaining.clear();
+                    walkRemaining.addAll(group.getSortedOids());
+                    send(group.prepareBulkRequest(walkRemaining.first().predecessor()), this::onBulkResponse);
+                } else {
+                    send(group.preparePollRequest(), this::onGetResponse);
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Request to endpoint " + device.getConnectionString() + " returned an exception for group " + group.getName() + ": " + e.getMessage(), e);
+                complete(false);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Request to endpoint " + device.getConnectionString() + " returned an unknown exception for group " + group.getName() + ": " + e.getMessage(), e);
+                complete(false);
+            }
+        }
+
+        private void send(PDU request, IResponseHandler responseHandler) throws IOException {
+            session.send(request, target, responseEvent -> {
+                if (responseEvent.getResponse() == null) {
+                    if (LOG.isLoggable(Level.WARNING)) {
+                        LOG.log(Level.WARNING, "Response from endpoint " + device.getConnectionString() + " not received/null for group " + group.getName(), new Object[]{device.getName()});
+                    }
+                    timeoutCounter.incrementAndGet();
+                    complete(false);
+                    return;
+                }
+                try {
+                    responseHandler.accept(responseEvent.getResponse());
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "Request to endpoint " + device.getConnectionString() + " returned an unknown exception for group " + group.getName() + ": " + e.getMessage(), e);
+                    complete(false);
+                }
+            });
+        }
+
+        private void onGetResponse(PDU response) {
+            Instant generationTime = Instant.now();
+            distributeRawData(response, generationTime, group);
+            injectSamples(group.mapBindings(device, response.getAll(), generationTime));
+            complete(true);
+        }
+
+        private void onBulkResponse(PDU response) throws IOException {
+            if(response.getErrorStatus() != PDU.noError) {
+                // GETBULK not accepted: request the rest with a GET
+                walkMissing.addAll(walkRemaining);
+                walkRemaining.clear();
+            } else {
+                int matched = 0;
+                OID last = null;
+                boolean endOfMibView = false;
+                for (VariableBinding vb : response.getAll()) {
+                    if (vb.getVariable().getSyntax() == SMIConstants.EXCEPTION_END_OF_MIB_VIEW) {
+                        endOfMibView = true;
+                        break;
+                    }
+                    last = vb.getOid();
+                    if (walkRemaining.remove(last)) {
+                        walkBindings.add(vb);
+                        ++matched;
+                    }
+                }
+                if (last != null) {
+                    // The OIDs before the last returned OID were skipped by the walk: not present in the agent view
+                    SortedSet<OID> skipped = walkRemaining.headSet(last);
+                    walkMissing.addAll(skipped);
+                    skipped.clear();
+                }
+                if (endOfMibView || matched == 0) {
+                    // No point in walking further: the OIDs are sparse or not present
+                    walkMissing.addAll(walkRemaining);
+                    walkRemaining.clear();
+                }
+            }
+            if(!walkRemaining.isEmpty()) {
+                // Continue the walk from the first OID not yet retrieved
+                send(group.prepareBulkRequest(walkRemaining.first().predecessor()), this::onBulkResponse);
+            } else if(!walkMissing.isEmpty()) {
+                send(group.prepareGetRequest(walkMissing), this::onMissingResponse);
+            } else {
+                completeWalk();
+            }
+        }
+
+        private void onMissingResponse(PDU response) {
+            walkBindings.addAll(response.getAll());
+            completeWalk();
+        }
+
+        private void completeWalk() {
+            Instant generationTime = Instant.now();
+            if(group.isDistributePdu()) {
+                PDU merged = new PDU();
+                merged.setType(PDU.RESPONSE);
+                merged.addAll(walkBindings);
+                distributeRawData(merged, generationTime, group);
+            }
+            injectSamples(group.mapBindings(device, walkBindings, generationTime));
+            complete(true);
+        }
+
+        private void complete(boolean success) {
+            pollCounter.incrementAndGet();
+            if(success) {
+                updateLatency((System.nanoTime() - pollStartTime) / 1000000);
+            }
+            pending.set(false);
+            inFlightRequests.release();
+            if(active) {
+                updateAlarmState(success ? AlarmState.NOMINAL : AlarmState.ALARM);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IResponseHandler {
+        void accept(PDU response) throws IOException;
+    }
 }
@@ -23,15 +23,11 @@ import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
 import eu.dariolucia.reatmetric.api.processing.input.ParameterSample;
 import jakarta.xml.bind.annotation.*;
 import org.snmp4j.PDU;
-import org.snmp4j.event.ResponseEvent;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.VariableBinding;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +45,15 @@ public class GroupConfiguration {
     @XmlAttribute(name = "distribute-pdu")
     private boolean distributePdu = false;
 
+    /**
+     * If greater than 0, the group is polled with GETBULK requests (SNMP v2c and later), walking the OIDs of the group
+     * in lexicographic order, and each request returns up to this number of consecutive OIDs. Suitable for large
+     * groups of OIDs that are close to each other in the MIB tree. OIDs not returned by the walk are requested with a
+     * GET at the end of the walk.
+     */
+    @XmlAttribute(name = "bulk-repetitions")
+    private int bulkRepetitions = 0;
+
     @XmlElement(name = "entry")
     private List<OidEntry> oidEntryList = new LinkedList<>();
 
@@ -84,9 +89,20 @@ public class GroupConfiguration {
         this.distributePdu = distributePdu;
     }
 
+    public int getBulkRepetitions() {
+        return bulkRepetitions;
+    }
+
+    public void setBulkRepetitions(int bulkRepetitions) {
+        this.bulkRepetitions = bulkRepetitions;
+    }
+
     @XmlTransient
     private final Map<OID, OidEntry> oid2parameterMap = new HashMap<>();
 
+    @XmlTransient
+    private final TreeSet<OID> sortedOids = new TreeSet<>();
+
     public void initialise(String prefix, IProcessingModel processingModel) {
         // Map all OIDs to parameter IDs
         for(OidEntry e : getOidEntryList()) {
@@ -96,6 +112,7 @@ public class GroupConfiguration {
                 int id = processingModel.getExternalIdOf(path);
                 e.setExternalId(id);
                 oid2parameterMap.put(e.toOid(), e);
+                sortedOids.add(e.toOid());
             } catch (ReatmetricException ex) {
                 LOG.log(Level.SEVERE, "Cannot resolve parameter path " + path + " linked to OID " + e.getOid() + " to external ID: " + ex.getMessage(), e);
             }
@@ -111,11 +128,57 @@ public class GroupConfiguration {
         return pdu;
     }
 
-    public List<ParameterSample> mapResponse(SnmpDevice device, ResponseEvent<?> responseEvent, Instant generationTime) {
+    /**
+     * Prepare a GET request for the provided OIDs.
+     *
+     * @param oids the OIDs to request
+     * @return the request
+     */
+    public PDU prepareGetRequest(Collection<OID> oids) {
+        PDU pdu = new PDU();
+        for(OID oid : oids) {
+            pdu.add(new VariableBinding(oid));
+        }
+        pdu.setType(PDU.GET);
+        return pdu;
+    }
+
+    /**
+     * Prepare a GETBULK request, returning up to {@link #getBulkRepetitions()} OIDs following the provided one.
+     *
+     * @param startAfter the OID after which the walk starts
+     * @return the request
+     */
+    public PDU prepareBulkRequest(OID startAfter) {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(startAfter));
+        pdu.setType(PDU.GETBULK);
+        pdu.setNonRepeaters(0);
+        pdu.setMaxRepetitions(bulkRepetitions);
+        return pdu;
+    }
+
+    /**
+     * Return the OIDs of the group, sorted in lexicographic order.
+     *
+     * @return the sorted OIDs, not modifiable
+     */
+    public SortedSet<OID> getSortedOids() {
+        return Collections.unmodifiableSortedSet(sortedOids);
+    }
+
+    public List<ParameterSample> mapBindings(SnmpDevice device, List<? extends VariableBinding> bindings, Instant generationTime) {
         List<ParameterSample> toReturn = new LinkedList<>();
         String route = device.getName();
-        for(VariableBinding vb : responseEvent.getResponse().getAll()) {
+        for(VariableBinding vb : bindings) {
             OID theOid = vb.getOid();
+            if(vb.isException()) {
+                // noSuchObject, noSuchInstance, endOfMibView
+                if(LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(Level.WARNING, String.format("OID %s not available: %s", theOid, vb.getVariable().toString()));
+                }
+                continue;
+            }
             OidEntry theEntry = oid2parameterMap.get(theOid);
             if(theEntry != null) {
                 Object value = theEntry.extractValue(vb.getVariable());
@@ -47,6 +47,9 @@ public class SnmpDevice {
     @XmlAttribute(name = "version")
     private SnmpVersionEnum version = SnmpVersionEnum.V2;
 
+    @XmlAttribute(name = "max-in-flight")
+    private int maxInFlight = 4; // maximum number of polling requests pending a response at the same time
+
     @XmlAttribute(name = "path", required = true)
     private String path;
 
@@ -128,6 +131,14 @@ public class SnmpDevice {
         this.retries = retries;
     }
 
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
     @XmlTransient
     private SnmpDeviceConfiguration deviceConfiguration = null;
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.snmp;
+
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.api.processing.input.ParameterSample;
+import eu.dariolucia.reatmetric.core.api.IRawDataBroker;
+import eu.dariolucia.reatmetric.driver.snmp.configuration.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.snmp4j.*;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.*;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnmpTransportConnectorTest {
+
+    private static final String PREFIX = "STATION.DEVICE";
+
+    @TempDir
+    Path tempDir;
+
+    private AgentStandIn agent;
+    private SnmpSession session;
+    private SnmpTransportConnector connector;
+    private final Map<String, Integer> path2id = new HashMap<>();
+    private final Map<Integer, Object> injected = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        agent = new AgentStandIn();
+        agent.values.put(new OID("1.3.6.1.2.1.1.1.0"), new OctetString("Stand-in agent"));
+        agent.values.put(new OID("1.3.6.1.2.1.1.3.0"), new TimeTicks(1000));
+        agent.values.put(new OID("1.3.6.1.2.1.2.1.0"), new Integer32(3));
+        agent.values.put(new OID("1.3.6.1.2.1.2.2.1.5.1"), new Gauge32(100000));
+        agent.values.put(new OID("1.3.6.1.2.1.2.2.1.5.2"), new Gauge32(200000));
+        session = new SnmpSession("Test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(connector != null) {
+            connector.dispose();
+        }
+        session.close();
+        agent.close();
+    }
+
+    @Test
+    void testGetPolling() throws Exception {
+        connector = createConnector(session, group("System", 0,
+                new OidEntry("1.3.6.1.2.1.1.1.0", "SYS_DESCR", OidEntryType.STRING),
+                new OidEntry("1.3.6.1.2.1.1.3.0", "SYS_UPTIME", OidEntryType.LONG),
+                new OidEntry("1.3.6.1.2.1.2.1.0", "IF_NUMBER", OidEntryType.INTEGER)));
+        connector.connect();
+
+        waitFor(() -> injected.size() == 3);
+        assertEquals("Stand-in agent", injected.get(path2id.get("SYS_DESCR")));
+        assertEquals(1000L, injected.get(path2id.get("SYS_UPTIME")));
+        assertEquals(3, injected.get(path2id.get("IF_NUMBER")));
+        assertTrue(agent.requests.get(PDU.GET).get() > 0);
+        assertNull(agent.requests.get(PDU.GETBULK));
+        assertTrue(debugValue("Polls") > 0);
+        assertEquals(0, debugValue("Timeouts"));
+    }
+
+    @Test
+    void testBulkPollingWithMissingOid() throws Exception {
+        connector = createConnector(session, group("Interfaces", 10,
+                new OidEntry("1.3.6.1.2.1.2.1.0", "IF_NUMBER", OidEntryType.INTEGER),
+                new OidEntry("1.3.6.1.2.1.2.2.1.5.1", "IF_SPEED_1", OidEntryType.LONG),
+                new OidEntry("1.3.6.1.2.1.2.2.1.5.2", "IF_SPEED_2", OidEntryType.LONG),
+                new OidEntry("1.3.6.1.2.1.2.2.1.5.3", "IF_SPEED_3", OidEntryType.LONG)));
+        connector.connect();
+
+        waitFor(() -> debugValue("Polls") > 0);
+        connector.disconnect();
+        assertEquals(3, injected.get(path2id.get("IF_NUMBER")));
+        assertEquals(100000L, injected.get(path2id.get("IF_SPEED_1")));
+        assertEquals(200000L, injected.get(path2id.get("IF_SPEED_2")));
+        // Not present in the agent: requested with a GET at the end of the walk, and not injected
+        assertFalse(injected.containsKey(path2id.get("IF_SPEED_3")));
+        assertTrue(agent.requests.get(PDU.GETBULK).get() > 0);
+        assertTrue(agent.requests.get(PDU.GET).get() > 0);
+    }
+
+    @Test
+    void testTimeoutAndLatencyMaximumReset() throws Exception {
+        agent.silent = true;
+        connector = createConnector(session, group("System", 0,
+                new OidEntry("1.3.6.1.2.1.1.1.0", "SYS_DESCR", OidEntryType.STRING)));
+        connector.connect();
+        waitFor(() -> debugValue("Timeouts") > 0);
+        assertTrue(injected.isEmpty());
+
+        agent.silent = false;
+        waitFor(() -> injected.size() == 1);
+        connector.disconnect();
+        // Wait for the completion of the last poll, if any
+        waitFor(() -> debugValue("Requests in flight") == 0);
+        debugValue("Polls");
+        // The maximum latency is reported since the last request of debug information
+        assertEquals(0L, debugInfo("Poll latency").getMaximum());
+    }
+
+    @Test
+    void testPollingContinuesAfterUnexpectedException() throws Exception {
+        AtomicInteger attempts = new AtomicInteger(0);
+        SnmpSession failingSession = new SnmpSession("Failing") {
+            @Override
+            public void send(PDU request, Target<Address> target, Consumer<org.snmp4j.event.ResponseEvent<?>> responseHandler) {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("Simulated failure");
+            }
+        };
+        try {
+            connector = createConnector(failingSession, group("System", 0,
+                    new OidEntry("1.3.6.1.2.1.1.1.0", "SYS_DESCR", OidEntryType.STRING)));
+            connector.connect();
+            // Every failed poll must release the group and the in-flight request
+            waitFor(() -> attempts.get() > 2);
+            connector.disconnect();
+            assertEquals(0, debugValue("Missed cycles"));
+            assertTrue(injected.isEmpty());
+        } finally {
+            connector.dispose();
+            connector = null;
+            failingSession.close();
+        }
+    }
+
+    private GroupConfiguration group(String name, int bulkRepetitions, OidEntry... entries) {
+        GroupConfiguration gc = new GroupConfiguration();
+        gc.setName(name);
+        gc.setPollingTime(100);
+        gc.setBulkRepetitions(bulkRepetitions);
+        gc.setOidEntryList(new LinkedList<>(Arrays.asList(entries)));
+        return gc;
+    }
+
+    private SnmpTransportConnector createConnector(SnmpSession theSession, GroupConfiguration group) throws IOException {
+        SnmpDeviceConfiguration configuration = new SnmpDeviceConfiguration();
+        configuration.getGroupConfigurationList().add(group);
+        Path configurationFile = tempDir.resolve("device.xml");
+        try (OutputStream out = new FileOutputStream(configurationFile.toFile())) {
+            SnmpDeviceConfiguration.save(configuration, out);
+        }
+        SnmpDevice device = new SnmpDevice();
+        device.setName("DEVICE");
+        device.setPath(PREFIX);
+        device.setConnectionString("udp:" + agent.getAddress());
+        device.setTimeout(200);
+        device.setRetries(0);
+        device.setConfiguration(configurationFile.toString());
+        device.initialise();
+
+        IProcessingModel model = (IProcessingModel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IProcessingModel.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getExternalIdOf":
+                    String path = ((SystemEntityPath) args[0]).asString().substring(PREFIX.length() + 1);
+                    return path2id.computeIfAbsent(path, k -> path2id.size() + 1);
+                case "injectParameters":
+                    for(ParameterSample ps : (List<ParameterSample>) args[0]) {
+                        injected.put(ps.getId(), ps.getValue());
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        IRawDataBroker broker = (IRawDataBroker) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IRawDataBroker.class }, (proxy, method, args) -> null);
+        SnmpTransportConnector theConnector = new SnmpTransportConnector("SNMP", device, broker, model, theSession);
+        theConnector.prepare();
+        return theConnector;
+    }
+
+    private DebugInformation debugInfo(String name) {
+        return connector.currentDebugInfo().stream().filter(o -> o.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private long debugValue(String name) {
+        return ((Number) debugInfo(name).getMeasure()).longValue();
+    }
+
+    private static void waitFor(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.get()) {
+            if(System.currentTimeMillis() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Minimal SNMP agent on the loopback interface, answering GET and GETBULK requests from a fixed set of values.
+     */
+    private static class AgentStandIn implements CommandResponder {
+
+        private final Snmp snmp;
+        private final DefaultUdpTransportMapping transport;
+        private final TreeMap<OID, Variable> values = new TreeMap<>();
+        private final Map<Integer, AtomicInteger> requests = new ConcurrentHashMap<>();
+        private volatile boolean silent = false;
+
+        AgentStandIn() throws IOException {
+            this.transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+            this.snmp = new Snmp(transport);
+            this.snmp.addCommandResponder(this);
+            this.transport.listen();
+        }
+
+        String getAddress() {
+            return "127.0.0.1/" + transport.getListenAddress().getPort();
+        }
+
+        @Override
+        public synchronized <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+            PDU request = event.getPDU();
+            event.setProcessed(true);
+            requests.computeIfAbsent(request.getType(), k -> new AtomicInteger()).incrementAndGet();
+            if(silent) {
+                return;
+            }
+            PDU response = new PDU();
+            response.setType(PDU.RESPONSE);
+            response.setRequestID(request.getRequestID());
+            if(request.getType() == PDU.GETBULK) {
+                OID current = request.get(0).getOid();
+                for(int i = 0; i < request.getMaxRepetitions(); ++i) {
+                    Map.Entry<OID, Variable> next = values.higherEntry(current);
+                    if(next == null) {
+                        response.add(new VariableBinding(current, Null.endOfMibView));
+                        break;
+                    }
+                    response.add(new VariableBinding(next.getKey(), next.getValue()));
+                    current = next.getKey();
+                }
+            } else {
+                for(VariableBinding vb : request.getAll()) {
+                    Variable value = values.get(vb.getOid());
+                    response.add(new VariableBinding(vb.getOid(), value != null ? value : Null.noSuchInstance));
+                }
+            }
+            try {
+                event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                        event.getSecurityName(), event.getSecurityLevel(), response, event.getMaxSizeResponsePDU(),
+                        event.getStateReference(), new StatusInformation());
+            } catch (MessageException e) {
+                fail(e);
+            }
+        }
+
+        void close() {
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -116,11 +116,12 @@ public class SocketConfiguration {
     }
 
     private void initialise() throws ReatmetricException {
-        for(AbstractConnectionConfiguration conn : getConnections()) {
-            conn.getRoute().initialise(conn);
-        }
+        // Message definitions first: routes build their lookup structures on top of the initialised definitions
         for(MessageDefinition<?> md : getMessageDefinitions()) {
             md.initialise();
         }
+        for(AbstractConnectionConfiguration conn : getConnections()) {
+            conn.getRoute().initialise(conn);
+        }
     }
 }
@@ -22,6 +22,7 @@ import eu.dariolucia.reatmetric.driver.socket.configuration.protocol.RouteConfig
 import jakarta.xml.bind.annotation.*;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -197,9 +198,6 @@ public abstract class AbstractConnectionConfiguration {
     @XmlTransient
     private volatile boolean running;
 
-    @XmlTransient
-    private volatile Thread readingThread;
-
     @XmlTransient
     private volatile IConnectionStatusListener listener;
 
@@ -215,43 +213,43 @@ public abstract class AbstractConnectionConfiguration {
             LOG.log(Level.FINE, String.format("Opening connection %s (route %s)", getName(), getRoute().getName()));
         }
         setOpen(true);
-        this.readingThread = new Thread(this::connectionLoop);
-        this.readingThread.setName("ReatMetric Socket Connector " + getName() + " Reading Thread");
-        this.readingThread.setDaemon(true);
-        this.readingThread.start();
+        SocketReactor.instance().execute(this::startChannel);
         if(getInit() == InitType.CONNECTOR) {
             getRoute().startDispatchingOfPeriodicCommands();
         }
     }
 
-    protected abstract void connectionLoop();
+    /**
+     * Open the underlying channel (if the connection is open and no channel is present) and register it to the
+     * {@link SocketReactor}. Called in the reactor thread, it must not block.
+     */
+    protected abstract void startChannel();
+
+    /**
+     * Close the underlying channel, if any. Called in the reactor thread, it must not block.
+     */
+    protected abstract void stopChannel();
 
     public void closeConnection() {
         if(LOG.isLoggable(Level.FINE)) {
             LOG.log(Level.FINE, String.format("Request to close connection %s (route %s)", getName(), getRoute().getName()));
         }
-        Thread oldReadingThread = null;
+        boolean wasOpen = false;
         synchronized (this) {
             if (isOpen()) {
                 if (getInit() == InitType.CONNECTOR) {
                     getRoute().stopDispatchingOfPeriodicCommands();
                 }
                 setOpen(false);
-                oldReadingThread = this.readingThread;
-                oldReadingThread.interrupt();
-                this.readingThread = null;
+                wasOpen = true;
             }
         }
         if(LOG.isLoggable(Level.FINE)) {
             LOG.log(Level.FINE, String.format("Cleaning up connection resources on %s (route %s)", getName(), getRoute().getName()));
         }
         // Cleanup
-        if(oldReadingThread != null) {
-            try {
-                oldReadingThread.join();
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+        if(wasOpen) {
+            SocketReactor.instance().executeAndWait(this::stopChannel);
         }
         // Reset route status
         getRoute().notifyConnectionDisconnection();
@@ -274,8 +272,10 @@ public abstract class AbstractConnectionConfiguration {
             this.active.set(active);
             this.active.notifyAll();
         }
-        if(oldActive != active && listener != null) {
-            listener.onConnectionStatusUpdate(this, active);
+        IConnectionStatusListener theListener = this.listener;
+        if(oldActive != active && theListener != null) {
+            // The listener can block (e.g. to send commands on connection): never call it in the reactor thread
+            SocketReactor.instance().notify(() -> theListener.onConnectionStatusUpdate(this, active));
         }
     }
 
@@ -300,6 +300,18 @@ public abstract class AbstractConnectionConfiguration {
         }
     }
 
+    /**
+     * Forward the message contained in the remaining bytes of the provided buffer. The contents are copied once, as
+     * the buffer is reused by the connection.
+     *
+     * @param message the buffer slice containing the message
+     */
+    protected void forwardToRoute(ByteBuffer message) {
+        byte[] contents = new byte[message.remaining()];
+        message.get(contents);
+        forwardToRoute(contents);
+    }
+
     public boolean waitForActive(int msTimeout) {
         long endTime = Instant.now().toEpochMilli() + msTimeout;
         synchronized (this.active) {
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c)  2023 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.socket.configuration.connection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size heap byte buffers, used by the connections to read data from the underlying channels. Connections
+ * keep a buffer only while they hold partial data: idle connections do not hold any buffer.
+ */
+public class ByteBufferPool {
+
+    public static final int BUFFER_SIZE = 65536; // Enough to contain any datagram
+    public static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+    private final int maxPooledBuffers;
+
+    public ByteBufferPool(int maxPooledBuffers) {
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Return a cleared buffer of {@link #BUFFER_SIZE} bytes.
+     *
+     * @return the buffer, ready to be written
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if(buffer == null) {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Return the buffer to the pool. Buffers not created by the pool (e.g. enlarged buffers) are discarded.
+     *
+     * @param buffer the buffer to release, it must not be used any longer by the caller
+     */
+    public void release(ByteBuffer buffer) {
+        if(buffer.capacity() == BUFFER_SIZE && pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+            buffer.clear();
+            buffers.add(buffer);
+        } else if(buffer.capacity() == BUFFER_SIZE) {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Enlarge the provided buffer (in write mode), doubling its capacity and keeping its contents. The provided buffer
+     * is released to the pool.
+     *
+     * @param buffer the buffer to enlarge
+     * @return the new buffer, in write mode, with the same contents
+     * @throws IOException if the maximum buffer size is reached
+     */
+    public ByteBuffer enlarge(ByteBuffer buffer) throws IOException {
+        if(buffer.capacity() >= MAX_BUFFER_SIZE) {
+            throw new IOException("Message exceeds the maximum buffer size of " + MAX_BUFFER_SIZE + " bytes");
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        newBuffer.put(buffer);
+        release(buffer);
+        return newBuffer;
+    }
+}
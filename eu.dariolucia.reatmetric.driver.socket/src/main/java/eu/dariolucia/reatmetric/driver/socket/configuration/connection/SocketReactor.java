@@ -0,0 +1,206 @@
+/*
+ * Copyright (c)  2023 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.socket.configuration.connection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selector-based reactor, shared by all the socket connections in the JVM. A single thread performs the non-blocking
+ * connection, reading and decoding operations of all registered channels, so that the number of threads does not
+ * depend on the number of connected devices. Tasks that can block (e.g. connection status notifications, which can
+ * trigger the transmission of commands) are executed by a separate notification thread.
+ */
+public class SocketReactor {
+
+    private static final Logger LOG = Logger.getLogger(SocketReactor.class.getName());
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static SocketReactor instance;
+
+    public static synchronized SocketReactor instance() {
+        if(instance == null) {
+            instance = new SocketReactor();
+        }
+        return instance;
+    }
+
+    private final Selector selector;
+    private final Thread reactorThread;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ReatMetric Socket Reactor Timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ReatMetric Socket Reactor Notifier");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ByteBufferPool bufferPool = new ByteBufferPool(MAX_POOLED_BUFFERS);
+
+    private SocketReactor() {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open selector for socket reactor", e);
+        }
+        this.reactorThread = new Thread(this::run, "ReatMetric Socket Reactor");
+        this.reactorThread.setDaemon(true);
+        this.reactorThread.start();
+    }
+
+    public ByteBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public boolean isReactorThread() {
+        return Thread.currentThread() == reactorThread;
+    }
+
+    /**
+     * Execute the provided task in the reactor thread.
+     *
+     * @param task the task to execute, it must not block
+     */
+    public void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Execute the provided task in the reactor thread and wait for its completion. If the caller is the reactor thread,
+     * the task is executed immediately.
+     *
+     * @param task the task to execute, it must not block
+     */
+    public void executeAndWait(Runnable task) {
+        if(isReactorThread()) {
+            task.run();
+        } else {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    result.complete(null);
+                }
+            });
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Not possible, the future is always completed normally
+            }
+        }
+    }
+
+    /**
+     * Execute the provided task in the reactor thread, after the specified delay.
+     *
+     * @param task the task to execute, it must not block
+     * @param delayMillis the delay in milliseconds
+     * @return the future to cancel the task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return timer.schedule(() -> execute(task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Execute the provided task in the notification thread. Tasks are executed in submission order.
+     *
+     * @param task the task to execute
+     */
+    public void notify(Runnable task) {
+        notifier.execute(task);
+    }
+
+    /**
+     * Register the channel to the reactor selector. To be called from the reactor thread.
+     *
+     * @param channel the channel, in non-blocking mode
+     * @param ops the interest set
+     * @param handler the handler to call when the channel is ready
+     * @return the selection key
+     * @throws ClosedChannelException if the channel is closed
+     */
+    public SelectionKey register(SelectableChannel channel, int ops, IChannelHandler handler) throws ClosedChannelException {
+        return channel.register(selector, ops, handler);
+    }
+
+    private void run() {
+        while(true) {
+            try {
+                selector.select();
+                runPendingTasks();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while(it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if(key.isValid()) {
+                        try {
+                            ((IChannelHandler) key.attachment()).onChannelReady(key);
+                        } catch (CancelledKeyException e) {
+                            // Channel closed by the handler, ignore
+                        } catch (Exception e) {
+                            LOG.log(Level.SEVERE, "Unexpected exception in socket reactor while handling channel: " + e.getMessage(), e);
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                LOG.log(Level.SEVERE, "Socket reactor selector closed, reactor terminated");
+                return;
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Socket reactor selection failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Unexpected exception in socket reactor task: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Handler of the readiness events of a registered channel, called in the reactor thread.
+     */
+    public interface IChannelHandler {
+
+        void onChannelReady(SelectionKey key) throws IOException;
+    }
+}
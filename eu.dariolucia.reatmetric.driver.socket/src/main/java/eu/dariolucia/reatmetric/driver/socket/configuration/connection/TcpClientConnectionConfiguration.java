@@ -22,12 +22,16 @@ import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlAttribute;
 import jakarta.xml.bind.annotation.XmlTransient;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -67,160 +71,194 @@ public class TcpClientConnectionConfiguration extends AbstractConnectionConfigur
      * Channel operations
      * ***************************************************************/
 
+    private static final int RECONNECTION_DELAY = 5000; // in ms, hardcoded for now
+    private static final int MAX_READS_PER_EVENT = 16;
+    private static final long WRITE_RETRY_NANOS = 100000;
+
+    // All fields below, except channel, are accessed only by the reactor thread
+    @XmlTransient
+    private volatile SocketChannel channel;
+    @XmlTransient
+    private SelectionKey selectionKey;
+    @XmlTransient
+    private ByteBuffer readBuffer;
     @XmlTransient
-    private volatile Socket socket;
+    private ScheduledFuture<?> connectionTimeout;
     @XmlTransient
-    private volatile InputStream inputStream;
+    private boolean suppressFailure = false;
     @XmlTransient
-    private volatile OutputStream outputStream;
+    private final Object writeLock = new Object();
 
     @Override
-    protected synchronized void setOpen(boolean running) {
-        super.setOpen(running);
-        Socket theSocket = this.socket;
-        if(!running &&  theSocket != null) {
-            try {
-                theSocket.close();
-            } catch (IOException e) {
-                // Nothing
+    protected void startChannel() {
+        if(!isOpen() || this.channel != null) {
+            return;
+        }
+        SocketReactor reactor = SocketReactor.instance();
+        try {
+            SocketChannel ch = SocketChannel.open();
+            this.channel = ch;
+            ch.configureBlocking(false);
+            if (getLocalPort() != 0) {
+                ch.bind(new InetSocketAddress(getLocalPort()));
             }
+            ch.setOption(StandardSocketOptions.SO_KEEPALIVE, isTcpKeepAlive());
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, isTcpNoDelay());
+            if (getTxBuffer() > 0) {
+                ch.setOption(StandardSocketOptions.SO_SNDBUF, getTxBuffer());
+            }
+            if (getRxBuffer() > 0) {
+                ch.setOption(StandardSocketOptions.SO_RCVBUF, getRxBuffer());
+            }
+            this.selectionKey = reactor.register(ch, 0, this::onChannelReady);
+            if(ch.connect(new InetSocketAddress(getHost(), getRemotePort()))) {
+                connected();
+            } else {
+                this.selectionKey.interestOps(SelectionKey.OP_CONNECT);
+                this.connectionTimeout = reactor.schedule(() -> {
+                    if(this.channel == ch && !isActive()) {
+                        connectionFailed(new SocketTimeoutException("Connection timeout"));
+                    }
+                }, getTimeout());
+            }
+        } catch (IOException | RuntimeException e) {
+            connectionFailed(e);
         }
     }
 
-    @Override
-    protected void connectionLoop() {
-        boolean suppressFailure = false;
-        while(isOpen()) {
-            try {
-                establishConnection();
-                // Reset suppression of error messages
-                suppressFailure = false;
-                try {
-                    readAndForward();
-                } catch (Exception e) {
-                    LOG.log(Level.WARNING, String.format("%s: error while reading from connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
-                    // Cleanup
-                    cleanup();
-                    // Wait and retry (hardcoded for now)
-                    if(isOpen()) {
-                        try {
-                            Thread.sleep(5000);
-                        } catch (InterruptedException ex) {
-                            // Ignore
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                if(!suppressFailure) {
-                    LOG.log(Level.WARNING, String.format("%s: cannot establish connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
-                    // Suppress failure, avoid spamming
-                    suppressFailure = true;
-                }
-                // Wait and retry (hardcoded for now)
-                if(isOpen()) {
-                    try {
-                        Thread.sleep(5000);
-                    } catch (InterruptedException ex) {
-                        // Ignore
-                    }
+    private void onChannelReady(SelectionKey key) {
+        try {
+            if(key.isConnectable()) {
+                if(this.channel.finishConnect()) {
+                    connected();
                 }
+            } else if(key.isReadable()) {
+                readAndForward();
+            }
+        } catch (IOException e) {
+            if(isActive()) {
+                LOG.log(Level.WARNING, String.format("%s: error while reading from connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
+                cleanup();
+                scheduleReconnection();
+            } else {
+                connectionFailed(e);
             }
         }
-        cleanup();
     }
 
-    private void readAndForward() throws IOException {
-        // If you are here, it means that the socket exists
-        InputStream is = this.inputStream;
-        if(is == null) {
-            throw new IOException("No input stream from socket");
+    private void connected() {
+        if(this.connectionTimeout != null) {
+            this.connectionTimeout.cancel(false);
+            this.connectionTimeout = null;
         }
-        try {
-            // Read the message
-            byte[] message = getDecodingStrategy().readMessage(is, this);
-            // At this stage, whatever other exception you might have, it is not related to the connection, so log and go ahead
-            forwardToRoute(message);
-        } catch (SocketTimeoutException e) {
-            // Just return, this method will be immediately called again, in case the reading must go on
-        } catch (IOException e) {
-            if(isOpen()) {
-                // If you are trying to close the connection, do not raise the exception
-                throw e;
-            }
+        // Reset suppression of error messages
+        this.suppressFailure = false;
+        this.selectionKey.interestOps(SelectionKey.OP_READ);
+        setActive(true);
+    }
+
+    private void connectionFailed(Exception e) {
+        if(!this.suppressFailure) {
+            LOG.log(Level.WARNING, String.format("%s: cannot establish connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
+            // Suppress failure, avoid spamming
+            this.suppressFailure = true;
         }
-        // If you have any other exception, then it is bad and the connection will be cleared
+        cleanup();
+        scheduleReconnection();
     }
 
-    private void establishConnection() throws IOException {
-        // If there is no socket
-        if(this.socket == null) {
-            try {
-                Socket s = new Socket();
-                if (getLocalPort() != 0) {
-                    s.bind(new InetSocketAddress(getLocalPort()));
+    private void scheduleReconnection() {
+        if(isOpen()) {
+            SocketReactor.instance().schedule(this::startChannel, RECONNECTION_DELAY);
+        }
+    }
+
+    private void readAndForward() throws IOException {
+        ByteBufferPool pool = SocketReactor.instance().getBufferPool();
+        try {
+            for(int i = 0; i < MAX_READS_PER_EVENT; ++i) {
+                if(this.readBuffer == null) {
+                    this.readBuffer = pool.acquire();
                 }
-                s.setSoTimeout(getTimeout());
-                s.setKeepAlive(isTcpKeepAlive());
-                s.setTcpNoDelay(isTcpNoDelay());
-                if (getTxBuffer() > 0) {
-                    s.setSendBufferSize(getTxBuffer());
+                int read = this.channel.read(this.readBuffer);
+                if(read == -1) {
+                    throw new EOFException("End of stream");
+                } else if(read == 0) {
+                    break;
                 }
-                if (getRxBuffer() > 0) {
-                    s.setReceiveBufferSize(getRxBuffer());
+                // Extract all complete messages
+                this.readBuffer.flip();
+                ByteBuffer message;
+                while(isOpen() && (message = getDecodingStrategy().decodeMessage(this.readBuffer, this)) != null) {
+                    // At this stage, whatever other exception you might have, it is not related to the connection, so log and go ahead
+                    forwardToRoute(message);
+                }
+                this.readBuffer.compact();
+                // A partial message filling the whole buffer: the buffer must be enlarged
+                if(!this.readBuffer.hasRemaining()) {
+                    this.readBuffer = pool.enlarge(this.readBuffer);
                 }
-                s.connect(new InetSocketAddress(getHost(), getRemotePort()), getTimeout());
-                this.socket = s;
-                this.inputStream = this.socket.getInputStream();
-                this.outputStream = this.socket.getOutputStream();
-                setActive(true);
-            } catch (IOException e) {
-                cleanup();
-                throw e;
+            }
+        } finally {
+            // No partial data: do not hold the buffer
+            if(this.readBuffer != null && this.readBuffer.position() == 0) {
+                pool.release(this.readBuffer);
+                this.readBuffer = null;
             }
         }
     }
 
+    @Override
+    protected void stopChannel() {
+        cleanup();
+    }
+
     private void cleanup() {
         // Clean-up
-        if(this.inputStream != null) {
-            try {
-                this.socket.shutdownInput();
-                this.inputStream.close();
-            } catch (IOException e) {
-                // Ignore
-            }
+        if(this.connectionTimeout != null) {
+            this.connectionTimeout.cancel(false);
+            this.connectionTimeout = null;
         }
-        if(this.outputStream != null) {
-            try {
-                this.socket.shutdownOutput();
-                this.outputStream.close();
-            } catch (IOException e) {
-                // Ignore
-            }
+        if(this.selectionKey != null) {
+            this.selectionKey.cancel();
+            this.selectionKey = null;
         }
-        if(this.socket != null) {
+        if(this.channel != null) {
             try {
                 if(LOG.isLoggable(Level.FINE)) {
                     LOG.log(Level.FINE, String.format("Connection %s: closing TCP socket to %s:%d", getName(), getHost(), getRemotePort()));
                 }
-                this.socket.close();
+                this.channel.close();
             } catch (IOException e) {
                 // Ignore
             }
         }
-        this.socket = null;
-        this.inputStream = null;
-        this.outputStream = null;
+        if(this.readBuffer != null) {
+            SocketReactor.instance().getBufferPool().release(this.readBuffer);
+            this.readBuffer = null;
+        }
+        this.channel = null;
         setActive(false);
     }
 
     @Override
     public boolean writeMessage(byte[] message) throws IOException {
-        if(isOpen()) {
-            OutputStream os = this.outputStream;
-            if(os != null) {
-                os.write(message);
-                os.flush();
+        if(isOpen() && isActive()) {
+            SocketChannel ch = this.channel;
+            if(ch != null) {
+                ByteBuffer toWrite = ByteBuffer.wrap(message);
+                long deadline = System.nanoTime() + getTimeout() * 1000000L;
+                synchronized (this.writeLock) {
+                    // The channel is non-blocking: retry until the socket buffer accepts all data
+                    while(toWrite.hasRemaining()) {
+                        if(ch.write(toWrite) == 0) {
+                            if(System.nanoTime() > deadline) {
+                                throw new SocketTimeoutException("Timeout when writing message to " + getHost() + ":" + getRemotePort());
+                            }
+                            LockSupport.parkNanos(WRITE_RETRY_NANOS);
+                        }
+                    }
+                }
                 return true;
             } else {
                 return false;
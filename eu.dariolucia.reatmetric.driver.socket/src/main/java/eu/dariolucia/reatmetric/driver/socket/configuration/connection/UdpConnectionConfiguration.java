@@ -22,8 +22,14 @@ import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlTransient;
 
 import java.io.IOException;
-import java.net.*;
-import java.util.Arrays;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,112 +47,122 @@ public class UdpConnectionConfiguration extends AbstractConnectionConfiguration
      * Channel operations
      * ***************************************************************/
 
+    private static final int RECONNECTION_DELAY = 5000; // in ms, hardcoded for now
+    private static final int MAX_READS_PER_EVENT = 16;
+    private static final long WRITE_RETRY_NANOS = 100000;
+
+    // All fields below, except channel, are accessed only by the reactor thread
+    @XmlTransient
+    private volatile DatagramChannel channel;
     @XmlTransient
-    private volatile DatagramSocket socket;
+    private SelectionKey selectionKey;
     @XmlTransient
-    private final byte[] buffer = new byte[65536];
+    private boolean suppressFailure = false;
 
     @Override
-    protected void connectionLoop() {
-        boolean suppressFailure = false;
-        while(isOpen()) {
-            try {
-                establishConnection();
-                // Reset suppression of error messages
-                suppressFailure = false;
-                try {
-                    readAndForward();
-                } catch (Exception e) {
-                    LOG.log(Level.WARNING, String.format("%s: error while reading from connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
-                    // Cleanup and retry immediately
-                    cleanup();
-                }
-            } catch (Exception e) {
-                if(!suppressFailure) {
-                    LOG.log(Level.WARNING, String.format("%s: cannot establish connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
-                    // Suppress failure, avoid spamming
-                    suppressFailure = true;
-                }
-                // Wait and retry (hardcoded for now)
-                try {
-                    Thread.sleep(5000);
-                } catch (InterruptedException ex) {
-                    // Ignore
-                }
-            }
-        }
-        cleanup();
-    }
-
-    private void readAndForward() throws IOException {
-        // If you are here, it means that the socket exists
-        DatagramSocket is = this.socket;
-        if(is == null) {
-            throw new IOException("No datagram socket found");
+    protected void startChannel() {
+        if(!isOpen() || this.channel != null) {
+            return;
         }
         try {
-            // Read the message
-            byte[] message = readFromSocket(this.socket);
-            // At this stage, whatever other exception you might have, it is not related to the connection, so log and go ahead
-            forwardToRoute(message);
-        } catch (SocketTimeoutException e) {
-            // Just return, this method will be immediately called again
+            DatagramChannel ch = DatagramChannel.open();
+            this.channel = ch;
+            ch.configureBlocking(false);
+            ch.bind(getLocalPort() != 0 ? new InetSocketAddress(getLocalPort()) : null);
+            if(getTxBuffer() > 0) {
+                ch.setOption(StandardSocketOptions.SO_SNDBUF, getTxBuffer());
+            }
+            if(getRxBuffer() > 0) {
+                ch.setOption(StandardSocketOptions.SO_RCVBUF, getRxBuffer());
+            }
+            ch.connect(new InetSocketAddress(InetAddress.getByName(getHost()), getRemotePort()));
+            this.selectionKey = SocketReactor.instance().register(ch, SelectionKey.OP_READ, this::onChannelReady);
+            // Reset suppression of error messages
+            this.suppressFailure = false;
+            setActive(true);
+        } catch (IOException | RuntimeException e) {
+            if(!this.suppressFailure) {
+                LOG.log(Level.WARNING, String.format("%s: cannot establish connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
+                // Suppress failure, avoid spamming
+                this.suppressFailure = true;
+            }
+            cleanup();
+            // Wait and retry
+            if(isOpen()) {
+                SocketReactor.instance().schedule(this::startChannel, RECONNECTION_DELAY);
+            }
         }
-        // If you have any other exception, then it is bad and the connection will be cleared
     }
 
-    private byte[] readFromSocket(DatagramSocket s) throws IOException {
-        if(s != null) {
-            DatagramPacket receivedPacket = new DatagramPacket(buffer, 0, buffer.length);
-            s.receive(receivedPacket);
-            return Arrays.copyOfRange(receivedPacket.getData(), receivedPacket.getOffset(), receivedPacket.getOffset() + receivedPacket.getLength());
-        } else {
-            throw new IOException("No socket available");
+    private void onChannelReady(SelectionKey key) {
+        try {
+            readAndForward();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, String.format("%s: error while reading from connection to %s:%d: %s", getName(), getHost(), getRemotePort(), e.getMessage()), e);
+            // Cleanup and retry immediately
+            cleanup();
+            SocketReactor.instance().execute(this::startChannel);
         }
     }
 
-    private void establishConnection() throws IOException {
-        // If there is no socket
-        if(this.socket == null) {
-            try {
-                DatagramSocket s = new DatagramSocket();
-                if(getLocalPort() != 0) {
-                    s.bind(new InetSocketAddress(getLocalPort()));
-                }
-                if(getTxBuffer() > 0) {
-                    s.setSendBufferSize(getTxBuffer());
-                }
-                if(getRxBuffer() > 0) {
-                    s.setReceiveBufferSize(getRxBuffer());
+    private void readAndForward() throws IOException {
+        ByteBufferPool pool = SocketReactor.instance().getBufferPool();
+        ByteBuffer buffer = pool.acquire();
+        try {
+            for(int i = 0; i < MAX_READS_PER_EVENT && isOpen(); ++i) {
+                // Each datagram is a message
+                buffer.clear();
+                if(this.channel.read(buffer) <= 0) {
+                    break;
                 }
-                s.connect(InetAddress.getByName(getHost()), getRemotePort());
-                this.socket = s;
-                setActive(true);
-            } catch (IOException e) {
-                cleanup();
-                throw e;
+                buffer.flip();
+                // At this stage, whatever other exception you might have, it is not related to the connection, so log and go ahead
+                forwardToRoute(buffer);
             }
+        } finally {
+            pool.release(buffer);
         }
     }
 
+    @Override
+    protected void stopChannel() {
+        cleanup();
+    }
+
     private void cleanup() {
         // Clean-up
-        if(this.socket != null) {
-            if(LOG.isLoggable(Level.FINE)) {
-                LOG.log(Level.FINE, String.format("Connection %s: closing UDP socket on local port %d", getName(), this.socket.getLocalPort()));
+        if(this.selectionKey != null) {
+            this.selectionKey.cancel();
+            this.selectionKey = null;
+        }
+        if(this.channel != null) {
+            try {
+                if(LOG.isLoggable(Level.FINE)) {
+                    LOG.log(Level.FINE, String.format("Connection %s: closing UDP socket on local port %d", getName(), getLocalPort()));
+                }
+                this.channel.close();
+            } catch (IOException e) {
+                // Ignore
             }
-            this.socket.close();
         }
-        this.socket = null;
+        this.channel = null;
         setActive(false);
     }
 
     @Override
     public boolean writeMessage(byte[] message) throws IOException {
         if(isOpen()) {
-            DatagramSocket s = this.socket;
-            if(s != null) {
-                s.send(new DatagramPacket(message, 0, message.length));
+            DatagramChannel ch = this.channel;
+            if(ch != null && isActive()) {
+                ByteBuffer toWrite = ByteBuffer.wrap(message);
+                long deadline = System.nanoTime() + getTimeout() * 1000000L;
+                // The channel is non-blocking: the datagram is either sent as a whole or not sent
+                while(ch.write(toWrite) == 0) {
+                    if(System.nanoTime() > deadline) {
+                        throw new SocketTimeoutException("Timeout when writing message to " + getHost() + ":" + getRemotePort());
+                    }
+                    LockSupport.parkNanos(WRITE_RETRY_NANOS);
+                }
                 return true;
             } else {
                 return false;
@@ -25,6 +25,7 @@ import jakarta.xml.bind.annotation.XmlElement;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This decoder reads all characters in the underlying channel and stops when the specified delimiter is found.
@@ -83,6 +84,17 @@ public class AsciiDelimiterDecoding implements IDecodingStrategy {
         return buff.toByteArray();
     }
 
+    @Override
+    public ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) {
+        convertDelimiter(configuration);
+        int delimiterPosition = IDecodingStrategy.indexOf(buffer, buffer.position(), buffer.limit(), this.delimiterSequence);
+        if(delimiterPosition == -1) {
+            return null;
+        }
+        // The message includes the delimiter
+        return IDecodingStrategy.slice(buffer, delimiterPosition + this.delimiterSequence.length - buffer.position());
+    }
+
     private void convertDelimiter(AbstractConnectionConfiguration configuration) {
         if(this.delimiterSequence == null) {
             String delimiterCharactersReplaced = delimiterCharacters.replace("\\n", "\n")
@@ -27,6 +27,7 @@ import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This decoder reads all characters in the underlying channel and stops when the specified delimiter is found.
@@ -125,4 +126,23 @@ public class BinaryDelimiterDecoding implements IDecodingStrategy {
         // Return the byte array
         return buff.toByteArray();
     }
+
+    @Override
+    public ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) {
+        // Look for the start of the message
+        int startPosition = IDecodingStrategy.indexOf(buffer, buffer.position(), buffer.limit(), this.startSequence);
+        if(startPosition == -1) {
+            // Discard what cannot be part of the start sequence
+            buffer.position(Math.max(buffer.position(), buffer.limit() - this.startSequence.length + 1));
+            return null;
+        }
+        // Discard everything before the start sequence
+        buffer.position(startPosition);
+        // Look for the end of the message
+        int endPosition = IDecodingStrategy.indexOf(buffer, startPosition + this.startSequence.length, buffer.limit(), this.endSequence);
+        if(endPosition == -1) {
+            return null;
+        }
+        return IDecodingStrategy.slice(buffer, endPosition + this.endSequence.length - startPosition);
+    }
 }
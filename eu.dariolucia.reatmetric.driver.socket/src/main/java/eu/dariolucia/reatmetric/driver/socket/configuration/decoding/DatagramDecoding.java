@@ -22,6 +22,7 @@ import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class DatagramDecoding implements IDecodingStrategy {
@@ -30,4 +31,10 @@ public class DatagramDecoding implements IDecodingStrategy {
     public byte[] readMessage(InputStream is, AbstractConnectionConfiguration configuration) {
         throw new UnsupportedOperationException("This operation shall never be called");
     }
+
+    @Override
+    public ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) {
+        // The buffer contains exactly one datagram
+        return buffer.hasRemaining() ? IDecodingStrategy.slice(buffer, buffer.remaining()) : null;
+    }
 }
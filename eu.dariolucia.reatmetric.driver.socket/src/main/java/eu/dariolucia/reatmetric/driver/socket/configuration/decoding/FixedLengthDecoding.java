@@ -24,6 +24,7 @@ import jakarta.xml.bind.annotation.XmlAttribute;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This decoder reads a fixed number of bytes from the underlying channel.
@@ -50,4 +51,9 @@ public class FixedLengthDecoding implements IDecodingStrategy {
         }
         return data;
     }
+
+    @Override
+    public ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) {
+        return buffer.remaining() >= length ? IDecodingStrategy.slice(buffer, length) : null;
+    }
 }
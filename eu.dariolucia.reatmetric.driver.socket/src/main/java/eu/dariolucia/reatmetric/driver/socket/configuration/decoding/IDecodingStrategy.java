@@ -21,9 +21,54 @@ import eu.dariolucia.reatmetric.driver.socket.configuration.connection.AbstractC
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface IDecodingStrategy {
 
     byte[] readMessage(InputStream is, AbstractConnectionConfiguration configuration) throws IOException;
 
+    /**
+     * Look for a complete message in the provided buffer (in read mode), starting from its position. If a complete
+     * message is present, a slice of the buffer containing the message is returned (no data is copied) and the buffer
+     * position is moved after the message. If no complete message is present, null is returned: the buffer position
+     * is left unchanged, or moved after the bytes that cannot be part of any message.
+     *
+     * @param buffer the buffer containing the received data
+     * @param configuration the connection configuration
+     * @return the slice containing the message, or null if more data is needed
+     * @throws IOException if the data in the buffer is not compatible with the decoding strategy
+     */
+    ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) throws IOException;
+
+    /**
+     * Return the first position, at or after from and before to, where the sequence is found in the buffer, or -1
+     * if the sequence is not fully contained in the specified range.
+     */
+    static int indexOf(ByteBuffer buffer, int from, int to, byte[] sequence) {
+        byte first = sequence[0];
+        int last = to - sequence.length;
+        for(int i = from; i <= last; ++i) {
+            if(buffer.get(i) == first) {
+                int j = 1;
+                while(j < sequence.length && buffer.get(i + j) == sequence[j]) {
+                    ++j;
+                }
+                if(j == sequence.length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return a slice of the buffer from its position, with the specified length, and move the position after the slice.
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer message = buffer.slice();
+        message.limit(length);
+        buffer.position(buffer.position() + length);
+        return message;
+    }
+
 }
@@ -18,6 +18,7 @@
 package eu.dariolucia.reatmetric.driver.socket.configuration.decoding;
 
 import eu.dariolucia.reatmetric.driver.socket.configuration.connection.AbstractConnectionConfiguration;
+import eu.dariolucia.reatmetric.driver.socket.configuration.connection.ByteBufferPool;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlAttribute;
@@ -25,6 +26,7 @@ import jakarta.xml.bind.annotation.XmlAttribute;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class LengthFieldDecoding implements IDecodingStrategy {
@@ -142,20 +144,52 @@ public class LengthFieldDecoding implements IDecodingStrategy {
             throw new IOException("End of stream when reading the length field");
         }
         buff.write(lengthField);
+        long lengthValue = computeLength(ByteBuffer.wrap(lengthField), 0, lengthField.length);
+        // Read the message
+        byte[] restOfMessage = is.readNBytes((int) lengthValue);
+        if(restOfMessage.length == 0) {
+            throw new IOException("End of stream when reading the message (" + lengthValue + " bytes)");
+        }
+        buff.write(restOfMessage);
+        // Return the message
+        return buff.toByteArray();
+    }
+
+    @Override
+    public ByteBuffer decodeMessage(ByteBuffer buffer, AbstractConnectionConfiguration configuration) throws IOException {
+        if(this.fieldLength == 0) {
+            throw new IOException("Wrong configuration: field-length set to 0, it must be set");
+        }
+        int headerLength = this.headerNbBytesToSkip + this.fieldLength;
+        if(buffer.remaining() < headerLength) {
+            return null;
+        }
+        long lengthValue = computeLength(buffer, buffer.position() + this.headerNbBytesToSkip, this.fieldLength);
+        if(lengthValue < 0 || headerLength + lengthValue > ByteBufferPool.MAX_BUFFER_SIZE) {
+            throw new IOException("Wrong message length derived from length field: " + lengthValue);
+        }
+        int messageLength = headerLength + (int) lengthValue;
+        return buffer.remaining() >= messageLength ? IDecodingStrategy.slice(buffer, messageLength) : null;
+    }
+
+    /**
+     * Compute the length of the rest of the message, from the length field.
+     */
+    private long computeLength(ByteBuffer buffer, int offset, int length) {
         // Depending on the endianness, compute the number
         long lengthValue = 0;
         if(bigEndian) {
             // Big Endian
-            for(int i = 0; i < lengthField.length; ++i) {
-                lengthValue |= (lengthField[i] & 0x000000FF);
-                if(i != lengthField.length - 1) {
+            for(int i = 0; i < length; ++i) {
+                lengthValue |= (buffer.get(offset + i) & 0x000000FF);
+                if(i != length - 1) {
                     lengthValue <<= 8;
                 }
             }
         } else {
             // Little Endian
-            for(int i = lengthField.length - 1; i >= 0; --i) {
-                lengthValue |= (lengthField[i] & 0x000000FF);
+            for(int i = length - 1; i >= 0; --i) {
+                lengthValue |= (buffer.get(offset + i) & 0x000000FF);
                 if(i != 0) {
                     lengthValue <<= 8;
                 }
@@ -174,13 +208,6 @@ public class LengthFieldDecoding implements IDecodingStrategy {
         if(this.considerFieldLength) {
             lengthValue -= this.fieldLength;
         }
-        // Read the message
-        byte[] restOfMessage = is.readNBytes((int) lengthValue);
-        if(restOfMessage.length == 0) {
-            throw new IOException("End of stream when reading the message (" + lengthValue + " bytes)");
-        }
-        buff.write(restOfMessage);
-        // Return the message
-        return buff.toByteArray();
+        return lengthValue;
     }
 }
@@ -61,8 +61,12 @@ public class AsciiMessageDefinition extends MessageDefinition<String> {
      * Internal operations
      * ***************************************************************/
 
-    private transient final List<String> literals = new ArrayList<>();
-    private transient final List<String> variables = new ArrayList<>();
+    /**
+     * The literals of the template: literals[i] precedes fields[i], the last literal follows the last field. An empty
+     * last literal means that the last field extends up to the end of the message.
+     */
+    private transient String[] literals = new String[] { "" };
+    private transient SymbolTypeFormat[] fields = new SymbolTypeFormat[0];
     private transient final Map<String, SymbolTypeFormat> variable2type = new TreeMap<>();
 
     @Override
@@ -71,75 +75,66 @@ public class AsciiMessageDefinition extends MessageDefinition<String> {
             // Sanitize the template to have proper blank characters
             this.template = template.replace("\\n", "\n")
                     .replace("\\r", "\r").replace("\\t", "\t");
+            List<String> templateLiterals = new ArrayList<>();
+            List<SymbolTypeFormat> templateFields = new ArrayList<>();
             int currentStart = 0;
             while (currentStart < template.length()) {
                 // Tokenize and build internals
                 int varStartIndex = template.indexOf(VAR_PREFIX, currentStart);
                 if (varStartIndex == -1) {
-                    // Not found: add last literal and go out
-                    literals.add(template.substring(currentStart));
-                    return;
+                    // Not found: last literal
+                    break;
                 }
                 int varEndIndex = template.indexOf(VAR_POSTFIX, varStartIndex);
                 // Add the literal before (can be an empty string) and the string name
-                literals.add(template.substring(currentStart, varStartIndex));
+                templateLiterals.add(template.substring(currentStart, varStartIndex));
                 String variableName = template.substring(varStartIndex + VAR_PREFIX.length(), varEndIndex);
                 currentStart = varEndIndex + VAR_POSTFIX.length();
-                variables.add(variableName);
                 // Lookup for symbol
                 Optional<SymbolTypeFormat> format = getSymbols().stream().filter(o -> o.getName().equals(variableName)).findFirst();
                 if (format.isPresent()) {
                     variable2type.put(variableName, format.get());
+                    templateFields.add(format.get());
                 } else {
                     throw new RuntimeException("Cannot find any format configuration for symbol " + variableName);
                 }
             }
+            // Add the last literal (empty if the template ends with a variable)
+            templateLiterals.add(template.substring(currentStart));
+            this.literals = templateLiterals.toArray(new String[0]);
+            this.fields = templateFields.toArray(new SymbolTypeFormat[0]);
         } catch (RuntimeException e) {
             LOG.log(Level.SEVERE, "Error when processing ASCII message definition " + getId() + " \"" + getTemplate() + "\": " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Return the literal part at the beginning of the template, which every message of this type starts with. It can
+     * be an empty string, if the template starts with a variable.
+     *
+     * @return the literal prefix of the template
+     */
+    public String getPrefix() {
+        return literals[0];
+    }
+
     @Override
     public Map<String, Object> decode(String secondaryId, String messageToProcess) throws ReatmetricException {
+        if(!messageToProcess.startsWith(literals[0])) {
+            throw new ReatmetricException(String.format("ASCII message %s: message does not start with '%s'", getId(), literals[0]));
+        }
         try {
-            Map<String, Object> valueMap = new LinkedHashMap<>();
-            // Start from the literals
-            int currentStart = 0;
-            int literalIndex = 0;
-            int variableIndex = 0;
-            while (currentStart < messageToProcess.length()) {
-                // Move forward by literal
-                currentStart += literals.get(literalIndex).length();
-                literalIndex++;
-                // Extract from current start to ...
-                String valueString = null;
-                if (literalIndex < literals.size()) {
-                    // ... the start of the next literal
-                    valueString = messageToProcess.substring(currentStart, messageToProcess.indexOf(literals.get(literalIndex), currentStart));
-                } else {
-                    // ... the end of the string
-                    valueString = messageToProcess.substring(currentStart);
-                }
-                // Update the position in the string
-                currentStart += valueString.length();
-
-                // Process the read value
-                if (variableIndex < variables.size()) {
-                    String variableName = variables.get(variableIndex++);
-                    SymbolTypeFormat stf = variable2type.get(variableName);
-                    Object value = null;
-                    // Read/parse value
-                    if (stf != null) {
-                        value = stf.decode(valueString);
-                        // Add to map
-                        valueMap.put(variableName, value);
-                    } else {
-                        if (LOG.isLoggable(Level.WARNING)) {
-                            LOG.log(Level.WARNING, String.format("Cannot find field '%s' for ASCII message %s", variableName, getId()));
-                        }
-                    }
+            Map<String, Object> valueMap = new LinkedHashMap<>(fields.length * 2);
+            // Single pass: each field is delimited by the next literal and decoded in place
+            int currentStart = literals[0].length();
+            for(int i = 0; i < fields.length; ++i) {
+                int valueEnd = findLiteral(messageToProcess, i + 1, currentStart);
+                if(valueEnd == -1) {
+                    throw new ReatmetricException(String.format("ASCII message %s: cannot find '%s' after field '%s'", getId(), literals[i + 1], fields[i].getName()));
                 }
+                valueMap.put(fields[i].getName(), fields[i].decode(messageToProcess, currentStart, valueEnd));
+                currentStart = valueEnd + literals[i + 1].length();
             }
             return valueMap;
         } catch (RuntimeException e) {
@@ -147,10 +142,23 @@ public class AsciiMessageDefinition extends MessageDefinition<String> {
         }
     }
 
+    private int findLiteral(String message, int literalIndex, int from) {
+        String literal = literals[literalIndex];
+        if(literal.isEmpty()) {
+            // Empty last literal: the value goes up to the end of the message. Otherwise, the value is empty.
+            return literalIndex == literals.length - 1 ? message.length() : from;
+        }
+        return message.indexOf(literal, from);
+    }
+
     @Override
     public String identify(String messageToIdentify) {
-        int currentStart = 0;
-        for(String literal : literals) {
+        if(!messageToIdentify.startsWith(literals[0])) {
+            return null;
+        }
+        int currentStart = literals[0].length();
+        for(int i = 1; i < literals.length; ++i) {
+            String literal = literals[i];
             if(literal.isEmpty()) {
                 continue;
             }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c)  2023 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.socket.configuration.message;
+
+import java.util.*;
+
+/**
+ * Index of ASCII message definitions, to identify the definition of an incoming message without trying all of them.
+ * Definitions are indexed by the first characters of their literal prefix: only the definitions sharing these
+ * characters with the message, together with the definitions without a literal prefix, are checked, in the order
+ * they were provided.
+ */
+public class AsciiMessageIndex {
+
+    private static final AsciiMessageDefinition[] EMPTY = new AsciiMessageDefinition[0];
+
+    private final int keyLength;
+
+    private final Map<String, AsciiMessageDefinition[]> key2definitions = new HashMap<>();
+
+    private final AsciiMessageDefinition[] unindexed;
+
+    public AsciiMessageIndex(Collection<AsciiMessageDefinition> definitions) {
+        // The key is as long as the shortest non-empty prefix
+        this.keyLength = definitions.stream().mapToInt(o -> o.getPrefix().length()).filter(o -> o > 0).min().orElse(0);
+        Map<String, List<AsciiMessageDefinition>> key2list = new LinkedHashMap<>();
+        if(this.keyLength > 0) {
+            for (AsciiMessageDefinition def : definitions) {
+                if (!def.getPrefix().isEmpty()) {
+                    key2list.putIfAbsent(def.getPrefix().substring(0, this.keyLength), new ArrayList<>());
+                }
+            }
+        }
+        List<AsciiMessageDefinition> unindexedList = new ArrayList<>();
+        for(AsciiMessageDefinition def : definitions) {
+            if(def.getPrefix().isEmpty()) {
+                // Can match any message
+                unindexedList.add(def);
+                key2list.values().forEach(o -> o.add(def));
+            } else {
+                key2list.get(def.getPrefix().substring(0, this.keyLength)).add(def);
+            }
+        }
+        this.unindexed = unindexedList.toArray(EMPTY);
+        key2list.forEach((k, v) -> key2definitions.put(k, v.toArray(EMPTY)));
+    }
+
+    /**
+     * Return the first definition matching the provided message, or null if no definition matches.
+     *
+     * @param message the message to identify
+     * @return the matching definition, or null
+     */
+    public AsciiMessageDefinition identify(String message) {
+        AsciiMessageDefinition[] candidates = unindexed;
+        if(keyLength > 0 && message.length() >= keyLength) {
+            candidates = key2definitions.getOrDefault(message.substring(0, keyLength), unindexed);
+        }
+        for(AsciiMessageDefinition def : candidates) {
+            if(def.identify(message) != null) {
+                return def;
+            }
+        }
+        return null;
+    }
+}
@@ -117,24 +117,33 @@ public class SymbolTypeFormat {
      * ***************************************************************/
 
     public Object decode(String valueString) {
-        if(valueString.isEmpty() && isDecodeEmpty()) {
+        return decode(valueString, 0, valueString.length());
+    }
+
+    /**
+     * Decode the value contained in the provided string, between beginIndex (inclusive) and endIndex (exclusive).
+     * Numeric values are parsed in place, without extracting the substring.
+     *
+     * @param source the string containing the value
+     * @param beginIndex the start of the value
+     * @param endIndex the end of the value
+     * @return the decoded value
+     */
+    public Object decode(String source, int beginIndex, int endIndex) {
+        if(beginIndex == endIndex && isDecodeEmpty()) {
             return null;
         }
         if(type == ValueTypeEnum.ENUMERATED) {
-            // Check the radix
-            if (radix == RadixEnum.DEC) {
-                return ValueUtil.parse(type, valueString);
-            } else {
-                return Integer.parseInt(valueString, radix.getRadix());
-            }
+            return Integer.parseInt(source, beginIndex, endIndex, radix.getRadix());
         } else if(type == ValueTypeEnum.UNSIGNED_INTEGER || type == ValueTypeEnum.SIGNED_INTEGER) {
-            // Check the radix
-            if (radix == RadixEnum.DEC) {
-                return ValueUtil.parse(type, valueString);
-            } else {
-                return Long.parseLong(valueString, radix.getRadix());
-            }
-        } else if(type == ValueTypeEnum.DERIVED) {
+            return Long.parseLong(source, beginIndex, endIndex, radix.getRadix());
+        } else {
+            return decodeString(source.substring(beginIndex, endIndex));
+        }
+    }
+
+    private Object decodeString(String valueString) {
+        if(type == ValueTypeEnum.DERIVED) {
             Pair<Object, ValueTypeEnum> attemptedParse = ValueUtil.tryParse(valueString);
             if(attemptedParse == null) {
                 return null;
@@ -37,6 +37,7 @@ import eu.dariolucia.reatmetric.driver.socket.configuration.connection.AbstractC
 import eu.dariolucia.reatmetric.driver.socket.configuration.connection.InitType;
 import eu.dariolucia.reatmetric.driver.socket.configuration.connection.ProtocolType;
 import eu.dariolucia.reatmetric.driver.socket.configuration.message.AsciiMessageDefinition;
+import eu.dariolucia.reatmetric.driver.socket.configuration.message.AsciiMessageIndex;
 import eu.dariolucia.reatmetric.driver.socket.configuration.message.BinaryMessageDefinition;
 import eu.dariolucia.reatmetric.driver.socket.configuration.message.MessageDefinition;
 import jakarta.xml.bind.annotation.*;
@@ -166,13 +167,21 @@ public class RouteConfiguration {
     @XmlTransient
     private final Map<String, AtomicInteger> autoIncrementSequencers = new ConcurrentHashMap<>();
 
+    @XmlTransient
+    private AsciiMessageIndex asciiMessageIndex;
+
     public void initialise(AbstractConnectionConfiguration parentConnection) {
         this.parentConnection = parentConnection;
         // Create the sequencers?
+        Set<AsciiMessageDefinition> asciiDefinitions = new LinkedHashSet<>();
         for(InboundMessageMapping m : getInboundMessages()) {
             m.initialise(parentConnection, getEntityOffset());
             messageId2mapping.computeIfAbsent(m.getMessageDefinition().getId() + "_" + m.getSecondaryId(), k -> new LinkedList<>()).add(m);
+            if(m.getMessageDefinition() instanceof AsciiMessageDefinition) {
+                asciiDefinitions.add((AsciiMessageDefinition) m.getMessageDefinition());
+            }
         }
+        this.asciiMessageIndex = new AsciiMessageIndex(asciiDefinitions);
         for(OutboundMessageMapping m : getOutboundMessages()) {
             m.initialise(parentConnection, getEntityOffset());
         }
@@ -346,23 +355,11 @@ public class RouteConfiguration {
     }
 
     private void internalAsciiMessageReceived(String message, byte[] rawMessage, Instant receivedTime) {
-        String identifier = null;
-        AsciiMessageDefinition definition = null;
-        // You received an ASCII message: get the message definition, identify the message
-        for(InboundMessageMapping template : getInboundMessages()) {
-            MessageDefinition<?> def = template.getMessageDefinition();
-            if(def instanceof AsciiMessageDefinition) {
-                AsciiMessageDefinition amd = (AsciiMessageDefinition) def;
-                identifier = amd.identify(message);
-                if (identifier != null) {
-                    identifier = def.getId();
-                    definition = amd;
-                    break;
-                }
-            }
-        }
+        // You received an ASCII message: identify the message definition via the index
+        AsciiMessageDefinition definition = asciiMessageIndex.identify(message);
         //
-        if(identifier != null) {
+        if(definition != null) {
+            String identifier = definition.getId();
             // Decode the message and forward everything to onMessageReceived
             try {
                 Map<String, Object> decodedMessage = definition.decode(null, message);
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c)  2023 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.driver.socket.configuration.decoding;
+
+import eu.dariolucia.reatmetric.driver.socket.configuration.connection.TcpClientConnectionConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferDecodingTest {
+
+    private final TcpClientConnectionConfiguration configuration = new TcpClientConnectionConfiguration();
+
+    @Test
+    void testAsciiDelimiterDecoding() throws IOException {
+        AsciiDelimiterDecoding decoding = new AsciiDelimiterDecoding();
+        decoding.setDelimiterCharacters("\\r\\n");
+        ByteBuffer buffer = ByteBuffer.wrap("FIRST\r\nSECOND\r\nTHI".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("FIRST\r\n", toString(decoding.decodeMessage(buffer, configuration)));
+        assertEquals("SECOND\r\n", toString(decoding.decodeMessage(buffer, configuration)));
+        int position = buffer.position();
+        assertNull(decoding.decodeMessage(buffer, configuration));
+        assertEquals(position, buffer.position());
+    }
+
+    @Test
+    void testBinaryDelimiterDecoding() throws IOException {
+        BinaryDelimiterDecoding decoding = new BinaryDelimiterDecoding();
+        decoding.setStartSequence(new byte[] { 0x52, 0x45 });
+        decoding.setEndSequence(new byte[] { 0x4D, 0x45 });
+        // Garbage, full message, partial message
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0x01, 0x02, 0x52, 0x45, 0x11, 0x4D, 0x45, 0x52, 0x45, 0x12 });
+        ByteBuffer message = decoding.decodeMessage(buffer, configuration);
+        assertArrayEquals(new byte[] { 0x52, 0x45, 0x11, 0x4D, 0x45 }, toArray(message));
+        assertNull(decoding.decodeMessage(buffer, configuration));
+        assertEquals(7, buffer.position());
+    }
+
+    @Test
+    void testFixedLengthDecoding() throws IOException {
+        FixedLengthDecoding decoding = new FixedLengthDecoding();
+        decoding.setLength(3);
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+        assertArrayEquals(new byte[] { 1, 2, 3 }, toArray(decoding.decodeMessage(buffer, configuration)));
+        assertNull(decoding.decodeMessage(buffer, configuration));
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    void testLengthFieldDecoding() throws IOException {
+        LengthFieldDecoding decoding = new LengthFieldDecoding();
+        decoding.setHeaderNbBytesToSkip(2);
+        decoding.setFieldLength(2);
+        decoding.setBigEndian(true);
+        // Header (2 bytes), length (2 bytes), body (3 bytes), then a partial second message
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0x52, 0x45, 0x00, 0x03, 1, 2, 3, 0x52, 0x45, 0x00, 0x03, 1 });
+        assertArrayEquals(new byte[] { 0x52, 0x45, 0x00, 0x03, 1, 2, 3 }, toArray(decoding.decodeMessage(buffer, configuration)));
+        assertNull(decoding.decodeMessage(buffer, configuration));
+        assertEquals(7, buffer.position());
+        // Same result as the stream-based decoding
+        byte[] fullMessage = new byte[] { 0x52, 0x45, 0x00, 0x03, 1, 2, 3 };
+        assertArrayEquals(fullMessage, decoding.readMessage(new ByteArrayInputStream(fullMessage), configuration));
+    }
+
+    @Test
+    void testFragmentedDecoding() throws IOException {
+        AsciiDelimiterDecoding decoding = new AsciiDelimiterDecoding();
+        decoding.setDelimiterCharacters("\\n");
+        byte[] data = "ONE\nTWO\nTHREE\n".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        StringBuilder decoded = new StringBuilder();
+        // Deliver one byte at a time, as the connection would do with compact()
+        for(byte b : data) {
+            buffer.put(b);
+            buffer.flip();
+            ByteBuffer message;
+            while((message = decoding.decodeMessage(buffer, configuration)) != null) {
+                decoded.append(toString(message)).append('|');
+            }
+            buffer.compact();
+        }
+        assertEquals("ONE\n|TWO\n|THREE\n|", decoded.toString());
+    }
+
+    private static byte[] toArray(ByteBuffer message) {
+        assertNotNull(message);
+        byte[] data = new byte[message.remaining()];
+        message.get(data);
+        return data;
+    }
+
+    private static String toString(ByteBuffer message) {
+        return new String(toArray(message), StandardCharsets.US_ASCII);
+    }
+}
@@ -24,8 +24,10 @@ import org.opentest4j.AssertionFailedError;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,6 +165,34 @@ class AsciiMessageDefinitionTest {
         assertEquals(decode1, result);
     }
 
+    @Test
+    public void testAsciiMessageIndex() throws IOException, ReatmetricException {
+        Locale.setDefault(Locale.UK);
+        SocketConfiguration sc = SocketConfiguration.load(this.getClass().getClassLoader().getResourceAsStream("ascii_double/ascii_double_driver.xml"));
+        List<AsciiMessageDefinition> definitions = sc.getMessageDefinitions().stream()
+                .filter(o -> o instanceof AsciiMessageDefinition)
+                .map(o -> (AsciiMessageDefinition) o)
+                .collect(Collectors.toList());
+        AsciiMessageIndex index = new AsciiMessageIndex(definitions);
+        // Same key, different prefixes
+        assertEquals("TLM_SUB1", index.identify("TLM SUB1 1 12332 53.2 20 2 3\n").getId());
+        assertEquals("TLM_SUB2", index.identify("TLM SUB2 1 12332 53.2 20 2 3\n").getId());
+        assertEquals("NOK", index.identify("NOK 12\n").getId());
+        // Unknown messages
+        assertNull(index.identify("TLM SUB3 1 12332 53.2 20 2 3\n"));
+        assertNull(index.identify("XYZ\n"));
+        assertNull(index.identify(""));
+        // Same result as trying all definitions in order
+        for(String message : List.of("ACK SUB1 3\n", "EXE SUB2 4\n", "SET SUB1 5 freq_val 12\n")) {
+            AsciiMessageDefinition expected = definitions.stream().filter(o -> o.identify(message) != null).findFirst().orElse(null);
+            assertSame(expected, index.identify(message));
+        }
+        // Decoding of the identified message
+        Map<String, Object> retrieved = index.identify("TLM SUB2 1 12332 53.2 20 2 3\n").decode(null, "TLM SUB2 1 12332 53.2 20 2 3\n");
+        assertEquals(12332L, retrieved.get("freq_val"));
+        assertEquals(3, retrieved.get("sweep_val"));
+    }
+
     private static void assertNumberEquals(Number expected, Number actual) {
         if((expected != null && actual == null) || (expected == null && actual != null)) {
             assertEquals(expected, actual);
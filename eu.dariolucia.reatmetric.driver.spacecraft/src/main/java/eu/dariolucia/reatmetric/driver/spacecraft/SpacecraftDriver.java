@@ -31,6 +31,7 @@ import eu.dariolucia.ccsds.sle.utl.config.cltu.CltuServiceInstanceConfiguration;
 import eu.dariolucia.ccsds.sle.utl.config.raf.RafServiceInstanceConfiguration;
 import eu.dariolucia.ccsds.sle.utl.config.rcf.RcfServiceInstanceConfiguration;
 import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.common.IDebugInfoProvider;
 import eu.dariolucia.reatmetric.api.common.IUniqueId;
 import eu.dariolucia.reatmetric.api.common.SystemStatus;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
@@ -610,6 +611,16 @@ public class SpacecraftDriver implements IDriver, IRawDataRenderer, IActivityHan
         List<DebugInformation> toReturn = new ArrayList<>();
         toReturn.addAll(this.tmPacketProcessor.currentDebugInfo()); // # of extracted parameter samples per second
         toReturn.addAll(this.tmDataLinkProcessor.currentDebugInfo()); // # of frames and extracted packets per second
+        for(SleServiceInstanceManager<?, ?> manager : this.sleManagers) {
+            if(manager instanceof IDebugInfoProvider) {
+                toReturn.addAll(((IDebugInfoProvider) manager).currentDebugInfo()); // e.g. CLTU uplink window and throughput
+            }
+        }
+        for(IReceptionOnlyConnector connector : this.receptionOnlyConnectors) {
+            if(connector instanceof IDebugInfoProvider) {
+                toReturn.addAll(((IDebugInfoProvider) connector).currentDebugInfo()); // e.g. replay throughput and lag
+            }
+        }
         return toReturn;
     }
 }
@@ -21,6 +21,8 @@ import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
 import eu.dariolucia.reatmetric.api.archive.IArchive;
 import eu.dariolucia.reatmetric.api.archive.IArchiveFactory;
 import eu.dariolucia.reatmetric.api.archive.exceptions.ArchiveException;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.common.IDebugInfoProvider;
 import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.common.RetrievalDirection;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
@@ -43,14 +45,28 @@ import eu.dariolucia.reatmetric.driver.spacecraft.services.IServiceBroker;
 import java.rmi.RemoteException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This connector allow to re-inject all TM packets of good quality (no time packets) from the provided archive location
  * and between the two provided times.
+ *
+ * The replay can be paced according to the generation times of the packets, i.e. the same time base used to retrieve
+ * them from the archive: with a replay speed of 1.0 the packets are re-injected in real time, with a speed of N they are
+ * re-injected N times faster. A replay speed of 0 (or negative) re-injects the packets as fast as possible. Archive pages
+ * are read ahead by a dedicated prefetch thread, so that the replay does not stall while the next page is retrieved.
+ *
+ * The replay can be paused, resumed, moved to a different point in time and its speed changed while running, by
+ * re-initialising the connector with updated {@link #REPLAY_PAUSED_KEY}, {@link #SEEK_TIME_KEY} and
+ * {@link #REPLAY_SPEED_KEY} properties.
  */
-public class TmPacketReplayConnector extends AbstractTransportConnector implements IReceptionOnlyConnector {
+public class TmPacketReplayConnector extends AbstractTransportConnector implements IReceptionOnlyConnector, IDebugInfoProvider {
 
     private static final Logger LOG = Logger.getLogger(TmPacketReplayConnector.class.getName());
 
@@ -58,6 +74,14 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
     public static final String SPACECRAFT_ID_KEY = "spacecraft.id";
     public static final String START_TIME_KEY = "start.time";
     public static final String END_TIME_KEY = "end.time";
+    public static final String REPLAY_SPEED_KEY = "replay.speed";
+    public static final String PREFETCH_PAGES_KEY = "prefetch.pages";
+    public static final String REPLAY_PAUSED_KEY = "replay.paused";
+    public static final String SEEK_TIME_KEY = "seek.time";
+
+    private static final int PAGE_SIZE = 1000;
+    private static final long DEFAULT_PREFETCH_PAGES = 3;
+    private static final long QUEUE_POLL_PERIOD = 100; // milliseconds
 
     private SpacecraftConfiguration spacecraftConfiguration;
     private IRawDataBroker broker;
@@ -68,8 +92,28 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
 
     private volatile IArchive externalArchive;
     private volatile Thread extractionThread;
+    private volatile Thread prefetchThread;
+    private volatile BlockingQueue<ReplayPage> prefetchQueue;
     private volatile boolean extracting;
 
+    // Replay control, guarded by replayLock
+    private final Object replayLock = new Object();
+    private volatile boolean paused;
+    private volatile double replaySpeed;
+    private volatile long replayEpoch; // Incremented at each seek request
+    private volatile Instant seekTime;
+    private Instant lastSeekRequest; // Last seek time applied from the properties
+
+    // Replay statistics
+    private final LongAdder replayedPackets = new LongAdder();
+    private volatile long replayLag; // milliseconds
+    private volatile Instant replayPosition;
+    private final AtomicReference<List<DebugInformation>> lastStats = new AtomicReference<>(Arrays.asList(
+            DebugInformation.of("TM Packet Replay", "Replayed packets", 0, null, "packets/second"),
+            DebugInformation.of("TM Packet Replay", "Replay lag", 0, null, "milliseconds"),
+            DebugInformation.of("TM Packet Replay", "Prefetched pages", 0, null, "")
+    ));
+
     public TmPacketReplayConnector() {
         super("Replay Connector", "Replay connector based on raw data re-ingestion");
     }
@@ -80,8 +124,47 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
         initialisationDescriptionMap.put(START_TIME_KEY, Pair.of("Start time", ValueTypeEnum.ABSOLUTE_TIME));
         initialisationDescriptionMap.put(END_TIME_KEY, Pair.of("End time", ValueTypeEnum.ABSOLUTE_TIME));
         initialisationDescriptionMap.put(SPACECRAFT_ID_KEY, Pair.of("Spacecraft ID", ValueTypeEnum.UNSIGNED_INTEGER));
+        initialisationDescriptionMap.put(REPLAY_SPEED_KEY, Pair.of("Replay speed (0: as fast as possible, 1: real time)", ValueTypeEnum.REAL));
+        initialisationDescriptionMap.put(PREFETCH_PAGES_KEY, Pair.of("Number of prefetched archive pages", ValueTypeEnum.UNSIGNED_INTEGER));
+        initialisationDescriptionMap.put(REPLAY_PAUSED_KEY, Pair.of("Replay paused", ValueTypeEnum.BOOLEAN));
+        initialisationDescriptionMap.put(SEEK_TIME_KEY, Pair.of("Seek time (applied when changed during the replay)", ValueTypeEnum.ABSOLUTE_TIME));
 
         initialisationMap.put(SPACECRAFT_ID_KEY, (long) spacecraftConfiguration.getId());
+        initialisationMap.put(REPLAY_SPEED_KEY, 0.0);
+        initialisationMap.put(PREFETCH_PAGES_KEY, DEFAULT_PREFETCH_PAGES);
+        initialisationMap.put(REPLAY_PAUSED_KEY, false);
+    }
+
+    /**
+     * Update the connector properties. If the replay is running, the replay controls are applied immediately: a change
+     * of {@link #REPLAY_SPEED_KEY} changes the replay speed, {@link #REPLAY_PAUSED_KEY} pauses or resumes the replay and
+     * a new {@link #SEEK_TIME_KEY} moves the replay to the provided time.
+     *
+     * @param properties the new properties
+     */
+    @Override
+    public synchronized void initialise(Map<String, Object> properties) {
+        super.initialise(properties);
+        if(!extracting) {
+            return;
+        }
+        Object speed = properties.get(REPLAY_SPEED_KEY);
+        if(speed instanceof Number && ((Number) speed).doubleValue() != replaySpeed) {
+            setReplaySpeed(((Number) speed).doubleValue());
+        }
+        Object seek = properties.get(SEEK_TIME_KEY);
+        if(seek instanceof Instant && !seek.equals(lastSeekRequest)) {
+            lastSeekRequest = (Instant) seek;
+            seek((Instant) seek);
+        }
+        Object pause = properties.get(REPLAY_PAUSED_KEY);
+        if(pause instanceof Boolean && (Boolean) pause != paused) {
+            if((Boolean) pause) {
+                pause();
+            } else {
+                resume();
+            }
+        }
     }
 
     @Override
@@ -90,8 +173,16 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
         if(lastSamplingTime != null) {
             long theBytes = rxBytes; // Not atomic, but ... who cares
             rxBytes = 0;
-            long rxRate = Math.round((theBytes * 8000.0) / (now.toEpochMilli() - lastSamplingTime.toEpochMilli()));
+            long thePackets = replayedPackets.sumThenReset();
+            long millis = Math.max(1, now.toEpochMilli() - lastSamplingTime.toEpochMilli());
+            long rxRate = Math.round((theBytes * 8000.0) / millis);
             lastSamplingTime = now;
+            BlockingQueue<ReplayPage> queue = prefetchQueue;
+            lastStats.set(Arrays.asList(
+                    DebugInformation.of("TM Packet Replay", "Replayed packets", (int) Math.round(thePackets * 1000.0 / millis), null, "packets/second"),
+                    DebugInformation.of("TM Packet Replay", "Replay lag", (int) replayLag, null, "milliseconds"),
+                    DebugInformation.of("TM Packet Replay", "Prefetched pages", queue == null ? 0 : queue.size(), null, "")
+            ));
             return Pair.of(9L, rxRate);
         } else {
             lastSamplingTime = now;
@@ -104,8 +195,8 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
         if(extracting) {
             throw new TransportException("Already extracting, cannot proceed");
         }
-        // Check presence of required properties, start thread that reads packets in chunks (100 or 1000 each) and re-inject
-        // the data, stop thread and close archive once done
+        // Check presence of required properties, start the threads that read packets in pages and re-inject
+        // the data, stop threads and close archive once done
         updateAlarmState(AlarmState.NOT_APPLICABLE);
         updateConnectionStatus(TransportConnectionStatus.CONNECTING);
         String archiveLocation = (String) getInitialisationMap().get(ARCHIVE_LOCATION_KEY);
@@ -117,94 +208,325 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
             updateConnectionStatus(TransportConnectionStatus.ERROR);
             throw new TransportException("Required properties are not all set: archive location=" + archiveLocation + ", start time=" + startTime + ", end time=" + endTime);
         }
-        ServiceLoader<IArchiveFactory> archiveLoader = ServiceLoader.load(IArchiveFactory.class);
-        if (archiveLoader.findFirst().isPresent()) {
-            try {
-                externalArchive = archiveLoader.findFirst().get().buildArchive(archiveLocation);
-                externalArchive.connect();
-            } catch (ArchiveException e) {
-                updateAlarmState(AlarmState.ALARM);
-                updateConnectionStatus(TransportConnectionStatus.ERROR);
-                throw new TransportException("Cannot open archive at " + archiveLocation + ": " + e.getMessage(), e);
-            }
-        } else {
+        Object speed = getInitialisationMap().get(REPLAY_SPEED_KEY);
+        Object prefetchPages = getInitialisationMap().get(PREFETCH_PAGES_KEY);
+        try {
+            externalArchive = openArchive(archiveLocation);
+            externalArchive.connect();
+        } catch (ArchiveException e) {
             updateAlarmState(AlarmState.ALARM);
             updateConnectionStatus(TransportConnectionStatus.ERROR);
-            throw new TransportException("Archive service not found");
+            throw new TransportException("Cannot open archive at " + archiveLocation + ": " + e.getMessage(), e);
         }
-        // You have the archive now, so start the thread to process it
+        // You have the archive now, so start the threads to process it
         updateAlarmState(AlarmState.NOMINAL);
         updateConnectionStatus(TransportConnectionStatus.OPEN);
+        synchronized (replayLock) {
+            replaySpeed = speed instanceof Number ? ((Number) speed).doubleValue() : 0.0;
+            paused = Boolean.TRUE.equals(getInitialisationMap().get(REPLAY_PAUSED_KEY));
+            seekTime = startTime;
+            replayEpoch++;
+        }
+        replayLag = 0;
+        replayPosition = null;
+        // A seek time already present at connection time is not a seek request
+        Object seek = getInitialisationMap().get(SEEK_TIME_KEY);
+        lastSeekRequest = seek instanceof Instant ? (Instant) seek : null;
+        prefetchQueue = new ArrayBlockingQueue<>((int) Math.max(1, prefetchPages instanceof Number ? ((Number) prefetchPages).longValue() : DEFAULT_PREFETCH_PAGES));
         extracting = true;
-        extractionThread = new Thread(() -> {
-            extract(startTime, endTime, spacecraftId);
-        });
+        IRawDataArchive rawDataArch = externalArchive.getArchive(IRawDataArchive.class);
+        prefetchThread = new Thread(() -> prefetch(rawDataArch, endTime, spacecraftId));
+        prefetchThread.setDaemon(true);
+        prefetchThread.setName("TM Packet Replay Prefetch Thread");
+        prefetchThread.start();
+        extractionThread = new Thread(this::replay);
         extractionThread.setDaemon(true);
         extractionThread.setName("TM Packet Replay Extraction Thread");
         extractionThread.start();
     }
 
-    private void extract(Instant startTime, Instant endTime, String spacecraftId) {
-        IArchive arc = externalArchive;
-        IRawDataArchive rawDataArch = arc.getArchive(IRawDataArchive.class);
+    /**
+     * Open the archive containing the packets to replay.
+     *
+     * @param archiveLocation the archive location
+     * @return the archive, not connected
+     * @throws ArchiveException if the archive cannot be built
+     */
+    protected IArchive openArchive(String archiveLocation) throws ArchiveException {
+        ServiceLoader<IArchiveFactory> archiveLoader = ServiceLoader.load(IArchiveFactory.class);
+        Optional<IArchiveFactory> factory = archiveLoader.findFirst();
+        if(factory.isEmpty()) {
+            throw new ArchiveException("Archive service not found");
+        }
+        return factory.get().buildArchive(archiveLocation);
+    }
+
+    /**
+     * Pause the replay. Packets already read from the archive are kept and distributed when the replay is resumed.
+     */
+    public void pause() {
+        synchronized (replayLock) {
+            paused = true;
+            replayLock.notifyAll();
+        }
+    }
+
+    /**
+     * Resume a paused replay. In paced mode, the pacing restarts from the next packet to be replayed.
+     */
+    public void resume() {
+        synchronized (replayLock) {
+            paused = false;
+            replayLock.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Move the replay to the provided time. Prefetched pages are discarded and the archive retrieval restarts from the
+     * provided time.
+     *
+     * @param time the new replay position (generation time)
+     */
+    public void seek(Instant time) {
+        if(time == null) {
+            throw new IllegalArgumentException("Seek time cannot be null");
+        }
+        synchronized (replayLock) {
+            seekTime = time;
+            replayEpoch++;
+            BlockingQueue<ReplayPage> queue = prefetchQueue;
+            if(queue != null) {
+                queue.clear();
+            }
+            replayLock.notifyAll();
+        }
+    }
+
+    /**
+     * Set the replay speed.
+     *
+     * @param speed the speed multiplier: 1.0 is real time, 0 or negative is as fast as possible
+     */
+    public void setReplaySpeed(double speed) {
+        synchronized (replayLock) {
+            replaySpeed = speed;
+            replayLock.notifyAll();
+        }
+    }
+
+    public double getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    /**
+     * Return the generation time of the last replayed packet.
+     *
+     * @return the current replay position, or null if no packet was replayed yet
+     */
+    public Instant getReplayPosition() {
+        return replayPosition;
+    }
+
+    private void prefetch(IRawDataArchive rawDataArch, Instant endTime, String spacecraftId) {
         RawDataFilter rdf = new RawDataFilter(true, null, null, Collections.singletonList(Constants.T_TM_PACKET), Collections.singletonList(spacecraftId), Collections.singletonList(Quality.GOOD));
+        long epoch = -1;
+        Instant from = null;
         RawData lastExtracted = null;
-        boolean errorDetected = false;
+        boolean completed = false;
         while(extracting) {
+            // Check for seek requests: if the epoch changed, restart from the requested time
+            synchronized (replayLock) {
+                if(epoch != replayEpoch) {
+                    epoch = replayEpoch;
+                    from = seekTime;
+                    lastExtracted = null;
+                    completed = false;
+                } else if(completed) {
+                    // Nothing else to read, wait for a seek request or for the end of the replay
+                    try {
+                        replayLock.wait(QUEUE_POLL_PERIOD);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            ReplayPage page;
             try {
-                List<RawData> extractedPackets = null;
+                List<RawData> extractedPackets;
                 if (lastExtracted == null) {
-                    extractedPackets = rawDataArch.retrieve(startTime, 1000, RetrievalDirection.TO_FUTURE, rdf);
+                    extractedPackets = rawDataArch.retrieve(from, PAGE_SIZE, RetrievalDirection.TO_FUTURE, rdf);
                 } else {
-                    extractedPackets = rawDataArch.retrieve(lastExtracted, 1000, RetrievalDirection.TO_FUTURE, rdf);
+                    extractedPackets = rawDataArch.retrieve(lastExtracted, PAGE_SIZE, RetrievalDirection.TO_FUTURE, rdf);
                 }
-                // Iterate and map packets
-                List<RawData> mappedPackets = new ArrayList<>(extractedPackets.size());
+                List<RawData> packets = new ArrayList<>(extractedPackets.size());
                 for (RawData pkt : extractedPackets) {
-                    if (!extracting) {
-                        break;
-                    }
                     if (pkt.getGenerationTime().isAfter(endTime)) {
                         // Need to stop
-                        extracting = false;
-                        break; // break the for loop
-                    } else {
-                        // Map packet
-                        mappedPackets.add(mapPacket(pkt));
-                        rxBytes += pkt.getContents().length;
+                        completed = true;
+                        break;
                     }
+                    packets.add(pkt);
                     lastExtracted = pkt;
                 }
-                // Distribute and eventually stop
-                if(!mappedPackets.isEmpty()) {
-                    broker.distribute(mappedPackets);
+                if(extractedPackets.size() < PAGE_SIZE) {
+                    // No more data in the archive
+                    completed = true;
                 }
+                page = new ReplayPage(epoch, packets, completed, false);
             } catch (ArchiveException e) {
                 LOG.log(Level.SEVERE, "Archive error when retrieving data for replay: " + e.getMessage(), e);
-                updateAlarmState(AlarmState.ALARM);
-                errorDetected = true;
-                extracting = false;
-            } catch (ReatmetricException e) {
-                LOG.log(Level.SEVERE, "Raw data broker error when distributing data for replay: " + e.getMessage(), e);
-                updateAlarmState(AlarmState.ALARM);
-                errorDetected = true;
-                extracting = false;
+                completed = true;
+                page = new ReplayPage(epoch, Collections.emptyList(), true, true);
+            }
+            // Enqueue the page, unless a seek request arrived in the meantime
+            try {
+                while(extracting && epoch == replayEpoch && !prefetchQueue.offer(page, QUEUE_POLL_PERIOD, TimeUnit.MILLISECONDS)) {
+                    // Retry
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void replay() {
+        boolean errorDetected = false;
+        long epoch = -1;
+        // Pacing anchors: data time and wall clock time of the first packet replayed after a (re)start of the pacing
+        Instant dataAnchor = null;
+        long wallAnchor = 0;
+        double anchorSpeed = 0;
+        List<RawData> toDistribute = new ArrayList<>(PAGE_SIZE);
+        try {
+            while(extracting) {
+                ReplayPage page;
+                try {
+                    page = prefetchQueue.poll(QUEUE_POLL_PERIOD, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if(page == null || page.getEpoch() != replayEpoch) {
+                    continue;
+                }
+                if(page.getEpoch() != epoch) {
+                    // First page after a seek: restart pacing
+                    epoch = page.getEpoch();
+                    dataAnchor = null;
+                }
+                List<RawData> packets = page.getPackets();
+                int i = 0;
+                while(i < packets.size() && extracting && epoch == replayEpoch) {
+                    if(paused) {
+                        distribute(toDistribute);
+                        awaitResume();
+                        dataAnchor = null;
+                        continue;
+                    }
+                    RawData pkt = packets.get(i);
+                    double speed = replaySpeed;
+                    if(speed > 0) {
+                        // Pace on the generation time: it is the time the packets are retrieved (and ordered) by
+                        Instant pacingTime = pkt.getGenerationTime();
+                        if(dataAnchor == null || speed != anchorSpeed) {
+                            dataAnchor = pacingTime;
+                            wallAnchor = System.currentTimeMillis();
+                            anchorSpeed = speed;
+                        }
+                        long targetTime = wallAnchor + (long) ((pacingTime.toEpochMilli() - dataAnchor.toEpochMilli()) / speed);
+                        long delay = targetTime - System.currentTimeMillis();
+                        if(delay > 0) {
+                            // Distribute what is due and wait: pause, seek and speed change requests wake up the thread
+                            distribute(toDistribute);
+                            awaitDelay(delay);
+                            continue;
+                        }
+                        replayLag = -delay;
+                    } else {
+                        replayLag = 0;
+                    }
+                    toDistribute.add(mapPacket(pkt));
+                    rxBytes += pkt.getContents().length;
+                    replayedPackets.increment();
+                    replayPosition = pkt.getGenerationTime();
+                    ++i;
+                }
+                distribute(toDistribute);
+                if(page.isLast() && epoch == replayEpoch) {
+                    // Replay completed
+                    errorDetected = page.isError();
+                    if(errorDetected) {
+                        updateAlarmState(AlarmState.ALARM);
+                    }
+                    break;
+                }
             }
+        } catch (ReatmetricException e) {
+            LOG.log(Level.SEVERE, "Raw data broker error when distributing data for replay: " + e.getMessage(), e);
+            updateAlarmState(AlarmState.ALARM);
+            errorDetected = true;
+        }
+        synchronized (replayLock) {
+            extracting = false;
+            replayLock.notifyAll();
         }
         updateConnectionStatus(TransportConnectionStatus.DISCONNECTING);
-        // Stop archive
+        // Wait for the prefetch thread, then stop archive
+        try {
+            Thread t = prefetchThread;
+            if(t != null) {
+                t.join(5000);
+            }
+        } catch (InterruptedException e) {
+            LOG.log(Level.WARNING, "Interrupted while waiting for replay prefetch thread termination");
+        }
         try {
-            arc.dispose();
+            externalArchive.dispose();
         } catch (ArchiveException e) {
             LOG.log(Level.SEVERE, "Archive error when disposing: " + e.getMessage(), e);
             errorDetected = true;
         }
+        prefetchQueue.clear();
         updateConnectionStatus(errorDetected ? TransportConnectionStatus.ERROR : TransportConnectionStatus.IDLE);
         if(!errorDetected) {
             updateAlarmState(AlarmState.NOT_APPLICABLE);
         }
     }
 
+    private void distribute(List<RawData> packets) throws ReatmetricException {
+        if(!packets.isEmpty()) {
+            broker.distribute(new ArrayList<>(packets));
+            packets.clear();
+        }
+    }
+
+    private void awaitResume() {
+        synchronized (replayLock) {
+            while(paused && extracting) {
+                try {
+                    replayLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void awaitDelay(long delay) {
+        synchronized (replayLock) {
+            try {
+                replayLock.wait(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private RawData mapPacket(RawData pkt) {
         RawData toReturn = new RawData(broker.nextRawDataId(), pkt.getGenerationTime(), pkt.getName(), pkt.getType(), pkt.getRoute(), pkt.getSource(), pkt.getQuality(), pkt.getRelatedItem(), pkt.getContents(), pkt.getReceptionTime(), driverName, pkt.getExtension());
         // Create also the packet object
@@ -215,15 +537,20 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
 
     @Override
     protected synchronized void doDisconnect() {
-        if(extracting) {
-            extracting = false;
-        }
+        stopExtraction();
     }
 
     @Override
     protected synchronized void doDispose() {
-        if(extracting) {
-            extracting = false;
+        stopExtraction();
+    }
+
+    private void stopExtraction() {
+        synchronized (replayLock) {
+            if(extracting) {
+                extracting = false;
+                replayLock.notifyAll();
+            }
         }
     }
 
@@ -238,4 +565,40 @@ public class TmPacketReplayConnector extends AbstractTransportConnector implemen
         this.broker = context.getRawDataBroker();
         this.spacecraftConfiguration = configuration;
     }
+
+    @Override
+    public List<DebugInformation> currentDebugInfo() {
+        return lastStats.get();
+    }
+
+    private static class ReplayPage {
+
+        private final long epoch;
+        private final List<RawData> packets;
+        private final boolean last;
+        private final boolean error;
+
+        public ReplayPage(long epoch, List<RawData> packets, boolean last, boolean error) {
+            this.epoch = epoch;
+            this.packets = packets;
+            this.last = last;
+            this.error = error;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public List<RawData> getPackets() {
+            return packets;
+        }
+
+        public boolean isLast() {
+            return last;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.driver.spacecraft.definition;
+
+/**
+ * This enumeration is used to select the property of a TM packet/VC unit, which identifies the stream whose processing
+ * order must be preserved during decoding. Items belonging to different streams are decoded in parallel.
+ */
+public enum DecodingOrderingKey {
+    /**
+     * Order is preserved for space packets with the same APID. VC units are ordered by virtual channel.
+     */
+    APID,
+    /**
+     * Order is preserved for space packets and VC units with the same virtual channel.
+     */
+    VC
+}
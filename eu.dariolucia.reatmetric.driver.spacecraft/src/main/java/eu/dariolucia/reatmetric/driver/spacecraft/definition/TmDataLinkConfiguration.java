@@ -46,6 +46,14 @@ public class TmDataLinkConfiguration {
     @XmlAttribute(name = "frame-length")
     private int frameLength = -1;
 
+    /**
+     * Time window in milliseconds, during which extracted space packets and VCA units are accumulated before being
+     * distributed as a single batch. If 0 (default), the data extracted from each batch of received frames is
+     * distributed as soon as the batch is processed.
+     */
+    @XmlAttribute(name = "distribution-window")
+    private int distributionWindow = 0;
+
     public List<TmVcConfiguration> getTmVcConfigurations() {
         return tmVcConfigurations;
     }
@@ -109,4 +117,12 @@ public class TmDataLinkConfiguration {
     public int getFrameLength() {
         return frameLength;
     }
+
+    public int getDistributionWindow() {
+        return distributionWindow;
+    }
+
+    public void setDistributionWindow(int distributionWindow) {
+        this.distributionWindow = distributionWindow;
+    }
 }
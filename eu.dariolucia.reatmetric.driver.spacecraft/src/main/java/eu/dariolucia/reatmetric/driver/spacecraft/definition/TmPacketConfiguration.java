@@ -28,6 +28,16 @@ public class TmPacketConfiguration {
     @XmlAttribute(name = "parameter-id-offset")
     private int parameterIdOffset = 0;
 
+    /**
+     * Number of threads used to decode TM packets and VC units. If 0 or negative (default), the number of available
+     * processors is used.
+     */
+    @XmlAttribute(name = "decoding-threads")
+    private int decodingThreads = 0;
+
+    @XmlAttribute(name = "decoding-ordering-key")
+    private DecodingOrderingKey decodingOrderingKey = DecodingOrderingKey.APID;
+
     @XmlElement(name = "default-pus-configuration")
     private TmPusConfiguration defaultTmPusConfiguration;
 
@@ -46,6 +56,22 @@ public class TmPacketConfiguration {
         this.parameterIdOffset = parameterIdOffset;
     }
 
+    public int getDecodingThreads() {
+        return decodingThreads;
+    }
+
+    public void setDecodingThreads(int decodingThreads) {
+        this.decodingThreads = decodingThreads;
+    }
+
+    public DecodingOrderingKey getDecodingOrderingKey() {
+        return decodingOrderingKey;
+    }
+
+    public void setDecodingOrderingKey(DecodingOrderingKey decodingOrderingKey) {
+        this.decodingOrderingKey = decodingOrderingKey;
+    }
+
     public TmPusConfiguration getDefaultTmPusConfiguration() {
         return defaultTmPusConfiguration;
     }
@@ -48,7 +48,9 @@ import eu.dariolucia.reatmetric.driver.spacecraft.util.BoundedExecutorService;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,6 +71,7 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
         }
     };
     private static final int MAX_INPUT_QUEUE_SIZE = 5000;
+    private static final int MAX_DECODING_QUEUE_SIZE = 1000;
 
     private final String spacecraft;
     private final Instant epoch;
@@ -83,26 +86,33 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
     private final Timer performanceSampler = new Timer("TM Packet Processor - Sampler", true);
     private final AtomicReference<List<DebugInformation>> lastStats = new AtomicReference<>(Arrays.asList(
             DebugInformation.of("TM Packet Processor", "Input queue", 0, MAX_INPUT_QUEUE_SIZE, ""),
+            DebugInformation.of("TM Packet Processor", "Decoding queue", 0, null, ""),
+            DebugInformation.of("TM Packet Processor", "Notification queue", 0, MAX_INPUT_QUEUE_SIZE, ""),
             DebugInformation.of("TM Packet Processor", "Input packets", 0, null, "packets/second"),
+            DebugInformation.of("TM Packet Processor", "Decoding latency", 0, null, "microseconds"),
             DebugInformation.of("TM Packet Processor", "Output parameters", 0, null, "parameters/second")
     ));
     private Instant lastSampleGenerationTime;
-    private long packetInput = 0;
-    private long parameterOutput = 0;
+    private final LongAdder packetInput = new LongAdder();
+    private final LongAdder parameterOutput = new LongAdder();
+    private final LongAdder decodedItems = new LongAdder();
+    private final LongAdder decodingTime = new LongAdder();
+    private final AtomicInteger pendingDecoding = new AtomicInteger(0);
 
     private final BlockingQueue<RawData> incomingPacketsQueue = new ArrayBlockingQueue<>(MAX_INPUT_QUEUE_SIZE);
+    private final BlockingQueue<ItemDecodingResult> decodedItemsQueue = new ArrayBlockingQueue<>(MAX_INPUT_QUEUE_SIZE);
 
     private final ExecutorService dispatcherService = new BoundedExecutorService(1, 1000, (r) -> {
         Thread t = new Thread(r, "TM Packet Processing - Dispatcher");
         t.setDaemon(true);
         return t;
     });
-    private final ExecutorService decoderService = new BoundedExecutorService(2, 1000, (r) -> {
-        Thread t = new Thread(r, "TM Packet Processing - Decoder");
-        t.setDaemon(true);
-        return t;
-    });
-    private final ExecutorService notifierService = new BoundedExecutorService(1, 1000, (r) -> {
+    /**
+     * Each decoder service has a single thread: items that must be processed in order (same ordering key) are always
+     * decoded by the same service.
+     */
+    private final ExecutorService[] decoderServices;
+    private final ExecutorService notifierService = new BoundedExecutorService(1, 1, (r) -> {
         Thread t = new Thread(r, "TM Packet Processing - Notifier");
         t.setDaemon(true);
         return t;
@@ -119,6 +129,16 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
         this.timeCorrelation = Objects.requireNonNullElse(timeCorrelationService, IDENTITY_TIME_CORRELATION);
         this.serviceBroker = serviceBroker;
         this.processedVCs = new boolean[64];
+        int decodingThreads = this.configuration.getDecodingThreads() > 0 ? this.configuration.getDecodingThreads() : Runtime.getRuntime().availableProcessors();
+        this.decoderServices = new ExecutorService[decodingThreads];
+        for(int i = 0; i < decodingThreads; ++i) {
+            String threadName = "TM Packet Processing - Decoder " + i;
+            this.decoderServices[i] = new BoundedExecutorService(1, MAX_DECODING_QUEUE_SIZE, (r) -> {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            });
+        }
         if(this.configuration.getProcessVcs() == null) {
             // No limits, process all
             Arrays.fill(this.processedVCs, true);
@@ -138,35 +158,37 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
     }
 
     private void sample() {
-        synchronized (performanceSampler) {
-            Instant genTime = Instant.now();
-            if (lastSampleGenerationTime == null) {
-                lastSampleGenerationTime = genTime;
-                packetInput = 0;
-                parameterOutput = 0;
-            } else {
-                long packetInputCurr = packetInput;
-                packetInput = 0;
-                long paramOutputCurr = parameterOutput;
-                parameterOutput = 0;
-                int millis = (int) (genTime.toEpochMilli() - lastSampleGenerationTime.toEpochMilli());
-                lastSampleGenerationTime = genTime;
-                double pktPerSecond = (packetInputCurr / (millis/1000.0));
-                double paramsPerSecond = (paramOutputCurr / (millis/1000.0));
-
-                List<DebugInformation> toSet = Arrays.asList(
-                        DebugInformation.of("TM Packet Processor", "Input queue", incomingPacketsQueue.size(), MAX_INPUT_QUEUE_SIZE, ""),
-                        DebugInformation.of("TM Packet Processor", "Input packets", (int) pktPerSecond, null, "packets/second"),
-                        DebugInformation.of("TM Packet Processor", "Output parameters", (int) paramsPerSecond, null, "parameters/second")
-                );
-                lastStats.set(toSet);
-            }
+        // Only called by the sampler timer thread
+        Instant genTime = Instant.now();
+        long packetInputCurr = packetInput.sumThenReset();
+        long paramOutputCurr = parameterOutput.sumThenReset();
+        long decodedItemsCurr = decodedItems.sumThenReset();
+        long decodingTimeCurr = decodingTime.sumThenReset();
+        if (lastSampleGenerationTime == null) {
+            lastSampleGenerationTime = genTime;
+        } else {
+            int millis = (int) (genTime.toEpochMilli() - lastSampleGenerationTime.toEpochMilli());
+            lastSampleGenerationTime = genTime;
+            double pktPerSecond = (packetInputCurr / (millis/1000.0));
+            double paramsPerSecond = (paramOutputCurr / (millis/1000.0));
+            long avgDecodingMicros = decodedItemsCurr == 0 ? 0 : (decodingTimeCurr / decodedItemsCurr) / 1000;
+
+            List<DebugInformation> toSet = Arrays.asList(
+                    DebugInformation.of("TM Packet Processor", "Input queue", incomingPacketsQueue.size(), MAX_INPUT_QUEUE_SIZE, ""),
+                    DebugInformation.of("TM Packet Processor", "Decoding queue", pendingDecoding.get(), MAX_DECODING_QUEUE_SIZE * decoderServices.length, ""),
+                    DebugInformation.of("TM Packet Processor", "Notification queue", decodedItemsQueue.size(), MAX_INPUT_QUEUE_SIZE, ""),
+                    DebugInformation.of("TM Packet Processor", "Input packets", (int) pktPerSecond, null, "packets/second"),
+                    DebugInformation.of("TM Packet Processor", "Decoding latency", (int) avgDecodingMicros, null, "microseconds"),
+                    DebugInformation.of("TM Packet Processor", "Output parameters", (int) paramsPerSecond, null, "parameters/second")
+            );
+            lastStats.set(toSet);
         }
     }
 
     public void initialise() {
         subscribeToBroker();
         dispatcherService.execute(this::dispatcherThreadMain);
+        notifierService.execute(this::notifierThreadMain);
     }
 
     private void subscribeToBroker() {
@@ -204,9 +226,7 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
     @Override
     public void dataItemsReceived(List<RawData> messages) {
         // Add performance indicator
-        synchronized (performanceSampler) {
-            packetInput += messages.size();
-        }
+        packetInput.add(messages.size());
         synchronized (incomingPacketsQueue) {
             while(incomingPacketsQueue.size() + messages.size() > MAX_INPUT_QUEUE_SIZE) { // It would block
                 try {
@@ -246,26 +266,92 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
     }
 
     private void processItems(List<RawData> itemsToProcess) {
-        List<Future<ItemDecodingResult>> results = new ArrayList<>(itemsToProcess.size());
         for(RawData rd : itemsToProcess) {
-            if(rd.getType().equals(Constants.T_TM_PACKET)) {
-                results.add(decoderService.submit(() -> processSpacePacket(rd)));
-            } else if(rd.getType().equals(Constants.T_TM_VCA)) {
-                results.add(decoderService.submit(() -> processVca(rd)));
+            if(!rd.getType().equals(Constants.T_TM_PACKET) && !rd.getType().equals(Constants.T_TM_VCA)) {
+                continue;
+            }
+            // Items with the same ordering key go to the same decoder, so that their processing order is preserved
+            ExecutorService decoder = decoderServices[selectDecoder(rd)];
+            if(decoder.isShutdown()) {
+                return;
+            }
+            pendingDecoding.incrementAndGet();
+            decoder.execute(() -> decodeItem(rd));
+        }
+    }
+
+    private int selectDecoder(RawData rd) {
+        int key = 0;
+        Object data = rd.getData();
+        if(configuration.getDecodingOrderingKey() == DecodingOrderingKey.APID && data instanceof SpacePacket) {
+            key = ((SpacePacket) data).getApid();
+        } else {
+            Integer vcId = extractVcIdInformation(rd);
+            if(vcId != null) {
+                key = vcId;
+            }
+        }
+        return Math.floorMod(key, decoderServices.length);
+    }
+
+    private void decodeItem(RawData rd) {
+        long start = System.nanoTime();
+        ItemDecodingResult result = null;
+        try {
+            if (rd.getType().equals(Constants.T_TM_PACKET)) {
+                result = processSpacePacket(rd);
+            } else {
+                result = processVca(rd);
             }
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "TM Packet Processor decoder service exception while decoding " + rd.getName() + " from route " + rd.getRoute() + ": " + e.getMessage(), e);
+        } finally {
+            // Add performance indicators: always done, so that the pending decoding counter does not drift
+            decodingTime.add(System.nanoTime() - start);
+            decodedItems.increment();
+            pendingDecoding.decrementAndGet();
         }
-        for(Future<ItemDecodingResult> fpdt : results) {
-            ItemDecodingResult pdt = null;
+        if(result != null) {
             try {
-                pdt = fpdt.get();
+                decodedItemsQueue.put(result);
             } catch (InterruptedException e) {
-                LOG.log(Level.WARNING, "TM Packet Processor dispatcher service interrupted while waiting for result");
+                LOG.log(Level.WARNING, "TM Packet Processor decoder service interrupted while forwarding result");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void notifierThreadMain() {
+        List<ItemDecodingResult> results = new ArrayList<>(MAX_INPUT_QUEUE_SIZE);
+        while(!notifierService.isShutdown()) {
+            results.clear();
+            try {
+                results.add(decodedItemsQueue.take());
+            } catch (InterruptedException e) {
+                // If interrupted, it is time to go
+                LOG.log(Level.WARNING, "TM Packet Processor notifier service interrupted while waiting for results");
                 return;
-            } catch (ExecutionException e) {
-                LOG.log(Level.SEVERE, "TM Packet Processor dispatcher service exception while decoding packet", e);
             }
-            if(pdt != null) {
-                notifySpacePacketResults(pdt.getRawData(), pdt.getItem(), pdt.getPusHeader(), pdt.getResult());
+            decodedItemsQueue.drainTo(results);
+            notifyResults(results);
+        }
+    }
+
+    private void notifyResults(List<ItemDecodingResult> results) {
+        // Forward to processing model, coalescing the parameters of all the available results in a single injection, and ...
+        // Service notifications are anyway asynchronous (see ServiceBroker), therefore services could already observe the
+        // parameters of following packets: the order of the notifications and of the injected parameters is preserved.
+        try {
+            forwardParameterResults(results);
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "TM Packet Processor notifier service exception while injecting parameters", e);
+        }
+        // ... notify all services about the new TM packets/VC units
+        for(ItemDecodingResult pdt : results) {
+            try {
+                notifyExtensionServices(pdt.getRawData(), pdt.getItem(), pdt.getPusHeader(), pdt.getResult());
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "TM Packet Processor notifier service exception while notifying packet " + pdt.getRawData().getName() + " to services", e);
             }
         }
     }
@@ -333,19 +419,6 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
         }
     }
 
-    private void notifySpacePacketResults(RawData rd, AnnotatedObject item, TmPusHeader pusHeader, DecodingResult result) {
-        if(!notifierService.isShutdown()) {
-            notifierService.execute(() -> {
-                // Forward to processing model and ...
-                if (result != null) {
-                    forwardParameterResult(rd, result.getDecodedParameters());
-                }
-                // ... notify all services about the new TM packet/VC unit
-                notifyExtensionServices(rd, item, pusHeader, result);
-            });
-        }
-    }
-
     private void notifyExtensionServices(RawData rd, AnnotatedObject unit, TmPusHeader pusHeader, DecodingResult result) {
         if(unit instanceof SpacePacket) {
             this.serviceBroker.distributeTmPacket(rd, (SpacePacket) unit, pusHeader, result);
@@ -354,15 +427,20 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
         }
     }
 
-    private void forwardParameterResult(RawData packet, List<ParameterValue> decodedParameters) {
-        // Add performance indicator
-        synchronized (performanceSampler) {
-            parameterOutput += decodedParameters.size();
+    private void forwardParameterResults(List<ItemDecodingResult> results) {
+        List<ParameterSample> samples = new ArrayList<>();
+        for(ItemDecodingResult pdt : results) {
+            if(pdt.getResult() != null) {
+                for (ParameterValue pv : pdt.getResult().getDecodedParameters()) {
+                    samples.add(mapSample(pdt.getRawData(), pv));
+                }
+            }
         }
-        List<ParameterSample> samples = new ArrayList<>(decodedParameters.size());
-        for(ParameterValue pv : decodedParameters) {
-            samples.add(mapSample(packet, pv));
+        if(samples.isEmpty()) {
+            return;
         }
+        // Add performance indicator
+        parameterOutput.add(samples.size());
         // Inject
         processingModel.injectParameters(samples);
     }
@@ -434,7 +512,9 @@ public class TmPacketProcessor implements IRawDataSubscriber, IDebugInfoProvider
         this.broker.unsubscribe(this);
         this.performanceSampler.cancel();
         this.dispatcherService.shutdownNow();
-        this.decoderService.shutdownNow();
+        for(ExecutorService decoderService : this.decoderServices) {
+            decoderService.shutdownNow();
+        }
         this.notifierService.shutdownNow();
     }
 
@@ -24,6 +24,7 @@ import eu.dariolucia.reatmetric.driver.spacecraft.definition.SpacecraftConfigura
 import eu.dariolucia.reatmetric.driver.spacecraft.services.ISecurityHandler;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServiceBroker;
 
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -64,6 +65,24 @@ public class DataLinkSecurityManager {
         return securityHandler == null ? frame : withAnnotations(frame, securityHandler.decrypt(frame));
     }
 
+    public List<AbstractTransferFrame> encrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        return securityHandler == null ? frames : withAnnotations(frames, securityHandler.encrypt(frames));
+    }
+
+    public List<AbstractTransferFrame> decrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        return securityHandler == null ? frames : withAnnotations(frames, securityHandler.decrypt(frames));
+    }
+
+    private List<AbstractTransferFrame> withAnnotations(List<AbstractTransferFrame> originalFrames, List<AbstractTransferFrame> newFrames) throws ReatmetricException {
+        if(originalFrames.size() != newFrames.size()) {
+            throw new ReatmetricException("Security handler returned " + newFrames.size() + " frames, expected " + originalFrames.size());
+        }
+        for(int i = 0; i < originalFrames.size(); ++i) {
+            withAnnotations(originalFrames.get(i), newFrames.get(i));
+        }
+        return newFrames;
+    }
+
     private AbstractTransferFrame withAnnotations(AbstractTransferFrame originalFrame, AbstractTransferFrame newFrame) {
         if (originalFrame != newFrame) {
             for (Object annotationKey : originalFrame.getAnnotationKeys()) {
@@ -14,7 +14,6 @@
  * limitations under the License.
  *
  */
-
 package eu.dariolucia.reatmetric.driver.spacecraft.security.impl;
 
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
@@ -25,7 +24,10 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.spec.KeySpec;
+import java.util.Objects;
 
 public class CryptoUtil {
     private static final int AES_KEY_LENGTH = 256;
@@ -36,14 +38,8 @@ public class CryptoUtil {
 
     public static byte[] aesEncrypt(byte[] data, int offset, int length, String key, byte[] iv, byte[] salt) throws ReatmetricException {
         try {
-            IvParameterSpec ivspec = new IvParameterSpec(iv);
-            SecretKeyFactory factory = SecretKeyFactory.getInstance(AES_SECRET_KEY_FACTORY);
-            KeySpec spec = new PBEKeySpec(key.toCharArray(), salt, AES_ITERATION_COUNT, AES_KEY_LENGTH);
-            SecretKey tmp = factory.generateSecret(spec);
-            SecretKeySpec secretKeySpec = new SecretKeySpec(tmp.getEncoded(), AES_ALGORITHM);
-
             Cipher cipher = Cipher.getInstance(AES_CHIPER);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, ivspec);
+            cipher.init(Cipher.ENCRYPT_MODE, deriveAesKey(key, salt), new IvParameterSpec(iv));
             return cipher.doFinal(data, offset, length);
         } catch (Exception e) {
             throw new ReatmetricException(e);
@@ -52,16 +48,71 @@ public class CryptoUtil {
 
     public static byte[] aesDecrypt(byte[] data, int offset, int length, String key, byte[] iv, byte[] salt) throws ReatmetricException {
         try {
-            IvParameterSpec ivspec = new IvParameterSpec(iv);
+            Cipher cipher = Cipher.getInstance(AES_CHIPER);
+            cipher.init(Cipher.DECRYPT_MODE, deriveAesKey(key, salt), new IvParameterSpec(iv));
+            return cipher.doFinal(data, offset, length);
+        } catch (Exception e) {
+            throw new ReatmetricException(e);
+        }
+    }
+
+    /**
+     * Derive the AES-256 key for the provided password and salt. The PBKDF2 derivation is by far the most expensive
+     * step of the encryption: callers processing many data units with the same password are expected to derive the key
+     * once and keep it.
+     *
+     * @param key the password
+     * @param salt the salt
+     * @return the derived key
+     * @throws ReatmetricException if the key cannot be derived
+     */
+    public static SecretKey deriveAesKey(String key, byte[] salt) throws ReatmetricException {
+        Objects.requireNonNull(key, "AES password cannot be null");
+        try {
             SecretKeyFactory factory = SecretKeyFactory.getInstance(AES_SECRET_KEY_FACTORY);
             KeySpec spec = new PBEKeySpec(key.toCharArray(), salt, AES_ITERATION_COUNT, AES_KEY_LENGTH);
             SecretKey tmp = factory.generateSecret(spec);
-            SecretKeySpec secretKeySpec = new SecretKeySpec(tmp.getEncoded(), AES_ALGORITHM);
+            return new SecretKeySpec(tmp.getEncoded(), AES_ALGORITHM);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new ReatmetricException(e);
+        }
+    }
 
-            Cipher cipher = Cipher.getInstance(AES_CHIPER);
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, ivspec);
-            return cipher.doFinal(data, offset, length);
-        } catch (Exception e) {
+    /**
+     * Create a new AES cipher instance, in the mode used by this class. Cipher instances are not thread-safe: callers
+     * are expected to confine the returned object to a single thread and reuse it across invocations.
+     *
+     * @return a new, uninitialised cipher
+     * @throws ReatmetricException if the cipher cannot be created
+     */
+    public static Cipher createAesCipher() throws ReatmetricException {
+        try {
+            return Cipher.getInstance(AES_CHIPER);
+        } catch (GeneralSecurityException e) {
+            throw new ReatmetricException(e);
+        }
+    }
+
+    /**
+     * Encrypt or decrypt in place the remaining bytes of the provided buffer, using the provided cipher, which is
+     * re-initialised with the given key and IV. In CTR mode, the output has the same length as the input, so the
+     * buffer contents are simply replaced. The position of the buffer is moved to its limit.
+     *
+     * @param cipher the (thread-confined) cipher to use
+     * @param mode {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param key the AES key
+     * @param iv the array containing the IV
+     * @param ivOffset the offset of the IV in the array
+     * @param slice the data to process
+     * @throws ReatmetricException in case of cryptographic errors
+     */
+    public static void aesInPlace(Cipher cipher, int mode, SecretKey key, byte[] iv, int ivOffset, ByteBuffer slice) throws ReatmetricException {
+        try {
+            cipher.init(mode, key, new IvParameterSpec(iv, ivOffset, 16));
+            // The JCE implementation is copy-safe when input and output share the same backing array
+            ByteBuffer output = slice.duplicate();
+            cipher.doFinal(slice, output);
+        } catch (GeneralSecurityException e) {
             throw new ReatmetricException(e);
         }
     }
@@ -20,6 +20,9 @@ package eu.dariolucia.reatmetric.driver.spacecraft.services;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This interface specifies the methods that an external class must implement, to provide encryption/decryption capabilities
  * to ReatMetric's spacecraft driver.
@@ -64,4 +67,37 @@ public interface ISecurityHandler extends IService {
      */
     AbstractTransferFrame decrypt(AbstractTransferFrame frame) throws ReatmetricException;
 
+    /**
+     * This method is called to request the encryption of a batch of frames. The default implementation calls
+     * {@link #encrypt(AbstractTransferFrame)} for each frame: implementations can override it to amortise per-call
+     * setup costs.
+     *
+     * @param frames the original, unencrypted frames
+     * @return the encrypted frames, in the same order of the provided list
+     * @throws ReatmetricException in case of issues during the encryption process of any frame
+     */
+    default List<AbstractTransferFrame> encrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        List<AbstractTransferFrame> toReturn = new ArrayList<>(frames.size());
+        for(AbstractTransferFrame frame : frames) {
+            toReturn.add(encrypt(frame));
+        }
+        return toReturn;
+    }
+
+    /**
+     * This method is called to request the decryption of a batch of frames. The default implementation calls
+     * {@link #decrypt(AbstractTransferFrame)} for each frame: implementations can override it to amortise per-call
+     * setup costs.
+     *
+     * @param frames the original, encrypted frames
+     * @return the decrypted frames, in the same order of the provided list
+     * @throws ReatmetricException in case of issues during the decryption process of any frame
+     */
+    default List<AbstractTransferFrame> decrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        List<AbstractTransferFrame> toReturn = new ArrayList<>(frames.size());
+        for(AbstractTransferFrame frame : frames) {
+            toReturn.add(decrypt(frame));
+        }
+        return toReturn;
+    }
 }
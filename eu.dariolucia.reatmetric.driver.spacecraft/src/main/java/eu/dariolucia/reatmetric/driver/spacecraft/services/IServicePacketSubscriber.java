@@ -32,4 +32,15 @@ public interface IServicePacketSubscriber {
     void onTmVcUnit(RawData packetRawData, VirtualChannelUnit unit, DecodingResult decoded);
 
     void onTcUpdate(TcPhase phase, Instant phaseTime, AbstractTcTracker tcTracker);
+
+    /**
+     * Subscribers that do not depend on the notification order with respect to other subscribers can return true,
+     * to be notified in parallel to the other subscribers. Notifications to the same subscriber are always delivered in
+     * order.
+     *
+     * @return true if the subscriber can be notified in parallel to other subscribers, default is false
+     */
+    default boolean isParallelNotificationAllowed() {
+        return false;
+    }
 }
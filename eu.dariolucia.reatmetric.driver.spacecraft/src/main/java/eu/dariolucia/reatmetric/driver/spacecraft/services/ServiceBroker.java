@@ -19,24 +19,34 @@ package eu.dariolucia.reatmetric.driver.spacecraft.services;
 import eu.dariolucia.ccsds.encdec.pus.TmPusHeader;
 import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
 import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
+import eu.dariolucia.ccsds.tmtc.util.AnnotatedObject;
 import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.rawdata.RawData;
 import eu.dariolucia.reatmetric.driver.spacecraft.activity.AbstractTcTracker;
 import eu.dariolucia.reatmetric.driver.spacecraft.common.VirtualChannelUnit;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+/**
+ * The service broker dispatches TM packets, TM VC units and TC updates to the registered subscribers.
+ *
+ * Subscribers registered with a {@link ServicePacketFilter} are indexed in a dispatch table by raw data type, PUS type,
+ * PUS subtype and APID, so that only the subscribers whose declared selectors match an item are evaluated. The table is
+ * rebuilt, only for the affected raw data types, when subscribers register or deregister. Subscribers registered with a generic
+ * {@link IServicePacketFilter} are kept in a fallback list and evaluated for every item.
+ *
+ * Subscribers are notified by the distributor thread, in order, unless they allow parallel notification (see
+ * {@link IServicePacketSubscriber#isParallelNotificationAllowed()}): in such case, each subscriber is notified by its
+ * own thread, preserving the order of the notifications for that subscriber.
+ */
 public class ServiceBroker implements IServiceBroker {
 
     private static final Logger LOG = Logger.getLogger(ServiceBroker.class.getName());
@@ -47,21 +57,73 @@ public class ServiceBroker implements IServiceBroker {
        return t;
     });
 
-    private final List<Pair<IServicePacketSubscriber, IServicePacketFilter>> subscribers = new CopyOnWriteArrayList<>();
+    // Guarded by this
+    private final List<Subscription> indexedSubscriptions = new ArrayList<>();
+    private final List<Subscription> predicateSubscriptions = new CopyOnWriteArrayList<>();
+    private volatile Map<String, DispatchTable> dispatchTable = Collections.emptyMap();
+
     private final Map<Integer, IService> serviceMap = new HashMap<>();
     private final Map<Class<?>, Object> serviceLocator = new HashMap<>();
 
     @Override
-    public void register(IServicePacketSubscriber subscriber, IServicePacketFilter predicateFilter) {
+    public synchronized void register(IServicePacketSubscriber subscriber, IServicePacketFilter predicateFilter) {
         if(predicateFilter != null) {
-            this.subscribers.add(Pair.of(subscriber, predicateFilter));
+            Subscription subscription = new Subscription(subscriber, predicateFilter);
+            if(predicateFilter instanceof ServicePacketFilter) {
+                indexedSubscriptions.add(subscription);
+                rebuildDispatchTable(subscription.getRawDataTypes());
+            } else {
+                predicateSubscriptions.add(subscription);
+            }
         }
     }
 
     @Override
-    public void deregister(IServicePacketSubscriber subscriber) {
-        List<Pair<IServicePacketSubscriber, IServicePacketFilter>> itemsToRemove = subscribers.stream().filter(o -> o.getFirst() == subscriber).collect(Collectors.toList());
-        subscribers.removeAll(itemsToRemove);
+    public synchronized void deregister(IServicePacketSubscriber subscriber) {
+        Set<String> affectedTypes = new HashSet<>();
+        for(Iterator<Subscription> it = indexedSubscriptions.iterator(); it.hasNext(); ) {
+            Subscription s = it.next();
+            if(s.getSubscriber() == subscriber) {
+                it.remove();
+                affectedTypes.addAll(s.getRawDataTypes());
+                s.dispose();
+            }
+        }
+        if(!affectedTypes.isEmpty()) {
+            rebuildDispatchTable(affectedTypes);
+        }
+        for(Subscription s : predicateSubscriptions) {
+            if(s.getSubscriber() == subscriber) {
+                predicateSubscriptions.remove(s);
+                s.dispose();
+            }
+        }
+    }
+
+    private void rebuildDispatchTable(Set<String> rawDataTypes) {
+        Map<String, DispatchTable> newTable = new HashMap<>(dispatchTable);
+        for(String rawDataType : rawDataTypes) {
+            DispatchTable table = DispatchTable.build(rawDataType, indexedSubscriptions);
+            if(table == null) {
+                newTable.remove(rawDataType);
+            } else {
+                newTable.put(rawDataType, table);
+            }
+        }
+        dispatchTable = newTable;
+    }
+
+    private void dispatch(RawData rd, AnnotatedObject item, Integer pusType, Integer pusSubType, Integer destinationId, Integer sourceId, Consumer<IServicePacketSubscriber> notification) {
+        DispatchTable table = dispatchTable.get(rd.getType());
+        if(table != null) {
+            Integer apid = item instanceof SpacePacket ? Integer.valueOf(((SpacePacket) item).getApid()) : null;
+            for (Subscription s : table.lookup(pusType, pusSubType, apid)) {
+                s.notify(rd, item, pusType, pusSubType, destinationId, sourceId, notification);
+            }
+        }
+        for(Subscription s : predicateSubscriptions) {
+            s.notify(rd, item, pusType, pusSubType, destinationId, sourceId, notification);
+        }
     }
 
     @Override
@@ -71,54 +133,36 @@ public class ServiceBroker implements IServiceBroker {
         final Integer destinationId = tmPusHeader != null ? tmPusHeader.getDestinationId() : null;
         final Integer sourceId = null;
 
-        itemDistributor.execute(() -> {
-            for(Pair<IServicePacketSubscriber, IServicePacketFilter> s : subscribers) {
-                try {
-                    if(s.getSecond().filter(packetRawData, spacePacket, pusType, pusSubType, destinationId, sourceId)) {
-                        s.getFirst().onTmPacket(packetRawData, spacePacket, tmPusHeader, decoded);
-                    }
-                } catch (Exception e) {
-                    LOG.log(Level.SEVERE, "Cannot notify packet service subscriber " + subscribers + ": " + e.getMessage(), e);
-                }
-            }
-        });
+        itemDistributor.execute(() -> dispatch(packetRawData, spacePacket, pusType, pusSubType, destinationId, sourceId,
+                o -> o.onTmPacket(packetRawData, spacePacket, tmPusHeader, decoded)));
     }
 
     @Override
     public void distributeTmVcUnit(RawData rawData, VirtualChannelUnit vcUnit, DecodingResult decoded) {
-        itemDistributor.execute(() -> {
-            for(Pair<IServicePacketSubscriber, IServicePacketFilter> s : subscribers) {
-                try {
-                    if(s.getSecond().filter(rawData, vcUnit, null, null, null, null)) {
-                        s.getFirst().onTmVcUnit(rawData, vcUnit, decoded);
-                    }
-                } catch (Exception e) {
-                    LOG.log(Level.SEVERE, "Cannot notify packet service subscriber " + subscribers + ": " + e.getMessage(), e);
-                }
-            }
-        });
+        itemDistributor.execute(() -> dispatch(rawData, vcUnit, null, null, null, null,
+                o -> o.onTmVcUnit(rawData, vcUnit, decoded)));
     }
 
     public void dispose() {
         itemDistributor.shutdownNow();
-        subscribers.clear();
+        synchronized (this) {
+            indexedSubscriptions.forEach(Subscription::dispose);
+            indexedSubscriptions.clear();
+            dispatchTable = Collections.emptyMap();
+            predicateSubscriptions.forEach(Subscription::dispose);
+            predicateSubscriptions.clear();
+        }
         serviceMap.values().forEach(IService::dispose);
         serviceMap.clear();
     }
 
     @Override
     public void informTc(TcPhase phase, Instant phaseTime, AbstractTcTracker trackerBean) {
-        itemDistributor.execute(() -> {
-            for(Pair<IServicePacketSubscriber, IServicePacketFilter> s : subscribers) {
-                try {
-                    if(s.getSecond().filter(trackerBean.getRawData(), trackerBean.getObject(), trackerBean.getInfo().getPusHeader() != null ? Integer.valueOf(trackerBean.getInfo().getPusHeader().getServiceType()) : null,  trackerBean.getInfo().getPusHeader() != null ? Integer.valueOf(trackerBean.getInfo().getPusHeader().getServiceSubType()) : null, null, trackerBean.getInfo().getPusHeader() != null ? trackerBean.getInfo().getPusHeader().getSourceId() : null)) {
-                        s.getFirst().onTcUpdate(phase, phaseTime, trackerBean);
-                    }
-                } catch (Exception e) {
-                    LOG.log(Level.SEVERE, "Cannot notify packet service subscriber " + s + ": " + e.getMessage(), e);
-                }
-            }
-        });
+        final Integer pusType = trackerBean.getInfo().getPusHeader() != null ? Integer.valueOf(trackerBean.getInfo().getPusHeader().getServiceType()) : null;
+        final Integer pusSubType = trackerBean.getInfo().getPusHeader() != null ? Integer.valueOf(trackerBean.getInfo().getPusHeader().getServiceSubType()) : null;
+        final Integer sourceId = trackerBean.getInfo().getPusHeader() != null ? trackerBean.getInfo().getPusHeader().getSourceId() : null;
+        itemDistributor.execute(() -> dispatch(trackerBean.getRawData(), trackerBean.getObject(), pusType, pusSubType, null, sourceId,
+                o -> o.onTcUpdate(phase, phaseTime, trackerBean)));
     }
 
     @Override
@@ -161,4 +205,154 @@ public class ServiceBroker implements IServiceBroker {
     public void finaliseServiceLoading() {
         serviceMap.values().forEach(IService::finaliseServiceLoading);
     }
+
+    private static class Subscription {
+
+        private final IServicePacketSubscriber subscriber;
+        private final IServicePacketFilter filter;
+        private final ExecutorService notifier;
+
+        public Subscription(IServicePacketSubscriber subscriber, IServicePacketFilter filter) {
+            this.subscriber = subscriber;
+            this.filter = filter;
+            if(subscriber.isParallelNotificationAllowed()) {
+                this.notifier = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "Service Broker Notifier - " + subscriber);
+                    t.setDaemon(true);
+                    return t;
+                });
+            } else {
+                this.notifier = null;
+            }
+        }
+
+        public IServicePacketSubscriber getSubscriber() {
+            return subscriber;
+        }
+
+        public Set<String> getRawDataTypes() {
+            Set<String> toReturn = new HashSet<>();
+            if(filter instanceof ServicePacketFilter) {
+                for(ServicePacketFilter.Selector sel : ((ServicePacketFilter) filter).getSelectors()) {
+                    toReturn.add(sel.getRawDataType());
+                }
+            }
+            return toReturn;
+        }
+
+        public ServicePacketFilter getIndexedFilter() {
+            return (ServicePacketFilter) filter;
+        }
+
+        public void notify(RawData rd, AnnotatedObject item, Integer pusType, Integer pusSubType, Integer destinationId, Integer sourceId, Consumer<IServicePacketSubscriber> notification) {
+            try {
+                if(filter.filter(rd, item, pusType, pusSubType, destinationId, sourceId)) {
+                    if(notifier == null) {
+                        notification.accept(subscriber);
+                    } else if(!notifier.isShutdown()) {
+                        notifier.execute(() -> {
+                            try {
+                                notification.accept(subscriber);
+                            } catch (Exception e) {
+                                LOG.log(Level.SEVERE, "Cannot notify packet service subscriber " + subscriber + ": " + e.getMessage(), e);
+                            }
+                        });
+                    }
+                }
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Cannot notify packet service subscriber " + subscriber + ": " + e.getMessage(), e);
+            }
+        }
+
+        public void dispose() {
+            if(notifier != null) {
+                notifier.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Dispatch table for a single raw data type. The table has one level for each declarative selector criterion (PUS
+     * type, PUS subtype and APID): at each level, the subscriptions are split by the values declared by their selectors,
+     * plus a wildcard bucket for the values not declared by any selector (and for items without such value), which
+     * contains only the subscriptions not restricted at that level. Values are indexed per bucket, so the size of the
+     * table does not grow with the product of all declared values. Each leaf contains a subscription at most once, in
+     * registration order.
+     */
+    private static class DispatchTable {
+
+        private static final List<Function<ServicePacketFilter.Selector, Set<Integer>>> LEVELS = Arrays.asList(
+                ServicePacketFilter.Selector::getPusTypes,
+                ServicePacketFilter.Selector::getPusSubtypes,
+                ServicePacketFilter.Selector::getApids
+        );
+
+        private final Map<Integer, DispatchTable> byValue;
+        private final DispatchTable wildcard;
+        private final List<Subscription> subscriptions; // Only in leaves
+
+        private DispatchTable(Map<Integer, DispatchTable> byValue, DispatchTable wildcard, List<Subscription> subscriptions) {
+            this.byValue = byValue;
+            this.wildcard = wildcard;
+            this.subscriptions = subscriptions;
+        }
+
+        public List<Subscription> lookup(Integer pusType, Integer pusSubType, Integer apid) {
+            return select(pusType).select(pusSubType).select(apid).subscriptions;
+        }
+
+        private DispatchTable select(Integer value) {
+            DispatchTable next = value == null ? null : byValue.get(value);
+            return next != null ? next : wildcard;
+        }
+
+        public static DispatchTable build(String rawDataType, List<Subscription> subscriptions) {
+            List<Pair<Subscription, ServicePacketFilter.Selector>> candidates = new ArrayList<>();
+            for(Subscription s : subscriptions) {
+                for(ServicePacketFilter.Selector sel : s.getIndexedFilter().getSelectors()) {
+                    if(sel.getRawDataType().equals(rawDataType)) {
+                        candidates.add(Pair.of(s, sel));
+                    }
+                }
+            }
+            if(candidates.isEmpty()) {
+                return null;
+            }
+            return build(0, candidates);
+        }
+
+        private static DispatchTable build(int level, List<Pair<Subscription, ServicePacketFilter.Selector>> candidates) {
+            if(level == LEVELS.size()) {
+                // Candidates are in registration order: keep the first occurrence of each subscription
+                Set<Subscription> leaf = new LinkedHashSet<>();
+                for(Pair<Subscription, ServicePacketFilter.Selector> c : candidates) {
+                    leaf.add(c.getFirst());
+                }
+                return new DispatchTable(Collections.emptyMap(), null, new ArrayList<>(leaf));
+            }
+            Function<ServicePacketFilter.Selector, Set<Integer>> criterion = LEVELS.get(level);
+            Set<Integer> declaredValues = new HashSet<>();
+            List<Pair<Subscription, ServicePacketFilter.Selector>> unrestricted = new ArrayList<>();
+            for(Pair<Subscription, ServicePacketFilter.Selector> c : candidates) {
+                Set<Integer> values = criterion.apply(c.getSecond());
+                if(values == null) {
+                    unrestricted.add(c);
+                } else {
+                    declaredValues.addAll(values);
+                }
+            }
+            Map<Integer, DispatchTable> byValue = new HashMap<>();
+            for(Integer value : declaredValues) {
+                List<Pair<Subscription, ServicePacketFilter.Selector>> matching = new ArrayList<>();
+                for(Pair<Subscription, ServicePacketFilter.Selector> c : candidates) {
+                    Set<Integer> values = criterion.apply(c.getSecond());
+                    if(values == null || values.contains(value)) {
+                        matching.add(c);
+                    }
+                }
+                byValue.put(value, build(level + 1, matching));
+            }
+            return new DispatchTable(byValue, build(level + 1, unrestricted), null);
+        }
+    }
 }
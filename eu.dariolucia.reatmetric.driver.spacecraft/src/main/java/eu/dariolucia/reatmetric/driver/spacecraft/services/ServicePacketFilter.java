@@ -0,0 +1,147 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services;
+
+import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
+import eu.dariolucia.ccsds.tmtc.util.AnnotatedObject;
+import eu.dariolucia.reatmetric.api.rawdata.RawData;
+
+import java.util.*;
+
+/**
+ * Declarative {@link IServicePacketFilter}, which can be indexed by the {@link ServiceBroker}. The filter is a list of
+ * selectors: an item is accepted if at least one selector matches it. Each selector specifies the raw data type (e.g.
+ * TM packet, TC packet) and optionally the accepted PUS types, PUS subtypes and APIDs, plus an optional additional
+ * predicate.
+ *
+ * The service broker dispatches items to subscribers registered with a {@link ServicePacketFilter} by looking up the
+ * raw data type, PUS type, PUS subtype and APID of the item, instead of evaluating the filter of all registered
+ * subscribers. The filter is then evaluated only for the subscribers found in the lookup.
+ */
+public class ServicePacketFilter implements IServicePacketFilter {
+
+    private final List<Selector> selectors = new ArrayList<>();
+
+    /**
+     * Add a selector for the provided raw data type.
+     *
+     * @param rawDataType the raw data type, see {@link eu.dariolucia.reatmetric.driver.spacecraft.common.Constants}
+     * @return the new selector, which can be further restricted
+     */
+    public Selector add(String rawDataType) {
+        Selector selector = new Selector(Objects.requireNonNull(rawDataType));
+        selectors.add(selector);
+        return selector;
+    }
+
+    public List<Selector> getSelectors() {
+        return Collections.unmodifiableList(selectors);
+    }
+
+    @Override
+    public boolean filter(RawData rd, AnnotatedObject sp, Integer pusType, Integer pusSubtype, Integer destination, Integer source) {
+        for(Selector s : selectors) {
+            if(s.filter(rd, sp, pusType, pusSubtype, destination, source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class Selector implements IServicePacketFilter {
+
+        private final String rawDataType;
+        private Set<Integer> pusTypes;
+        private Set<Integer> pusSubtypes;
+        private Set<Integer> apids;
+        private IServicePacketFilter refinement;
+
+        private Selector(String rawDataType) {
+            this.rawDataType = rawDataType;
+        }
+
+        public Selector withPusTypes(int... pusTypes) {
+            this.pusTypes = toSet(pusTypes);
+            return this;
+        }
+
+        public Selector withPusSubtypes(int... pusSubtypes) {
+            this.pusSubtypes = toSet(pusSubtypes);
+            return this;
+        }
+
+        public Selector withApids(int... apids) {
+            this.apids = toSet(apids);
+            return this;
+        }
+
+        /**
+         * Add a predicate, evaluated only if the declarative part of the selector matches.
+         *
+         * @param refinement the additional predicate
+         * @return this selector
+         */
+        public Selector matching(IServicePacketFilter refinement) {
+            this.refinement = refinement;
+            return this;
+        }
+
+        public String getRawDataType() {
+            return rawDataType;
+        }
+
+        /**
+         * @return the accepted PUS types, or null if any PUS type (including none) is accepted
+         */
+        public Set<Integer> getPusTypes() {
+            return pusTypes;
+        }
+
+        public Set<Integer> getPusSubtypes() {
+            return pusSubtypes;
+        }
+
+        public Set<Integer> getApids() {
+            return apids;
+        }
+
+        @Override
+        public boolean filter(RawData rd, AnnotatedObject sp, Integer pusType, Integer pusSubtype, Integer destination, Integer source) {
+            if(!rawDataType.equals(rd.getType())) {
+                return false;
+            }
+            if(pusTypes != null && (pusType == null || !pusTypes.contains(pusType))) {
+                return false;
+            }
+            if(pusSubtypes != null && (pusSubtype == null || !pusSubtypes.contains(pusSubtype))) {
+                return false;
+            }
+            if(apids != null && (!(sp instanceof SpacePacket) || !apids.contains((int) ((SpacePacket) sp).getApid()))) {
+                return false;
+            }
+            return refinement == null || refinement.filter(rd, sp, pusType, pusSubtype, destination, source);
+        }
+
+        private static Set<Integer> toSet(int[] values) {
+            Set<Integer> toReturn = new HashSet<>();
+            for(int v : values) {
+                toReturn.add(v);
+            }
+            return toReturn;
+        }
+    }
+}
@@ -18,7 +18,6 @@
 package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
 
 import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
-import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AosTransferFrame;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
@@ -41,16 +40,19 @@ import eu.dariolucia.reatmetric.driver.spacecraft.services.ISecurityHandler;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServiceBroker;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
 
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.rmi.RemoteException;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -74,11 +76,28 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
     public static final int IV_LENGTH = 16;
     public static final int HEADER_LENGTH = 2 + IV_LENGTH; // No need for padding to be computed, use CTR AES mode
 
+    private static final int HASH_LENGTH = 32; // SHA-256
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for(int i = 0; i < CRC16_TABLE.length; ++i) {
+            int crc = i << 8;
+            for(int j = 0; j < 8; ++j) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
     private IServiceCoreContext context;
-    private final Map<Integer, String> tmspi2key = new HashMap<>();
-    private final Map<Integer, String> tcspi2key = new HashMap<>();
+    // Keys derived at initialisation, cleared at disposal
+    private final Map<Integer, SecretKey> tmspi2key = new ConcurrentHashMap<>();
+    private final Map<Integer, SecretKey> tcspi2key = new ConcurrentHashMap<>();
     private final SecureRandom randomizer = new SecureRandom();
-    private byte[] salt;
+    // Cipher and digest instances are not thread-safe and expensive to create: they are confined to the calling thread
+    // and reused across frames
+    private final ThreadLocal<CryptoContext> cryptoContext = new ThreadLocal<>();
 
     private final AtomicInteger tcSpiToUse = new AtomicInteger();
     private boolean registered = false;
@@ -103,18 +122,7 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
         } catch (IOException e) {
             throw new ReatmetricException(e.getMessage(), e);
         }
-        // Save salt
-        this.salt = aesConfiguration.getSaltAsByteArray();
-        // Set default TC SPI to use
-        this.tcSpiToUse.set(aesConfiguration.getDefaultTcSpi());
-        // Init TM passwords
-        for(SpiPassword spiPassword : aesConfiguration.getTmSpis()) {
-            this.tmspi2key.put(spiPassword.getId(), spiPassword.getPassword());
-        }
-        // Init TC passwords
-        for(SpiPassword spiPassword : aesConfiguration.getTcSpis()) {
-            this.tcspi2key.put(spiPassword.getId(), spiPassword.getPassword());
-        }
+        initialiseKeys(aesConfiguration.getSaltAsByteArray(), aesConfiguration.getDefaultTcSpi(), aesConfiguration.getTmSpis(), aesConfiguration.getTcSpis());
         // If TC SPI parameter is declared, register to processing model
         if(aesConfiguration.getTcSpiParameterPath() != null) {
             try {
@@ -134,6 +142,29 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
         }
     }
 
+    void initialiseKeys(byte[] salt, int defaultTcSpi, List<SpiPassword> tmSpis, List<SpiPassword> tcSpis) throws ReatmetricException {
+        // Set default TC SPI to use
+        this.tcSpiToUse.set(defaultTcSpi);
+        // Derive the keys once: the key derivation is orders of magnitude more expensive than the frame processing.
+        // SPIs sharing the same password share the derived key.
+        Map<String, SecretKey> derivedKeys = new HashMap<>();
+        for(SpiPassword spiPassword : tmSpis) {
+            this.tmspi2key.put(spiPassword.getId(), deriveKey(derivedKeys, spiPassword.getPassword(), salt));
+        }
+        for(SpiPassword spiPassword : tcSpis) {
+            this.tcspi2key.put(spiPassword.getId(), deriveKey(derivedKeys, spiPassword.getPassword(), salt));
+        }
+    }
+
+    private static SecretKey deriveKey(Map<String, SecretKey> derivedKeys, String password, byte[] salt) throws ReatmetricException {
+        SecretKey key = derivedKeys.get(password);
+        if(key == null) {
+            key = CryptoUtil.deriveAesKey(password, salt);
+            derivedKeys.put(password, key);
+        }
+        return key;
+    }
+
     @Override
     public int getServiceType() {
         return 0x7CFFFFFE; // Fictitious service type
@@ -158,208 +189,188 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
 
     @Override
     public AbstractTransferFrame encrypt(AbstractTransferFrame frame) throws ReatmetricException {
+        return encrypt(frame, getCryptoContext());
+    }
+
+    @Override
+    public List<AbstractTransferFrame> encrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        CryptoContext ctx = getCryptoContext();
+        List<AbstractTransferFrame> toReturn = new ArrayList<>(frames.size());
+        for(AbstractTransferFrame frame : frames) {
+            toReturn.add(encrypt(frame, ctx));
+        }
+        return toReturn;
+    }
+
+    private AbstractTransferFrame encrypt(AbstractTransferFrame frame, CryptoContext ctx) throws ReatmetricException {
         // Only TcTransferFrame are supported: encryption is performed by reading the value of the indicated parameter
         // in the configuration.
         int tcSpi = this.tcSpiToUse.get();
-        String password = this.tcspi2key.get(tcSpi);
-        if(password == null) {
+        SecretKey key = this.tcspi2key.get(tcSpi);
+        if(key == null) {
             throw new ReatmetricException("SPI to use for TC frame encryption not found: " + tcSpi);
         }
         if(frame instanceof TcTransferFrame && ((TcTransferFrame) frame).getFrameType() != TcTransferFrame.FrameType.BC && ((TcTransferFrame) frame).isSecurityUsed()) {
-            return encryptTcAes((TcTransferFrame) frame, password, tcSpi);
+            return encryptTcAes((TcTransferFrame) frame, key, tcSpi, ctx);
         } else {
             return frame;
         }
     }
 
-    private TcTransferFrame encryptTcAes(TcTransferFrame frameObj, String key, int keyId) throws ReatmetricException {
-        // Compute the initialisation vector
-        byte[] ivArray = new byte[IV_LENGTH];
-        this.randomizer.nextBytes(ivArray);
-        // Compute the header: keyId as short plus iv
-        byte[] header = ByteBuffer.allocate(HEADER_LENGTH).putShort((short) (keyId & 0xFFFF)).put(ivArray).array();
-        if(header.length != frameObj.getSecurityHeaderLength()) {
+    private TcTransferFrame encryptTcAes(TcTransferFrame frameObj, SecretKey key, int keyId, CryptoContext ctx) throws ReatmetricException {
+        if(HEADER_LENGTH != frameObj.getSecurityHeaderLength()) {
             throw new ReatmetricException("Security error: security header on TC frame on SC: " + frameObj.getSpacecraftId() +
                     " VC: " + frameObj.getVirtualChannelId()
                     + " declared as " + frameObj.getSecurityHeaderLength() +
-                    " but generated with length " + header.length);
+                    " but generated with length " + HEADER_LENGTH);
         }
-        // Run AES on data field
-        byte[] encryptedDataField = CryptoUtil.aesEncrypt(frameObj.getFrame(), frameObj.getDataFieldStart(), frameObj.getDataFieldLength(), key, ivArray, this.salt);
-        // Compute the trailer
-        byte[] trailer = computeTrailer(frameObj);
-        if(trailer.length != frameObj.getSecurityTrailerLength()) {
+        if(TRAILER_LENGTH != frameObj.getSecurityTrailerLength()) {
             throw new ReatmetricException("Security error: security trailer on TC frame on SC: " + frameObj.getSpacecraftId() +
                     " VC: " + frameObj.getVirtualChannelId()
                     + " declared as " + frameObj.getSecurityTrailerLength() +
-                    " but generated with length " + trailer.length);
-        }
-        // Now allocate a frame and write down the data
-        byte[] newFrame = new byte[frameObj.getLength()];
-        // Copy primary header data
-        int currentOffset = 0;
-        System.arraycopy(frameObj.getFrame(), currentOffset, newFrame, currentOffset, TcTransferFrame.TC_PRIMARY_HEADER_LENGTH);
-        currentOffset += TcTransferFrame.TC_PRIMARY_HEADER_LENGTH;
-        // Copy segment header
-        if(frameObj.isSegmented()) {
-            System.arraycopy(frameObj.getFrame(), currentOffset, newFrame, currentOffset, 1);
-            currentOffset += 1;
+                    " but generated with length " + TRAILER_LENGTH);
         }
-        // Now copy security header
-        System.arraycopy(header, 0, newFrame, currentOffset, header.length);
-        currentOffset += header.length;
-        // Now copy the data field (encrypted)
-        System.arraycopy(encryptedDataField, 0, newFrame, currentOffset, encryptedDataField.length);
-        currentOffset += encryptedDataField.length;
-        // Now copy the trailer
-        System.arraycopy(trailer, 0, newFrame, currentOffset, trailer.length);
+        // The frame already contains room for the security header and trailer: copy it once and work in place
+        byte[] newFrame = Arrays.copyOf(frameObj.getFrame(), frameObj.getLength());
+        // Security header: after primary header and segment header (if present)
+        int secHeaderOffset = TcTransferFrame.TC_PRIMARY_HEADER_LENGTH + (frameObj.isSegmented() ? 1 : 0);
+        int dataFieldStart = secHeaderOffset + HEADER_LENGTH;
+        int dataFieldLength = frameObj.getDataFieldLength();
+        // Compute the header: keyId as short plus iv
+        newFrame[secHeaderOffset] = (byte) (keyId >> 8);
+        newFrame[secHeaderOffset + 1] = (byte) keyId;
+        this.randomizer.nextBytes(ctx.iv);
+        System.arraycopy(ctx.iv, 0, newFrame, secHeaderOffset + 2, IV_LENGTH);
+        // Compute the trailer on the plain data: primary header, segment header (if present) and data field
+        computeHash(ctx, newFrame, secHeaderOffset, dataFieldStart, dataFieldLength);
+        System.arraycopy(ctx.hash, HASH_LENGTH - TRAILER_LENGTH, newFrame, dataFieldStart + dataFieldLength, TRAILER_LENGTH);
+        // Run AES on data field
+        CryptoUtil.aesInPlace(ctx.cipher, Cipher.ENCRYPT_MODE, key, newFrame, secHeaderOffset + 2, ByteBuffer.wrap(newFrame, dataFieldStart, dataFieldLength));
         // Now compute and set FECF if needed
         if(frameObj.isFecfPresent()) {
-            short crc = Crc16Algorithm.getCrc16(newFrame, 0, newFrame.length - 2);
-            newFrame[newFrame.length - 2] = (byte) (crc >> 8);
-            newFrame[newFrame.length - 1] = (byte) (crc);
+            setFecf(newFrame);
         }
-        return new TcTransferFrame(newFrame, vc -> frameObj.isSegmented(), frameObj.isFecfPresent(), header.length, trailer.length);
+        return new TcTransferFrame(newFrame, vc -> frameObj.isSegmented(), frameObj.isFecfPresent(), HEADER_LENGTH, TRAILER_LENGTH);
     }
 
-    private byte[] computeTrailer(TcTransferFrame frameObj) throws ReatmetricException {
-        // Use primary header, if present, segment header and data field (without security header and trailer)
-        int scopeLength = TcTransferFrame.TC_PRIMARY_HEADER_LENGTH + (frameObj.isSegmented() ? 1 : 0) + frameObj.getDataFieldLength();
-        byte[] scope = new byte[scopeLength];
-        int offset = 0;
-        System.arraycopy(frameObj.getFrame(), 0, scope, offset, TcTransferFrame.TC_PRIMARY_HEADER_LENGTH);
-        offset += TcTransferFrame.TC_PRIMARY_HEADER_LENGTH;
-        if(frameObj.isSegmented()) {
-            scope[offset] = frameObj.getFrame()[TcTransferFrame.TC_PRIMARY_HEADER_LENGTH];
-            offset += 1;
-        }
-        System.arraycopy(frameObj.getFrame(), frameObj.getDataFieldStart(), scope, offset, frameObj.getDataFieldLength());
-        // Done, now compute SHA-256
-        return computeSHA256(scope);
+    @Override
+    public AbstractTransferFrame decrypt(AbstractTransferFrame frame) throws ReatmetricException {
+        return decrypt(frame, getCryptoContext());
     }
 
     @Override
-    public AbstractTransferFrame decrypt(AbstractTransferFrame frame) throws ReatmetricException {
+    public List<AbstractTransferFrame> decrypt(List<AbstractTransferFrame> frames) throws ReatmetricException {
+        CryptoContext ctx = getCryptoContext();
+        List<AbstractTransferFrame> toReturn = new ArrayList<>(frames.size());
+        for(AbstractTransferFrame frame : frames) {
+            toReturn.add(decrypt(frame, ctx));
+        }
+        return toReturn;
+    }
+
+    private AbstractTransferFrame decrypt(AbstractTransferFrame frame, CryptoContext ctx) throws ReatmetricException {
         // Only TmTransferFrame and AosTransferFrame are supported
         if(frame instanceof TmTransferFrame) {
-            return decryptTmAes((TmTransferFrame) frame);
+            return decryptTmAes((TmTransferFrame) frame, ctx);
         } else if(frame instanceof AosTransferFrame) {
-            return decryptAosAes((AosTransferFrame) frame);
+            return decryptAosAes((AosTransferFrame) frame, ctx);
         } else {
             return frame;
         }
     }
 
-    private AbstractTransferFrame decryptAosAes(AosTransferFrame frame) throws ReatmetricException {
-        // Get the security header: after primary and secondary header (if present)
-        int secHeaderOffset = AosTransferFrame.AOS_PRIMARY_HEADER_LENGTH + (frame.isFrameHeaderErrorControlPresent() ? AosTransferFrame.AOS_PRIMARY_HEADER_FHEC_LENGTH : 0) +
-                frame.getInsertZoneLength();
-        ByteBuffer secHeaderWrap = ByteBuffer.wrap(frame.getFrame(), secHeaderOffset, HEADER_LENGTH);
-        short spi = secHeaderWrap.getShort();
-        String password = tmspi2key.get((int) spi);
-        if(password == null) {
-            LOG.log(Level.SEVERE, "Cannot find password for spi {0}", spi);
-        }
-        byte[] iv = Arrays.copyOfRange(frame.getFrame(), secHeaderOffset + 2, secHeaderOffset + HEADER_LENGTH);
-        // Now decrypt the body
-        int dataFieldLength = frame.getLength() - secHeaderOffset - HEADER_LENGTH - TRAILER_LENGTH - (frame.isOcfPresent() ? 4 : 0) - (frame.isFecfPresent() ? 2 : 0);
-        byte[] decryptedDataField = CryptoUtil.aesDecrypt(frame.getFrame(), secHeaderOffset + HEADER_LENGTH, dataFieldLength, password, iv, salt);
-        // Now verify that the trailer matches with the data
-        // Use primary header, if present, FHEC and data field (without security header and trailer, without insert zone)
-        byte[] trailer = computeTrailer(frame.getFrame(),
-                AosTransferFrame.AOS_PRIMARY_HEADER_LENGTH + (frame.isFrameHeaderErrorControlPresent() ? AosTransferFrame.AOS_PRIMARY_HEADER_FHEC_LENGTH : 0),
-                decryptedDataField);
-        if(!Arrays.equals(frame.getFrame(), secHeaderOffset + HEADER_LENGTH + decryptedDataField.length, secHeaderOffset + HEADER_LENGTH + decryptedDataField.length + TRAILER_LENGTH,
-                trailer, 0, trailer.length)) {
-            throw new ReatmetricException("Trailer mismatch, AOS frame corrupted on SC: " + frame.getSpacecraftId() +
-                    "VC:" + frame.getVirtualChannelId());
-        }
-        // Now compose the decrypted frame
-        byte[] newFrame = new byte[frame.getLength()];
-        int currentOffset = 0;
-        System.arraycopy(frame.getFrame(), 0, newFrame, currentOffset, secHeaderOffset); // Primary header, FHEC if present, insert zone
-        currentOffset += secHeaderOffset;
-        // Security header
-        System.arraycopy(frame.getFrame(), secHeaderOffset, newFrame, currentOffset, HEADER_LENGTH); // security header
-        currentOffset += HEADER_LENGTH;
-        // Data
-        System.arraycopy(decryptedDataField, 0, newFrame, currentOffset, decryptedDataField.length);
-        currentOffset += decryptedDataField.length;
-        // Trailer
-        System.arraycopy(trailer, 0, newFrame, currentOffset, trailer.length);
-        currentOffset += trailer.length;
-        // If OCF, copy
-        if(frame.isOcfPresent()) {
-            System.arraycopy(frame.getFrame(), frame.getOcfStart(), newFrame, currentOffset, 4);
-        }
-        // If FECF, recompute
-        if(frame.isFecfPresent()) {
-            short crc = Crc16Algorithm.getCrc16(newFrame, 0, newFrame.length - 2);
-            newFrame[newFrame.length - 2] = (byte) (crc >> 8);
-            newFrame[newFrame.length - 1] = (byte) (crc);
-        }
-
-        return new AosTransferFrame(newFrame, frame.isFrameHeaderErrorControlPresent(), frame.getInsertZoneLength(), frame.getUserDataType(), frame.isOcfPresent(), frame.isFecfPresent(), HEADER_LENGTH, trailer.length);
+    private AbstractTransferFrame decryptAosAes(AosTransferFrame frame, CryptoContext ctx) throws ReatmetricException {
+        // Get the security header: after primary header, FHEC (if present) and insert zone
+        int primaryHeaderLength = AosTransferFrame.AOS_PRIMARY_HEADER_LENGTH + (frame.isFrameHeaderErrorControlPresent() ? AosTransferFrame.AOS_PRIMARY_HEADER_FHEC_LENGTH : 0);
+        int secHeaderOffset = primaryHeaderLength + frame.getInsertZoneLength();
+        // Use primary header, FHEC if present and data field (without security header and trailer, without insert zone)
+        byte[] newFrame = decryptInPlace(frame, secHeaderOffset, primaryHeaderLength, ctx);
+        return new AosTransferFrame(newFrame, frame.isFrameHeaderErrorControlPresent(), frame.getInsertZoneLength(), frame.getUserDataType(), frame.isOcfPresent(), frame.isFecfPresent(), HEADER_LENGTH, TRAILER_LENGTH);
     }
 
-    private AbstractTransferFrame decryptTmAes(TmTransferFrame frame) throws ReatmetricException {
+    private AbstractTransferFrame decryptTmAes(TmTransferFrame frame, CryptoContext ctx) throws ReatmetricException {
         // Get the security header: after primary and secondary header (if present)
         int secHeaderOffset = TmTransferFrame.TM_PRIMARY_HEADER_LENGTH + (frame.isSecondaryHeaderPresent() ? frame.getSecondaryHeaderLength() : 0);
-        ByteBuffer secHeaderWrap = ByteBuffer.wrap(frame.getFrame(), secHeaderOffset, getSecurityHeaderLength(frame.getSpacecraftId(), frame.getVirtualChannelId(), TmTransferFrame.class));
-        short spi = secHeaderWrap.getShort();
-        String password = tmspi2key.get((int) spi);
-        if(password == null) {
+        // Use primary header, secondary header if present and data field (without security header and trailer)
+        byte[] newFrame = decryptInPlace(frame, secHeaderOffset, secHeaderOffset, ctx);
+        return new TmTransferFrame(newFrame, frame.isFecfPresent(), HEADER_LENGTH, TRAILER_LENGTH);
+    }
 
+    /**
+     * Copy the provided frame, decrypt the data field of the copy in place and verify the trailer. The FECF of the copy,
+     * if present, is recomputed.
+     *
+     * @param frame the encrypted frame
+     * @param secHeaderOffset the offset of the security header in the frame
+     * @param hashedHeaderLength the number of bytes, from the beginning of the frame, covered by the trailer hash
+     * @param ctx the thread-confined crypto objects
+     * @return the decrypted frame contents
+     * @throws ReatmetricException if the SPI is unknown, the frame is malformed, or the trailer does not match
+     */
+    private byte[] decryptInPlace(AbstractTransferFrame frame, int secHeaderOffset, int hashedHeaderLength, CryptoContext ctx) throws ReatmetricException {
+        byte[] original = frame.getFrame();
+        int spi = ((original[secHeaderOffset] & 0xFF) << 8) | (original[secHeaderOffset + 1] & 0xFF);
+        SecretKey key = this.tmspi2key.get(spi);
+        if(key == null) {
+            throw new ReatmetricException("Cannot find key for SPI " + spi + " on SC: " + frame.getSpacecraftId() +
+                    " VC: " + frame.getVirtualChannelId());
         }
-        byte[] iv = Arrays.copyOfRange(frame.getFrame(), secHeaderOffset + 2, secHeaderOffset + HEADER_LENGTH);
+        int dataFieldStart = secHeaderOffset + HEADER_LENGTH;
+        int dataFieldLength = frame.getLength() - dataFieldStart - TRAILER_LENGTH - (frame.isOcfPresent() ? 4 : 0) - (frame.isFecfPresent() ? 2 : 0);
+        if(dataFieldLength < 0) {
+            throw new ReatmetricException("Frame too short to contain security header and trailer on SC: " + frame.getSpacecraftId() +
+                    " VC: " + frame.getVirtualChannelId());
+        }
+        // Security header, trailer and OCF are preserved by the copy
+        byte[] newFrame = Arrays.copyOf(original, frame.getLength());
         // Now decrypt the body
-        int dataFieldLength = frame.getLength() - secHeaderOffset - HEADER_LENGTH - TRAILER_LENGTH - (frame.isOcfPresent() ? 4 : 0) - (frame.isFecfPresent() ? 2 : 0);
-        byte[] decryptedDataField = CryptoUtil.aesDecrypt(frame.getFrame(), secHeaderOffset + HEADER_LENGTH, dataFieldLength, password, iv, this.salt);
+        CryptoUtil.aesInPlace(ctx.cipher, Cipher.DECRYPT_MODE, key, newFrame, secHeaderOffset + 2, ByteBuffer.wrap(newFrame, dataFieldStart, dataFieldLength));
         // Now verify that the trailer matches with the data
-        // Use primary header, if present, secondary header and data field (without security header and trailer)
-        byte[] trailer = computeTrailer(frame.getFrame(), secHeaderOffset, decryptedDataField);
-        if(!Arrays.equals(frame.getFrame(), secHeaderOffset + HEADER_LENGTH + decryptedDataField.length, secHeaderOffset + HEADER_LENGTH + decryptedDataField.length + TRAILER_LENGTH,
-                trailer, 0, trailer.length)) {
-            throw new ReatmetricException("Trailer mismatch, TM frame corrupted on SC: " + frame.getSpacecraftId() +
-                    "VC:" + frame.getVirtualChannelId());
-        }
-        // Now compose the decrypted frame
-        byte[] newFrame = new byte[frame.getLength()];
-        int currentOffset = 0;
-        System.arraycopy(frame.getFrame(), 0, newFrame, currentOffset, secHeaderOffset); // Primary header and secondary header if present
-        currentOffset += secHeaderOffset;
-        // Security header
-        System.arraycopy(frame.getFrame(), secHeaderOffset, newFrame, currentOffset, HEADER_LENGTH); // security header
-        currentOffset += HEADER_LENGTH;
-        // Data
-        System.arraycopy(decryptedDataField, 0, newFrame, currentOffset, decryptedDataField.length);
-        currentOffset += decryptedDataField.length;
-        // Trailer
-        System.arraycopy(trailer, 0, newFrame, currentOffset, trailer.length);
-        currentOffset += trailer.length;
-        // If OCF, copy
-        if(frame.isOcfPresent()) {
-            System.arraycopy(frame.getFrame(), frame.getOcfStart(), newFrame, currentOffset, 4);
+        computeHash(ctx, newFrame, hashedHeaderLength, dataFieldStart, dataFieldLength);
+        int trailerStart = dataFieldStart + dataFieldLength;
+        if(!Arrays.equals(newFrame, trailerStart, trailerStart + TRAILER_LENGTH, ctx.hash, HASH_LENGTH - TRAILER_LENGTH, HASH_LENGTH)) {
+            throw new ReatmetricException("Trailer mismatch, " + frame.getClass().getSimpleName() + " corrupted on SC: " + frame.getSpacecraftId() +
+                    " VC: " + frame.getVirtualChannelId());
         }
         // If FECF, recompute
         if(frame.isFecfPresent()) {
-            short crc = Crc16Algorithm.getCrc16(newFrame, 0, newFrame.length - 2);
-            newFrame[newFrame.length - 2] = (byte) (crc >> 8);
-            newFrame[newFrame.length - 1] = (byte) (crc);
+            setFecf(newFrame);
         }
+        return newFrame;
+    }
 
-        return new TmTransferFrame(newFrame, frame.isFecfPresent(), HEADER_LENGTH, trailer.length);
+    private static void computeHash(CryptoContext ctx, byte[] frame, int headerLength, int dataFieldStart, int dataFieldLength) throws ReatmetricException {
+        ctx.digest.update(frame, 0, headerLength);
+        ctx.digest.update(frame, dataFieldStart, dataFieldLength);
+        try {
+            ctx.digest.digest(ctx.hash, 0, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new ReatmetricException(e);
+        }
     }
 
-    private byte[] computeTrailer(byte[] frame, int headerLength, byte[] decryptedDataField) throws ReatmetricException {
-        int scopeLength = headerLength + decryptedDataField.length;
-        byte[] scope = new byte[scopeLength];
-        int offset = 0;
-        System.arraycopy(frame, 0, scope, offset, headerLength);
-        offset += headerLength;
-        System.arraycopy(decryptedDataField, 0, scope, offset, decryptedDataField.length);
-        // Done, now compute SHA-256 (least 8 bytes out of 32)
-        return computeSHA256(scope);
+    static void setFecf(byte[] frame) {
+        // Table-driven equivalent of Crc16Algorithm.getCrc16 (CRC-16-CCITT, initial value 0xFFFF), which at high frame
+        // rates is otherwise the dominant cost of the whole security layer
+        int crc = 0xFFFF;
+        for(int i = 0; i < frame.length - 2; ++i) {
+            crc = (crc << 8) ^ CRC16_TABLE[((crc >> 8) ^ frame[i]) & 0xFF];
+        }
+        frame[frame.length - 2] = (byte) (crc >> 8);
+        frame[frame.length - 1] = (byte) (crc);
+    }
+
+    private CryptoContext getCryptoContext() throws ReatmetricException {
+        CryptoContext ctx = this.cryptoContext.get();
+        if(ctx == null) {
+            try {
+                ctx = new CryptoContext(CryptoUtil.createAesCipher(), MessageDigest.getInstance("SHA-256"));
+            } catch (NoSuchAlgorithmException e) {
+                throw new ReatmetricException("Hash function not defined: SHA-256", e);
+            }
+            this.cryptoContext.set(ctx);
+        }
+        return ctx;
     }
 
     public static byte[] computeSHA256(byte[] scope) throws ReatmetricException {
@@ -385,6 +396,9 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
             }
             registered = false;
         }
+        // Drop the derived keys
+        this.tmspi2key.clear();
+        this.tcspi2key.clear();
     }
 
     @Override
@@ -400,4 +414,16 @@ public class AesEncryptionService implements ISecurityHandler, IParameterDataSub
     public void onTmVcUnit(RawData packetRawData, VirtualChannelUnit unit, DecodingResult decoded) {
         // Not processed by this implementation
     }
+
+    private static final class CryptoContext {
+        private final Cipher cipher;
+        private final MessageDigest digest;
+        private final byte[] iv = new byte[IV_LENGTH];
+        private final byte[] hash = new byte[HASH_LENGTH];
+
+        private CryptoContext(Cipher cipher, MessageDigest digest) {
+            this.cipher = cipher;
+            this.digest = digest;
+        }
+    }
 }
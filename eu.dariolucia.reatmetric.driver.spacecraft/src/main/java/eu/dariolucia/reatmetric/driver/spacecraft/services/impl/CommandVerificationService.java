@@ -25,6 +25,7 @@ import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
 import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
 import eu.dariolucia.reatmetric.api.activity.IActivityOccurrenceDataArchive;
 import eu.dariolucia.reatmetric.api.archive.IArchive;
+import eu.dariolucia.reatmetric.api.common.IUniqueId;
 import eu.dariolucia.reatmetric.api.common.LongUniqueId;
 import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.common.RetrievalDirection;
@@ -41,15 +42,13 @@ import eu.dariolucia.reatmetric.driver.spacecraft.activity.TcPacketInfo;
 import eu.dariolucia.reatmetric.driver.spacecraft.activity.TcPacketTracker;
 import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.ServicePacketFilter;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,9 +60,44 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
 
     private static final Logger LOG = Logger.getLogger(CommandVerificationService.class.getName());
     public static final long DELAYED_REPORT_VALIDITY_TIME_MILLI = 3600 * 1000L;
+    public static final int MAX_QUEUED_REPORTS = 10000;
+    public static final long VERIFICATION_MAP_STORE_PERIOD_MILLI = 1000L;
+    public static final long OPEN_VERIFICATION_VALIDITY_TIME_MILLI = 3600 * 1000L;
+
+    private static final byte VERIFICATION_MAP_FORMAT_MARKER = (byte) 0xB1; // Not an ASCII character, to distinguish from the old string format
+    private static final String[] VERIFICATION_STAGES = new String[] {
+            Constants.STAGE_SPACECRAFT_ACCEPTED,
+            Constants.STAGE_SPACECRAFT_STARTED,
+            Constants.STAGE_SPACECRAFT_PROGRESS,
+            Constants.STAGE_SPACECRAFT_COMPLETED
+    };
 
     private final Map<Integer, Pair<TcPacketTracker, String>> openCommandVerifications = new ConcurrentHashMap<>(); // ID -> TcTracker and stage last name
-    private final Map<Integer, List<QueuedReport>> queuedReportMap = new ConcurrentHashMap<>(); // This content is transient and should not be restored
+    private final Map<IUniqueId, Integer> openCommandVerificationsByOccurrence = new ConcurrentHashMap<>(); // Activity occurrence ID -> ID
+    // This content is transient and should not be restored. Guarded by this.
+    private final Map<Integer, List<QueuedReport>> queuedReportMap = new HashMap<>();
+    // Queued reports in processing time order, i.e. in expiration order: used to purge the expired reports. Reports
+    // processed before their expiration are only marked as consumed and removed lazily, when they reach the head.
+    private final Deque<QueuedReport> queuedReportDeadlines = new ArrayDeque<>();
+    // Open verifications in expiration order, guarded by this. Verifications closed before their expiration are removed
+    // lazily, when they reach the head.
+    private final PriorityQueue<OpenVerificationDeadline> openVerificationDeadlines = new PriorityQueue<>(Comparator.comparing(OpenVerificationDeadline::getDeadline));
+
+    // The verification map is stored periodically, if changed, instead of at each change
+    private Timer verificationMapStorer;
+    private volatile boolean verificationMapChanged = false;
+
+    @Override
+    protected synchronized void postInitialisation() {
+        verificationMapStorer = new Timer("Command Verification Service - Verification Map Storer", true);
+        verificationMapStorer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                expireOpenVerifications(Instant.now());
+                storeVerificationMapIfChanged();
+            }
+        }, VERIFICATION_MAP_STORE_PERIOD_MILLI, VERIFICATION_MAP_STORE_PERIOD_MILLI);
+    }
 
     @Override
     protected void initialiseModelFrom(IArchive archiveToUse, Instant latestGenerationTime) throws ReatmetricException {
@@ -71,21 +105,19 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         IActivityOccurrenceDataArchive actOccArchive = archiveToUse.getArchive(IActivityOccurrenceDataArchive.class);
         List<RawData> data = rawDataArchive.retrieve(latestGenerationTime, 1, RetrievalDirection.TO_PAST, new RawDataFilter(true, Constants.N_TC_VERIFICATION_MAP, null, Collections.singletonList(Constants.T_TC_VERIFICATION_MAP), Collections.singletonList(String.valueOf(spacecraftConfiguration().getId())), Collections.singletonList(Quality.GOOD)));
         if(!data.isEmpty()) {
-            String serializedMap = new String(data.get(0).getContents(), StandardCharsets.US_ASCII);
-            String[] entries = serializedMap.split("#", -1);
-            for(String entry : entries) {
-                int id = Integer.parseInt(entry.substring(0, entry.indexOf('=')));
-                String rest = entry.substring(entry.indexOf('=') + 1);
-                String lastStage = rest.substring(0, rest.indexOf(';'));
-                long actInvId = Long.parseLong(rest.substring(rest.indexOf(';') + 1), rest.indexOf('|'));
-                long rawDataId = Long.parseLong(rest.substring(rest.indexOf('|') + 1));
-                RawData tc = rawDataArchive.retrieve(new LongUniqueId(rawDataId));
-                ActivityOccurrenceData accOccData = actOccArchive.retrieve(new LongUniqueId(actInvId));
-                IActivityHandler.ActivityInvocation rebuiltInvocation = new IActivityHandler.ActivityInvocation(new LongUniqueId(actInvId),
+            for(VerificationMapEntry entry : deserializeOpenVerificationMap(data.get(0).getContents())) {
+                RawData tc = rawDataArchive.retrieve(new LongUniqueId(entry.rawDataId));
+                ActivityOccurrenceData accOccData = actOccArchive.retrieve(new LongUniqueId(entry.activityOccurrenceId));
+                if(tc == null || accOccData == null) {
+                    LOG.log(Level.WARNING, "Cannot restore open verification for TC " + String.format("%04X", entry.id) + ": telecommand or activity occurrence not found in the archive");
+                    continue;
+                }
+                IActivityHandler.ActivityInvocation rebuiltInvocation = new IActivityHandler.ActivityInvocation(new LongUniqueId(entry.activityOccurrenceId),
                         accOccData.getExternalId(), accOccData.getGenerationTime(), accOccData.getPath(), accOccData.getType(), accOccData.getArguments(), accOccData.getProperties(), accOccData.getRoute(), accOccData.getSource());
                 SpacePacket sp = new SpacePacket(tc.getContents(), tc.getQuality() == Quality.GOOD);
                 TcPacketInfo packetInfo = (TcPacketInfo) tc.getExtension();
-                openCommandVerifications.put(id, Pair.of(new TcPacketTracker(rebuiltInvocation, packetInfo, tc, sp), lastStage));
+                // The validity of a restored verification starts from the release of the telecommand
+                putOpenVerification(entry.id, new TcPacketTracker(rebuiltInvocation, packetInfo, tc, sp), entry.lastStage, tc.getGenerationTime());
             }
         } else {
             if(LOG.isLoggable(Level.INFO)) {
@@ -150,8 +182,37 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
     }
 
     private void queueReport(int id, Instant generationTime, String stageName, boolean success) {
-        List<QueuedReport> list = queuedReportMap.computeIfAbsent(id, o -> new LinkedList<>());
-        list.add(new QueuedReport(id, generationTime, stageName, success, Instant.now()));
+        Instant now = Instant.now();
+        purgeQueuedReports(now);
+        while(queuedReportDeadlines.size() >= MAX_QUEUED_REPORTS) {
+            // Drop the oldest report to keep the memory bounded (consumed reports are just discarded)
+            removeQueuedReport(queuedReportDeadlines.pollFirst());
+        }
+        QueuedReport report = new QueuedReport(id, generationTime, stageName, success, now);
+        queuedReportMap.computeIfAbsent(id, o -> new ArrayList<>(4)).add(report);
+        queuedReportDeadlines.addLast(report);
+    }
+
+    private void purgeQueuedReports(Instant now) {
+        // Reports are queued in processing time order, so expired reports are at the head of the deque, together with
+        // the consumed ones that were not removed yet
+        while(!queuedReportDeadlines.isEmpty() && (queuedReportDeadlines.peekFirst().isConsumed() || now.toEpochMilli() - queuedReportDeadlines.peekFirst().getProcessingTime().toEpochMilli() >= DELAYED_REPORT_VALIDITY_TIME_MILLI)) {
+            removeQueuedReport(queuedReportDeadlines.pollFirst());
+        }
+    }
+
+    private void removeQueuedReport(QueuedReport report) {
+        if(report.isConsumed()) {
+            // Already removed from the report map
+            return;
+        }
+        List<QueuedReport> list = queuedReportMap.get(report.getId());
+        if(list != null) {
+            list.remove(report);
+            if(list.isEmpty()) {
+                queuedReportMap.remove(report.getId());
+            }
+        }
     }
 
     private void processReport(int id, Pair<TcPacketTracker, String> trackerPair, Instant generationTime, String stageName, boolean success) {
@@ -168,8 +229,46 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
     }
 
     private void removeFromOpenVerification(int id) {
-        this.openCommandVerifications.remove(id);
-        storeVerificationMap();
+        Pair<TcPacketTracker, String> removed = this.openCommandVerifications.remove(id);
+        if(removed != null) {
+            this.openCommandVerificationsByOccurrence.remove(removed.getFirst().getInvocation().getActivityOccurrenceId(), id);
+        }
+        this.verificationMapChanged = true;
+    }
+
+    private void putOpenVerification(int id, TcPacketTracker tracker, String lastStage, Instant registrationTime) {
+        Pair<TcPacketTracker, String> previous = this.openCommandVerifications.put(id, Pair.of(tracker, lastStage));
+        if(previous != null && previous.getFirst() != tracker) {
+            // Same APID and sequence count of an older TC, which is replaced
+            this.openCommandVerificationsByOccurrence.remove(previous.getFirst().getInvocation().getActivityOccurrenceId(), id);
+        }
+        this.openCommandVerificationsByOccurrence.put(tracker.getInvocation().getActivityOccurrenceId(), id);
+        if(previous == null || previous.getFirst() != tracker) {
+            synchronized (this) {
+                this.openVerificationDeadlines.add(new OpenVerificationDeadline(id, tracker, registrationTime.plusMillis(OPEN_VERIFICATION_VALIDITY_TIME_MILLI)));
+            }
+        }
+    }
+
+    /**
+     * Close the open verifications that did not complete within {@link #OPEN_VERIFICATION_VALIDITY_TIME_MILLI}: the
+     * last expected verification stage of each of them is reported as timed out.
+     *
+     * @param now the current time
+     */
+    synchronized void expireOpenVerifications(Instant now) {
+        while(!openVerificationDeadlines.isEmpty() && !openVerificationDeadlines.peek().getDeadline().isAfter(now)) {
+            OpenVerificationDeadline expired = openVerificationDeadlines.poll();
+            Pair<TcPacketTracker, String> trackerPair = openCommandVerifications.get(expired.getId());
+            if(trackerPair == null || trackerPair.getFirst() != expired.getTracker()) {
+                // Already verified, failed or replaced
+                continue;
+            }
+            TcPacketTracker tracker = trackerPair.getFirst();
+            LOG.log(Level.WARNING, "Command verification of TC " + String.format("%04X", expired.getId()) + " (activity occurrence " + tracker.getInvocation().getActivityOccurrenceId() + ") timed out, stage " + trackerPair.getSecond() + " not reported");
+            removeFromOpenVerification(expired.getId());
+            processingModel().reportActivityProgress(ActivityProgress.of(tracker.getInvocation().getActivityId(), tracker.getInvocation().getActivityOccurrenceId(), trackerPair.getSecond(), now, ActivityOccurrenceState.EXECUTION, null, ActivityReportState.TIMEOUT, ActivityOccurrenceState.VERIFICATION, null));
+        }
     }
 
     private TcPhase getTcPacketPhase(String stageName, boolean success, boolean lastVerification) {
@@ -192,6 +291,14 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
 
     @Override
     public synchronized void onTcUpdate(TcPhase phase, Instant phaseTime, AbstractTcTracker tracker) {
+        // If a TC with open verifications failed (e.g. on ground), there is nothing more to verify
+        if(phase == TcPhase.FAILED) {
+            Integer id = openCommandVerificationsByOccurrence.get(tracker.getInvocation().getActivityOccurrenceId());
+            if(id != null) {
+                removeFromOpenVerification(id);
+            }
+            return;
+        }
         // If a TC (whatever it is) is RECEIVED_ONBOARD, and it is NOT scheduled, then announce an AVAILABLE_ONBOARD phase
         if(phase == TcPhase.RECEIVED_ONBOARD && !tracker.getInvocation().getProperties().containsKey(Constants.ACTIVITY_PROPERTY_SCHEDULED_TIME)) {
             serviceBroker().informTc(TcPhase.AVAILABLE_ONBOARD, phaseTime, tracker);
@@ -221,7 +328,10 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         List<QueuedReport> reps = queuedReportMap.get(id);
         Pair<TcPacketTracker, String> pair = openCommandVerifications.get(id);
         if(reps != null && pair != null) {
+            queuedReportMap.remove(id);
             for(QueuedReport report : reps) {
+                // Removed from the deadline queue when it reaches the head
+                report.setConsumed();
                 // Reports that are too old wrt the phase time, should not be processed: remember that you are in this part
                 // of the code because the report arrived before the command verification stages were announced. Comparison with ground
                 // times, not with generation times.
@@ -231,7 +341,6 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
                     processReport(id, pair, report.getGenerationTime(), report.getStageName(), report.isSuccess());
                 }
             }
-            queuedReportMap.remove(id);
         }
     }
 
@@ -282,7 +391,7 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         }
         if(lastStage != null) {
             // Store verification map
-            storeVerificationMap();
+            verificationMapChanged = true;
         } else {
             // Assume the command executed
             processingModel().reportActivityProgress(ActivityProgress.of(tracker.getInvocation().getActivityId(),
@@ -293,10 +402,14 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         }
     }
 
-    private void storeVerificationMap() {
+    private void storeVerificationMapIfChanged() {
+        if(!verificationMapChanged || context() == null) {
+            return;
+        }
+        verificationMapChanged = false;
         Instant now = Instant.now();
-        String serializedMap = serializeOpenVerificationMap();
-        RawData rd = new RawData(context().getRawDataBroker().nextRawDataId(), now, Constants.N_TC_VERIFICATION_MAP, Constants.T_TC_VERIFICATION_MAP, "", String.valueOf(spacecraftConfiguration().getId()), Quality.GOOD, null, serializedMap.getBytes(StandardCharsets.US_ASCII), now, driverName(), null);
+        byte[] serializedMap = serializeOpenVerificationMap();
+        RawData rd = new RawData(context().getRawDataBroker().nextRawDataId(), now, Constants.N_TC_VERIFICATION_MAP, Constants.T_TC_VERIFICATION_MAP, "", String.valueOf(spacecraftConfiguration().getId()), Quality.GOOD, null, serializedMap, now, driverName(), null);
         try {
             context().getRawDataBroker().distribute(Collections.singletonList(rd));
         } catch (ReatmetricException e) {
@@ -304,28 +417,65 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         }
     }
 
-    private String serializeOpenVerificationMap() {
-        StringBuilder sb = new StringBuilder();
-        for(Map.Entry<Integer, Pair<TcPacketTracker, String>> entry : this.openCommandVerifications.entrySet()) {
-            sb.append(entry.getKey()).append('=');
-            sb.append(entry.getValue().getSecond()).append(';');
-            sb.append(entry.getValue().getFirst().getInvocation().getActivityOccurrenceId().asLong()).append('|');
-            sb.append(entry.getValue().getFirst().getRawData().getInternalId().asLong());
-            sb.append('#');
+    /**
+     * Encode the open verification map in a compact binary format: format marker (1 byte), number of entries (4 bytes)
+     * and, for each entry, TC identifier (4 bytes), last stage index (1 byte), activity occurrence ID (8 bytes) and TC
+     * raw data ID (8 bytes).
+     */
+    private byte[] serializeOpenVerificationMap() {
+        List<Map.Entry<Integer, Pair<TcPacketTracker, String>>> entries = new ArrayList<>(this.openCommandVerifications.entrySet());
+        ByteBuffer bb = ByteBuffer.allocate(1 + Integer.BYTES + entries.size() * (Integer.BYTES + 1 + Long.BYTES + Long.BYTES));
+        bb.put(VERIFICATION_MAP_FORMAT_MARKER);
+        bb.putInt(entries.size());
+        for(Map.Entry<Integer, Pair<TcPacketTracker, String>> entry : entries) {
+            bb.putInt(entry.getKey());
+            bb.put((byte) Arrays.asList(VERIFICATION_STAGES).indexOf(entry.getValue().getSecond()));
+            bb.putLong(entry.getValue().getFirst().getInvocation().getActivityOccurrenceId().asLong());
+            bb.putLong(entry.getValue().getFirst().getRawData().getInternalId().asLong());
         }
-        if(sb.length() > 0) {
-            sb.deleteCharAt(sb.length() - 1);
+        return bb.array();
+    }
+
+    private static List<VerificationMapEntry> deserializeOpenVerificationMap(byte[] data) {
+        List<VerificationMapEntry> toReturn = new ArrayList<>();
+        if(data == null || data.length == 0) {
+            return toReturn;
+        }
+        if(data[0] == VERIFICATION_MAP_FORMAT_MARKER) {
+            ByteBuffer bb = ByteBuffer.wrap(data, 1, data.length - 1);
+            int numEntries = bb.getInt();
+            for(int i = 0; i < numEntries; ++i) {
+                int id = bb.getInt();
+                byte stage = bb.get();
+                long actInvId = bb.getLong();
+                long rawDataId = bb.getLong();
+                toReturn.add(new VerificationMapEntry(id, stage >= 0 && stage < VERIFICATION_STAGES.length ? VERIFICATION_STAGES[stage] : null, actInvId, rawDataId));
+            }
+        } else {
+            // Old format: id=lastStage;activityOccurrenceId|rawDataId#...
+            String serializedMap = new String(data, StandardCharsets.US_ASCII);
+            for(String entry : serializedMap.split("#", -1)) {
+                int id = Integer.parseInt(entry.substring(0, entry.indexOf('=')));
+                String rest = entry.substring(entry.indexOf('=') + 1);
+                String lastStage = rest.substring(0, rest.indexOf(';'));
+                long actInvId = Long.parseLong(rest.substring(rest.indexOf(';') + 1, rest.indexOf('|')));
+                long rawDataId = Long.parseLong(rest.substring(rest.indexOf('|') + 1));
+                toReturn.add(new VerificationMapEntry(id, lastStage, actInvId, rawDataId));
+            }
         }
-        return sb.toString();
+        return toReturn;
     }
 
     private void registerCommandStage(TcPacketTracker tracker, String stageName, boolean isLastStage) {
         processingModel().reportActivityProgress(ActivityProgress.of(tracker.getInvocation().getActivityId(), tracker.getInvocation().getActivityOccurrenceId(), stageName, Instant.now(), ActivityOccurrenceState.EXECUTION, null, ActivityReportState.PENDING, ActivityOccurrenceState.EXECUTION, null));
         int id = getTcIdentifier(tracker.getPacket());
         if(!isLastStage) {
-            openCommandVerifications.putIfAbsent(id, Pair.of(tracker, stageName));
+            Pair<TcPacketTracker, String> current = openCommandVerifications.get(id);
+            if(current == null || current.getFirst() != tracker) {
+                putOpenVerification(id, tracker, stageName, Instant.now());
+            }
         } else {
-            openCommandVerifications.put(id, Pair.of(tracker, stageName)); // Override
+            putOpenVerification(id, tracker, stageName, Instant.now()); // Override
         }
     }
 
@@ -340,11 +490,11 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
 
     @Override
     public IServicePacketFilter getSubscriptionFilter() {
-        return (rd, item, pusType, pusSubtype, destination, source) -> (rd.getType().equals(Constants.T_TC_VCA)) ||
-            (item instanceof SpacePacket) && (
-                (((SpacePacket) item).isTelemetryPacket() && pusType != null && pusType == 1) || // For TM 1,x reports
-                        !((SpacePacket) item).isTelemetryPacket()
-            ); // All TCs
+        ServicePacketFilter filter = new ServicePacketFilter();
+        filter.add(Constants.T_TC_VCA);
+        filter.add(Constants.T_TC_PACKET); // All TCs
+        filter.add(Constants.T_TM_PACKET).withPusTypes(1); // For TM 1,x reports
+        return filter;
     }
 
     @Override
@@ -359,7 +509,20 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
 
     @Override
     public void dispose() {
+        synchronized (this) {
+            if(verificationMapStorer != null) {
+                verificationMapStorer.cancel();
+                verificationMapStorer = null;
+            }
+        }
+        storeVerificationMapIfChanged();
         openCommandVerifications.clear();
+        openCommandVerificationsByOccurrence.clear();
+        synchronized (this) {
+            queuedReportMap.clear();
+            queuedReportDeadlines.clear();
+            openVerificationDeadlines.clear();
+        }
     }
 
     @Override
@@ -367,12 +530,37 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         return null;
     }
 
+    private static class OpenVerificationDeadline {
+        private final int id;
+        private final TcPacketTracker tracker;
+        private final Instant deadline;
+
+        public OpenVerificationDeadline(int id, TcPacketTracker tracker, Instant deadline) {
+            this.id = id;
+            this.tracker = tracker;
+            this.deadline = deadline;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public TcPacketTracker getTracker() {
+            return tracker;
+        }
+
+        public Instant getDeadline() {
+            return deadline;
+        }
+    }
+
     private static class QueuedReport {
         private final int id;
         private final Instant generationTime;
         private final String stageName;
         private final boolean success;
         private final Instant processingTime;
+        private boolean consumed;
 
         public QueuedReport(int id, Instant generationTime, String stageName, boolean success, Instant processingTime) {
             this.id = id;
@@ -401,5 +589,27 @@ public class CommandVerificationService extends AbstractPacketService<Object> {
         public Instant getProcessingTime() {
             return processingTime;
         }
+
+        public boolean isConsumed() {
+            return consumed;
+        }
+
+        public void setConsumed() {
+            this.consumed = true;
+        }
+    }
+
+    private static class VerificationMapEntry {
+        private final int id;
+        private final String lastStage;
+        private final long activityOccurrenceId;
+        private final long rawDataId;
+
+        public VerificationMapEntry(int id, String lastStage, long activityOccurrenceId, long rawDataId) {
+            this.id = id;
+            this.lastStage = lastStage;
+            this.activityOccurrenceId = activityOccurrenceId;
+            this.rawDataId = rawDataId;
+        }
     }
 }
@@ -27,6 +27,7 @@ import eu.dariolucia.reatmetric.driver.spacecraft.activity.AbstractTcTracker;
 import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.services.TimeCorrelationServiceConfiguration;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.ServicePacketFilter;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.ITimeCorrelation;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
 
@@ -134,7 +135,8 @@ public class DirectLinkTimeCorrelationService extends TimeCorrelationService imp
 
     @Override
     public IServicePacketFilter getSubscriptionFilter() {
-        return (rd, item, pusType, pusSubtype, destination, source) -> (item instanceof SpacePacket) && (
-            ((SpacePacket) item).getApid() != 0 && pusType != null && (pusType == 3 || pusType == 5));
+        ServicePacketFilter filter = new ServicePacketFilter();
+        filter.add(Constants.T_TM_PACKET).withPusTypes(3, 5).matching((rd, item, pusType, pusSubtype, destination, source) -> ((SpacePacket) item).getApid() != 0);
+        return filter;
     }
 }
@@ -20,57 +20,73 @@ package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
 import eu.dariolucia.reatmetric.api.common.Pair;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.List;
+import java.math.BigInteger;
+import java.math.MathContext;
 
 /**
- * Simple linear regression calculator, based on the code of
- * (<a href="https://notebook.community/cleuton/datascience/java/JavaRegression">Robert Sedgewick and Kevin Wayne</a>)
- * and updated to support BigDecimal as data type for increased resolution.
+ * Incremental least-squares linear regression calculator. Data points can be added and removed (e.g. to implement a
+ * sliding window) in constant time: the regression is computed from the accumulated sums, which are kept as exact
+ * integers, so that no precision is lost independently from the number of data points.
+ *
+ * Data points are expressed as long values (e.g. nanoseconds from a reference time).
  */
 public class LinearRegression {
 
-    private LinearRegression() {
-        throw new IllegalAccessError("Not expected to be instantiated");
+    private long n = 0;
+    private BigInteger sumX = BigInteger.ZERO;
+    private BigInteger sumY = BigInteger.ZERO;
+    private BigInteger sumXX = BigInteger.ZERO;
+    private BigInteger sumXY = BigInteger.ZERO;
+
+    public void add(long x, long y) {
+        BigInteger bx = BigInteger.valueOf(x);
+        BigInteger by = BigInteger.valueOf(y);
+        ++n;
+        sumX = sumX.add(bx);
+        sumY = sumY.add(by);
+        sumXX = sumXX.add(bx.multiply(bx));
+        sumXY = sumXY.add(bx.multiply(by));
+    }
+
+    public void remove(long x, long y) {
+        BigInteger bx = BigInteger.valueOf(x);
+        BigInteger by = BigInteger.valueOf(y);
+        --n;
+        sumX = sumX.subtract(bx);
+        sumY = sumY.subtract(by);
+        sumXX = sumXX.subtract(bx.multiply(bx));
+        sumXY = sumXY.subtract(bx.multiply(by));
+    }
+
+    public void clear() {
+        n = 0;
+        sumX = BigInteger.ZERO;
+        sumY = BigInteger.ZERO;
+        sumXX = BigInteger.ZERO;
+        sumXY = BigInteger.ZERO;
+    }
+
+    public long size() {
+        return n;
     }
 
     /**
-     * Performs a linear regression on the data points.
+     * Compute the linear regression of the data points currently accumulated.
      *
-     * @param  dataSet the input values
-     * @return the slop (first) and intercept (second) pair
-     * @throws IllegalArgumentException if the dataset is null or with less than 2 points
+     * @return the slope (first) and intercept (second) pair, or null if less than 2 points with distinct x values are available
      */
-    public static Pair<BigDecimal, BigDecimal> calculate(List<Pair<BigDecimal, BigDecimal>> dataSet) {
-        if(dataSet == null || dataSet.size() < 2) {
-            throw new IllegalArgumentException("Data set null or with less than 2 points");
-        }
-        int n = dataSet.size();
-
-        // First scan
-        BigDecimal sumx = BigDecimal.valueOf(0.0);
-        BigDecimal sumy = BigDecimal.valueOf(0.0);
-        BigDecimal sumx2 = BigDecimal.valueOf(0.0);
-        for (Pair<BigDecimal, BigDecimal> iTh : dataSet) {
-            sumx = sumx.add(iTh.getFirst());
-            sumx2 = sumx2.add(iTh.getFirst().pow(2));
-            sumy = sumy.add(iTh.getSecond());
+    public Pair<BigDecimal, BigDecimal> calculate() {
+        if(n < 2) {
+            return null;
         }
-        BigDecimal xbar = sumx.divide(BigDecimal.valueOf(n), 9, RoundingMode.HALF_UP);
-        BigDecimal ybar = sumy.divide(BigDecimal.valueOf(n), 9, RoundingMode.HALF_UP);
-
-        // Second scan
-        BigDecimal xxbar = BigDecimal.valueOf(0.0);
-        BigDecimal yybar = BigDecimal.valueOf(0.0);
-        BigDecimal xybar = BigDecimal.valueOf(0.0);
-        for (Pair<BigDecimal, BigDecimal> iTh : dataSet) {
-            xxbar = xxbar.add((iTh.getFirst().subtract(xbar)).multiply(iTh.getFirst().subtract(xbar)));
-            yybar = yybar.add((iTh.getSecond().subtract(ybar)).multiply(iTh.getSecond().subtract(ybar)));
-            xybar = xybar.add((iTh.getFirst().subtract(xbar)).multiply(iTh.getSecond().subtract(ybar)));
+        BigInteger bn = BigInteger.valueOf(n);
+        BigInteger denominator = bn.multiply(sumXX).subtract(sumX.multiply(sumX));
+        if(denominator.signum() == 0) {
+            return null;
         }
-        BigDecimal slope  = xybar.divide(xxbar, 9, RoundingMode.HALF_UP);
-        BigDecimal intercept = ybar.subtract(slope.multiply(xbar));
+        BigInteger numerator = bn.multiply(sumXY).subtract(sumX.multiply(sumY));
+        BigDecimal slope = new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL128);
+        BigDecimal intercept = new BigDecimal(sumY).subtract(slope.multiply(new BigDecimal(sumX))).divide(new BigDecimal(bn), MathContext.DECIMAL128);
         return Pair.of(slope, intercept);
     }
-
 }
@@ -23,9 +23,11 @@ import eu.dariolucia.reatmetric.api.archive.IArchive;
 import eu.dariolucia.reatmetric.api.processing.input.EventOccurrence;
 import eu.dariolucia.reatmetric.api.rawdata.RawData;
 import eu.dariolucia.reatmetric.driver.spacecraft.activity.AbstractTcTracker;
+import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.services.OnboardEventServiceConfiguration;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.services.TimeCorrelationServiceConfiguration;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.ServicePacketFilter;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
 
 import java.io.FileInputStream;
@@ -76,7 +78,15 @@ public class OnboardEventService extends AbstractPacketService<OnboardEventServi
 
     @Override
     public IServicePacketFilter getSubscriptionFilter() {
-        return (rd, sp, pusType, pusSubtype, destination, source) -> pusType != null && pusType == 5;
+        ServicePacketFilter filter = new ServicePacketFilter();
+        filter.add(Constants.T_TM_PACKET).withPusTypes(5);
+        return filter;
+    }
+
+    @Override
+    public boolean isParallelNotificationAllowed() {
+        // Events are raised independently from the processing of other services
+        return true;
     }
 
     @Override
@@ -16,7 +16,6 @@
 
 package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
 
-import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
 import eu.dariolucia.reatmetric.api.activity.*;
 import eu.dariolucia.reatmetric.api.archive.IArchive;
 import eu.dariolucia.reatmetric.api.common.IUniqueId;
@@ -36,6 +35,7 @@ import eu.dariolucia.reatmetric.driver.spacecraft.activity.TcPacketTracker;
 import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.services.OnboardOperationsSchedulingServiceConfiguration;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.ServicePacketFilter;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.ITimeCorrelation;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
 
@@ -298,7 +298,10 @@ public class OnboardOperationsSchedulingService extends AbstractPacketService<On
 
     @Override
     public IServicePacketFilter getSubscriptionFilter() {
-        return (rd, sp, pusType, pusSubtype, destination, source) -> sp instanceof SpacePacket && (!((SpacePacket) sp).isTelemetryPacket() || (pusType != null && pusType == 11));
+        ServicePacketFilter filter = new ServicePacketFilter();
+        filter.add(Constants.T_TC_PACKET);
+        filter.add(Constants.T_TM_PACKET).withPusTypes(11);
+        return filter;
     }
 
     @Override
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+
+/**
+ * Immutable snapshot of the OBT to UTC time coefficients (UTC = m * OBT + q, with OBT and UTC expressed in seconds).
+ *
+ * The coefficients are kept as BigDecimal for storage and rendering purposes, but the conversions are performed in
+ * fixed-point long arithmetic, relative to a reference time couple (the OBT reference and the corresponding UTC): the
+ * distance from the reference is multiplied by the slope, which is split in its integral part and its fractional part,
+ * the latter scaled by 2^64. This keeps nanosecond precision without BigDecimal operations. Times too far from the
+ * reference to be handled in long nanoseconds (about 292 years) are converted with BigDecimal arithmetic.
+ */
+public final class TimeCoefficients {
+
+    private static final BigDecimal NANOS_PER_SECOND = BigDecimal.valueOf(1000000000L);
+    private static final BigInteger TWO_POW_64_INT = BigInteger.ONE.shiftLeft(64);
+    private static final BigDecimal TWO_POW_64 = new BigDecimal(TWO_POW_64_INT);
+    private static final long NANOS_PER_SECOND_LONG = 1000000000L;
+
+    private final BigDecimal m;
+    private final BigDecimal q;
+
+    // OBT reference and corresponding UTC
+    private final long refObtSeconds;
+    private final int refObtNanos;
+    private final long refUtcSeconds;
+    private final int refUtcNanos;
+
+    // m and 1/m, as integral part and fractional part scaled by 2^64 (unsigned)
+    private final long slopeInt;
+    private final long slopeFrac;
+    private final long inverseSlopeInt;
+    private final long inverseSlopeFrac;
+
+    /**
+     * Build the snapshot.
+     *
+     * @param m the slope
+     * @param q the intercept, in seconds
+     * @param referenceObt the OBT used as reference for the conversions: the closer to the converted times, the better
+     * @return the time coefficients
+     */
+    public static TimeCoefficients of(BigDecimal m, BigDecimal q, Instant referenceObt) {
+        return new TimeCoefficients(m, q, referenceObt);
+    }
+
+    private TimeCoefficients(BigDecimal m, BigDecimal q, Instant referenceObt) {
+        if(m.signum() == 0) {
+            throw new IllegalArgumentException("Slope cannot be 0");
+        }
+        this.m = m;
+        this.q = q;
+        this.refObtSeconds = referenceObt.getEpochSecond();
+        this.refObtNanos = referenceObt.getNano();
+        // Compute the UTC reference, rounded to the nanosecond
+        BigDecimal refObt = BigDecimal.valueOf(refObtSeconds).add(BigDecimal.valueOf(refObtNanos, 9));
+        BigDecimal refUtc = refObt.multiply(m).add(q).setScale(9, RoundingMode.HALF_UP);
+        BigDecimal refUtcSecondsBd = refUtc.setScale(0, RoundingMode.FLOOR);
+        this.refUtcSeconds = refUtcSecondsBd.longValueExact();
+        this.refUtcNanos = refUtc.subtract(refUtcSecondsBd).multiply(NANOS_PER_SECOND).intValue();
+        // Fixed point slopes
+        long[] slope = toFixedPoint(m);
+        this.slopeInt = slope[0];
+        this.slopeFrac = slope[1];
+        long[] inverseSlope = toFixedPoint(BigDecimal.ONE.divide(m, MathContext.DECIMAL128));
+        this.inverseSlopeInt = inverseSlope[0];
+        this.inverseSlopeFrac = inverseSlope[1];
+    }
+
+    /**
+     * Split the provided value into its integral part and its fractional part scaled by 2^64 (unsigned). If the rounded
+     * fractional part reaches 2^64, it is carried into the integral part.
+     */
+    private static long[] toFixedPoint(BigDecimal value) {
+        BigDecimal intPart = value.setScale(0, RoundingMode.FLOOR);
+        BigInteger fracPart = value.subtract(intPart).multiply(TWO_POW_64).setScale(0, RoundingMode.HALF_UP).toBigInteger();
+        BigInteger intPartInt = intPart.toBigInteger();
+        if(fracPart.equals(TWO_POW_64_INT)) {
+            intPartInt = intPartInt.add(BigInteger.ONE);
+            fracPart = BigInteger.ZERO;
+        }
+        return new long[] { intPartInt.longValueExact(), fracPart.longValue() };
+    }
+
+    public BigDecimal getM() {
+        return m;
+    }
+
+    public BigDecimal getQ() {
+        return q;
+    }
+
+    /**
+     * Convert the provided OBT into the correlated UTC.
+     *
+     * @param obt the OBT in UTC time scale
+     * @return the correlated UTC
+     */
+    public Instant toUtc(Instant obt) {
+        try {
+            long delta = nanosBetween(refObtSeconds, refObtNanos, obt);
+            return Instant.ofEpochSecond(refUtcSeconds, Math.addExact(refUtcNanos, scale(delta, slopeInt, slopeFrac)));
+        } catch (ArithmeticException e) {
+            // Too far from the reference
+            return toInstant(toBigDecimal(obt).multiply(m).add(q));
+        }
+    }
+
+    /**
+     * Convert the provided UTC into the corresponding OBT.
+     *
+     * @param utc the UTC time
+     * @return the OBT in UTC time scale
+     */
+    public Instant toObt(Instant utc) {
+        try {
+            long delta = nanosBetween(refUtcSeconds, refUtcNanos, utc);
+            return Instant.ofEpochSecond(refObtSeconds, Math.addExact(refObtNanos, scale(delta, inverseSlopeInt, inverseSlopeFrac)));
+        } catch (ArithmeticException e) {
+            // Too far from the reference
+            return toInstant(toBigDecimal(utc).subtract(q).divide(m, MathContext.DECIMAL128));
+        }
+    }
+
+    /**
+     * Compute the nanoseconds from the reference to the provided time.
+     *
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    private static long nanosBetween(long refSeconds, int refNanos, Instant time) {
+        return Math.addExact(Math.multiplyExact(Math.subtractExact(time.getEpochSecond(), refSeconds), NANOS_PER_SECOND_LONG), time.getNano() - refNanos);
+    }
+
+    /**
+     * Compute value * (intPart + fracPart / 2^64), where fracPart is unsigned, rounded towards negative infinity.
+     *
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    private static long scale(long value, long intPart, long fracPart) {
+        // High 64 bits of the product between a signed value and an unsigned value
+        long high = Math.multiplyHigh(value, fracPart) + ((fracPart >> 63) & value);
+        return Math.addExact(Math.multiplyExact(value, intPart), high);
+    }
+
+    private static BigDecimal toBigDecimal(Instant time) {
+        return BigDecimal.valueOf(time.getEpochSecond()).add(BigDecimal.valueOf(time.getNano(), 9));
+    }
+
+    private static Instant toInstant(BigDecimal seconds) {
+        BigDecimal rounded = seconds.setScale(9, RoundingMode.FLOOR);
+        BigDecimal secondsPart = rounded.setScale(0, RoundingMode.FLOOR);
+        return Instant.ofEpochSecond(secondsPart.longValueExact(), rounded.subtract(secondsPart).movePointRight(9).longValueExact());
+    }
+
+    @Override
+    public String toString() {
+        return "m=" + m.toPlainString() + ", q=" + q.toPlainString();
+    }
+}
@@ -33,6 +33,7 @@ import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.PacketErrorControlType;
 import eu.dariolucia.reatmetric.driver.spacecraft.definition.services.TimeCorrelationServiceConfiguration;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.IServicePacketFilter;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.ServicePacketFilter;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.ITimeCorrelation;
 import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
 import eu.dariolucia.reatmetric.driver.spacecraft.tmtc.TmFrameDescriptor;
@@ -40,8 +41,6 @@ import eu.dariolucia.reatmetric.driver.spacecraft.tmtc.TmFrameDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
@@ -51,7 +50,6 @@ import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * This class implements the ECSS PUS 9 time reporting service.
@@ -69,10 +67,16 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
     private volatile int generationPeriod;
 
     private final List<RawData> matchingFrames = new LinkedList<>(); // The users of this list assume that the frames are ERT ordered (0: more recent, size()-1: oldest)
-    private final List<Pair<Instant, Instant>> timeCouples = new LinkedList<>();
-    // Why BigDecimal? If you want to keep nanosecond precision, double resolution can keep up to microsecond and
-    // CUC 4,3 has a resolution of 59.6 nsec, CUC 4,4 is at picosecond level
-    private volatile Pair<BigDecimal, BigDecimal> obt2gtCoefficients;
+    // Sliding window of time couples, in UTC order, and the corresponding incremental regression
+    private final Deque<TimeCouple> timeCouples = new ArrayDeque<>();
+    private final LinearRegression timeCoupleRegression = new LinearRegression();
+    // Origin of the time couple coordinates used by the regression (first time couple received)
+    private Instant obtOrigin;
+    private Instant utcOrigin;
+    // Why not double? If you want to keep nanosecond precision, double resolution can keep up to microsecond and
+    // CUC 4,3 has a resolution of 59.6 nsec, CUC 4,4 is at picosecond level. The coefficients are published as an
+    // immutable snapshot, which performs the conversions in fixed-point arithmetic.
+    private volatile TimeCoefficients obt2gtCoefficients;
 
     @Override
     public void postInitialisation() {
@@ -85,7 +89,7 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
             t.setDaemon(true);
             return t;
         });
-        this.obt2gtCoefficients = Pair.of(BigDecimal.valueOf(configuration().getInitialCoefficientM()), BigDecimal.valueOf(configuration().getInitialCoefficientQ()));
+        this.obt2gtCoefficients = TimeCoefficients.of(BigDecimal.valueOf(configuration().getInitialCoefficientM()), BigDecimal.valueOf(configuration().getInitialCoefficientQ()), Instant.now());
         subscribeToRawDataBroker();
     }
 
@@ -102,7 +106,7 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
             String coeffs = new String(data.get(0).getContents(), StandardCharsets.US_ASCII);
             BigDecimal first = new BigDecimal(coeffs.substring(0, coeffs.indexOf('|')));
             BigDecimal second = new BigDecimal(coeffs.substring(coeffs.indexOf('|') + 1));
-            this.obt2gtCoefficients = Pair.of(first, second);
+            this.obt2gtCoefficients = TimeCoefficients.of(first, second, Instant.now());
         } else {
             if(LOG.isLoggable(Level.INFO)) {
                 LOG.log(Level.INFO, "Time coefficients for spacecraft " + spacecraftId + " at time " + latestGenerationTime + " not found");
@@ -137,13 +141,11 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
      */
     @Override
     public Instant toUtc(Instant obt, AbstractTransferFrame frame, SpacePacket spacePacket) {
-        Pair<BigDecimal, BigDecimal> coeffs = this.obt2gtCoefficients;
+        TimeCoefficients coeffs = this.obt2gtCoefficients;
         if(coeffs == null) {
             return obt;
         }
-        BigDecimal obtBd = convertToBigDecimal(obt);
-        BigDecimal converted = obtBd.multiply(coeffs.getFirst()).add(coeffs.getSecond());
-        return convertToInstant(converted);
+        return coeffs.toUtc(obt);
     }
 
     /**
@@ -156,26 +158,17 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
      */
     @Override
     public Instant toObt(Instant utc) {
-        Pair<BigDecimal, BigDecimal> coeffs = this.obt2gtCoefficients;
+        TimeCoefficients coeffs = this.obt2gtCoefficients;
         if(coeffs == null) {
             return utc;
         }
-        BigDecimal utcBd = convertToBigDecimal(utc);
-        BigDecimal converted = utcBd.subtract(coeffs.getSecond()).divide(coeffs.getFirst(), 9, RoundingMode.HALF_UP); // 9 digits after dot
-        Instant toReturn = convertToInstant(converted);
+        Instant toReturn = coeffs.toObt(utc);
         if(LOG.isLoggable(Level.INFO)) {
             LOG.log(Level.INFO, String.format("UTC time %s converted to OBT time %s", utc, toReturn));
         }
         return toReturn;
     }
 
-    private Instant convertToInstant(BigDecimal converted) {
-        // Integral part: seconds. Decimal part: nanos. Ugly. Ugly ugly ugly. But there is no precision loss.
-        BigInteger epochSeconds = converted.toBigInteger();
-        BigInteger nanoSeconds = converted.subtract(new BigDecimal(epochSeconds.longValue())).multiply(new BigDecimal(1000000000)).toBigInteger();
-        return Instant.ofEpochSecond(epochSeconds.longValue(), nanoSeconds.intValue());
-    }
-
     @Override
     public void dataItemsReceived(List<RawData> messages) {
         for(RawData rd : messages) {
@@ -242,100 +235,62 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
         if(LOG.isLoggable(Level.FINE)) {
             LOG.log(Level.FINE, String.format("Adding time couple: OBT=%s, UTC=%s", onboardTime.toString(), utcTime.toString()));
         }
-        // Iterate on the time couples (they are max 2): if utcTime is before of any of the two second members of each pair, then forget about this time couple
-        for(Pair<Instant, Instant> couple : timeCouples) {
-            if(utcTime.isBefore(couple.getSecond())) { // old time couple
-                return;
-            }
+        // Time couples are kept in UTC order: if utcTime is before the most recent time couple, then forget about this time couple
+        if(!timeCouples.isEmpty() && utcTime.isBefore(timeCouples.peekLast().getUtc())) { // old time couple
+            return;
+        }
+        if(obtOrigin == null) {
+            obtOrigin = onboardTime;
+            utcOrigin = utcTime;
         }
         // Check is OK, add time couple
-        this.timeCouples.add(Pair.of(onboardTime, utcTime));
+        TimeCouple couple = new TimeCouple(onboardTime, utcTime, toNanos(obtOrigin, onboardTime), toNanos(utcOrigin, utcTime));
+        this.timeCouples.addLast(couple);
+        this.timeCoupleRegression.add(couple.getX(), couple.getY());
         if(this.timeCouples.size() > configuration().getNumTimeCouples()) {
             // while loop not needed, time couples are added once per time
-            this.timeCouples.remove(0);
+            TimeCouple removed = this.timeCouples.pollFirst();
+            this.timeCoupleRegression.remove(removed.getX(), removed.getY());
         }
         updateCoefficients();
     }
 
     private void updateCoefficients() {
-        if(timeCouples.size() == 2) {
-            directInterpolation();
-        } else if(timeCouples.size() > 2) {
-            linearRegression();
+        // With two time couples, this is a direct interpolation; with more time couples, a least-squares best fit
+        Pair<BigDecimal, BigDecimal> slopeIntercept = timeCoupleRegression.calculate();
+        if(slopeIntercept == null) {
+            // Not enough time couples, or time couples with the same OBT
+            return;
         }
-    }
-
-    private void linearRegression() {
-        Instant mostRecentTimeCouple = timeCouples.get(timeCouples.size() - 1).getSecond();
-        // Convert data set
-        List<Pair<BigDecimal, BigDecimal>> converted = timeCouples.stream().map(this::convert).collect(Collectors.toList());
-        // Get the coefficients
-        this.obt2gtCoefficients = LinearRegression.calculate(converted);
+        // The regression works on nanoseconds from the origin time couple: y = slope * x + intercept. Convert to
+        // seconds: UTC = m * OBT + q, with m = slope and q = utcOrigin + intercept - m * obtOrigin
+        BigDecimal m = slopeIntercept.getFirst();
+        BigDecimal q = toSeconds(utcOrigin)
+                .add(slopeIntercept.getSecond().movePointLeft(9))
+                .subtract(m.multiply(toSeconds(obtOrigin)));
+        TimeCouple mostRecentTimeCouple = timeCouples.peekLast();
+        this.obt2gtCoefficients = TimeCoefficients.of(m, q, mostRecentTimeCouple.getObt());
         if(LOG.isLoggable(Level.FINE)) {
-            LOG.log(Level.FINE, String.format("Time coefficient generated (LR): m=%s, q=%s",
-                    obt2gtCoefficients.getFirst().toPlainString(),
-                    obt2gtCoefficients.getFirst().toPlainString()));
+            LOG.log(Level.FINE, String.format("Time coefficient generated (%d time couples): %s", timeCouples.size(), obt2gtCoefficients));
         }
         // Distribute the coefficients: generation time is the UTC generation time of the most recent time couple
-        distributeCoefficients(this.obt2gtCoefficients, mostRecentTimeCouple);
+        distributeCoefficients(this.obt2gtCoefficients, mostRecentTimeCouple.getUtc());
     }
 
-    private void directInterpolation() {
-        // Use the two time couples, if available
-        if(timeCouples.size() >= 2) {
-            Pair<Instant, Instant> firstTimeCouple = timeCouples.get(0);
-            Pair<Instant, Instant> secondTimeCouple = timeCouples.get(1);
-            // Order so that firstTimeCouple.getFirst() is lower than secondTimeCouple.getFirst()
-
-            // For my (code) descendants: I wrote this code in 2022 and added the comment below in 2023.
-
-            // I already predict the purist's comment: that does not work with wrap around of the OBT!!
-            //
-            // Right, but let's do some math...
-            // A typical time format for nowadays mission is CUC 4,2 or CUC 4,3.
-            // This CUC uses 4 bytes for the number of seconds since epoch. Assuming that the epoch is the launch year
-            // the satellite, the onboard clock will wrap around after 4.294.967.295 seconds, so after 1.193.046 hours,
-            // so after 49.710 days, so after 135 years assuming that all years are leap years. Even assuming that the
-            // epoch is 2000, the wrap-around will be in 2135. And even assuming you use the CCSDS epoch, you have time
-            // until 2093.
-            //
-            // Therefore... if you use this code and care about the wrap-around problem, you must definitely have great
-            // expectations about your own life and the life of your mission. A suggestion: leave the issue to the new
-            // generations and go on with your life.
-            //
-            // The of course, you always have the chance to consider this corner case that won't happen during your
-            // life, to make the code uglier and more complex, showing the basic attitude of many people that complicate
-            // problems and solutions, instead of being pragmatic.
-            if(firstTimeCouple.getFirst().isAfter(secondTimeCouple.getFirst())) {
-                // Swap
-                Pair<Instant, Instant> temp = firstTimeCouple;
-                firstTimeCouple = secondTimeCouple;
-                secondTimeCouple = temp;
-            }
-            // Convert to big decimals: integral part seconds, decimal part nanoseconds
-            Pair<BigDecimal, BigDecimal> fTc = convert(firstTimeCouple);
-            Pair<BigDecimal, BigDecimal> sTc = convert(secondTimeCouple);
-            BigDecimal divisor = fTc.getFirst().subtract(sTc.getFirst());
-            if(divisor.doubleValue() == 0.0) {
-                // Avoid ArithmeticException
-                return;
-            }
-            BigDecimal m = (fTc.getSecond().subtract(sTc.getSecond())).divide(divisor, 9, RoundingMode.HALF_UP);
-            BigDecimal q = sTc.getSecond().subtract(m.multiply(sTc.getFirst()));
-            if(LOG.isLoggable(Level.FINE)) {
-                LOG.log(Level.FINE, String.format("Time coefficient generated (DI): m=%s, q=%s", m.toPlainString(), q.toPlainString()));
-            }
-            this.obt2gtCoefficients = Pair.of(m, q);
-            // Distribute the coefficients: generation time is the UTC generation time of the most recent time couple
-            distributeCoefficients(this.obt2gtCoefficients, secondTimeCouple.getSecond());
-        }
+    private static long toNanos(Instant origin, Instant time) {
+        return (time.getEpochSecond() - origin.getEpochSecond()) * 1000000000L + (time.getNano() - origin.getNano());
     }
 
-    private void distributeCoefficients(Pair<BigDecimal, BigDecimal> obt2gtCoefficients, Instant generationTime) {
+    private static BigDecimal toSeconds(Instant instant) {
+        // Thanks to xpromache for the optimized implementation: issue #4
+        return BigDecimal.valueOf(instant.getEpochSecond()).add(BigDecimal.valueOf(instant.getNano(), 9));
+    }
+
+    private void distributeCoefficients(TimeCoefficients obt2gtCoefficients, Instant generationTime) {
         if(obt2gtCoefficients != null) {
             // Serialize coefficients as String
-            String mCoeff = obt2gtCoefficients.getFirst().toPlainString();
-            String qCoeff = obt2gtCoefficients.getSecond().toPlainString();
+            String mCoeff = obt2gtCoefficients.getM().toPlainString();
+            String qCoeff = obt2gtCoefficients.getQ().toPlainString();
             String derivedString = mCoeff + "|" + qCoeff;
             RawData rd = new RawData(context().getRawDataBroker().nextRawDataId(), generationTime, Constants.N_TIME_COEFFICIENTS, Constants.T_TIME_COEFFICIENTS, "", String.valueOf(spacecraftId), Quality.GOOD, null, derivedString.getBytes(StandardCharsets.US_ASCII), Instant.now(), driverName(), null);
             try {
@@ -346,17 +301,6 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
         }
     }
 
-    private Pair<BigDecimal, BigDecimal> convert(Pair<Instant, Instant> firstTimeCouple) {
-        BigDecimal first = convertToBigDecimal(firstTimeCouple.getFirst());
-        BigDecimal second = convertToBigDecimal(firstTimeCouple.getSecond());
-        return Pair.of(first, second);
-    }
-
-    private BigDecimal convertToBigDecimal(Instant instant) {
-        // Thanks to xpromache for the optimized implementation: issue #4
-        return BigDecimal.valueOf(instant.getEpochSecond()).add(BigDecimal.valueOf(instant.getNano(), 9));
-    }
-
     private Instant extractOnboardTime(SpacePacket spacePacket) {
         // The extraction of the OBT time applies by default UTC correction. In fact, the function used in TimeUtil
         // reads the CUC and then converts it into UTC, by applying the epoch (converted to TAI) and then removing the
@@ -440,7 +384,11 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
 
     @Override
     public IServicePacketFilter getSubscriptionFilter() {
-        return (rd, sp, pusType, pusSubtype, destination, source) -> sp instanceof SpacePacket && (((SpacePacket) sp).getApid() == 0 || (pusType != null && pusType == 9));
+        ServicePacketFilter filter = new ServicePacketFilter();
+        filter.add(Constants.T_TM_PACKET).withApids(0); // Time packets
+        filter.add(Constants.T_TM_PACKET).withPusTypes(9);
+        filter.add(Constants.T_TC_PACKET).withPusTypes(9);
+        return filter;
     }
 
     @Override
@@ -474,4 +422,34 @@ public class TimeCorrelationService extends AbstractPacketService<TimeCorrelatio
         toReturn.put("Q", second);
         return toReturn;
     }
+
+    private static class TimeCouple {
+        private final Instant obt;
+        private final Instant utc;
+        private final long x;
+        private final long y;
+
+        public TimeCouple(Instant obt, Instant utc, long x, long y) {
+            this.obt = obt;
+            this.utc = utc;
+            this.x = x;
+            this.y = y;
+        }
+
+        public Instant getObt() {
+            return obt;
+        }
+
+        public Instant getUtc() {
+            return utc;
+        }
+
+        public long getX() {
+            return x;
+        }
+
+        public long getY() {
+            return y;
+        }
+    }
 }
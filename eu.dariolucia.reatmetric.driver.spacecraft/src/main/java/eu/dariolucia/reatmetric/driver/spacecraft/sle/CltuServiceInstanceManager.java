@@ -33,6 +33,8 @@ import eu.dariolucia.ccsds.sle.utl.si.cltu.CltuUplinkStatusEnum;
 import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceReport;
 import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
 import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.common.IDebugInfoProvider;
 import eu.dariolucia.reatmetric.api.common.IUniqueId;
 import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.model.AlarmState;
@@ -51,22 +53,27 @@ import eu.dariolucia.reatmetric.driver.spacecraft.definition.SpacecraftConfigura
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class has a subscription mechanism, which allows subscribers to know the status of a CLTU (ACCEPTED, REJECTED, UPLINKED, FAILED, DISCARDED).
+ * <br />
+ * If the initialisation parameter {@link #CLTU_WINDOW_SIZE_KEY} is greater than 0, CLTUs are uplinked in pipelined mode:
+ * {@link #sendCltu(byte[], long)} returns immediately and a dedicated thread transmits the CLTUs, keeping up to the
+ * specified number of CLTUs in flight (i.e. sent but not yet radiated, rejected or discarded), within the limits of the
+ * reported buffer availability of the provider.
  */
-public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuServiceInstance, CltuServiceInstanceConfiguration> implements IActivityExecutor, ICltuConnector {
+public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuServiceInstance, CltuServiceInstanceConfiguration> implements IActivityExecutor, ICltuConnector, IDebugInfoProvider {
 
     private static final Logger LOG = Logger.getLogger(CltuServiceInstanceManager.class.getName());
     private static final String FIRST_CLTU_ID_KEY = "cltu.first.id";
+    public static final String CLTU_WINDOW_SIZE_KEY = "cltu.window.size";
 
     private volatile CltuUplinkStatusEnum uplinkStatus = CltuUplinkStatusEnum.UPLINK_STATUS_NOT_AVAILABLE;
 
@@ -85,8 +92,26 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
 
     private final List<IForwardDataUnitStatusSubscriber> subscribers = new CopyOnWriteArrayList<>();
 
+    // Pipelined uplink: the window is null if the pipelined mode is not active
+    private volatile Semaphore uplinkWindow;
+    private volatile int uplinkWindowSize;
+    private final ExecutorService uplinkExecutor;
+    private final AtomicInteger pendingUplink = new AtomicInteger();
+
+    // Uplink performance indicators
+    private final LongAdder radiatedCltus = new LongAdder();
+    private final LongAdder radiatedBytes = new LongAdder();
+    private volatile Instant lastSamplingTime;
+    private final AtomicReference<List<DebugInformation>> lastStats;
+
     public CltuServiceInstanceManager(String driverName, PeerConfiguration peerConfiguration, CltuServiceInstanceConfiguration siConfiguration, SpacecraftConfiguration spacecraftConfiguration, IServiceCoreContext context) {
         super(driverName, peerConfiguration, siConfiguration, spacecraftConfiguration, context);
+        this.uplinkExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Reatmetric SLE CLTU uplink - " + serviceInstanceLastPart);
+            t.setDaemon(true);
+            return t;
+        });
+        this.lastStats = new AtomicReference<>(buildStats(0, 0));
     }
 
     @Override
@@ -114,6 +139,35 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
         super.addToInitialisationMap(initialisationMap, initialisationDescriptionMap);
         initialisationMap.put(FIRST_CLTU_ID_KEY, (long) 1); // long because the data type is UNSIGNED_INTEGER
         initialisationDescriptionMap.put(FIRST_CLTU_ID_KEY, Pair.of("First CLTU ID", ValueTypeEnum.UNSIGNED_INTEGER));
+        initialisationMap.put(CLTU_WINDOW_SIZE_KEY, (long) 0); // long because the data type is UNSIGNED_INTEGER
+        initialisationDescriptionMap.put(CLTU_WINDOW_SIZE_KEY, Pair.of("CLTU uplink window (0: not pipelined)", ValueTypeEnum.UNSIGNED_INTEGER));
+    }
+
+    @Override
+    protected Pair<Long, Long> computeBitrate() {
+        Instant now = Instant.now();
+        if(lastSamplingTime != null) {
+            long millis = Math.max(1, now.toEpochMilli() - lastSamplingTime.toEpochMilli());
+            lastStats.set(buildStats(Math.round(radiatedCltus.sumThenReset() * 1000.0 / millis), Math.round(radiatedBytes.sumThenReset() * 1000.0 / millis)));
+        }
+        lastSamplingTime = now;
+        return super.computeBitrate();
+    }
+
+    private List<DebugInformation> buildStats(long cltuRate, long byteRate) {
+        String element = "SLE CLTU " + serviceInstanceLastPart;
+        return Arrays.asList(
+                DebugInformation.of(element, "CLTUs in flight", cltuId2tracker.size(), uplinkWindowSize > 0 ? uplinkWindowSize : null, ""),
+                DebugInformation.of(element, "CLTUs waiting for uplink", pendingUplink.get(), null, ""),
+                DebugInformation.of(element, "Estimated free buffer", estimatedFreeBuffer.get(), bufferCapacity > 0 ? bufferCapacity : null, "bytes"),
+                DebugInformation.of(element, "Radiated CLTUs", cltuRate, null, "CLTUs/second"),
+                DebugInformation.of(element, "Uplink throughput", byteRate, null, "bytes/second")
+        );
+    }
+
+    @Override
+    public List<DebugInformation> currentDebugInfo() {
+        return lastStats.get();
     }
 
     @Override
@@ -271,8 +325,9 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
         } else {
             LOG.severe(serviceInstance.getServiceInstanceIdentifier() + ": negative CLTU TRANSFER DATA return for CLTU ID " + tracker.getExternalId() + ": " + CltuDiagnosticsStrings.getTransferDataDiagnostic(operation.getResult().getNegativeResult()));
             informSubscribers(tracker.getExternalId(), ForwardDataUnitProcessingStatus.REJECTED, Constants.STAGE_GROUND_STATION_RECEPTION, null);
-            this.cltuId2tracker.remove(cltuId);
-            increaseEstimatedFreeBuffer(tracker.getCltu().length);
+            if(this.cltuId2tracker.remove(cltuId) != null) {
+                releaseResources(tracker);
+            }
             refreshExpectedCltuId();
         }
     }
@@ -362,15 +417,36 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
 
     private void cltuRadiated(long cltuId, Instant radiationTime) {
         LOG.log(Level.INFO, serviceInstance.getServiceInstanceIdentifier() + ": CLTU " + cltuId + " radiated");
+        // Only the notified CLTU is reported as uplinked: CLTUs sent before this one stay outstanding until their own
+        // notification is received, or until they are purged
         CltuTracker tracker = this.cltuId2tracker.remove(cltuId);
         if (tracker != null) {
-            informSubscribers(tracker.getExternalId(), ForwardDataUnitProcessingStatus.UPLINKED, radiationTime, Constants.STAGE_GROUND_STATION_UPLINK, null);
-            increaseEstimatedFreeBuffer(tracker.getCltu().length);
+            uplinked(tracker, radiationTime);
         } else {
             LOG.log(Level.WARNING, serviceInstance.getServiceInstanceIdentifier() + ": received notification of radiation for CLTU " + cltuId + " not present in the system");
         }
     }
 
+    private void uplinked(CltuTracker tracker, Instant radiationTime) {
+        informSubscribers(tracker.getExternalId(), ForwardDataUnitProcessingStatus.UPLINKED, radiationTime, Constants.STAGE_GROUND_STATION_UPLINK, null);
+        radiatedCltus.increment();
+        radiatedBytes.add(tracker.getCltu().length);
+        releaseResources(tracker);
+    }
+
+    /**
+     * To be called once the tracker is removed from the map of the CLTUs in flight: the corresponding space in the
+     * provider buffer and, in pipelined mode, the slot in the uplink window are released.
+     *
+     * @param tracker the tracker of the CLTU no longer in flight
+     */
+    private void releaseResources(CltuTracker tracker) {
+        increaseEstimatedFreeBuffer(tracker.getCltu().length);
+        if (tracker.getWindow() != null) {
+            tracker.getWindow().release();
+        }
+    }
+
     private boolean decreaseEstimatedFreeBuffer(int amount) {
         synchronized (this.estimatedFreeBuffer) {
             while (estimatedFreeBuffer.get() - amount < 0) {
@@ -397,7 +473,7 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
         CltuTracker tracker = this.cltuId2tracker.remove(cltuId);
         if (tracker != null) {
             informSubscribers(tracker.getExternalId(), ForwardDataUnitProcessingStatus.UPLINK_FAILED, Constants.STAGE_GROUND_STATION_UPLINK, null);
-            increaseEstimatedFreeBuffer(tracker.getCltu().length);
+            releaseResources(tracker);
         } else {
             LOG.log(Level.WARNING, serviceInstance.getServiceInstanceIdentifier() + ": received radiation problem for CLTU " + cltuId + " not present in the system");
         }
@@ -431,7 +507,13 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
 
     @Override
     protected void sendStart() {
+        // The CLTU ID restarts from the configured value: CLTUs still outstanding from the previous start were never
+        // confirmed by the provider and their IDs would clash with the new ones
+        purgeOutstandingCltus();
         this.cltuCounter.set((Long) getInitialisationMap().get(FIRST_CLTU_ID_KEY));
+        this.uplinkWindowSize = ((Long) getInitialisationMap().get(CLTU_WINDOW_SIZE_KEY)).intValue();
+        // A new window for each start: CLTUs in flight from a previous start release slots of their own window
+        this.uplinkWindow = this.uplinkWindowSize > 0 ? new Semaphore(this.uplinkWindowSize) : null;
         this.serviceInstance.start(this.cltuCounter.get());
     }
 
@@ -442,24 +524,87 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
 
     @Override
     public void sendCltu(byte[] encodedCltu, long externalId) {
+        if (!checkActive(externalId)) {
+            return;
+        }
+        Semaphore window = this.uplinkWindow;
+        if (window == null) {
+            // Not pipelined: wait for the buffer availability in the caller thread
+            boolean goAhead = decreaseEstimatedFreeBuffer(encodedCltu.length);
+            if (!goAhead) {
+                LOG.severe(serviceInstance.getServiceInstanceIdentifier() + ": transmission of CLTU with external ID " + externalId + " failed: remote CLTU buffer availability failed");
+                informSubscribers(externalId, ForwardDataUnitProcessingStatus.RELEASE_FAILED, null, null);
+                return;
+            }
+            transferData(encodedCltu, externalId, null);
+        } else {
+            // Pipelined: the caller does not wait, the CLTU is transmitted as soon as a slot in the window is available
+            this.pendingUplink.incrementAndGet();
+            this.uplinkExecutor.execute(() -> {
+                try {
+                    transferDataInWindow(encodedCltu, externalId, window);
+                } finally {
+                    // Waiting until the CLTU is transmitted, including the wait for a free slot in the window
+                    this.pendingUplink.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private boolean checkActive(long externalId) {
         if (this.serviceInstance.getCurrentBindingState() != ServiceInstanceBindingStateEnum.ACTIVE) {
             LOG.severe(serviceInstance.getServiceInstanceIdentifier() + ": transmission of CLTU with external ID " + externalId + " failed: service instance state is " + this.serviceInstance.getCurrentBindingState());
             informSubscribers(externalId, ForwardDataUnitProcessingStatus.RELEASE_FAILED, null, null);
+            return false;
+        }
+        return true;
+    }
+
+    private void transferDataInWindow(byte[] encodedCltu, long externalId, Semaphore window) {
+        try {
+            // Wait for a free slot in the window, checking periodically that the service instance is still active
+            while (!window.tryAcquire(1, TimeUnit.SECONDS)) {
+                if (!checkActive(externalId)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.severe(serviceInstance.getServiceInstanceIdentifier() + ": transmission of CLTU with external ID " + externalId + " failed: uplink window acquisition interrupted");
+            informSubscribers(externalId, ForwardDataUnitProcessingStatus.RELEASE_FAILED, null, null);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!checkActive(externalId)) {
+            window.release();
             return;
         }
         boolean goAhead = decreaseEstimatedFreeBuffer(encodedCltu.length);
         if (!goAhead) {
+            window.release();
             LOG.severe(serviceInstance.getServiceInstanceIdentifier() + ": transmission of CLTU with external ID " + externalId + " failed: remote CLTU buffer availability failed");
             informSubscribers(externalId, ForwardDataUnitProcessingStatus.RELEASE_FAILED, null, null);
             return;
         }
+        transferData(encodedCltu, externalId, window);
+    }
+
+    private void transferData(byte[] encodedCltu, long externalId, Semaphore window) {
         long thisCounter = this.cltuCounter.getAndIncrement();
-        this.cltuId2tracker.put(thisCounter, new CltuTracker(externalId, encodedCltu));
+        this.cltuId2tracker.put(thisCounter, new CltuTracker(externalId, encodedCltu, window));
         informSubscribers(externalId, ForwardDataUnitProcessingStatus.RELEASED, null, Constants.STAGE_GROUND_STATION_RECEPTION);
-        LOG.log(Level.INFO, "Sending CLTU with ID " + externalId + ": " + StringUtil.toHexDump(encodedCltu));
+        LOG.log(Level.INFO, "Sending CLTU with ID " + externalId);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("CLTU with ID " + externalId + ": " + StringUtil.toHexDump(encodedCltu));
+        }
         this.serviceInstance.transferData(thisCounter, null, null, 20000000, true, encodedCltu);
     }
 
+    @Override
+    public void doDispose() {
+        this.uplinkExecutor.shutdownNow();
+        super.doDispose();
+    }
+
     @Override
     public void executeActivity(IActivityHandler.ActivityInvocation activityInvocation) throws ActivityHandlingException {
         try {
@@ -512,7 +657,7 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
             long cltuId = ((CltuTransferDataInvocation) operation).getCltuIdentification().longValue();
             CltuTracker tracker = cltuId2tracker.remove(cltuId);
             if (tracker != null) {
-                increaseEstimatedFreeBuffer(tracker.getCltu().length);
+                releaseResources(tracker);
                 informSubscribers(tracker.getExternalId(), ForwardDataUnitProcessingStatus.RELEASE_FAILED, null, null);
             }
         }
@@ -548,10 +693,16 @@ public class CltuServiceInstanceManager extends SleServiceInstanceManager<CltuSe
     private static class CltuTracker {
         private final long externalId;
         private final byte[] cltu;
+        private final Semaphore window;
 
-        public CltuTracker(long externalId, byte[] cltu) {
+        public CltuTracker(long externalId, byte[] cltu, Semaphore window) {
             this.cltu = cltu;
             this.externalId = externalId;
+            this.window = window;
+        }
+
+        public Semaphore getWindow() {
+            return window;
         }
 
         public long getExternalId() {
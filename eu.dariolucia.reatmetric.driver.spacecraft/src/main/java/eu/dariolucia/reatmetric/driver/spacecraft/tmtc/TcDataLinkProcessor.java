@@ -420,10 +420,10 @@ public class TcDataLinkProcessor implements IRawDataSubscriber, IVirtualChannelS
     }
 
     private void encryptTcFrames(List<TcTransferFrame> lastGeneratedFrames) throws ReatmetricException {
-        List<TcTransferFrame> originalFrames = new ArrayList<>(lastGeneratedFrames);
+        List<AbstractTransferFrame> encryptedFrames = securityManager.encrypt(new ArrayList<>(lastGeneratedFrames));
         lastGeneratedFrames.clear();
-        for(TcTransferFrame frame : originalFrames) {
-            lastGeneratedFrames.add((TcTransferFrame) securityManager.encrypt(frame));
+        for(AbstractTransferFrame frame : encryptedFrames) {
+            lastGeneratedFrames.add((TcTransferFrame) frame);
         }
     }
 
@@ -49,6 +49,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -78,8 +79,10 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
             DebugInformation.of("TM Data Link Processor", "Space packets/VCA units", 0, null, "packets/second")
     ));
     private Instant lastSampleGenerationTime;
-    private long frameInput = 0;
-    private long packetOutput = 0;
+    private final LongAdder frameInput = new LongAdder();
+    private final LongAdder packetOutput = new LongAdder();
+
+    private final List<RawData> pendingDistribution = new ArrayList<>();
 
     public TmDataLinkProcessor(String driverName, SpacecraftConfiguration configuration, IServiceCoreContext context, IPacketIdentifier packetIdentifier, BiFunction<AbstractTransferFrame, SpacePacket, Instant> generationTimeResolver, BiFunction<AbstractTransferFrame, SpacePacket, Quality> packetQualityChecker,
                                DataLinkSecurityManager securityManager) {
@@ -97,33 +100,42 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
         performanceSampler.schedule(new TimerTask() {
             @Override
             public void run() {
-                sample();
+                // An exception escaping a TimerTask kills the timer, stopping also the distribution window flush
+                try {
+                    sample();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Error while sampling TM data link performance: " + e.getMessage(), e);
+                }
             }
         }, 1000, 2000);
+        // If a distribution window is configured, flush the accumulated data periodically
+        if(this.configuration.getDistributionWindow() > 0) {
+            performanceSampler.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    flushPendingDistribution();
+                }
+            }, this.configuration.getDistributionWindow(), this.configuration.getDistributionWindow());
+        }
     }
 
     private void sample() {
-        synchronized (performanceSampler) {
-            Instant genTime = Instant.now();
-            if (lastSampleGenerationTime == null) {
-                lastSampleGenerationTime = genTime;
-                frameInput = 0;
-                packetOutput = 0;
-            } else {
-                long frameInputCurr = frameInput;
-                frameInput = 0;
-                long packetOutputCurr = packetOutput;
-                packetOutput = 0;
-                int millis = (int) (genTime.toEpochMilli() - lastSampleGenerationTime.toEpochMilli());
-                lastSampleGenerationTime = genTime;
-                double framesPerSecond = (frameInputCurr / (millis/1000.0));
-                double packetsPerSecond = (packetOutputCurr / (millis/1000.0));
-                List<DebugInformation> toSet = Arrays.asList(
-                        DebugInformation.of("TM Data Link Processor", "Transfer frames", (int) framesPerSecond, null, "frames/second"),
-                        DebugInformation.of("TM Data Link Processor", "Space packets", (int) packetsPerSecond, null, "packets/second")
-                );
-                lastStats.set(toSet);
-            }
+        // Only called by the sampler timer thread
+        Instant genTime = Instant.now();
+        long frameInputCurr = frameInput.sumThenReset();
+        long packetOutputCurr = packetOutput.sumThenReset();
+        if (lastSampleGenerationTime == null) {
+            lastSampleGenerationTime = genTime;
+        } else {
+            int millis = (int) (genTime.toEpochMilli() - lastSampleGenerationTime.toEpochMilli());
+            lastSampleGenerationTime = genTime;
+            double framesPerSecond = (frameInputCurr / (millis/1000.0));
+            double packetsPerSecond = (packetOutputCurr / (millis/1000.0));
+            List<DebugInformation> toSet = Arrays.asList(
+                    DebugInformation.of("TM Data Link Processor", "Transfer frames", (int) framesPerSecond, null, "frames/second"),
+                    DebugInformation.of("TM Data Link Processor", "Space packets", (int) packetsPerSecond, null, "packets/second")
+            );
+            lastStats.set(toSet);
         }
     }
 
@@ -214,9 +226,7 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
     @Override
     public void spacePacketExtracted(AbstractReceiverVirtualChannel vc, AbstractTransferFrame firstFrame, byte[] packet, boolean qualityIndicator, List<PacketGap> gaps) {
         // Add performance indicator
-        synchronized (performanceSampler) {
-            ++packetOutput;
-        }
+        packetOutput.increment();
         Instant genTime = (Instant) firstFrame.getAnnotationValue(Constants.ANNOTATION_GEN_TIME);
         if(genTime == null) {
             genTime = Instant.now();
@@ -277,19 +287,13 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
     private void distributeSpacePacket(SpacePacket sp, String packetName, Instant generationTime, Instant receptionTime, String route, String source, String type, Quality quality, TmFrameDescriptor frameDescriptor) {
         RawData rd = new RawData(broker.nextRawDataId(), generationTime, packetName, type, route, source, quality, null, sp.getPacket(), receptionTime, driverName, frameDescriptor);
         rd.setData(sp);
-        try {
-            broker.distribute(Collections.singletonList(rd));
-        } catch (ReatmetricException e) {
-            LOG.log(Level.SEVERE, "Error while distributing packet " + packetName + " from route " + rd.getRoute(), e);
-        }
+        addToPendingDistribution(rd);
     }
 
     @Override
     public void dataExtracted(AbstractReceiverVirtualChannel vc, AbstractTransferFrame frame, byte[] data, int missingBytes) {
         // Add performance indicator
-        synchronized (performanceSampler) {
-            ++packetOutput;
-        }
+        packetOutput.increment();
         // Read route from the frame annotated map
         Instant receptionTime = (Instant) frame.getAnnotationValue(Constants.ANNOTATION_RCP_TIME);
         if(receptionTime == null) {
@@ -330,10 +334,29 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
     private void distributeVca(VirtualChannelUnit vcaUnit, String vcaName, Instant generationTime, Instant receptionTime, String route, String source, String type, Quality quality, TmFrameDescriptor frameDescriptor) {
         RawData rd = new RawData(broker.nextRawDataId(), generationTime, vcaName, type, route, source, quality, null, vcaUnit.getData(), receptionTime, driverName, frameDescriptor);
         rd.setData(vcaUnit);
+        addToPendingDistribution(rd);
+    }
+
+    private void addToPendingDistribution(RawData rd) {
+        synchronized (pendingDistribution) {
+            pendingDistribution.add(rd);
+        }
+    }
+
+    private void flushPendingDistribution() {
+        List<RawData> toDistribute;
+        synchronized (pendingDistribution) {
+            if(pendingDistribution.isEmpty()) {
+                return;
+            }
+            toDistribute = new ArrayList<>(pendingDistribution);
+            pendingDistribution.clear();
+        }
         try {
-            broker.distribute(Collections.singletonList(rd));
-        } catch (ReatmetricException e) {
-            LOG.log(Level.SEVERE, "Error while distributing VCA unit " + vcaName + " from route " + rd.getRoute(), e);
+            broker.distribute(toDistribute);
+        } catch (ReatmetricException | RuntimeException e) {
+            // Also runtime exceptions are caught: this method is called by the sampler timer, which must keep running
+            LOG.log(Level.SEVERE, "Error while distributing " + toDistribute.size() + " space packets/VCA units, first from route " + toDistribute.get(0).getRoute(), e);
         }
     }
 
@@ -345,9 +368,8 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
     @Override
     public void dataItemsReceived(List<RawData> messages) {
         // Add performance indicator
-        synchronized (performanceSampler) {
-            frameInput += messages.size();
-        }
+        frameInput.add(messages.size());
+        List<AbstractTransferFrame> validFrames = new ArrayList<>(messages.size());
         for(RawData rd : messages) {
             AbstractTransferFrame atf = (AbstractTransferFrame) rd.getData();
             // If FECF is present and wrong, discard
@@ -355,21 +377,40 @@ public class TmDataLinkProcessor implements IVirtualChannelReceiverOutput, IRawD
                 LOG.log(Level.SEVERE, "Invalid transfer frame (FECF) received for spacecraft " + atf.getSpacecraftId() + ", virtual channel " + atf.getVirtualChannelId());
                 continue;
             }
-            // Decrypt
-            try {
-                atf = securityManager.decrypt(atf);
-            } catch (ReatmetricException e) {
-                LOG.log(Level.SEVERE, "Cannot decrypt transfer frame: " + e.getMessage(), e);
-                continue;
-            }
-            // Send to the demultiplexer
+            validFrames.add(atf);
+        }
+        // Decrypt as a batch, then send to the demultiplexer
+        for(AbstractTransferFrame atf : decrypt(validFrames)) {
             demultiplexer.accept(atf);
         }
+        // Distribute what was extracted from the received frames as a single batch, unless a distribution window is
+        // configured: in such case, the periodic flush takes care of it
+        if(configuration.getDistributionWindow() <= 0) {
+            flushPendingDistribution();
+        }
+    }
+
+    private List<AbstractTransferFrame> decrypt(List<AbstractTransferFrame> frames) {
+        try {
+            return securityManager.decrypt(frames);
+        } catch (ReatmetricException e) {
+            // At least one frame cannot be decrypted: go frame by frame, to discard only the offending ones
+            List<AbstractTransferFrame> toReturn = new ArrayList<>(frames.size());
+            for(AbstractTransferFrame atf : frames) {
+                try {
+                    toReturn.add(securityManager.decrypt(atf));
+                } catch (ReatmetricException ex) {
+                    LOG.log(Level.SEVERE, "Cannot decrypt transfer frame: " + ex.getMessage(), ex);
+                }
+            }
+            return toReturn;
+        }
     }
 
     public void dispose() {
         performanceSampler.cancel();
         broker.unsubscribe(this);
+        flushPendingDistribution();
     }
 
     public LinkedHashMap<String, String> renderTmFrame(RawData rawData) {
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.connectors;
+
+import eu.dariolucia.reatmetric.api.archive.IArchive;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.rawdata.IRawDataArchive;
+import eu.dariolucia.reatmetric.api.rawdata.Quality;
+import eu.dariolucia.reatmetric.api.rawdata.RawData;
+import eu.dariolucia.reatmetric.api.transport.TransportConnectionStatus;
+import eu.dariolucia.reatmetric.core.api.IRawDataBroker;
+import eu.dariolucia.reatmetric.core.api.IServiceCoreContext;
+import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
+import eu.dariolucia.reatmetric.driver.spacecraft.definition.SpacecraftConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmPacketReplayConnectorTest {
+
+    private static final Instant T0 = Instant.parse("2020-01-01T00:00:00Z");
+    private static final int NB_PACKETS = 10;
+
+    private final List<RawData> archived = new ArrayList<>();
+    private final List<RawData> injected = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong idCounter = new AtomicLong();
+    private TmPacketReplayConnector connector;
+
+    @AfterEach
+    void tearDown() {
+        if(connector != null) {
+            connector.dispose();
+        }
+    }
+
+    @Test
+    void testPauseSeekResume() throws Exception {
+        connector = buildConnector();
+        Map<String, Object> properties = buildProperties(0.0);
+        properties.put(TmPacketReplayConnector.REPLAY_PAUSED_KEY, true);
+        connector.initialise(properties);
+        connector.connect();
+        Thread.sleep(300);
+        // Paused from the start: nothing injected
+        assertTrue(connector.isPaused());
+        assertEquals(0, injected.size());
+
+        // Seek while paused: still nothing injected
+        properties.put(TmPacketReplayConnector.SEEK_TIME_KEY, T0.plusSeconds(5));
+        connector.initialise(properties);
+        Thread.sleep(200);
+        assertEquals(0, injected.size());
+
+        // Resume: the replay continues from the seek time
+        properties.put(TmPacketReplayConnector.REPLAY_PAUSED_KEY, false);
+        connector.initialise(properties);
+        assertFalse(connector.isPaused());
+        waitFor(() -> connector.getConnectionStatus() == TransportConnectionStatus.IDLE);
+        assertEquals(Arrays.asList(T0.plusSeconds(5), T0.plusSeconds(6), T0.plusSeconds(7), T0.plusSeconds(8), T0.plusSeconds(9)), injectedTimes());
+        assertEquals(T0.plusSeconds(9), connector.getReplayPosition());
+    }
+
+    @Test
+    void testPauseDuringPacedReplay() throws Exception {
+        connector = buildConnector();
+        // 1 second between packets, replayed 10 times faster
+        Map<String, Object> properties = buildProperties(10.0);
+        connector.initialise(properties);
+        connector.connect();
+        waitFor(() -> injected.size() >= 2);
+        properties.put(TmPacketReplayConnector.REPLAY_PAUSED_KEY, true);
+        connector.initialise(properties);
+        // Let a packet already in flight reach the broker, then nothing else must be injected
+        Thread.sleep(50);
+        int injectedWhenPaused = injected.size();
+        Thread.sleep(400);
+        assertEquals(injectedWhenPaused, injected.size());
+        assertTrue(injectedWhenPaused < NB_PACKETS);
+
+        // Change the speed and resume: the replay completes without gaps or duplicates
+        properties.put(TmPacketReplayConnector.REPLAY_SPEED_KEY, 0.0);
+        properties.put(TmPacketReplayConnector.REPLAY_PAUSED_KEY, false);
+        connector.initialise(properties);
+        assertEquals(0.0, connector.getReplaySpeed());
+        waitFor(() -> connector.getConnectionStatus() == TransportConnectionStatus.IDLE);
+        assertEquals(archived.stream().map(RawData::getGenerationTime).collect(Collectors.toList()), injectedTimes());
+    }
+
+    private List<Instant> injectedTimes() {
+        synchronized (injected) {
+            return injected.stream().map(RawData::getGenerationTime).collect(Collectors.toList());
+        }
+    }
+
+    private Map<String, Object> buildProperties(double speed) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(TmPacketReplayConnector.ARCHIVE_LOCATION_KEY, "memory");
+        properties.put(TmPacketReplayConnector.START_TIME_KEY, T0);
+        properties.put(TmPacketReplayConnector.END_TIME_KEY, T0.plusSeconds(3600));
+        properties.put(TmPacketReplayConnector.SPACECRAFT_ID_KEY, 123L);
+        properties.put(TmPacketReplayConnector.REPLAY_SPEED_KEY, speed);
+        return properties;
+    }
+
+    private TmPacketReplayConnector buildConnector() throws Exception {
+        for(int i = 0; i < NB_PACKETS; ++i) {
+            // Minimal space packet: primary header and one byte of data
+            byte[] contents = new byte[] { 0x08, 0x01, (byte) 0xC0, (byte) i, 0x00, 0x00, (byte) i };
+            archived.add(new RawData(new LongUniqueId(i), T0.plusSeconds(i), "TM", Constants.T_TM_PACKET, "route", "123", Quality.GOOD, null, contents, T0.plusSeconds(i), "archive", null));
+        }
+        IRawDataArchive rawDataArchive = (IRawDataArchive) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IRawDataArchive.class }, (proxy, method, args) -> {
+            if(method.getName().equals("retrieve") && args.length == 4) {
+                // Packets after the provided time (inclusive) or item (exclusive)
+                int limit = (Integer) args[1];
+                if(args[0] instanceof Instant) {
+                    Instant from = (Instant) args[0];
+                    return archived.stream().filter(o -> !o.getGenerationTime().isBefore(from)).limit(limit).collect(Collectors.toList());
+                } else {
+                    Instant from = ((RawData) args[0]).getGenerationTime();
+                    return archived.stream().filter(o -> o.getGenerationTime().isAfter(from)).limit(limit).collect(Collectors.toList());
+                }
+            }
+            return null;
+        });
+        IArchive archive = (IArchive) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IArchive.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getArchive")) {
+                return rawDataArchive;
+            }
+            return null;
+        });
+        IRawDataBroker broker = (IRawDataBroker) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IRawDataBroker.class }, (proxy, method, args) -> {
+            if(method.getName().equals("distribute")) {
+                injected.addAll((List<RawData>) args[0]);
+            } else if(method.getName().equals("nextRawDataId")) {
+                return new LongUniqueId(idCounter.incrementAndGet());
+            }
+            return null;
+        });
+        IServiceCoreContext context = (IServiceCoreContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IServiceCoreContext.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getRawDataBroker")) {
+                return broker;
+            }
+            return null;
+        });
+        SpacecraftConfiguration configuration = new SpacecraftConfiguration();
+        configuration.setId(123);
+        TmPacketReplayConnector toReturn = new TmPacketReplayConnector() {
+            @Override
+            protected IArchive openArchive(String archiveLocation) {
+                return archive;
+            }
+        };
+        toReturn.configure("Test Driver", configuration, context, null, null);
+        toReturn.prepare();
+        return toReturn;
+    }
+
+    private static void waitFor(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.get());
+    }
+}
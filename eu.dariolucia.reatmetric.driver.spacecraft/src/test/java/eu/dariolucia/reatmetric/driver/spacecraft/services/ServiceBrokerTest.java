@@ -0,0 +1,162 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services;
+
+import eu.dariolucia.ccsds.encdec.pus.TmPusHeader;
+import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.rawdata.Quality;
+import eu.dariolucia.reatmetric.api.rawdata.RawData;
+import eu.dariolucia.reatmetric.driver.spacecraft.activity.AbstractTcTracker;
+import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
+import eu.dariolucia.reatmetric.driver.spacecraft.common.VirtualChannelUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceBrokerTest {
+
+    private final ServiceBroker broker = new ServiceBroker();
+
+    @AfterEach
+    void tearDown() {
+        broker.dispose();
+    }
+
+    @Test
+    void testDispatchByTypeSubtypeAndApid() throws Exception {
+        List<RecordingSubscriber> subscribers = new ArrayList<>();
+        ServicePacketFilter f;
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withPusTypes(1);
+        subscribers.add(register("Type 1", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withPusTypes(3).withPusSubtypes(25);
+        subscribers.add(register("Type 3,25", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withApids(100);
+        subscribers.add(register("APID 100", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withPusTypes(3).withPusSubtypes(25).withApids(200);
+        subscribers.add(register("Type 3,25 APID 200", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withPusTypes(5).withPusSubtypes(1);
+        f.add(Constants.T_TM_PACKET).withApids(300);
+        subscribers.add(register("Type 5,1 or APID 300", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET).withPusSubtypes(2).matching((rd, sp, pusType, pusSubtype, destination, source) -> pusType != null && pusType > 10);
+        subscribers.add(register("Subtype 2 type > 10", f));
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TC_PACKET);
+        subscribers.add(register("TC", f));
+        // Registered last: used to detect the end of the dispatch
+        f = new ServicePacketFilter();
+        f.add(Constants.T_TM_PACKET);
+        RecordingSubscriber all = register("All TM", f);
+        subscribers.add(all);
+
+        int[][] packets = new int[][] {
+                // PUS type, PUS subtype (-1: no PUS header), APID
+                { 1, 1, 100 },
+                { 3, 25, 200 },
+                { 3, 26, 100 },
+                { -1, -1, 300 },
+                { 5, 1, 50 },
+                { 3, 25, 100 },
+                { 12, 2, 7 },
+                { 9, 2, 7 },
+                { 1, 25, 200 }
+        };
+        List<RawData> items = new ArrayList<>();
+        for(int[] p : packets) {
+            RawData rd = new RawData(new LongUniqueId(items.size()), Instant.now(), "TM", Constants.T_TM_PACKET, "route", "123", Quality.GOOD, null, null, Instant.now(), "Test Driver", null);
+            SpacePacket sp = buildPacket(p[2]);
+            TmPusHeader header = p[0] < 0 ? null : new TmPusHeader((short) p[0], (short) p[1], null);
+            items.add(rd);
+            broker.distributeTmPacket(rd, sp, header, null);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while(all.received.size() < packets.length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(packets.length, all.received.size());
+
+        // The dispatch table must deliver exactly what the full evaluation of the filters accepts, in order
+        for(RecordingSubscriber s : subscribers) {
+            List<RawData> expected = new ArrayList<>();
+            for(int i = 0; i < packets.length; ++i) {
+                Integer pusType = packets[i][0] < 0 ? null : packets[i][0];
+                Integer pusSubtype = packets[i][1] < 0 ? null : packets[i][1];
+                if(s.filter.filter(items.get(i), buildPacket(packets[i][2]), pusType, pusSubtype, null, null)) {
+                    expected.add(items.get(i));
+                }
+            }
+            assertEquals(expected, s.received, s.name);
+        }
+        // Spot checks
+        assertEquals(Arrays.asList(items.get(0), items.get(8)), subscribers.get(0).received);
+        assertEquals(Arrays.asList(items.get(1), items.get(5)), subscribers.get(1).received);
+        assertEquals(Collections.singletonList(items.get(1)), subscribers.get(3).received);
+        assertEquals(Arrays.asList(items.get(3), items.get(4)), subscribers.get(4).received);
+        assertEquals(Collections.singletonList(items.get(6)), subscribers.get(5).received);
+        assertTrue(subscribers.get(6).received.isEmpty());
+    }
+
+    private RecordingSubscriber register(String name, ServicePacketFilter filter) {
+        RecordingSubscriber s = new RecordingSubscriber(name, filter);
+        broker.register(s, filter);
+        return s;
+    }
+
+    private static SpacePacket buildPacket(int apid) {
+        byte[] packet = new byte[] { (byte) (0x08 | ((apid >> 8) & 0x07)), (byte) apid, (byte) 0xC0, 0x00, 0x00, 0x00, 0x00 };
+        return new SpacePacket(packet, true);
+    }
+
+    private static class RecordingSubscriber implements IServicePacketSubscriber {
+
+        private final String name;
+        private final ServicePacketFilter filter;
+        private final List<RawData> received = Collections.synchronizedList(new ArrayList<>());
+
+        public RecordingSubscriber(String name, ServicePacketFilter filter) {
+            this.name = name;
+            this.filter = filter;
+        }
+
+        @Override
+        public void onTmPacket(RawData packetRawData, SpacePacket spacePacket, TmPusHeader tmPusHeader, DecodingResult decoded) {
+            received.add(packetRawData);
+        }
+
+        @Override
+        public void onTmVcUnit(RawData packetRawData, VirtualChannelUnit unit, DecodingResult decoded) {
+            // Not used
+        }
+
+        @Override
+        public void onTcUpdate(TcPhase phase, Instant phaseTime, AbstractTcTracker tcTracker) {
+            // Not used
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TcTransferFrameBuilder;
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TmTransferFrameBuilder;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.driver.spacecraft.definition.security.SpiPassword;
+import eu.dariolucia.reatmetric.driver.spacecraft.security.impl.CryptoUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput benchmark of the {@link AesEncryptionService}, over representative TC and TM frame sizes. The benchmark
+ * verifies the correctness of the produced frames and then reports, for each frame size, the number of frames and
+ * megabytes processed per second, using the single-frame and the batch APIs. As reference, the throughput of the plain
+ * frame copy and construction, which is the cost paid also by unencrypted links, is reported too.
+ * <br />
+ * The benchmark is not part of the normal build. Usage:
+ * mvn test -Dtest=AesEncryptionServiceBenchmark -Dbenchmark=true [-Dbenchmark.seconds=seconds per run]
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AesEncryptionServiceBenchmark {
+
+    private static final int[] TC_FRAME_SIZES = new int[] { 64, 256, 1024 };
+    private static final int[] TM_FRAME_SIZES = new int[] { 256, 1115, 1784, 2048 };
+    private static final int BATCH_SIZE = 64;
+    private static final int SPI = 1;
+    private static final String PASSWORD = "benchmark-password";
+    private static final byte[] SALT = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08 };
+
+    private final AesEncryptionService service = new AesEncryptionService();
+    private final Random random = new Random(12345);
+    private final long runDurationNanos = Integer.getInteger("benchmark.seconds", 2) * 1_000_000_000L;
+
+    @Test
+    void testThroughput() throws ReatmetricException {
+        SpiPassword spiPassword = new SpiPassword();
+        spiPassword.setId(SPI);
+        spiPassword.setPassword(PASSWORD);
+        this.service.initialiseKeys(SALT, SPI, Collections.singletonList(spiPassword), Collections.singletonList(spiPassword));
+        System.out.printf("%-4s %6s %8s %14s %10s%n", "Type", "Size", "API", "Frames/s", "MB/s");
+        for(int size : TC_FRAME_SIZES) {
+            List<AbstractTransferFrame> frames = new ArrayList<>(BATCH_SIZE);
+            for(int i = 0; i < BATCH_SIZE; ++i) {
+                frames.add(buildTcFrame(size));
+            }
+            verifyTc(frames.get(0));
+            // Baseline: copy and frame object construction, as paid also by unencrypted links
+            measure("TC", size, "plain", frames, () -> {
+                for(AbstractTransferFrame f : frames) {
+                    new TcTransferFrame(f.getFrameCopy(), vc -> false, true, AesEncryptionService.HEADER_LENGTH, AesEncryptionService.TRAILER_LENGTH);
+                }
+            });
+            measure("TC", size, "single", frames, () -> {
+                for(AbstractTransferFrame f : frames) {
+                    service.encrypt(f);
+                }
+            });
+            measure("TC", size, "batch", frames, () -> service.encrypt(frames));
+        }
+        for(int size : TM_FRAME_SIZES) {
+            List<AbstractTransferFrame> plainFrames = new ArrayList<>(BATCH_SIZE);
+            List<AbstractTransferFrame> frames = new ArrayList<>(BATCH_SIZE);
+            for(int i = 0; i < BATCH_SIZE; ++i) {
+                TmTransferFrame plain = buildTmFrame(size);
+                plainFrames.add(plain);
+                frames.add(encryptTmFrame(plain));
+            }
+            verifyTm(plainFrames, service.decrypt(frames));
+            measure("TM", size, "plain", frames, () -> {
+                for(AbstractTransferFrame f : frames) {
+                    new TmTransferFrame(f.getFrameCopy(), true, AesEncryptionService.HEADER_LENGTH, AesEncryptionService.TRAILER_LENGTH);
+                }
+            });
+            measure("TM", size, "single", frames, () -> {
+                for(AbstractTransferFrame f : frames) {
+                    service.decrypt(f);
+                }
+            });
+            measure("TM", size, "batch", frames, () -> service.decrypt(frames));
+        }
+    }
+
+    private void measure(String type, int frameSize, String api, List<AbstractTransferFrame> frames, BenchmarkTask task) throws ReatmetricException {
+        // Warm up
+        long warmupEnd = System.nanoTime() + runDurationNanos / 4;
+        while(System.nanoTime() < warmupEnd) {
+            task.run();
+        }
+        // Measure
+        long processed = 0;
+        long start = System.nanoTime();
+        long end = start + runDurationNanos;
+        long now;
+        do {
+            task.run();
+            processed += frames.size();
+            now = System.nanoTime();
+        } while(now < end);
+        double seconds = (now - start) / 1_000_000_000.0;
+        double framesPerSecond = processed / seconds;
+        System.out.printf("%-4s %6d %8s %14.0f %10.2f%n", type, frameSize, api, framesPerSecond, framesPerSecond * frameSize / (1024.0 * 1024.0));
+    }
+
+    private TcTransferFrame buildTcFrame(int size) {
+        TcTransferFrameBuilder builder = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(123)
+                .setVirtualChannelId(0)
+                .setFrameSequenceNumber(0)
+                .setBypassFlag(false)
+                .setControlCommandFlag(false)
+                .setSecurity(new byte[AesEncryptionService.HEADER_LENGTH], new byte[AesEncryptionService.TRAILER_LENGTH]);
+        // Primary header, security header, security trailer and FECF
+        byte[] data = new byte[size - TcTransferFrame.TC_PRIMARY_HEADER_LENGTH - AesEncryptionService.HEADER_LENGTH - AesEncryptionService.TRAILER_LENGTH - 2];
+        random.nextBytes(data);
+        builder.addData(data);
+        return builder.build();
+    }
+
+    private TmTransferFrame buildTmFrame(int size) {
+        TmTransferFrameBuilder builder = TmTransferFrameBuilder.create(size, 0, false, true)
+                .setSpacecraftId(123)
+                .setVirtualChannelId(1)
+                .setMasterChannelFrameCount(0)
+                .setVirtualChannelFrameCount(0)
+                .setPacketOrderFlag(false)
+                .setSynchronisationFlag(false)
+                .setSegmentLengthIdentifier(3)
+                .setSecurity(new byte[AesEncryptionService.HEADER_LENGTH], new byte[AesEncryptionService.TRAILER_LENGTH]);
+        byte[] data = new byte[builder.getFreeUserDataLength()];
+        random.nextBytes(data);
+        builder.addData(data);
+        return builder.build();
+    }
+
+    /**
+     * Produce the encrypted version of the provided TM frame, as the spacecraft would do, using the plain JCE-based
+     * functions of {@link CryptoUtil}.
+     */
+    private TmTransferFrame encryptTmFrame(TmTransferFrame plain) throws ReatmetricException {
+        byte[] frame = plain.getFrameCopy();
+        int secHeaderOffset = TmTransferFrame.TM_PRIMARY_HEADER_LENGTH;
+        int dataFieldStart = secHeaderOffset + AesEncryptionService.HEADER_LENGTH;
+        int dataFieldLength = plain.getDataFieldLength();
+        byte[] iv = new byte[AesEncryptionService.IV_LENGTH];
+        random.nextBytes(iv);
+        frame[secHeaderOffset] = (byte) (SPI >> 8);
+        frame[secHeaderOffset + 1] = (byte) SPI;
+        System.arraycopy(iv, 0, frame, secHeaderOffset + 2, iv.length);
+        // Trailer on primary header and plain data field
+        byte[] scope = new byte[secHeaderOffset + dataFieldLength];
+        System.arraycopy(frame, 0, scope, 0, secHeaderOffset);
+        System.arraycopy(frame, dataFieldStart, scope, secHeaderOffset, dataFieldLength);
+        byte[] trailer = AesEncryptionService.computeSHA256(scope);
+        System.arraycopy(trailer, 0, frame, dataFieldStart + dataFieldLength, trailer.length);
+        // Encrypted data field
+        byte[] encrypted = CryptoUtil.aesEncrypt(frame, dataFieldStart, dataFieldLength, PASSWORD, iv, SALT);
+        System.arraycopy(encrypted, 0, frame, dataFieldStart, encrypted.length);
+        short crc = Crc16Algorithm.getCrc16(frame, 0, frame.length - 2);
+        frame[frame.length - 2] = (byte) (crc >> 8);
+        frame[frame.length - 1] = (byte) (crc);
+        return new TmTransferFrame(frame, true, AesEncryptionService.HEADER_LENGTH, AesEncryptionService.TRAILER_LENGTH);
+    }
+
+    private void verifyTc(AbstractTransferFrame plain) throws ReatmetricException {
+        TcTransferFrame encrypted = (TcTransferFrame) service.encrypt(plain);
+        byte[] frame = encrypted.getFrame();
+        int secHeaderOffset = TcTransferFrame.TC_PRIMARY_HEADER_LENGTH;
+        byte[] iv = Arrays.copyOfRange(frame, secHeaderOffset + 2, secHeaderOffset + AesEncryptionService.HEADER_LENGTH);
+        byte[] decrypted = CryptoUtil.aesDecrypt(frame, encrypted.getDataFieldStart(), encrypted.getDataFieldLength(), PASSWORD, iv, SALT);
+        assertTrue(encrypted.isValid());
+        assertArrayEquals(plain.getDataFieldCopy(), decrypted);
+    }
+
+    private void verifyTm(List<AbstractTransferFrame> plainFrames, List<AbstractTransferFrame> decryptedFrames) {
+        for(int i = 0; i < plainFrames.size(); ++i) {
+            assertTrue(decryptedFrames.get(i).isValid());
+            assertArrayEquals(plainFrames.get(i).getDataFieldCopy(), decryptedFrames.get(i).getDataFieldCopy());
+        }
+    }
+
+    @FunctionalInterface
+    private interface BenchmarkTask {
+        void run() throws ReatmetricException;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TcTransferFrameBuilder;
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TmTransferFrameBuilder;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.driver.spacecraft.definition.security.SpiPassword;
+import eu.dariolucia.reatmetric.driver.spacecraft.security.impl.CryptoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AesEncryptionServiceTest {
+
+    private static final int SPI = 1;
+    private static final String PASSWORD = "test-password";
+    private static final byte[] SALT = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08 };
+
+    private final Random random = new Random(12345);
+    private AesEncryptionService service;
+
+    @BeforeEach
+    void setup() throws ReatmetricException {
+        SpiPassword spiPassword = new SpiPassword();
+        spiPassword.setId(SPI);
+        spiPassword.setPassword(PASSWORD);
+        service = new AesEncryptionService();
+        service.initialiseKeys(SALT, SPI, Collections.singletonList(spiPassword), Collections.singletonList(spiPassword));
+    }
+
+    @Test
+    void testFecfVector() {
+        // CRC-16-CCITT with initial value 0xFFFF of "123456789" is 0x29B1
+        byte[] frame = Arrays.copyOf("123456789".getBytes(StandardCharsets.US_ASCII), 11);
+        AesEncryptionService.setFecf(frame);
+        assertEquals((byte) 0x29, frame[9]);
+        assertEquals((byte) 0xB1, frame[10]);
+        // Same result of the bitwise implementation, on random data
+        for(int i = 0; i < 100; ++i) {
+            byte[] data = new byte[2 + random.nextInt(2000)];
+            random.nextBytes(data);
+            AesEncryptionService.setFecf(data);
+            short crc = Crc16Algorithm.getCrc16(data, 0, data.length - 2);
+            assertEquals((byte) (crc >> 8), data[data.length - 2]);
+            assertEquals((byte) crc, data[data.length - 1]);
+        }
+    }
+
+    @Test
+    void testTcEncryption() throws ReatmetricException {
+        for(int size : new int[] { 64, 256, 1024 }) {
+            TcTransferFrame plain = buildTcFrame(size);
+            TcTransferFrame encrypted = (TcTransferFrame) service.encrypt(plain);
+            assertTrue(encrypted.isValid());
+            byte[] frame = encrypted.getFrame();
+            int secHeaderOffset = TcTransferFrame.TC_PRIMARY_HEADER_LENGTH;
+            assertEquals(SPI, ((frame[secHeaderOffset] & 0xFF) << 8) | (frame[secHeaderOffset + 1] & 0xFF));
+            assertFalse(Arrays.equals(plain.getDataFieldCopy(), encrypted.getDataFieldCopy()));
+            // Decrypt with the plain JCE-based functions
+            byte[] iv = Arrays.copyOfRange(frame, secHeaderOffset + 2, secHeaderOffset + AesEncryptionService.HEADER_LENGTH);
+            byte[] decrypted = CryptoUtil.aesDecrypt(frame, encrypted.getDataFieldStart(), encrypted.getDataFieldLength(), PASSWORD, iv, SALT);
+            assertArrayEquals(plain.getDataFieldCopy(), decrypted);
+            // Trailer computed on primary header and plain data field
+            byte[] scope = new byte[secHeaderOffset + decrypted.length];
+            System.arraycopy(frame, 0, scope, 0, secHeaderOffset);
+            System.arraycopy(decrypted, 0, scope, secHeaderOffset, decrypted.length);
+            int trailerStart = encrypted.getDataFieldStart() + encrypted.getDataFieldLength();
+            assertArrayEquals(AesEncryptionService.computeSHA256(scope), Arrays.copyOfRange(frame, trailerStart, trailerStart + AesEncryptionService.TRAILER_LENGTH));
+            // FECF
+            short crc = Crc16Algorithm.getCrc16(frame, 0, frame.length - 2);
+            assertEquals((byte) (crc >> 8), frame[frame.length - 2]);
+            assertEquals((byte) crc, frame[frame.length - 1]);
+        }
+    }
+
+    @Test
+    void testTmDecryption() throws ReatmetricException {
+        for(int size : new int[] { 256, 1115, 1784 }) {
+            List<AbstractTransferFrame> plainFrames = new ArrayList<>();
+            List<AbstractTransferFrame> encryptedFrames = new ArrayList<>();
+            for(int i = 0; i < 8; ++i) {
+                TmTransferFrame plain = buildTmFrame(size);
+                plainFrames.add(plain);
+                encryptedFrames.add(encryptTmFrame(plain));
+            }
+            List<AbstractTransferFrame> decryptedFrames = service.decrypt(encryptedFrames);
+            for(int i = 0; i < plainFrames.size(); ++i) {
+                AbstractTransferFrame single = service.decrypt(encryptedFrames.get(i));
+                AbstractTransferFrame batch = decryptedFrames.get(i);
+                assertTrue(single.isValid());
+                assertArrayEquals(plainFrames.get(i).getDataFieldCopy(), single.getDataFieldCopy());
+                assertArrayEquals(single.getFrame(), batch.getFrame());
+            }
+        }
+    }
+
+    @Test
+    void testTmCorruptedFrame() throws ReatmetricException {
+        TmTransferFrame encrypted = encryptTmFrame(buildTmFrame(256));
+        byte[] frame = encrypted.getFrameCopy();
+        frame[encrypted.getDataFieldStart()] ^= 0x01;
+        TmTransferFrame corrupted = new TmTransferFrame(frame, true, AesEncryptionService.HEADER_LENGTH, AesEncryptionService.TRAILER_LENGTH);
+        assertThrows(ReatmetricException.class, () -> service.decrypt(corrupted));
+    }
+
+    @Test
+    void testKeysDroppedAtDisposal() throws ReatmetricException {
+        TmTransferFrame encrypted = encryptTmFrame(buildTmFrame(256));
+        assertNotNull(service.decrypt(encrypted));
+        service.dispose();
+        assertThrows(ReatmetricException.class, () -> service.decrypt(encrypted));
+        assertThrows(ReatmetricException.class, () -> service.encrypt(buildTcFrame(64)));
+    }
+
+    private TcTransferFrame buildTcFrame(int size) {
+        TcTransferFrameBuilder builder = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(123)
+                .setVirtualChannelId(0)
+                .setFrameSequenceNumber(0)
+                .setBypassFlag(false)
+                .setControlCommandFlag(false)
+                .setSecurity(new byte[AesEncryptionService.HEADER_LENGTH], new byte[AesEncryptionService.TRAILER_LENGTH]);
+        // Primary header, security header, security trailer and FECF
+        byte[] data = new byte[size - TcTransferFrame.TC_PRIMARY_HEADER_LENGTH - AesEncryptionService.HEADER_LENGTH - AesEncryptionService.TRAILER_LENGTH - 2];
+        random.nextBytes(data);
+        builder.addData(data);
+        return builder.build();
+    }
+
+    private TmTransferFrame buildTmFrame(int size) {
+        TmTransferFrameBuilder builder = TmTransferFrameBuilder.create(size, 0, false, true)
+                .setSpacecraftId(123)
+                .setVirtualChannelId(1)
+                .setMasterChannelFrameCount(0)
+                .setVirtualChannelFrameCount(0)
+                .setPacketOrderFlag(false)
+                .setSynchronisationFlag(false)
+                .setSegmentLengthIdentifier(3)
+                .setSecurity(new byte[AesEncryptionService.HEADER_LENGTH], new byte[AesEncryptionService.TRAILER_LENGTH]);
+        byte[] data = new byte[builder.getFreeUserDataLength()];
+        random.nextBytes(data);
+        builder.addData(data);
+        return builder.build();
+    }
+
+    /**
+     * Produce the encrypted version of the provided TM frame, as the spacecraft would do, using the plain JCE-based
+     * functions of {@link CryptoUtil} and the bitwise CRC implementation.
+     */
+    private TmTransferFrame encryptTmFrame(TmTransferFrame plain) throws ReatmetricException {
+        byte[] frame = plain.getFrameCopy();
+        int secHeaderOffset = TmTransferFrame.TM_PRIMARY_HEADER_LENGTH;
+        int dataFieldStart = secHeaderOffset + AesEncryptionService.HEADER_LENGTH;
+        int dataFieldLength = plain.getDataFieldLength();
+        byte[] iv = new byte[AesEncryptionService.IV_LENGTH];
+        random.nextBytes(iv);
+        frame[secHeaderOffset] = (byte) (SPI >> 8);
+        frame[secHeaderOffset + 1] = (byte) SPI;
+        System.arraycopy(iv, 0, frame, secHeaderOffset + 2, iv.length);
+        // Trailer on primary header and plain data field
+        byte[] scope = new byte[secHeaderOffset + dataFieldLength];
+        System.arraycopy(frame, 0, scope, 0, secHeaderOffset);
+        System.arraycopy(frame, dataFieldStart, scope, secHeaderOffset, dataFieldLength);
+        byte[] trailer = AesEncryptionService.computeSHA256(scope);
+        System.arraycopy(trailer, 0, frame, dataFieldStart + dataFieldLength, trailer.length);
+        // Encrypted data field
+        byte[] encrypted = CryptoUtil.aesEncrypt(frame, dataFieldStart, dataFieldLength, PASSWORD, iv, SALT);
+        System.arraycopy(encrypted, 0, frame, dataFieldStart, encrypted.length);
+        short crc = Crc16Algorithm.getCrc16(frame, 0, frame.length - 2);
+        frame[frame.length - 2] = (byte) (crc >> 8);
+        frame[frame.length - 1] = (byte) (crc);
+        return new TmTransferFrame(frame, true, AesEncryptionService.HEADER_LENGTH, AesEncryptionService.TRAILER_LENGTH);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import eu.dariolucia.ccsds.encdec.pus.AckField;
+import eu.dariolucia.ccsds.encdec.pus.TcPusHeader;
+import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
+import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.processing.IActivityHandler;
+import eu.dariolucia.reatmetric.api.processing.IProcessingModel;
+import eu.dariolucia.reatmetric.api.processing.input.ActivityProgress;
+import eu.dariolucia.reatmetric.api.rawdata.Quality;
+import eu.dariolucia.reatmetric.api.rawdata.RawData;
+import eu.dariolucia.reatmetric.core.api.IRawDataBroker;
+import eu.dariolucia.reatmetric.core.api.IServiceCoreContext;
+import eu.dariolucia.reatmetric.core.configuration.ServiceCoreConfiguration;
+import eu.dariolucia.reatmetric.driver.spacecraft.activity.TcPacketInfo;
+import eu.dariolucia.reatmetric.driver.spacecraft.activity.TcPacketTracker;
+import eu.dariolucia.reatmetric.driver.spacecraft.common.Constants;
+import eu.dariolucia.reatmetric.driver.spacecraft.definition.PacketErrorControlType;
+import eu.dariolucia.reatmetric.driver.spacecraft.definition.SpacecraftConfiguration;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.IServiceBroker;
+import eu.dariolucia.reatmetric.driver.spacecraft.services.TcPhase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandVerificationServiceTest {
+
+    private final List<ActivityProgress> progressReports = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong idCounter = new AtomicLong();
+    private CommandVerificationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        IProcessingModel model = (IProcessingModel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IProcessingModel.class }, (proxy, method, args) -> {
+            if(method.getName().equals("reportActivityProgress")) {
+                progressReports.add((ActivityProgress) args[0]);
+            }
+            return null;
+        });
+        IRawDataBroker broker = (IRawDataBroker) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IRawDataBroker.class }, (proxy, method, args) -> {
+            if(method.getName().equals("nextRawDataId")) {
+                return new LongUniqueId(idCounter.incrementAndGet());
+            }
+            return null;
+        });
+        IServiceCoreContext context = (IServiceCoreContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IServiceCoreContext.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getProcessingModel")) {
+                return model;
+            } else if(method.getName().equals("getRawDataBroker")) {
+                return broker;
+            }
+            return null;
+        });
+        IServiceBroker serviceBroker = (IServiceBroker) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { IServiceBroker.class }, (proxy, method, args) -> null);
+        SpacecraftConfiguration configuration = new SpacecraftConfiguration();
+        configuration.setId(123);
+        service = new CommandVerificationService();
+        service.initialise(null, "Test Driver", configuration, new ServiceCoreConfiguration(), context, serviceBroker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.dispose();
+    }
+
+    @Test
+    void testOpenVerificationExpiry() {
+        TcPacketTracker tracker = buildTracker(1, 0x1801C001);
+        Instant registrationTime = Instant.now();
+        service.registerTcVerificationStages(tracker);
+        // Acceptance and completion stages announced
+        assertEquals(2, statusReports(ActivityReportState.PENDING).size());
+
+        // Not expired yet
+        service.expireOpenVerifications(registrationTime.plus(Duration.ofMinutes(30)));
+        assertTrue(statusReports(ActivityReportState.TIMEOUT).isEmpty());
+
+        // Expired: the last expected stage is reported as timed out
+        service.expireOpenVerifications(registrationTime.plusMillis(CommandVerificationService.OPEN_VERIFICATION_VALIDITY_TIME_MILLI + 1000));
+        List<ActivityProgress> timeouts = statusReports(ActivityReportState.TIMEOUT);
+        assertEquals(1, timeouts.size());
+        assertEquals(tracker.getInvocation().getActivityOccurrenceId(), timeouts.get(0).getOccurrenceId());
+        assertEquals(Constants.STAGE_SPACECRAFT_COMPLETED, timeouts.get(0).getName());
+        assertEquals(ActivityOccurrenceState.VERIFICATION, timeouts.get(0).getNextState());
+
+        // Reported only once
+        service.expireOpenVerifications(registrationTime.plusMillis(2 * CommandVerificationService.OPEN_VERIFICATION_VALIDITY_TIME_MILLI));
+        assertEquals(1, statusReports(ActivityReportState.TIMEOUT).size());
+    }
+
+    @Test
+    void testClosedVerificationNotExpired() {
+        TcPacketTracker failed = buildTracker(1, 0x1801C001);
+        TcPacketTracker open = buildTracker(2, 0x1801C002);
+        Instant registrationTime = Instant.now();
+        service.registerTcVerificationStages(failed);
+        service.registerTcVerificationStages(open);
+        // The first TC fails on ground: its verification is closed
+        service.onTcUpdate(TcPhase.FAILED, registrationTime, failed);
+
+        service.expireOpenVerifications(registrationTime.plusMillis(CommandVerificationService.OPEN_VERIFICATION_VALIDITY_TIME_MILLI + 1000));
+        List<ActivityProgress> timeouts = statusReports(ActivityReportState.TIMEOUT);
+        assertEquals(1, timeouts.size());
+        assertEquals(open.getInvocation().getActivityOccurrenceId(), timeouts.get(0).getOccurrenceId());
+    }
+
+    private List<ActivityProgress> statusReports(ActivityReportState state) {
+        synchronized (progressReports) {
+            return progressReports.stream().filter(o -> o.getStatus() == state).collect(Collectors.toList());
+        }
+    }
+
+    private TcPacketTracker buildTracker(long occurrenceId, int tcIdentifier) {
+        Instant now = Instant.now();
+        IActivityHandler.ActivityInvocation invocation = new IActivityHandler.ActivityInvocation(new LongUniqueId(occurrenceId), 100, now,
+                SystemEntityPath.fromString("ROOT.TC"), "TC", Collections.emptyMap(), Collections.emptyMap(), "route", "source");
+        TcPusHeader pusHeader = new TcPusHeader((byte) 1, new AckField(true, false, false, true), (short) 8, (short) 1, null, null);
+        TcPacketInfo info = new TcPacketInfo(1, pusHeader, 0, PacketErrorControlType.NONE);
+        // Packet ID and sequence control are the TC identifier used by the verification reports
+        byte[] packet = new byte[] { (byte) (tcIdentifier >> 24), (byte) (tcIdentifier >> 16), (byte) (tcIdentifier >> 8), (byte) tcIdentifier, 0x00, 0x00, 0x00 };
+        RawData rd = new RawData(new LongUniqueId(occurrenceId), now, "TC", Constants.T_TC_PACKET, "route", "123", Quality.GOOD, null, packet, now, "Test Driver", info);
+        return new TcPacketTracker(invocation, info, rd, new SpacePacket(packet, true));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import eu.dariolucia.reatmetric.api.common.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearRegressionTest {
+
+    @Test
+    void testTwoPoints() {
+        LinearRegression regression = new LinearRegression();
+        regression.add(0, 500);
+        regression.add(1000000000L, 1000000600L);
+        Pair<BigDecimal, BigDecimal> result = regression.calculate();
+        assertEquals(0, new BigDecimal("1.0000001").compareTo(result.getFirst()));
+        assertEquals(0, new BigDecimal("500").compareTo(result.getSecond()));
+    }
+
+    @Test
+    void testAgainstDoubleRegression() {
+        Random random = new Random(42);
+        int n = 50;
+        long[] x = new long[n];
+        long[] y = new long[n];
+        LinearRegression regression = new LinearRegression();
+        for(int i = 0; i < n; ++i) {
+            // One time couple per minute with some jitter, drift of 20 ns/s and noise of +/- 1 microsecond
+            x[i] = i * 60000000000L + random.nextInt(1000000);
+            y[i] = Math.round(x[i] * 1.00000002) + 500000000L + random.nextInt(2000) - 1000;
+            regression.add(x[i], y[i]);
+        }
+        double[] expected = doubleRegression(x, y);
+        Pair<BigDecimal, BigDecimal> result = regression.calculate();
+        assertEquals(expected[0], result.getFirst().doubleValue(), 1e-12);
+        assertEquals(expected[1], result.getSecond().doubleValue(), 1e-3);
+    }
+
+    @Test
+    void testSlidingWindow() {
+        Random random = new Random(7);
+        long[] x = new long[100];
+        long[] y = new long[100];
+        LinearRegression sliding = new LinearRegression();
+        for(int i = 0; i < x.length; ++i) {
+            x[i] = i * 1000000000L + random.nextInt(1000);
+            y[i] = x[i] + random.nextInt(1000);
+            sliding.add(x[i], y[i]);
+        }
+        LinearRegression window = new LinearRegression();
+        for(int i = 0; i < x.length; ++i) {
+            if(i < 60) {
+                sliding.remove(x[i], y[i]);
+            } else {
+                window.add(x[i], y[i]);
+            }
+        }
+        assertEquals(40, sliding.size());
+        assertEquals(window.calculate().getFirst(), sliding.calculate().getFirst());
+        assertEquals(window.calculate().getSecond(), sliding.calculate().getSecond());
+    }
+
+    @Test
+    void testDegenerateDataSet() {
+        LinearRegression regression = new LinearRegression();
+        assertNull(regression.calculate());
+        regression.add(10, 20);
+        assertNull(regression.calculate());
+        regression.add(10, 30);
+        assertNull(regression.calculate());
+        regression.clear();
+        assertEquals(0, regression.size());
+    }
+
+    /**
+     * Two-pass regression in double precision, as computed by the previous implementation.
+     */
+    private static double[] doubleRegression(long[] x, long[] y) {
+        int n = x.length;
+        double sumx = 0;
+        double sumy = 0;
+        for(int i = 0; i < n; ++i) {
+            sumx += x[i];
+            sumy += y[i];
+        }
+        double xbar = sumx / n;
+        double ybar = sumy / n;
+        double xxbar = 0;
+        double xybar = 0;
+        for(int i = 0; i < n; ++i) {
+            xxbar += (x[i] - xbar) * (x[i] - xbar);
+            xybar += (x[i] - xbar) * (y[i] - ybar);
+        }
+        double slope = xybar / xxbar;
+        return new double[] { slope, ybar - slope * xbar };
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeCoefficientsTest {
+
+    private static final Instant REFERENCE = Instant.parse("2024-03-01T10:00:00.123456789Z");
+
+    @Test
+    void testSlopeFractionRoundedUpIsCarried() {
+        // The fractional part of the slope rounds up to 2^64: it must become 1 in the integral part
+        BigDecimal m = BigDecimal.ONE.subtract(new BigDecimal("1E-25"));
+        TimeCoefficients tc = TimeCoefficients.of(m, BigDecimal.ZERO, REFERENCE);
+        Instant obt = REFERENCE.plusSeconds(1000);
+        assertWithin(expectedUtc(m, BigDecimal.ZERO, obt), tc.toUtc(obt), 1);
+        Instant utc = REFERENCE.minusSeconds(1000);
+        assertWithin(expectedObt(m, BigDecimal.ZERO, utc), tc.toObt(utc), 1);
+    }
+
+    @Test
+    void testConversionsAgainstBigDecimal() {
+        Random random = new Random(42);
+        BigDecimal[] slopes = new BigDecimal[] { new BigDecimal("0.99999998765"), BigDecimal.ONE, new BigDecimal("1.0000000234"), new BigDecimal("2.5") };
+        BigDecimal q = new BigDecimal("-1234.567891234");
+        for(BigDecimal m : slopes) {
+            TimeCoefficients tc = TimeCoefficients.of(m, q, REFERENCE);
+            for(int i = 0; i < 1000; ++i) {
+                // Up to +/- 10 days from the reference
+                long offset = (long) ((random.nextDouble() - 0.5) * 20 * 86400 * 1000000000L);
+                Instant obt = REFERENCE.plusNanos(offset);
+                assertWithin(expectedUtc(m, q, obt), tc.toUtc(obt), 2);
+                Instant utc = tc.toUtc(obt);
+                assertWithin(expectedObt(m, q, utc), tc.toObt(utc), 2);
+            }
+        }
+    }
+
+    @Test
+    void testConversionFarFromReference() {
+        BigDecimal m = new BigDecimal("1.0000000234");
+        BigDecimal q = new BigDecimal("12.5");
+        TimeCoefficients tc = TimeCoefficients.of(m, q, REFERENCE);
+        // More than 292 years from the reference: the nanosecond delta does not fit in a long
+        Instant obt = REFERENCE.plus(Duration.ofDays(400 * 366L));
+        assertEquals(expectedUtc(m, q, obt), tc.toUtc(obt));
+        obt = REFERENCE.minus(Duration.ofDays(400 * 366L));
+        assertEquals(expectedUtc(m, q, obt), tc.toUtc(obt));
+        Instant utc = REFERENCE.plus(Duration.ofDays(400 * 366L));
+        assertWithin(expectedObt(m, q, utc), tc.toObt(utc), 1);
+    }
+
+    private static void assertWithin(Instant expected, Instant actual, long toleranceNanos) {
+        long difference = Math.abs(Duration.between(expected, actual).toNanos());
+        assertTrue(difference <= toleranceNanos, "Expected " + expected + ", got " + actual + " (" + difference + " ns)");
+    }
+
+    private static Instant expectedUtc(BigDecimal m, BigDecimal q, Instant obt) {
+        return toInstant(toSeconds(obt).multiply(m).add(q));
+    }
+
+    private static Instant expectedObt(BigDecimal m, BigDecimal q, Instant utc) {
+        return toInstant(toSeconds(utc).subtract(q).divide(m, MathContext.DECIMAL128));
+    }
+
+    private static BigDecimal toSeconds(Instant time) {
+        return BigDecimal.valueOf(time.getEpochSecond()).add(BigDecimal.valueOf(time.getNano(), 9));
+    }
+
+    private static Instant toInstant(BigDecimal seconds) {
+        BigDecimal rounded = seconds.setScale(9, RoundingMode.FLOOR);
+        BigDecimal secondsPart = rounded.setScale(0, RoundingMode.FLOOR);
+        return Instant.ofEpochSecond(secondsPart.longValueExact(), rounded.subtract(secondsPart).movePointRight(9).longValueExact());
+    }
+}
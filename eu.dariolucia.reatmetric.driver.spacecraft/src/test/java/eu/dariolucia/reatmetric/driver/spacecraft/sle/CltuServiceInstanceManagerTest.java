@@ -0,0 +1,248 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.driver.spacecraft.sle;
+
+import com.beanit.jasn1.ber.types.BerNull;
+import eu.dariolucia.ccsds.sle.generated.ccsds.sle.transfer.service.cltu.outgoing.pdus.CltuAsyncNotifyInvocation;
+import eu.dariolucia.ccsds.sle.generated.ccsds.sle.transfer.service.cltu.outgoing.pdus.CltuStatusReportInvocation;
+import eu.dariolucia.ccsds.sle.generated.ccsds.sle.transfer.service.cltu.structures.*;
+import eu.dariolucia.ccsds.sle.utl.config.PeerConfiguration;
+import eu.dariolucia.ccsds.sle.utl.config.cltu.CltuServiceInstanceConfiguration;
+import eu.dariolucia.ccsds.sle.utl.si.InitiatorRoleEnum;
+import eu.dariolucia.ccsds.sle.utl.si.ServiceInstanceBindingStateEnum;
+import eu.dariolucia.ccsds.sle.utl.si.cltu.CltuParameterEnum;
+import eu.dariolucia.ccsds.sle.utl.si.cltu.CltuServiceInstance;
+import eu.dariolucia.ccsds.sle.utl.si.cltu.CltuUplinkStatusEnum;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.driver.spacecraft.activity.ForwardDataUnitProcessingStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CltuServiceInstanceManagerTest {
+
+    private static final int PRODUCTION_OPERATIONAL = 0;
+    private static final byte[] CLTU = new byte[] { (byte) 0xEB, (byte) 0x90, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08 };
+
+    private final Map<Long, List<ForwardDataUnitProcessingStatus>> statuses = new HashMap<>();
+    private CltuServiceInstanceManager manager;
+    private ProviderStandIn provider;
+
+    @AfterEach
+    void tearDown() {
+        if(manager != null) {
+            provider.released = true;
+            manager.dispose();
+        }
+    }
+
+    @Test
+    void testRadiationDoesNotConfirmEarlierCltus() throws Exception {
+        start(0);
+        manager.sendCltu(CLTU, 100);
+        manager.sendCltu(CLTU, 101);
+        manager.sendCltu(CLTU, 102);
+        assertEquals(Arrays.asList(1L, 2L, 3L), provider.drainTransferred());
+        // CLTU 2 radiated: CLTU 1 is still outstanding
+        manager.handleOperation(radiated(2));
+        assertTrue(hasStatus(101, ForwardDataUnitProcessingStatus.UPLINKED));
+        assertFalse(hasStatus(100, ForwardDataUnitProcessingStatus.UPLINKED));
+        assertFalse(hasStatus(102, ForwardDataUnitProcessingStatus.UPLINKED));
+        // Late notification of CLTU 1
+        manager.handleOperation(radiated(1));
+        assertTrue(hasStatus(100, ForwardDataUnitProcessingStatus.UPLINKED));
+        // Buffered CLTUs discarded by the provider
+        manager.handleOperation(notification(productionInterrupted()));
+        assertTrue(hasStatus(102, ForwardDataUnitProcessingStatus.UPLINK_FAILED));
+        assertFalse(hasStatus(102, ForwardDataUnitProcessingStatus.UPLINKED));
+    }
+
+    @Test
+    void testRestartPurgesOutstandingCltus() throws Exception {
+        start(0);
+        manager.sendCltu(CLTU, 200);
+        assertEquals(Collections.singletonList(1L), provider.drainTransferred());
+        // New start: the CLTU ID restarts from 1
+        manager.sendStart();
+        assertTrue(hasStatus(200, ForwardDataUnitProcessingStatus.UPLINK_FAILED));
+        manager.sendCltu(CLTU, 201);
+        assertEquals(Collections.singletonList(1L), provider.drainTransferred());
+        manager.handleOperation(radiated(1));
+        assertTrue(hasStatus(201, ForwardDataUnitProcessingStatus.UPLINKED));
+        assertFalse(hasStatus(200, ForwardDataUnitProcessingStatus.UPLINKED));
+    }
+
+    @Test
+    void testPipelinedWindow() throws Exception {
+        start(2);
+        manager.sendCltu(CLTU, 300);
+        manager.sendCltu(CLTU, 301);
+        manager.sendCltu(CLTU, 302);
+        assertEquals(Long.valueOf(1), provider.transferred.poll(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(2), provider.transferred.poll(5, TimeUnit.SECONDS));
+        // The third CLTU waits for a free slot in the window, and it is accounted as waiting
+        assertNull(provider.transferred.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, waitingForUplink());
+        // The radiation of the first CLTU frees a slot
+        manager.handleOperation(radiated(1));
+        assertEquals(Long.valueOf(3), provider.transferred.poll(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while(waitingForUplink() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, waitingForUplink());
+        assertTrue(hasStatus(300, ForwardDataUnitProcessingStatus.UPLINKED));
+        assertFalse(hasStatus(301, ForwardDataUnitProcessingStatus.UPLINKED));
+    }
+
+    private void start(int windowSize) {
+        CltuServiceInstanceConfiguration siConfiguration = new CltuServiceInstanceConfiguration();
+        siConfiguration.setServiceInstanceIdentifier("sagr=1.spack=FACILITY-PASS1.fsl-fg=1.cltu=cltu1");
+        siConfiguration.setInitiator(InitiatorRoleEnum.USER);
+        siConfiguration.setInitiatorIdentifier("USER");
+        siConfiguration.setResponderIdentifier("PROVIDER");
+        siConfiguration.setResponderPortIdentifier("CLTU_PORT");
+        siConfiguration.setServiceVersionNumber(5);
+        siConfiguration.setReturnTimeoutPeriod(10);
+        manager = new CltuServiceInstanceManager("TEST", new PeerConfiguration(), siConfiguration, null, null) {
+            @Override
+            protected CltuServiceInstance createServiceInstance(PeerConfiguration peerConfiguration, CltuServiceInstanceConfiguration siConfiguration) {
+                return new ProviderStandIn(peerConfiguration, siConfiguration);
+            }
+        };
+        provider = (ProviderStandIn) manager.serviceInstance;
+        manager.prepare();
+        Map<String, Object> properties = new HashMap<>(manager.getCurrentProperties());
+        properties.put(CltuServiceInstanceManager.CLTU_WINDOW_SIZE_KEY, (long) windowSize);
+        manager.initialise(properties);
+        manager.register((externalId, status, time, currentState, nextState) -> {
+            synchronized (statuses) {
+                statuses.computeIfAbsent(externalId, k -> new ArrayList<>()).add(status);
+            }
+        });
+        manager.sendStart();
+        manager.finalizeConnection();
+        // First status report: buffer capacity
+        CltuStatusReportInvocation report = new CltuStatusReportInvocation();
+        report.setCltuBufferAvailable(new BufferSize(10000));
+        report.setNumberOfCltusProcessed(new NumberOfCltusProcessed(0));
+        report.setNumberOfCltusRadiated(new NumberOfCltusRadiated(0));
+        report.setNumberOfCltusReceived(new NumberOfCltusReceived(0));
+        report.setUplinkStatus(new UplinkStatus(CltuUplinkStatusEnum.NOMINAL.ordinal()));
+        report.setCltuProductionStatus(new ProductionStatus(PRODUCTION_OPERATIONAL));
+        manager.handleOperation(report);
+    }
+
+    private boolean hasStatus(long externalId, ForwardDataUnitProcessingStatus status) {
+        synchronized (statuses) {
+            return statuses.getOrDefault(externalId, Collections.emptyList()).contains(status);
+        }
+    }
+
+    private int waitingForUplink() {
+        // Two samples are needed to refresh the statistics
+        manager.computeBitrate();
+        manager.computeBitrate();
+        for(DebugInformation di : manager.currentDebugInfo()) {
+            if(di.getName().equals("CLTUs waiting for uplink")) {
+                return ((Number) di.getMeasure()).intValue();
+            }
+        }
+        throw new IllegalStateException("Debug information not found");
+    }
+
+    private static CltuAsyncNotifyInvocation radiated(long cltuId) {
+        CltuNotification notification = new CltuNotification();
+        notification.setCltuRadiated(new BerNull());
+        CltuAsyncNotifyInvocation invocation = notification(notification);
+        CltuLastProcessed.CltuProcessed processed = new CltuLastProcessed.CltuProcessed();
+        processed.setCltuIdentification(new CltuIdentification(cltuId));
+        CltuLastProcessed lastProcessed = new CltuLastProcessed();
+        lastProcessed.setCltuProcessed(processed);
+        invocation.setCltuLastProcessed(lastProcessed);
+        return invocation;
+    }
+
+    private static CltuNotification productionInterrupted() {
+        CltuNotification notification = new CltuNotification();
+        notification.setProductionInterrupted(new BerNull());
+        return notification;
+    }
+
+    private static CltuAsyncNotifyInvocation notification(CltuNotification notification) {
+        CltuAsyncNotifyInvocation invocation = new CltuAsyncNotifyInvocation();
+        invocation.setCltuNotification(notification);
+        CltuLastProcessed lastProcessed = new CltuLastProcessed();
+        lastProcessed.setNoCltuProcessed(new BerNull());
+        invocation.setCltuLastProcessed(lastProcessed);
+        invocation.setUplinkStatus(new UplinkStatus(CltuUplinkStatusEnum.NOMINAL.ordinal()));
+        invocation.setProductionStatus(new ProductionStatus(PRODUCTION_OPERATIONAL));
+        return invocation;
+    }
+
+    /**
+     * Stand-in for the SLE CLTU provider: the service instance is always active until released by the test, the transferred CLTU IDs are recorded,
+     * and the provider operations are injected by the test.
+     */
+    private static class ProviderStandIn extends CltuServiceInstance {
+
+        private final BlockingQueue<Long> transferred = new LinkedBlockingQueue<>();
+        private volatile boolean released = false;
+
+        public ProviderStandIn(PeerConfiguration peerConfiguration, CltuServiceInstanceConfiguration serviceInstanceConfiguration) {
+            super(peerConfiguration, serviceInstanceConfiguration);
+        }
+
+        @Override
+        public ServiceInstanceBindingStateEnum getCurrentBindingState() {
+            return released ? ServiceInstanceBindingStateEnum.UNBOUND : ServiceInstanceBindingStateEnum.ACTIVE;
+        }
+
+        @Override
+        public void start(long firstCltuId) {
+            // Nothing to do
+        }
+
+        @Override
+        public void scheduleStatusReport(boolean stop, Integer period) {
+            // Nothing to do
+        }
+
+        @Override
+        public void getParameter(CltuParameterEnum parameter) {
+            // Nothing to do
+        }
+
+        @Override
+        public void transferData(long cltuId, Date earliestTs, Date latestTs, long delayTime, boolean produceReport, byte[] data) {
+            transferred.add(cltuId);
+        }
+
+        private List<Long> drainTransferred() {
+            List<Long> ids = new ArrayList<>();
+            transferred.drainTo(ids);
+            return ids;
+        }
+    }
+}
@@ -223,7 +223,7 @@ public class ProcessingModelImpl implements IBindingResolver, IProcessingModel {
             synchronized (performanceSampler) {
                 dataItemOutput += items.size();
             }
-            output.notifyUpdate(items);
+            output.notifyUpdate(DataItemBatch.of(items));
         });
     }
 
@@ -38,6 +38,18 @@ public class ConnectorConfiguration {
     @XmlAttribute(name = "local-address", required = false)
     private String localAddress = null;
 
+    // Size in batches of the acknowledgement window of the streaming transport, 0 to disable streaming
+    @XmlAttribute(name = "stream-window", required = false)
+    private int streamWindow = 0;
+
+    // Local caching of paths, IDs, descriptors and entity states of the system model
+    @XmlAttribute(name = "model-cache", required = false)
+    private boolean modelCache = true;
+
+    // Bulk retrieval of the complete system model and descriptors on connection, only if the model cache is enabled
+    @XmlAttribute(name = "model-cache-warmup", required = false)
+    private boolean modelCacheWarmUp = true;
+
     public ConnectorConfiguration() {
     }
 
@@ -84,4 +96,31 @@ public class ConnectorConfiguration {
     public void setLocalAddress(String localAddress) {
         this.localAddress = localAddress;
     }
+
+    public int getStreamWindow() {
+        return streamWindow;
+    }
+
+    public ConnectorConfiguration setStreamWindow(int streamWindow) {
+        this.streamWindow = streamWindow;
+        return this;
+    }
+
+    public boolean isModelCache() {
+        return modelCache;
+    }
+
+    public ConnectorConfiguration setModelCache(boolean modelCache) {
+        this.modelCache = modelCache;
+        return this;
+    }
+
+    public boolean isModelCacheWarmUp() {
+        return modelCacheWarmUp;
+    }
+
+    public ConnectorConfiguration setModelCacheWarmUp(boolean modelCacheWarmUp) {
+        this.modelCacheWarmUp = modelCacheWarmUp;
+        return this;
+    }
 }
@@ -35,26 +35,44 @@ public abstract class AbstractProvisionServiceProxy<T extends AbstractDataItem,
 
     protected final V delegate;
 
-    private final Map<U, Remote> subscriber2remote = new ConcurrentHashMap<>();
+    // Subscriber -> (exported object, active object)
+    private final Map<U, Pair<U, Remote>> subscriber2remote = new ConcurrentHashMap<>();
 
     public AbstractProvisionServiceProxy(V delegate) {
         this.delegate = delegate;
     }
 
+    /**
+     * Create the object to export in place of the provided subscriber, in order to receive the data items via the
+     * streaming transport. Subclasses supporting the streaming transport shall override this method: the default
+     * implementation returns null, i.e. the subscriber is exported as it is.
+     *
+     * @param subscriber the subscriber
+     * @return the stream receiver to export, or null if the subscriber shall be exported as it is
+     */
+    protected U createStreamReceiver(U subscriber) {
+        return null;
+    }
+
     @Override
     public void subscribe(U subscriber, K filter) throws RemoteException {
         if(LOG.isLoggable(Level.FINE)) {
             LOG.fine("Registering subscriber " + subscriber + " to proxy " + getClass().getSimpleName());
         }
-        Remote activeObject = subscriber2remote.get(subscriber);
-        if(activeObject == null) {
-            activeObject = ObjectActivationCache.instance().activate(subscriber);
+        Pair<U, Remote> activation = subscriber2remote.get(subscriber);
+        if(activation == null) {
+            U exported = createStreamReceiver(subscriber);
+            if(exported == null) {
+                exported = subscriber;
+            }
+            Remote activeObject = ObjectActivationCache.instance().activate(exported);
             if(LOG.isLoggable(Level.FINE)) {
                 LOG.fine("Subscriber active object " + activeObject + " for " + subscriber + " to proxy " + getClass().getSimpleName() + " activated");
             }
-            subscriber2remote.put(subscriber, activeObject);
+            activation = Pair.of(exported, activeObject);
+            subscriber2remote.put(subscriber, activation);
         }
-        delegate.subscribe((U) activeObject, filter);
+        delegate.subscribe((U) activation.getSecond(), filter);
     }
 
     @Override
@@ -62,21 +80,43 @@ public abstract class AbstractProvisionServiceProxy<T extends AbstractDataItem,
         if(LOG.isLoggable(Level.FINE)) {
             LOG.fine("Unregistering subscriber " + subscriber + " from proxy " + getClass().getSimpleName());
         }
-        Remote activeObject = subscriber2remote.remove(subscriber);
-        if(activeObject == null) {
+        Pair<U, Remote> activation = subscriber2remote.remove(subscriber);
+        if(activation == null) {
             return;
         }
         try {
-            delegate.unsubscribe((U) activeObject);
+            delegate.unsubscribe((U) activation.getSecond());
         } finally {
-            try {
-                if(LOG.isLoggable(Level.FINE)) {
-                    LOG.fine("Deactivating subscriber active object " + activeObject + " for " + subscriber + " in proxy " + getClass().getSimpleName());
-                }
-                ObjectActivationCache.instance().deactivate(activeObject, true);
-            } catch (NoSuchObjectException e) {
-                // Ignore
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Deactivating subscriber active object " + activation.getSecond() + " for " + subscriber + " in proxy " + getClass().getSimpleName());
             }
+            deactivate(activation.getFirst());
+        }
+    }
+
+    /**
+     * Return the remote object activated for the provided subscriber.
+     *
+     * @param subscriber the subscriber
+     * @return the activated remote object
+     * @throws ReatmetricException if the subscriber is not registered to this proxy
+     */
+    protected U getActiveObject(U subscriber) throws ReatmetricException {
+        Pair<U, Remote> activation = subscriber2remote.get(subscriber);
+        if(activation == null) {
+            throw new ReatmetricException("Subscriber " + subscriber + " not registered to proxy " + getClass().getSimpleName());
+        }
+        return (U) activation.getSecond();
+    }
+
+    private void deactivate(U exported) {
+        if(exported instanceof DataItemStreamReceiver) {
+            ((DataItemStreamReceiver<?>) exported).dispose();
+        }
+        try {
+            ObjectActivationCache.instance().deactivate(exported, true);
+        } catch (NoSuchObjectException e) {
+            // Ignore
         }
     }
 
@@ -97,23 +137,19 @@ public abstract class AbstractProvisionServiceProxy<T extends AbstractDataItem,
 
     public void terminate() {
         // Unsubscribe all remotes
-        for(Map.Entry<U, Remote> entry : subscriber2remote.entrySet()) {
+        for(Map.Entry<U, Pair<U, Remote>> entry : subscriber2remote.entrySet()) {
             if(LOG.isLoggable(Level.FINE)) {
                 LOG.fine("Terminating subscriber " + entry.getKey() + " from proxy " + getClass().getSimpleName());
             }
             try {
-                delegate.unsubscribe((U) entry.getValue());
+                delegate.unsubscribe((U) entry.getValue().getSecond());
             } catch (Exception e) {
                 LOG.log(Level.WARNING, "Cannot unsubscribe " + entry.getKey() + " in proxy " + getClass().getSimpleName(), e);
             } finally {
-                try {
-                    if (LOG.isLoggable(Level.FINE)) {
-                        LOG.fine("Terminating subscriber active object " + entry.getValue() + " for " + entry.getKey() + " in proxy " + getClass().getSimpleName());
-                    }
-                    ObjectActivationCache.instance().deactivate(entry.getKey(), true);
-                } catch (NoSuchObjectException e) {
-                    // Ignore
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Terminating subscriber active object " + entry.getValue().getSecond() + " for " + entry.getKey() + " in proxy " + getClass().getSimpleName());
                 }
+                deactivate(entry.getValue().getFirst());
             }
         }
         subscriber2remote.clear();
@@ -17,24 +17,83 @@
 package eu.dariolucia.reatmetric.remoting.connector.proxy;
 
 import eu.dariolucia.reatmetric.api.activity.*;
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
 import java.rmi.RemoteException;
+import java.util.Collection;
 
 public class ActivityOccurrenceDataProvisionServiceProxy extends AbstractStateProvisionServiceProxy<ActivityOccurrenceData, ActivityOccurrenceDataFilter, IActivityOccurrenceDataSubscriber, IActivityOccurrenceDataProvisionService> implements IActivityOccurrenceDataProvisionService {
 
+    private final int streamWindow;
+
+    private final SystemModelProvisionServiceProxy modelProxy;
+
     public ActivityOccurrenceDataProvisionServiceProxy(IActivityOccurrenceDataProvisionService delegate) {
+        this(delegate, 0);
+    }
+
+    public ActivityOccurrenceDataProvisionServiceProxy(IActivityOccurrenceDataProvisionService delegate, int streamWindow) {
+        this(delegate, streamWindow, null);
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @param delegate the remote service
+     * @param streamWindow the size (in batches) of the acknowledgement window of the streaming transport: if 0, the
+     *                     streaming transport is not used
+     * @param modelProxy the system model proxy, whose cache is used to retrieve the descriptors: if null, descriptors
+     *                   are always retrieved from the remote service
+     */
+    public ActivityOccurrenceDataProvisionServiceProxy(IActivityOccurrenceDataProvisionService delegate, int streamWindow, SystemModelProvisionServiceProxy modelProxy) {
         super(delegate);
+        this.streamWindow = streamWindow;
+        this.modelProxy = modelProxy;
+    }
+
+    @Override
+    protected IActivityOccurrenceDataSubscriber createStreamReceiver(IActivityOccurrenceDataSubscriber subscriber) {
+        return streamWindow > 0 ? new StreamReceiver(subscriber, streamWindow) : null;
     }
 
     @Override
     public ActivityDescriptor getDescriptor(SystemEntityPath path) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(path, () -> delegate.getDescriptor(path));
+            if(descriptor instanceof ActivityDescriptor) {
+                return (ActivityDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(path);
     }
 
     @Override
     public ActivityDescriptor getDescriptor(int externalId) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(externalId, () -> delegate.getDescriptor(externalId));
+            if(descriptor instanceof ActivityDescriptor) {
+                return (ActivityDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(externalId);
     }
+
+    @Override
+    public void addToSubscription(IActivityOccurrenceDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.addToSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    @Override
+    public void removeFromSubscription(IActivityOccurrenceDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.removeFromSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    private static class StreamReceiver extends DataItemStreamReceiver<ActivityOccurrenceData> implements IActivityOccurrenceDataSubscriber {
+
+        private StreamReceiver(IActivityOccurrenceDataSubscriber subscriber, int windowSize) {
+            super(subscriber, windowSize);
+        }
+    }
 }
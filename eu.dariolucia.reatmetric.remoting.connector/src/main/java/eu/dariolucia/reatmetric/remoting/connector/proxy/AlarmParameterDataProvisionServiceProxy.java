@@ -20,6 +20,11 @@ import eu.dariolucia.reatmetric.api.alarms.AlarmParameterData;
 import eu.dariolucia.reatmetric.api.alarms.AlarmParameterDataFilter;
 import eu.dariolucia.reatmetric.api.alarms.IAlarmParameterDataProvisionService;
 import eu.dariolucia.reatmetric.api.alarms.IAlarmParameterDataSubscriber;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+
+import java.rmi.RemoteException;
+import java.util.Collection;
 
 public class AlarmParameterDataProvisionServiceProxy extends AbstractProvisionServiceProxy<AlarmParameterData, AlarmParameterDataFilter, IAlarmParameterDataSubscriber, IAlarmParameterDataProvisionService> implements IAlarmParameterDataProvisionService {
 
@@ -27,4 +32,13 @@ public class AlarmParameterDataProvisionServiceProxy extends AbstractProvisionSe
         super(delegate);
     }
 
+    @Override
+    public void addToSubscription(IAlarmParameterDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.addToSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    @Override
+    public void removeFromSubscription(IAlarmParameterDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.removeFromSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.remoting.connector.proxy;
+
+import eu.dariolucia.reatmetric.api.common.*;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client side of the streaming transport of subscriptions. An instance of this class is exported in place of the
+ * subscriber: batches sent by the server are queued and then decoded and delivered to the subscriber by a separate
+ * thread, in order. The queue size is the acknowledgement window: when the window is full, the reception of the next
+ * batch blocks and so does the server, which coalesces new data items in the meantime.
+ *
+ * If the server does not support the streaming transport, data items are received via
+ * {@link IDataItemSubscriber#dataItemsReceived(List)} and forwarded to the subscriber as they are.
+ *
+ * @param <T> the data item type
+ */
+abstract class DataItemStreamReceiver<T extends AbstractDataItem> implements IDataItemStreamReceiver, IDataItemSubscriber<T> {
+
+    private static final Logger LOG = Logger.getLogger(DataItemStreamReceiver.class.getName());
+
+    private static final AtomicInteger DELIVERY_COUNTER = new AtomicInteger(0);
+
+    private static final ExecutorService DELIVERY = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "ReatMetric Connector Stream Delivery " + DELIVERY_COUNTER.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final IDataItemSubscriber<T> subscriber;
+    private final BlockingQueue<Pair<Long, byte[]>> window;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private volatile long lastDelivered = -1;
+    private volatile boolean disposed = false;
+
+    // Accessed only by the delivery thread
+    private long expectedSequenceNumber = 0;
+
+    protected DataItemStreamReceiver(IDataItemSubscriber<T> subscriber, int windowSize) {
+        this.subscriber = subscriber;
+        this.window = new ArrayBlockingQueue<>(Math.max(1, windowSize));
+    }
+
+    @Override
+    public long dataBatchReceived(long sequenceNumber, byte[] batch) throws RemoteException {
+        if(disposed) {
+            return lastDelivered;
+        }
+        try {
+            window.put(Pair.of(sequenceNumber, batch));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for space in the delivery window", e);
+        }
+        if(draining.compareAndSet(false, true)) {
+            DELIVERY.execute(this::drain);
+        }
+        return lastDelivered;
+    }
+
+    @Override
+    public void dataItemsReceived(List<T> dataItems) throws RemoteException {
+        // Server without streaming support
+        subscriber.dataItemsReceived(dataItems);
+    }
+
+    private void drain() {
+        while(true) {
+            Pair<Long, byte[]> batch;
+            while((batch = window.poll()) != null) {
+                deliver(batch.getFirst(), batch.getSecond());
+            }
+            draining.set(false);
+            // Check if something arrived after the last poll and before the flag reset
+            if(window.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(long sequenceNumber, byte[] batch) {
+        if(disposed) {
+            return;
+        }
+        if(sequenceNumber != expectedSequenceNumber) {
+            LOG.log(Level.WARNING, "Stream receiver for " + subscriber + ": expected batch " + expectedSequenceNumber + ", received batch " + sequenceNumber);
+        }
+        expectedSequenceNumber = sequenceNumber + 1;
+        try {
+            List<T> items = (List<T>) DataItemStreamCodec.decode(batch);
+            subscriber.dataItemsReceived(items);
+        } catch (IOException | RuntimeException e) {
+            // RemoteException included
+            LOG.log(Level.SEVERE, "Stream receiver for " + subscriber + ": cannot deliver batch " + sequenceNumber + ": " + e.getMessage(), e);
+        }
+        lastDelivered = sequenceNumber;
+    }
+
+    /**
+     * Stop the delivery of data items and discard the pending batches.
+     */
+    void dispose() {
+        disposed = true;
+        window.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + subscriber + "]";
+    }
+}
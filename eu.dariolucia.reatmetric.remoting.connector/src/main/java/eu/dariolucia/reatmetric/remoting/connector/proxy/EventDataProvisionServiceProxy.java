@@ -16,25 +16,84 @@
 
 package eu.dariolucia.reatmetric.remoting.connector.proxy;
 
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.events.*;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 
 import java.rmi.RemoteException;
+import java.util.Collection;
 
 public class EventDataProvisionServiceProxy extends AbstractProvisionServiceProxy<EventData, EventDataFilter, IEventDataSubscriber, IEventDataProvisionService> implements IEventDataProvisionService {
 
+    private final int streamWindow;
+
+    private final SystemModelProvisionServiceProxy modelProxy;
+
     public EventDataProvisionServiceProxy(IEventDataProvisionService delegate) {
+        this(delegate, 0);
+    }
+
+    public EventDataProvisionServiceProxy(IEventDataProvisionService delegate, int streamWindow) {
+        this(delegate, streamWindow, null);
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @param delegate the remote service
+     * @param streamWindow the size (in batches) of the acknowledgement window of the streaming transport: if 0, the
+     *                     streaming transport is not used
+     * @param modelProxy the system model proxy, whose cache is used to retrieve the descriptors: if null, descriptors
+     *                   are always retrieved from the remote service
+     */
+    public EventDataProvisionServiceProxy(IEventDataProvisionService delegate, int streamWindow, SystemModelProvisionServiceProxy modelProxy) {
         super(delegate);
+        this.streamWindow = streamWindow;
+        this.modelProxy = modelProxy;
+    }
+
+    @Override
+    protected IEventDataSubscriber createStreamReceiver(IEventDataSubscriber subscriber) {
+        return streamWindow > 0 ? new StreamReceiver(subscriber, streamWindow) : null;
     }
 
     @Override
     public EventDescriptor getDescriptor(SystemEntityPath path) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(path, () -> delegate.getDescriptor(path));
+            if(descriptor instanceof EventDescriptor) {
+                return (EventDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(path);
     }
 
     @Override
     public EventDescriptor getDescriptor(int externalId) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(externalId, () -> delegate.getDescriptor(externalId));
+            if(descriptor instanceof EventDescriptor) {
+                return (EventDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(externalId);
     }
+
+    @Override
+    public void addToSubscription(IEventDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.addToSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    @Override
+    public void removeFromSubscription(IEventDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.removeFromSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    private static class StreamReceiver extends DataItemStreamReceiver<EventData> implements IEventDataSubscriber {
+
+        private StreamReceiver(IEventDataSubscriber subscriber, int windowSize) {
+            super(subscriber, windowSize);
+        }
+    }
 }
@@ -16,25 +16,84 @@
 
 package eu.dariolucia.reatmetric.remoting.connector.proxy;
 
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.parameters.*;
 
 import java.rmi.RemoteException;
+import java.util.Collection;
 
 public class ParameterDataProvisionServiceProxy extends AbstractStateProvisionServiceProxy<ParameterData, ParameterDataFilter, IParameterDataSubscriber, IParameterDataProvisionService> implements IParameterDataProvisionService {
 
+    private final int streamWindow;
+
+    private final SystemModelProvisionServiceProxy modelProxy;
+
     public ParameterDataProvisionServiceProxy(IParameterDataProvisionService delegate) {
+        this(delegate, 0);
+    }
+
+    public ParameterDataProvisionServiceProxy(IParameterDataProvisionService delegate, int streamWindow) {
+        this(delegate, streamWindow, null);
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @param delegate the remote service
+     * @param streamWindow the size (in batches) of the acknowledgement window of the streaming transport: if 0, the
+     *                     streaming transport is not used
+     * @param modelProxy the system model proxy, whose cache is used to retrieve the descriptors: if null, descriptors
+     *                   are always retrieved from the remote service
+     */
+    public ParameterDataProvisionServiceProxy(IParameterDataProvisionService delegate, int streamWindow, SystemModelProvisionServiceProxy modelProxy) {
         super(delegate);
+        this.streamWindow = streamWindow;
+        this.modelProxy = modelProxy;
+    }
+
+    @Override
+    protected IParameterDataSubscriber createStreamReceiver(IParameterDataSubscriber subscriber) {
+        return streamWindow > 0 ? new StreamReceiver(subscriber, streamWindow) : null;
     }
 
     @Override
     public ParameterDescriptor getDescriptor(SystemEntityPath path) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(path, () -> delegate.getDescriptor(path));
+            if(descriptor instanceof ParameterDescriptor) {
+                return (ParameterDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(path);
     }
 
     @Override
     public ParameterDescriptor getDescriptor(int externalId) throws ReatmetricException, RemoteException {
+        if(modelProxy != null) {
+            AbstractSystemEntityDescriptor descriptor = modelProxy.getCachedDescriptor(externalId, () -> delegate.getDescriptor(externalId));
+            if(descriptor instanceof ParameterDescriptor) {
+                return (ParameterDescriptor) descriptor;
+            }
+        }
         return delegate.getDescriptor(externalId);
     }
+
+    @Override
+    public void addToSubscription(IParameterDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.addToSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    @Override
+    public void removeFromSubscription(IParameterDataSubscriber subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        delegate.removeFromSubscription(getActiveObject(subscriber), paths, externalIds);
+    }
+
+    private static class StreamReceiver extends DataItemStreamReceiver<ParameterData> implements IParameterDataSubscriber {
+
+        private StreamReceiver(IParameterDataSubscriber subscriber, int windowSize) {
+            super(subscriber, windowSize);
+        }
+    }
 }
@@ -81,6 +81,10 @@ public class ReatmetricProxy implements IReatmetricSystem {
             throw new ReatmetricException(e);
         }
         SystemStatus status = this.delegate.getStatus();
+        if(connector.isModelCache() && connector.isModelCacheWarmUp()) {
+            // Create the system model proxy now, so that the cache is filled in background on connection
+            getSystemModelMonitorService();
+        }
         statusUpdateSubscriber.accept(status);
     }
 
@@ -120,6 +124,11 @@ public class ReatmetricProxy implements IReatmetricSystem {
         }
         systemModelProvisionServiceProxy = null;
 
+        if(eventDataProvisionServiceProxy != null) {
+            eventDataProvisionServiceProxy.terminate();
+        }
+        eventDataProvisionServiceProxy = null;
+
         if(alarmParameterDataProvisionServiceProxy != null) {
             alarmParameterDataProvisionServiceProxy.terminate();
         }
@@ -197,7 +206,7 @@ public class ReatmetricProxy implements IReatmetricSystem {
     @Override
     public synchronized IParameterDataProvisionService getParameterDataMonitorService() throws ReatmetricException, RemoteException {
         if(parameterDataProvisionServiceProxy == null) {
-            parameterDataProvisionServiceProxy = new ParameterDataProvisionServiceProxy(delegate.getParameterDataMonitorService());
+            parameterDataProvisionServiceProxy = new ParameterDataProvisionServiceProxy(delegate.getParameterDataMonitorService(), connector.getStreamWindow(), getCachingModelProxy());
         }
         return parameterDataProvisionServiceProxy;
     }
@@ -205,15 +214,24 @@ public class ReatmetricProxy implements IReatmetricSystem {
     @Override
     public synchronized ISystemModelProvisionService getSystemModelMonitorService() throws ReatmetricException, RemoteException {
         if(systemModelProvisionServiceProxy == null) {
-            systemModelProvisionServiceProxy = new SystemModelProvisionServiceProxy(delegate.getSystemModelMonitorService());
+            systemModelProvisionServiceProxy = new SystemModelProvisionServiceProxy(delegate.getSystemModelMonitorService(), connector.isModelCache(), connector.isModelCacheWarmUp());
         }
         return systemModelProvisionServiceProxy;
     }
 
+    private SystemModelProvisionServiceProxy getCachingModelProxy() throws ReatmetricException, RemoteException {
+        if(connector.isModelCache()) {
+            getSystemModelMonitorService();
+            return systemModelProvisionServiceProxy;
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public synchronized IEventDataProvisionService getEventDataMonitorService() throws ReatmetricException, RemoteException {
         if(eventDataProvisionServiceProxy == null) {
-            eventDataProvisionServiceProxy = new EventDataProvisionServiceProxy(delegate.getEventDataMonitorService());
+            eventDataProvisionServiceProxy = new EventDataProvisionServiceProxy(delegate.getEventDataMonitorService(), connector.getStreamWindow(), getCachingModelProxy());
         }
         return eventDataProvisionServiceProxy;
     }
@@ -229,7 +247,7 @@ public class ReatmetricProxy implements IReatmetricSystem {
     @Override
     public synchronized IActivityOccurrenceDataProvisionService getActivityOccurrenceDataMonitorService() throws ReatmetricException, RemoteException {
         if(activityOccurrenceDataProvisionServiceProxy == null) {
-            activityOccurrenceDataProvisionServiceProxy = new ActivityOccurrenceDataProvisionServiceProxy(delegate.getActivityOccurrenceDataMonitorService());
+            activityOccurrenceDataProvisionServiceProxy = new ActivityOccurrenceDataProvisionServiceProxy(delegate.getActivityOccurrenceDataMonitorService(), connector.getStreamWindow(), getCachingModelProxy());
         }
         return activityOccurrenceDataProvisionServiceProxy;
     }
@@ -272,6 +290,11 @@ public class ReatmetricProxy implements IReatmetricSystem {
 
     @Override
     public List<DebugInformation> currentDebugInfo() throws ReatmetricException, RemoteException {
-        return delegate.currentDebugInfo();
+        List<DebugInformation> toReturn = new ArrayList<>(delegate.currentDebugInfo());
+        SystemModelProvisionServiceProxy modelProxy = this.systemModelProvisionServiceProxy;
+        if(modelProxy != null) {
+            toReturn.addAll(modelProxy.currentCacheDebugInfo());
+        }
+        return toReturn;
     }
 }
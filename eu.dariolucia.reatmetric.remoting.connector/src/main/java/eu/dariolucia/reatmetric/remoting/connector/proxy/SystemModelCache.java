@@ -0,0 +1,387 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.remoting.connector.proxy;
+
+import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.model.ISystemModelProvisionService;
+import eu.dariolucia.reatmetric.api.model.ISystemModelSubscriber;
+import eu.dariolucia.reatmetric.api.model.SystemEntity;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.model.SystemEntityTreePage;
+import eu.dariolucia.reatmetric.api.model.SystemEntityType;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client-side cache of the system model of a remote ReatMetric system.
+ *
+ * Paths, external IDs, the model structure and the descriptors do not change during the lifetime of the remote
+ * processing model: once retrieved, they are kept until the cache is cleared. The state of the system entities (status
+ * and alarm state) changes instead, and it is served from the cache only while the cache is subscribed to the system
+ * model updates of the remote system, which keep the cached entities up to date.
+ */
+final class SystemModelCache implements ISystemModelSubscriber {
+
+    private static final Logger LOG = Logger.getLogger(SystemModelCache.class.getName());
+
+    private static final int WARMUP_PAGE_SIZE = 1000;
+    private static final int WARMUP_DESCRIPTOR_CHUNK_SIZE = 500;
+
+    private final Map<Integer, SystemEntityPath> id2path = new ConcurrentHashMap<>();
+    private final Map<SystemEntityPath, Integer> path2id = new ConcurrentHashMap<>();
+    private final Map<Integer, AbstractSystemEntityDescriptor> id2descriptor = new ConcurrentHashMap<>();
+    private final Map<Integer, SystemEntity> id2entity = new ConcurrentHashMap<>();
+    private final Map<Integer, List<Integer>> id2children = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    private volatile SystemEntityPath rootPath;
+    private volatile boolean subscribed;
+
+    @Override
+    public void dataItemsReceived(List<SystemEntity> dataItems) {
+        for(SystemEntity se : dataItems) {
+            SystemEntityPath previousPath = id2path.get(se.getExternalId());
+            if(previousPath != null && !previousPath.equals(se.getPath())) {
+                // The remote model was replaced: the entry is no longer valid
+                invalidate(se.getExternalId());
+            }
+            register(se.getExternalId(), se.getPath());
+            id2entity.put(se.getExternalId(), se);
+        }
+    }
+
+    void setSubscribed(boolean subscribed) {
+        this.subscribed = subscribed;
+        if(!subscribed) {
+            // Cached states cannot be trusted anymore
+            id2entity.clear();
+        }
+    }
+
+    boolean isSubscribed() {
+        return subscribed;
+    }
+
+    SystemEntity getRoot(IRemoteCall<SystemEntity> loader) throws ReatmetricException, RemoteException {
+        SystemEntityPath path = this.rootPath;
+        if(path != null) {
+            return getSystemEntityAt(path, loader);
+        }
+        SystemEntity root = miss(loader);
+        if(root != null) {
+            this.rootPath = root.getPath();
+            storeEntity(root);
+        }
+        return root;
+    }
+
+    SystemEntity getSystemEntityAt(SystemEntityPath path, IRemoteCall<SystemEntity> loader) throws ReatmetricException, RemoteException {
+        Integer id = path2id.get(path);
+        SystemEntity se = id != null && subscribed ? id2entity.get(id) : null;
+        if(se != null) {
+            return hit(se);
+        }
+        se = miss(loader);
+        storeEntity(se);
+        return se;
+    }
+
+    SystemEntity getSystemEntityOf(int externalId, IRemoteCall<SystemEntity> loader) throws ReatmetricException, RemoteException {
+        SystemEntity se = subscribed ? id2entity.get(externalId) : null;
+        if(se != null) {
+            return hit(se);
+        }
+        se = miss(loader);
+        storeEntity(se);
+        return se;
+    }
+
+    List<SystemEntity> getContainedEntities(SystemEntityPath path, IRemoteCall<List<SystemEntity>> loader) throws ReatmetricException, RemoteException {
+        Integer id = path2id.get(path);
+        List<Integer> children = id != null ? id2children.get(id) : null;
+        if(children != null && subscribed) {
+            List<SystemEntity> toReturn = new ArrayList<>(children.size());
+            for(Integer childId : children) {
+                SystemEntity child = id2entity.get(childId);
+                if(child == null) {
+                    break;
+                }
+                toReturn.add(child);
+            }
+            if(toReturn.size() == children.size()) {
+                return hit(toReturn);
+            }
+        }
+        List<SystemEntity> toReturn = miss(loader);
+        if(toReturn != null) {
+            List<Integer> childIds = new ArrayList<>(toReturn.size());
+            for(SystemEntity child : toReturn) {
+                storeEntity(child);
+                childIds.add(child.getExternalId());
+            }
+            Integer parentId = path2id.get(path);
+            if(parentId != null) {
+                id2children.put(parentId, childIds);
+            }
+        }
+        return toReturn;
+    }
+
+    int getExternalIdOf(SystemEntityPath path, IRemoteCall<Integer> loader) throws ReatmetricException, RemoteException {
+        Integer id = path2id.get(path);
+        if(id != null) {
+            return hit(id);
+        }
+        id = miss(loader);
+        register(id, path);
+        return id;
+    }
+
+    SystemEntityPath getPathOf(int externalId, IRemoteCall<SystemEntityPath> loader) throws ReatmetricException, RemoteException {
+        SystemEntityPath path = id2path.get(externalId);
+        if(path != null) {
+            return hit(path);
+        }
+        path = miss(loader);
+        if(path != null) {
+            register(externalId, path);
+        }
+        return path;
+    }
+
+    AbstractSystemEntityDescriptor getDescriptorOf(int externalId, IRemoteCall<AbstractSystemEntityDescriptor> loader) throws ReatmetricException, RemoteException {
+        AbstractSystemEntityDescriptor descriptor = id2descriptor.get(externalId);
+        if(descriptor != null) {
+            return hit(descriptor);
+        }
+        descriptor = miss(loader);
+        storeDescriptor(descriptor);
+        return descriptor;
+    }
+
+    AbstractSystemEntityDescriptor getDescriptorOf(SystemEntityPath path, IRemoteCall<AbstractSystemEntityDescriptor> loader) throws ReatmetricException, RemoteException {
+        Integer id = path2id.get(path);
+        AbstractSystemEntityDescriptor descriptor = id != null ? id2descriptor.get(id) : null;
+        if(descriptor != null) {
+            return hit(descriptor);
+        }
+        descriptor = miss(loader);
+        storeDescriptor(descriptor);
+        return descriptor;
+    }
+
+    List<AbstractSystemEntityDescriptor> getDescriptorsOf(List<Integer> ids, IRemoteBulkCall loader) throws ReatmetricException, RemoteException {
+        AbstractSystemEntityDescriptor[] toReturn = new AbstractSystemEntityDescriptor[ids.size()];
+        List<Integer> missingIds = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+        for(int i = 0; i < ids.size(); ++i) {
+            toReturn[i] = id2descriptor.get(ids.get(i));
+            if(toReturn[i] == null) {
+                missingIds.add(ids.get(i));
+                missingPositions.add(i);
+            }
+        }
+        hits.addAndGet(ids.size() - missingIds.size());
+        if(!missingIds.isEmpty()) {
+            misses.addAndGet(missingIds.size());
+            List<AbstractSystemEntityDescriptor> retrieved = loader.call(missingIds);
+            for(int i = 0; i < retrieved.size(); ++i) {
+                storeDescriptor(retrieved.get(i));
+                toReturn[missingPositions.get(i)] = retrieved.get(i);
+            }
+        }
+        return Arrays.asList(toReturn);
+    }
+
+    /**
+     * Store the contents of the provided subtree page. Since the page is not necessarily part of a complete traversal,
+     * the structure of the model is not derived from it.
+     *
+     * @param page the page to store
+     */
+    void store(SystemEntityTreePage page) {
+        for(SystemEntity se : page.getEntities()) {
+            storeEntity(se);
+        }
+    }
+
+    /**
+     * Retrieve the complete system model tree and the descriptors of all system entities from the remote system, using
+     * bulk requests. Entity states received via subscription in the meantime are not overwritten.
+     *
+     * @param delegate the remote system model service
+     * @throws ReatmetricException in case of issues reported by the remote system
+     * @throws RemoteException in case of remoting problem
+     */
+    void warmUp(ISystemModelProvisionService delegate) throws ReatmetricException, RemoteException {
+        long start = System.currentTimeMillis();
+        SystemEntity root = delegate.getRoot();
+        this.rootPath = root.getPath();
+        // Traversal index -> external ID, to rebuild the structure from the parent indexes
+        List<Integer> traversal = new ArrayList<>();
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        List<Integer> leaves = new ArrayList<>();
+        SystemEntityTreePage page;
+        int offset = 0;
+        do {
+            page = delegate.getSubtree(root.getPath(), offset, WARMUP_PAGE_SIZE);
+            for(int i = 0; i < page.getEntities().size(); ++i) {
+                SystemEntity se = page.getEntities().get(i);
+                register(se.getExternalId(), se.getPath());
+                id2entity.putIfAbsent(se.getExternalId(), se);
+                traversal.add(se.getExternalId());
+                int parentIndex = page.getParentIndex(i);
+                if(parentIndex >= 0) {
+                    children.computeIfAbsent(traversal.get(parentIndex), k -> new ArrayList<>()).add(se.getExternalId());
+                }
+                if(se.getType() == SystemEntityType.CONTAINER) {
+                    children.putIfAbsent(se.getExternalId(), new ArrayList<>());
+                } else {
+                    leaves.add(se.getExternalId());
+                }
+            }
+            offset = page.getNextOffset();
+        } while(!page.isLast() && !page.getEntities().isEmpty());
+        id2children.putAll(children);
+        // Descriptors of the non-container entities
+        List<Integer> toRetrieve = new LinkedList<>();
+        for(Integer id : leaves) {
+            if(!id2descriptor.containsKey(id)) {
+                toRetrieve.add(id);
+            }
+            if(toRetrieve.size() == WARMUP_DESCRIPTOR_CHUNK_SIZE) {
+                delegate.getDescriptorsOf(toRetrieve).forEach(this::storeDescriptor);
+                toRetrieve = new LinkedList<>();
+            }
+        }
+        if(!toRetrieve.isEmpty()) {
+            delegate.getDescriptorsOf(toRetrieve).forEach(this::storeDescriptor);
+        }
+        if(LOG.isLoggable(Level.INFO)) {
+            LOG.log(Level.INFO, String.format("System model cache warmed up with %d entities and %d descriptors in %d ms", traversal.size(), id2descriptor.size(), System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * Invalidate the cached entity states after a state change requested by this client: the updates are received
+     * asynchronously via subscription, so the next retrievals go to the remote system.
+     *
+     * @param path the path of the subtree affected by the state change
+     */
+    void invalidateStates(SystemEntityPath path) {
+        id2entity.values().removeIf(se -> se.getPath().equals(path) || se.getPath().isDescendantOf(path));
+    }
+
+    void clear() {
+        id2path.clear();
+        path2id.clear();
+        id2descriptor.clear();
+        id2entity.clear();
+        id2children.clear();
+        rootPath = null;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    double getHitRatio() {
+        long theHits = hits.get();
+        long total = theHits + misses.get();
+        return total == 0 ? 0.0 : (double) theHits / total;
+    }
+
+    List<DebugInformation> currentDebugInfo(String element) {
+        List<DebugInformation> toReturn = new ArrayList<>(5);
+        toReturn.add(DebugInformation.of(element, "Model cache hits", getHits(), null, null));
+        toReturn.add(DebugInformation.of(element, "Model cache misses", getMisses(), null, null));
+        toReturn.add(DebugInformation.of(element, "Model cache hit ratio", (int) Math.round(getHitRatio() * 100), 100, "%"));
+        toReturn.add(DebugInformation.of(element, "Model cache entities", subscribed ? id2entity.size() : 0, id2path.size(), null));
+        toReturn.add(DebugInformation.of(element, "Model cache descriptors", id2descriptor.size(), id2path.size(), null));
+        return toReturn;
+    }
+
+    private void invalidate(int externalId) {
+        SystemEntityPath path = id2path.remove(externalId);
+        if(path != null) {
+            path2id.remove(path);
+        }
+        id2descriptor.remove(externalId);
+        id2entity.remove(externalId);
+        id2children.remove(externalId);
+    }
+
+    private void register(int externalId, SystemEntityPath path) {
+        id2path.put(externalId, path);
+        path2id.put(path, externalId);
+    }
+
+    private void storeEntity(SystemEntity se) {
+        if(se != null) {
+            register(se.getExternalId(), se.getPath());
+            if(subscribed) {
+                // Do not overwrite a state received via subscription, which is at least as recent
+                id2entity.putIfAbsent(se.getExternalId(), se);
+            }
+        }
+    }
+
+    private void storeDescriptor(AbstractSystemEntityDescriptor descriptor) {
+        if(descriptor != null) {
+            register(descriptor.getExternalId(), descriptor.getPath());
+            id2descriptor.put(descriptor.getExternalId(), descriptor);
+        }
+    }
+
+    private <T> T hit(T value) {
+        hits.incrementAndGet();
+        return value;
+    }
+
+    private <T> T miss(IRemoteCall<T> loader) throws ReatmetricException, RemoteException {
+        misses.incrementAndGet();
+        return loader.call();
+    }
+
+    @FunctionalInterface
+    interface IRemoteCall<T> {
+        T call() throws ReatmetricException, RemoteException;
+    }
+
+    @FunctionalInterface
+    interface IRemoteBulkCall {
+        List<AbstractSystemEntityDescriptor> call(List<Integer> ids) throws ReatmetricException, RemoteException;
+    }
+}
@@ -17,27 +17,71 @@
 package eu.dariolucia.reatmetric.remoting.connector.proxy;
 
 import eu.dariolucia.reatmetric.api.common.AbstractSystemEntityDescriptor;
+import eu.dariolucia.reatmetric.api.common.DebugInformation;
 import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
 import eu.dariolucia.reatmetric.api.model.ISystemModelProvisionService;
 import eu.dariolucia.reatmetric.api.model.ISystemModelSubscriber;
 import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.model.SystemEntityTreePage;
 
 import java.rmi.NoSuchObjectException;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SystemModelProvisionServiceProxy implements ISystemModelProvisionService {
 
+    private static final Logger LOG = Logger.getLogger(SystemModelProvisionServiceProxy.class.getName());
+
     protected final ISystemModelProvisionService delegate;
 
     private final Map<ISystemModelSubscriber, Remote> subscriber2remote = new ConcurrentHashMap<>();
 
+    private final SystemModelCache cache;
+
+    private volatile Thread cacheActivator;
+
     public SystemModelProvisionServiceProxy(ISystemModelProvisionService delegate) {
+        this(delegate, false, false);
+    }
+
+    /**
+     * Create the proxy.
+     *
+     * @param delegate the remote service
+     * @param cached if true, paths, external IDs, descriptors and entity states are cached locally. The cache subscribes
+     *               to the system model updates of the remote system, to keep the entity states up to date
+     * @param warmUp if true (and cached is true), the complete system model and the descriptors are retrieved in bulk
+     *               in background when the proxy is created
+     */
+    public SystemModelProvisionServiceProxy(ISystemModelProvisionService delegate, boolean cached, boolean warmUp) {
         this.delegate = delegate;
+        this.cache = cached ? new SystemModelCache() : null;
+        if(cached) {
+            this.cacheActivator = new Thread(() -> activateCache(warmUp), "Reatmetric System Model Cache Activator");
+            this.cacheActivator.setDaemon(true);
+            this.cacheActivator.start();
+        }
+    }
+
+    private void activateCache(boolean warmUp) {
+        try {
+            subscribe(cache);
+            cache.setSubscribed(true);
+            if(warmUp) {
+                cache.warmUp(delegate);
+            }
+        } catch (ReatmetricException | RemoteException e) {
+            LOG.log(Level.WARNING, "Cannot activate system model cache, entity states will be retrieved from the remote system: " + e.getMessage(), e);
+        } finally {
+            cacheActivator = null;
+        }
     }
 
     @Override
@@ -59,6 +103,7 @@ public class SystemModelProvisionServiceProxy implements ISystemModelProvisionSe
         try {
             delegate.unsubscribe((ISystemModelSubscriber) activeObject);
         } finally {
+            subscriber2remote.remove(subscriber);
             try {
                 ObjectActivationCache.instance().deactivate(subscriber, true);
             } catch (NoSuchObjectException e) {
@@ -69,60 +114,108 @@ public class SystemModelProvisionServiceProxy implements ISystemModelProvisionSe
 
     @Override
     public SystemEntity getRoot() throws ReatmetricException, RemoteException {
-        return delegate.getRoot();
+        return cache != null ? cache.getRoot(delegate::getRoot) : delegate.getRoot();
     }
 
     @Override
     public List<SystemEntity> getContainedEntities(SystemEntityPath se) throws ReatmetricException, RemoteException {
-        return delegate.getContainedEntities(se);
+        return cache != null ? cache.getContainedEntities(se, () -> delegate.getContainedEntities(se)) : delegate.getContainedEntities(se);
+    }
+
+    @Override
+    public SystemEntityTreePage getSubtree(SystemEntityPath path, int offset, int maxEntities) throws ReatmetricException, RemoteException {
+        SystemEntityTreePage page = delegate.getSubtree(path, offset, maxEntities);
+        if(cache != null) {
+            cache.store(page);
+        }
+        return page;
     }
 
     @Override
     public SystemEntity getSystemEntityAt(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        return delegate.getSystemEntityAt(path);
+        return cache != null ? cache.getSystemEntityAt(path, () -> delegate.getSystemEntityAt(path)) : delegate.getSystemEntityAt(path);
     }
 
     @Override
     public SystemEntity getSystemEntityOf(int externalId) throws ReatmetricException, RemoteException {
-        return delegate.getSystemEntityOf(externalId);
+        return cache != null ? cache.getSystemEntityOf(externalId, () -> delegate.getSystemEntityOf(externalId)) : delegate.getSystemEntityOf(externalId);
     }
 
     @Override
     public int getExternalIdOf(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        return delegate.getExternalIdOf(path);
+        return cache != null ? cache.getExternalIdOf(path, () -> delegate.getExternalIdOf(path)) : delegate.getExternalIdOf(path);
     }
 
     @Override
     public SystemEntityPath getPathOf(int externalId) throws ReatmetricException, RemoteException {
-        return delegate.getPathOf(externalId);
+        return cache != null ? cache.getPathOf(externalId, () -> delegate.getPathOf(externalId)) : delegate.getPathOf(externalId);
     }
 
     @Override
     public void enable(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        delegate.enable(path);
+        try {
+            delegate.enable(path);
+        } finally {
+            invalidateStates(path);
+        }
     }
 
     @Override
     public void disable(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        delegate.disable(path);
+        try {
+            delegate.disable(path);
+        } finally {
+            invalidateStates(path);
+        }
     }
 
     @Override
     public void ignore(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        delegate.ignore(path);
+        try {
+            delegate.ignore(path);
+        } finally {
+            invalidateStates(path);
+        }
     }
 
     @Override
     public AbstractSystemEntityDescriptor getDescriptorOf(int id) throws ReatmetricException, RemoteException {
-        return delegate.getDescriptorOf(id);
+        return cache != null ? cache.getDescriptorOf(id, () -> delegate.getDescriptorOf(id)) : delegate.getDescriptorOf(id);
     }
 
     @Override
     public AbstractSystemEntityDescriptor getDescriptorOf(SystemEntityPath path) throws ReatmetricException, RemoteException {
-        return delegate.getDescriptorOf(path);
+        return cache != null ? cache.getDescriptorOf(path, () -> delegate.getDescriptorOf(path)) : delegate.getDescriptorOf(path);
+    }
+
+    @Override
+    public List<AbstractSystemEntityDescriptor> getDescriptorsOf(List<Integer> ids) throws ReatmetricException, RemoteException {
+        return cache != null ? cache.getDescriptorsOf(ids, delegate::getDescriptorsOf) : delegate.getDescriptorsOf(ids);
+    }
+
+    private void invalidateStates(SystemEntityPath path) {
+        if(cache != null) {
+            cache.invalidateStates(path);
+        }
+    }
+
+    /**
+     * Return the statistics of the local system model cache, if the cache is used.
+     *
+     * @return the list of {@link DebugInformation} related to the local cache, empty if the cache is not used
+     */
+    public List<DebugInformation> currentCacheDebugInfo() {
+        return cache != null ? cache.currentDebugInfo("System Model Proxy") : Collections.emptyList();
     }
 
     public void terminate() {
+        Thread activator = this.cacheActivator;
+        if(activator != null) {
+            activator.interrupt();
+        }
+        if(cache != null) {
+            cache.setSubscribed(false);
+        }
         // Unsubscribe all remotes
         for(Map.Entry<ISystemModelSubscriber, Remote> entry : subscriber2remote.entrySet()) {
             try {
@@ -138,5 +231,24 @@ public class SystemModelProvisionServiceProxy implements ISystemModelProvisionSe
             }
         }
         subscriber2remote.clear();
+        if(cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Return the locally cached descriptor of the system entity with the provided ID, retrieving it from the remote
+     * system if needed. Used by the other proxies, which can share the cache of this proxy.
+     *
+     * @param externalId the ID of the system entity
+     * @param loader the remote retrieval of the descriptor, in case of cache miss
+     * @return the descriptor
+     */
+    AbstractSystemEntityDescriptor getCachedDescriptor(int externalId, SystemModelCache.IRemoteCall<? extends AbstractSystemEntityDescriptor> loader) throws ReatmetricException, RemoteException {
+        return cache != null ? cache.getDescriptorOf(externalId, loader::call) : loader.call();
+    }
+
+    AbstractSystemEntityDescriptor getCachedDescriptor(SystemEntityPath path, SystemModelCache.IRemoteCall<? extends AbstractSystemEntityDescriptor> loader) throws ReatmetricException, RemoteException {
+        return cache != null ? cache.getDescriptorOf(path, loader::call) : loader.call();
     }
 }
@@ -34,7 +34,7 @@ import eu.dariolucia.reatmetric.api.rawdata.IRawDataProvisionService;
 import eu.dariolucia.reatmetric.api.scheduler.IScheduledActivityDataProvisionService;
 import eu.dariolucia.reatmetric.api.scheduler.IScheduler;
 import eu.dariolucia.reatmetric.api.transport.ITransportConnector;
-import eu.dariolucia.reatmetric.remoting.stubs.TransportConnectorDelegate;
+import eu.dariolucia.reatmetric.remoting.stubs.*;
 
 import java.rmi.*;
 import java.rmi.registry.LocateRegistry;
@@ -62,6 +62,7 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
     private final String name;
 
     private int exportPort;
+    private DataItemStreamSettings streamSettings;
 
     private final Map<Object, Remote> exportedObjects = new ConcurrentHashMap<>();
 
@@ -73,10 +74,13 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
     private IAcknowledgedMessageProvisionService remoteAcknowledgedMessageProvisionService;
     private IAcknowledgementService remoteAcknowledgementService;
     private IRawDataProvisionService remoteRawDataProvisionService;
+    private ParameterDataProvisionServiceDelegate parameterDataProvisionServiceDelegate;
     private IParameterDataProvisionService remoteParameterDataProvisionService;
     private ISystemModelProvisionService remoteSystemModelProvisionService;
+    private EventDataProvisionServiceDelegate eventDataProvisionServiceDelegate;
     private IEventDataProvisionService remoteEventDataProvisionService;
     private IAlarmParameterDataProvisionService remoteAlarmParameterDataProvisionService;
+    private ActivityOccurrenceDataProvisionServiceDelegate activityOccurrenceDataProvisionServiceDelegate;
     private IActivityOccurrenceDataProvisionService remoteActivityOccurrenceDataProvisionService;
     private IActivityExecutionService remoteActivityExecutionService;
     private IScheduler remoteScheduler;
@@ -110,6 +114,7 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
         } catch (Exception e) {
             LOG.severe("Cannot initialise RMI export port from system property " + JVM_PROPERTY_RMI_EXPORT_PORT_KEY + ": " + rmiExportPortStr + ": " + e.getMessage());
         }
+        this.streamSettings = DataItemStreamSettings.fromSystemProperties();
 
         if (this.registry == null) {
             if (this.port == 0) {
@@ -183,12 +188,14 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
 
         if (remoteParameterDataProvisionService != null) {
             try {
-                UnicastRemoteObject.unexportObject(system.getParameterDataMonitorService(), true);
-            } catch (NoSuchObjectException | ReatmetricException e) {
+                UnicastRemoteObject.unexportObject(parameterDataProvisionServiceDelegate, true);
+            } catch (NoSuchObjectException e) {
                 // Ignore
             }
+            parameterDataProvisionServiceDelegate.dispose();
         }
         remoteParameterDataProvisionService = null;
+        parameterDataProvisionServiceDelegate = null;
 
         if (remoteSystemModelProvisionService != null) {
             try {
@@ -201,12 +208,14 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
 
         if (remoteEventDataProvisionService != null) {
             try {
-                UnicastRemoteObject.unexportObject(system.getEventDataMonitorService(), true);
-            } catch (NoSuchObjectException | ReatmetricException e) {
+                UnicastRemoteObject.unexportObject(eventDataProvisionServiceDelegate, true);
+            } catch (NoSuchObjectException e) {
                 // Ignore
             }
+            eventDataProvisionServiceDelegate.dispose();
         }
         remoteEventDataProvisionService = null;
+        eventDataProvisionServiceDelegate = null;
 
         if (remoteAlarmParameterDataProvisionService != null) {
             try {
@@ -219,12 +228,14 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
 
         if (remoteActivityOccurrenceDataProvisionService != null) {
             try {
-                UnicastRemoteObject.unexportObject(system.getActivityOccurrenceDataMonitorService(), true);
-            } catch (NoSuchObjectException | ReatmetricException e) {
+                UnicastRemoteObject.unexportObject(activityOccurrenceDataProvisionServiceDelegate, true);
+            } catch (NoSuchObjectException e) {
                 // Ignore
             }
+            activityOccurrenceDataProvisionServiceDelegate.dispose();
         }
         remoteActivityOccurrenceDataProvisionService = null;
+        activityOccurrenceDataProvisionServiceDelegate = null;
 
         if (remoteActivityExecutionService != null) {
             try {
@@ -346,7 +357,8 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
     @Override
     public synchronized IParameterDataProvisionService getParameterDataMonitorService() throws ReatmetricException, RemoteException {
         if (remoteParameterDataProvisionService == null) {
-            remoteParameterDataProvisionService = (IParameterDataProvisionService) exportObject(system.getParameterDataMonitorService());
+            parameterDataProvisionServiceDelegate = new ParameterDataProvisionServiceDelegate(system.getParameterDataMonitorService(), streamSettings);
+            remoteParameterDataProvisionService = (IParameterDataProvisionService) exportObject(parameterDataProvisionServiceDelegate);
         }
         return remoteParameterDataProvisionService;
     }
@@ -362,7 +374,8 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
     @Override
     public synchronized IEventDataProvisionService getEventDataMonitorService() throws ReatmetricException, RemoteException {
         if (remoteEventDataProvisionService == null) {
-            remoteEventDataProvisionService = (IEventDataProvisionService) exportObject(system.getEventDataMonitorService());
+            eventDataProvisionServiceDelegate = new EventDataProvisionServiceDelegate(system.getEventDataMonitorService(), streamSettings);
+            remoteEventDataProvisionService = (IEventDataProvisionService) exportObject(eventDataProvisionServiceDelegate);
         }
         return remoteEventDataProvisionService;
     }
@@ -378,7 +391,8 @@ public class ReatmetricSystemRemoting implements IReatmetricSystem {
     @Override
     public synchronized IActivityOccurrenceDataProvisionService getActivityOccurrenceDataMonitorService() throws ReatmetricException, RemoteException {
         if (remoteActivityOccurrenceDataProvisionService == null) {
-            remoteActivityOccurrenceDataProvisionService = (IActivityOccurrenceDataProvisionService) exportObject(system.getActivityOccurrenceDataMonitorService());
+            activityOccurrenceDataProvisionServiceDelegate = new ActivityOccurrenceDataProvisionServiceDelegate(system.getActivityOccurrenceDataMonitorService(), streamSettings);
+            remoteActivityOccurrenceDataProvisionService = (IActivityOccurrenceDataProvisionService) exportObject(activityOccurrenceDataProvisionServiceDelegate);
         }
         return remoteActivityOccurrenceDataProvisionService;
     }
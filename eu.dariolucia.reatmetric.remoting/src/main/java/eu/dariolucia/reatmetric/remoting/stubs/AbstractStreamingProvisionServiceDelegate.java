@@ -0,0 +1,154 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import eu.dariolucia.reatmetric.api.common.*;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+
+import java.rmi.RemoteException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server delegate stub of a data item provision service, supporting the streaming transport of subscriptions.
+ *
+ * Remote subscribers implementing {@link IDataItemStreamReceiver} are replaced, towards the delegate service, by a
+ * local subscriber that forwards the data items to a {@link DataItemStreamSender}. All other subscribers are passed
+ * to the delegate service as they are.
+ *
+ * @param <T> the subscriber type
+ * @param <R> the filter type
+ * @param <K> the data item type
+ */
+public abstract class AbstractStreamingProvisionServiceDelegate<T extends IDataItemSubscriber<K>, R extends AbstractSystemEntityDataFilter<K>, K extends AbstractDataItem> implements ISystemEntityDataProvisionService<T, R, K> {
+
+    private static final Logger LOG = Logger.getLogger(AbstractStreamingProvisionServiceDelegate.class.getName());
+
+    private final DataItemStreamSettings settings;
+
+    private final Map<T, StreamSubscription> remote2local = new ConcurrentHashMap<>();
+
+    protected AbstractStreamingProvisionServiceDelegate(DataItemStreamSettings settings) {
+        this.settings = settings;
+    }
+
+    protected abstract ISystemEntityDataProvisionService<T, R, K> getDelegate();
+
+    /**
+     * Create the local subscriber forwarding the data items to the provided sender.
+     *
+     * @param sender the sender
+     * @return the local subscriber
+     */
+    protected abstract T createLocalSubscriber(DataItemStreamSender sender);
+
+    @Override
+    public synchronized void subscribe(T subscriber, R filter) throws RemoteException {
+        if (subscriber instanceof IDataItemStreamReceiver) {
+            StreamSubscription subscription = remote2local.get(subscriber);
+            if (subscription == null) {
+                DataItemStreamSender sender = new DataItemStreamSender((IDataItemStreamReceiver) subscriber, settings, () -> onStreamFailure(subscriber));
+                subscription = new StreamSubscription(createLocalSubscriber(sender), sender);
+                remote2local.put(subscriber, subscription);
+            }
+            getDelegate().subscribe(subscription.localSubscriber, filter);
+        } else {
+            getDelegate().subscribe(subscriber, filter);
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(T subscriber) throws RemoteException {
+        StreamSubscription subscription = remote2local.remove(subscriber);
+        if (subscription != null) {
+            subscription.sender.dispose();
+            getDelegate().unsubscribe(subscription.localSubscriber);
+        } else {
+            getDelegate().unsubscribe(subscriber);
+        }
+    }
+
+    private void onStreamFailure(T subscriber) {
+        try {
+            unsubscribe(subscriber);
+        } catch (RemoteException e) {
+            LOG.log(Level.WARNING, "Cannot unsubscribe stream subscriber " + subscriber + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void addToSubscription(T subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        getDelegate().addToSubscription(toLocal(subscriber), paths, externalIds);
+    }
+
+    @Override
+    public void removeFromSubscription(T subscriber, Collection<SystemEntityPath> paths, Collection<Integer> externalIds) throws ReatmetricException, RemoteException {
+        getDelegate().removeFromSubscription(toLocal(subscriber), paths, externalIds);
+    }
+
+    private T toLocal(T subscriber) {
+        StreamSubscription subscription = remote2local.get(subscriber);
+        return subscription != null ? subscription.localSubscriber : subscriber;
+    }
+
+    @Override
+    public List<K> retrieve(Instant startTime, int numRecords, RetrievalDirection direction, R filter) throws ReatmetricException, RemoteException {
+        return getDelegate().retrieve(startTime, numRecords, direction, filter);
+    }
+
+    @Override
+    public List<K> retrieve(K startItem, int numRecords, RetrievalDirection direction, R filter) throws ReatmetricException, RemoteException {
+        return getDelegate().retrieve(startItem, numRecords, direction, filter);
+    }
+
+    @Override
+    public List<K> retrieve(Instant startTime, Instant endTime, R filter) throws ReatmetricException, RemoteException {
+        return getDelegate().retrieve(startTime, endTime, filter);
+    }
+
+    /**
+     * Dispose all active stream subscriptions.
+     */
+    public synchronized void dispose() {
+        for (StreamSubscription subscription : remote2local.values()) {
+            subscription.sender.dispose();
+            try {
+                getDelegate().unsubscribe(subscription.localSubscriber);
+            } catch (RemoteException e) {
+                // Ignore, local call
+            }
+        }
+        remote2local.clear();
+    }
+
+    private class StreamSubscription {
+        private final T localSubscriber;
+        private final DataItemStreamSender sender;
+
+        private StreamSubscription(T localSubscriber, DataItemStreamSender sender) {
+            this.localSubscriber = localSubscriber;
+            this.sender = sender;
+        }
+    }
+}
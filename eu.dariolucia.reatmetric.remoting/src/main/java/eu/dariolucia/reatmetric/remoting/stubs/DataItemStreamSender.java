@@ -0,0 +1,219 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+import eu.dariolucia.reatmetric.api.common.DataItemStreamCodec;
+import eu.dariolucia.reatmetric.api.common.IDataItemStreamReceiver;
+import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class collects the data items delivered to a remote {@link IDataItemStreamReceiver} and sends them in encoded
+ * batches. Items arriving within the coalescing window are sent together, and at most one batch per receiver is
+ * in flight: while the receiver is blocked (e.g. because its delivery window is full), new items are accumulated and
+ * sent in the next batch. If the accumulated items exceed {@link DataItemStreamSettings#getMaxBufferedItems()}, the
+ * parameter and activity occurrence updates are coalesced to the latest one per parameter/occurrence: if the limit is
+ * still exceeded, the stream is closed.
+ */
+public class DataItemStreamSender {
+
+    private static final Logger LOG = Logger.getLogger(DataItemStreamSender.class.getName());
+
+    private static final AtomicInteger SENDER_COUNTER = new AtomicInteger(0);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ReatMetric Remoting Stream Timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ExecutorService SENDER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "ReatMetric Remoting Stream Sender " + SENDER_COUNTER.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final IDataItemStreamReceiver receiver;
+    private final DataItemStreamSettings settings;
+    private final Runnable failureHandler;
+
+    private List<AbstractDataItem> buffer = new ArrayList<>();
+    private boolean flushPending = false;
+    private boolean disposed = false;
+
+    // Accessed only by the thread performing the flush
+    private long nextSequenceNumber = 0;
+
+    /**
+     * Create a sender.
+     *
+     * @param receiver the remote receiver
+     * @param settings the stream settings
+     * @param failureHandler the handler called (once) when the receiver cannot be reached anymore
+     */
+    public DataItemStreamSender(IDataItemStreamReceiver receiver, DataItemStreamSettings settings, Runnable failureHandler) {
+        this.receiver = receiver;
+        this.settings = settings;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Queue the provided items for delivery. This method does not block.
+     *
+     * @param items the items to deliver
+     */
+    public void send(List<? extends AbstractDataItem> items) {
+        synchronized (this) {
+            if (disposed || items.isEmpty()) {
+                return;
+            }
+            buffer.addAll(items);
+            if (buffer.size() > settings.getMaxBufferedItems() && !reduceBuffer()) {
+                return;
+            }
+            if (flushPending) {
+                // A flush is scheduled or running: items will be picked up there
+                return;
+            }
+            flushPending = true;
+        }
+        if (settings.getCoalescingPeriod() > 0) {
+            TIMER.schedule(() -> SENDER.execute(this::flush), settings.getCoalescingPeriod(), TimeUnit.MILLISECONDS);
+        } else {
+            SENDER.execute(this::flush);
+        }
+    }
+
+    /**
+     * Coalesce the buffered items and, if they still exceed the maximum, close the stream. To be called with the lock
+     * held.
+     *
+     * @return true if the stream is still open, otherwise false
+     */
+    private boolean reduceBuffer() {
+        int initialSize = buffer.size();
+        buffer = coalesce(buffer);
+        if (buffer.size() <= settings.getMaxBufferedItems()) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine(String.format("Receiver %s not keeping up, %d pending items coalesced to %d", receiver, initialSize, buffer.size()));
+            }
+            return true;
+        }
+        LOG.log(Level.WARNING, "Receiver " + receiver + " not keeping up, " + buffer.size() + " pending items exceed the limit of " + settings.getMaxBufferedItems() + ", stream closed");
+        dispose();
+        // Not called in the caller thread, which is delivering items from the processing model
+        SENDER.execute(failureHandler);
+        return false;
+    }
+
+    /**
+     * Keep only the latest update of each parameter and activity occurrence, preserving the order of the retained
+     * items. All other items are retained.
+     *
+     * @param items the items to coalesce
+     * @return the coalesced items
+     */
+    static List<AbstractDataItem> coalesce(List<AbstractDataItem> items) {
+        Set<Object> retainedKeys = new HashSet<>();
+        LinkedList<AbstractDataItem> coalesced = new LinkedList<>();
+        ListIterator<AbstractDataItem> it = items.listIterator(items.size());
+        while (it.hasPrevious()) {
+            AbstractDataItem item = it.previous();
+            Object key = null;
+            if (item instanceof ParameterData) {
+                key = Arrays.asList(ParameterData.class, ((ParameterData) item).getExternalId());
+            } else if (item instanceof ActivityOccurrenceData) {
+                key = Arrays.asList(ActivityOccurrenceData.class, item.getInternalId());
+            }
+            if (key == null || retainedKeys.add(key)) {
+                coalesced.addFirst(item);
+            }
+        }
+        return new ArrayList<>(coalesced);
+    }
+
+    private void flush() {
+        while (true) {
+            List<AbstractDataItem> toSend;
+            synchronized (this) {
+                if (disposed || buffer.isEmpty()) {
+                    flushPending = false;
+                    return;
+                }
+                toSend = buffer;
+                buffer = new ArrayList<>();
+            }
+            for (int i = 0; i < toSend.size(); i += settings.getMaxBatchSize()) {
+                List<AbstractDataItem> batch = toSend.subList(i, Math.min(toSend.size(), i + settings.getMaxBatchSize()));
+                if (!sendBatch(batch)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean sendBatch(List<AbstractDataItem> batch) {
+        byte[] encoded;
+        try {
+            encoded = DataItemStreamCodec.encode(batch, settings.isCompressionEnabled());
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot encode data item batch for " + receiver + ", " + batch.size() + " items discarded: " + e.getMessage(), e);
+            return true;
+        }
+        try {
+            long sequenceNumber = nextSequenceNumber++;
+            long acknowledged = receiver.dataBatchReceived(sequenceNumber, encoded);
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.finest(String.format("Batch %d sent to %s: %d items, %d bytes, last acknowledged batch %d", sequenceNumber, receiver, batch.size(), encoded.length, acknowledged));
+            }
+            return true;
+        } catch (RemoteException e) {
+            LOG.log(Level.WARNING, "Cannot deliver data item batch to " + receiver + ", stream closed: " + e.getMessage(), e);
+            boolean notify;
+            synchronized (this) {
+                notify = !disposed;
+                dispose();
+            }
+            if (notify) {
+                failureHandler.run();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Discard any pending item and stop the delivery.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        flushPending = false;
+        buffer = new ArrayList<>();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import java.util.logging.Logger;
+
+/**
+ * Settings of the streaming transport of subscriptions, read from the following JVM properties:
+ * <ul>
+ *     <li>reatmetric.remoting.stream.coalescing.period: the coalescing window in milliseconds (default: 50)</li>
+ *     <li>reatmetric.remoting.stream.compression: true if batches shall be compressed (default: true)</li>
+ *     <li>reatmetric.remoting.stream.max.batch.size: the maximum number of data items in a batch (default: 5000)</li>
+ *     <li>reatmetric.remoting.stream.max.buffered.items: the maximum number of data items waiting to be sent to a
+ *     receiver (default: 100000)</li>
+ * </ul>
+ */
+public class DataItemStreamSettings {
+
+    private static final Logger LOG = Logger.getLogger(DataItemStreamSettings.class.getName());
+
+    private static final String JVM_PROPERTY_COALESCING_PERIOD_KEY = "reatmetric.remoting.stream.coalescing.period";
+    private static final String JVM_PROPERTY_COMPRESSION_KEY = "reatmetric.remoting.stream.compression";
+    private static final String JVM_PROPERTY_MAX_BATCH_SIZE_KEY = "reatmetric.remoting.stream.max.batch.size";
+    private static final String JVM_PROPERTY_MAX_BUFFERED_ITEMS_KEY = "reatmetric.remoting.stream.max.buffered.items";
+
+    private static final int COALESCING_PERIOD_DEFAULT = 50;
+    private static final int MAX_BATCH_SIZE_DEFAULT = 5000;
+    private static final int MAX_BUFFERED_ITEMS_DEFAULT = 100000;
+
+    public static DataItemStreamSettings fromSystemProperties() {
+        int coalescingPeriod = readInt(JVM_PROPERTY_COALESCING_PERIOD_KEY, COALESCING_PERIOD_DEFAULT);
+        boolean compression = Boolean.parseBoolean(System.getProperty(JVM_PROPERTY_COMPRESSION_KEY, "true"));
+        int maxBatchSize = readInt(JVM_PROPERTY_MAX_BATCH_SIZE_KEY, MAX_BATCH_SIZE_DEFAULT);
+        int maxBufferedItems = readInt(JVM_PROPERTY_MAX_BUFFERED_ITEMS_KEY, MAX_BUFFERED_ITEMS_DEFAULT);
+        return new DataItemStreamSettings(coalescingPeriod, compression, maxBatchSize, maxBufferedItems);
+    }
+
+    private static int readInt(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        try {
+            if(value != null) {
+                return Integer.parseInt(value);
+            }
+        } catch (Exception e) {
+            LOG.severe("Cannot initialise stream setting from system property " + key + ": " + value + ": " + e.getMessage());
+        }
+        return defaultValue;
+    }
+
+    private final int coalescingPeriod;
+    private final boolean compressionEnabled;
+    private final int maxBatchSize;
+    private final int maxBufferedItems;
+
+    public DataItemStreamSettings(int coalescingPeriod, boolean compressionEnabled, int maxBatchSize, int maxBufferedItems) {
+        this.coalescingPeriod = Math.max(0, coalescingPeriod);
+        this.compressionEnabled = compressionEnabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBufferedItems = Math.max(1, maxBufferedItems);
+    }
+
+    public int getCoalescingPeriod() {
+        return coalescingPeriod;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getMaxBufferedItems() {
+        return maxBufferedItems;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *           http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import eu.dariolucia.reatmetric.api.common.ISystemEntityDataProvisionService;
+import eu.dariolucia.reatmetric.api.common.exceptions.ReatmetricException;
+import eu.dariolucia.reatmetric.api.events.*;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+
+import java.rmi.RemoteException;
+
+public class EventDataProvisionServiceDelegate extends AbstractStreamingProvisionServiceDelegate<IEventDataSubscriber, EventDataFilter, EventData> implements IEventDataProvisionService {
+
+    private final IEventDataProvisionService delegate;
+
+    public EventDataProvisionServiceDelegate(IEventDataProvisionService delegate, DataItemStreamSettings settings) {
+        super(settings);
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected ISystemEntityDataProvisionService<IEventDataSubscriber, EventDataFilter, EventData> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    protected IEventDataSubscriber createLocalSubscriber(DataItemStreamSender sender) {
+        return sender::send;
+    }
+
+
+    @Override
+    public EventDescriptor getDescriptor(SystemEntityPath path) throws ReatmetricException, RemoteException {
+        return delegate.getDescriptor(path);
+    }
+
+    @Override
+    public EventDescriptor getDescriptor(int externalId) throws ReatmetricException, RemoteException {
+        return delegate.getDescriptor(externalId);
+    }
+}
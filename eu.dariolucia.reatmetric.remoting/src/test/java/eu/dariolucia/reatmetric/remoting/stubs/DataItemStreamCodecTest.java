@@ -0,0 +1,235 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceReport;
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceState;
+import eu.dariolucia.reatmetric.api.activity.ActivityReportState;
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+import eu.dariolucia.reatmetric.api.common.DataItemStreamCodec;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.messages.Severity;
+import eu.dariolucia.reatmetric.api.model.AlarmState;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+import eu.dariolucia.reatmetric.api.parameters.Validity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataItemStreamCodecTest {
+
+    private static final Instant T0 = Instant.parse("2024-03-01T10:15:30.123456789Z");
+
+    @Test
+    void testParameterRoundTrip() throws IOException {
+        List<AbstractDataItem> items = Arrays.asList(
+                parameter(1, 101, 12.5, 125L, Validity.VALID, AlarmState.NOMINAL, "Route Ü", new TestExtension("ext", 3)),
+                // Enumerated value, null source value, null route, null reception time
+                new ParameterData(new LongUniqueId(2), T0.plusSeconds(1), 102, "PARAM2", SystemEntityPath.fromString("STATION.SYS.PARAM2"),
+                        3, null, null, Validity.INVALID, AlarmState.ALARM, null, null, null),
+                // Null values and enumerations
+                new ParameterData(new LongUniqueId(3), T0.plusSeconds(2), 103, "PARAM3", SystemEntityPath.fromString("STATION.SYS.PARAM3"),
+                        null, null, "Route Ü", null, null, new LongUniqueId(44), T0, null),
+                // Same parameter again: strings and paths are shared
+                parameter(4, 101, "Non-ASCII value: àèìòù", new byte[] { 1, 2, 3 }, Validity.UNKNOWN, AlarmState.WARNING, "Route Ü", true)
+        );
+        for (boolean compress : new boolean[] { false, true }) {
+            List<AbstractDataItem> decoded = DataItemStreamCodec.decode(DataItemStreamCodec.encode(items, compress));
+            assertEquals(items.size(), decoded.size());
+            for (int i = 0; i < items.size(); ++i) {
+                assertParameterEquals((ParameterData) items.get(i), (ParameterData) decoded.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testEventRoundTrip() throws IOException {
+        List<AbstractDataItem> items = Arrays.asList(
+                new EventData(new LongUniqueId(10), T0, 201, "EVENT1", SystemEntityPath.fromString("STATION.SYS.EVENT1"), "Qualifier",
+                        "Type", "Route", "Source", Severity.ALARM, new TestExtension("report", 7), new LongUniqueId(5), T0.plusMillis(10), 42L),
+                new EventData(new LongUniqueId(11), T0, 202, "EVENT2", SystemEntityPath.fromString("STATION.SYS.EVENT2"), null,
+                        null, null, null, null, null, null, null, null)
+        );
+        for (boolean compress : new boolean[] { false, true }) {
+            List<AbstractDataItem> decoded = DataItemStreamCodec.decode(DataItemStreamCodec.encode(items, compress));
+            assertEquals(items.size(), decoded.size());
+            for (int i = 0; i < items.size(); ++i) {
+                EventData expected = (EventData) items.get(i);
+                EventData actual = (EventData) decoded.get(i);
+                assertEquals(expected.getInternalId(), actual.getInternalId());
+                assertEquals(expected.getGenerationTime(), actual.getGenerationTime());
+                assertEquals(expected.getExternalId(), actual.getExternalId());
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getPath(), actual.getPath());
+                assertEquals(expected.getQualifier(), actual.getQualifier());
+                assertEquals(expected.getType(), actual.getType());
+                assertEquals(expected.getRoute(), actual.getRoute());
+                assertEquals(expected.getSource(), actual.getSource());
+                assertEquals(expected.getSeverity(), actual.getSeverity());
+                assertEquals(expected.getReport(), actual.getReport());
+                assertEquals(expected.getRawDataContainerId(), actual.getRawDataContainerId());
+                assertEquals(expected.getReceptionTime(), actual.getReceptionTime());
+                assertEquals(expected.getExtension(), actual.getExtension());
+            }
+        }
+    }
+
+    @Test
+    void testActivityOccurrenceRoundTrip() throws IOException {
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        arguments.put("ARG1", 10L);
+        arguments.put("ARG2", "Value");
+        arguments.put("ARG3", null);
+        arguments.put("ARG4", 2);
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("PROP1", "Value1");
+        properties.put("PROP2", null);
+        List<ActivityOccurrenceReport> reports = Arrays.asList(
+                new ActivityOccurrenceReport(new LongUniqueId(31), T0, null, ActivityOccurrenceReport.CREATION_REPORT_NAME,
+                        ActivityOccurrenceState.CREATION, null, ActivityReportState.OK, ActivityOccurrenceState.RELEASE, null),
+                new ActivityOccurrenceReport(new LongUniqueId(32), T0.plusMillis(5), new TestExtension("report", 1), ActivityOccurrenceReport.RELEASE_REPORT_NAME,
+                        ActivityOccurrenceState.RELEASE, T0.plusMillis(4), ActivityReportState.OK, ActivityOccurrenceState.TRANSMISSION, null),
+                new ActivityOccurrenceReport(new LongUniqueId(33), T0.plusMillis(9), null, "Execution",
+                        ActivityOccurrenceState.EXECUTION, T0.plusMillis(8), ActivityReportState.FATAL, ActivityOccurrenceState.VERIFICATION, 12.0)
+        );
+        List<AbstractDataItem> items = Arrays.asList(
+                new ActivityOccurrenceData(new LongUniqueId(30), T0, new TestExtension("occurrence", 2), 301, "ACT1",
+                        SystemEntityPath.fromString("STATION.SYS.ACT1"), "TC", arguments, properties, reports, "Route", "Source"),
+                new ActivityOccurrenceData(new LongUniqueId(34), T0, null, 302, "ACT2",
+                        SystemEntityPath.fromString("STATION.SYS.ACT2"), "TC", Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList(), null, null)
+        );
+        for (boolean compress : new boolean[] { false, true }) {
+            List<AbstractDataItem> decoded = DataItemStreamCodec.decode(DataItemStreamCodec.encode(items, compress));
+            assertEquals(items.size(), decoded.size());
+            for (int i = 0; i < items.size(); ++i) {
+                ActivityOccurrenceData expected = (ActivityOccurrenceData) items.get(i);
+                ActivityOccurrenceData actual = (ActivityOccurrenceData) decoded.get(i);
+                assertEquals(expected.getInternalId(), actual.getInternalId());
+                assertEquals(expected.getGenerationTime(), actual.getGenerationTime());
+                assertEquals(expected.getExtension(), actual.getExtension());
+                assertEquals(expected.getExternalId(), actual.getExternalId());
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getPath(), actual.getPath());
+                assertEquals(expected.getType(), actual.getType());
+                assertEquals(expected.getArguments(), actual.getArguments());
+                assertEquals(new ArrayList<>(expected.getArguments().keySet()), new ArrayList<>(actual.getArguments().keySet()));
+                assertEquals(expected.getProperties(), actual.getProperties());
+                assertEquals(expected.getRoute(), actual.getRoute());
+                assertEquals(expected.getSource(), actual.getSource());
+                assertEquals(expected.getProgressReports().size(), actual.getProgressReports().size());
+                for (int j = 0; j < expected.getProgressReports().size(); ++j) {
+                    ActivityOccurrenceReport expectedReport = expected.getProgressReports().get(j);
+                    ActivityOccurrenceReport actualReport = actual.getProgressReports().get(j);
+                    assertEquals(expectedReport.getInternalId(), actualReport.getInternalId());
+                    assertEquals(expectedReport.getGenerationTime(), actualReport.getGenerationTime());
+                    assertEquals(expectedReport.getExtension(), actualReport.getExtension());
+                    assertEquals(expectedReport.getName(), actualReport.getName());
+                    assertEquals(expectedReport.getState(), actualReport.getState());
+                    assertEquals(expectedReport.getExecutionTime(), actualReport.getExecutionTime());
+                    assertEquals(expectedReport.getStatus(), actualReport.getStatus());
+                    assertEquals(expectedReport.getStateTransition(), actualReport.getStateTransition());
+                    assertEquals(expectedReport.getResult(), actualReport.getResult());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCompression() throws IOException {
+        List<AbstractDataItem> items = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            items.add(parameter(i, 100 + i % 10, (double) (i % 10), (long) (i % 10), Validity.VALID, AlarmState.NOMINAL, "Route", null));
+        }
+        byte[] plain = DataItemStreamCodec.encode(items, false);
+        byte[] compressed = DataItemStreamCodec.encode(items, true);
+        assertTrue(compressed.length < plain.length);
+        List<AbstractDataItem> fromPlain = DataItemStreamCodec.decode(plain);
+        List<AbstractDataItem> fromCompressed = DataItemStreamCodec.decode(compressed);
+        for (int i = 0; i < items.size(); ++i) {
+            assertParameterEquals((ParameterData) items.get(i), (ParameterData) fromPlain.get(i));
+            assertParameterEquals((ParameterData) items.get(i), (ParameterData) fromCompressed.get(i));
+        }
+    }
+
+    @Test
+    void testInvalidBatch() throws IOException {
+        assertThrows(IOException.class, () -> DataItemStreamCodec.decode(new byte[0]));
+        byte[] encoded = DataItemStreamCodec.encode(Collections.singletonList(parameter(1, 101, 1.0, 1L, Validity.VALID, AlarmState.NOMINAL, null, null)), false);
+        assertThrows(IOException.class, () -> DataItemStreamCodec.decode(Arrays.copyOf(encoded, encoded.length - 4)));
+    }
+
+    static ParameterData parameter(long id, int externalId, Object engValue, Object sourceValue, Validity validity, AlarmState alarmState, String route, Object extension) {
+        return new ParameterData(new LongUniqueId(id), T0.plusMillis(id), externalId, "PARAM" + externalId, SystemEntityPath.fromString("STATION.SYS.PARAM" + externalId),
+                engValue, sourceValue, route, validity, alarmState, new LongUniqueId(1000 + id), T0.plusMillis(id + 1), extension);
+    }
+
+    private static void assertParameterEquals(ParameterData expected, ParameterData actual) {
+        assertEquals(expected.getInternalId(), actual.getInternalId());
+        assertEquals(expected.getGenerationTime(), actual.getGenerationTime());
+        assertEquals(expected.getExternalId(), actual.getExternalId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getPath(), actual.getPath());
+        if (expected.getSourceValue() instanceof byte[]) {
+            assertArrayEquals((byte[]) expected.getSourceValue(), (byte[]) actual.getSourceValue());
+        } else {
+            assertEquals(expected.getSourceValue(), actual.getSourceValue());
+        }
+        assertEquals(expected.getEngValue(), actual.getEngValue());
+        assertEquals(expected.getRoute(), actual.getRoute());
+        assertEquals(expected.getValidity(), actual.getValidity());
+        assertEquals(expected.getAlarmState(), actual.getAlarmState());
+        assertEquals(expected.getRawDataContainerId(), actual.getRawDataContainerId());
+        assertEquals(expected.getReceptionTime(), actual.getReceptionTime());
+        assertEquals(expected.getExtension(), actual.getExtension());
+    }
+
+    /**
+     * Extension type not known to the value serialisation, encoded with Java serialization.
+     */
+    static class TestExtension implements Serializable {
+
+        private final String name;
+        private final int value;
+
+        TestExtension(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TestExtension that = (TestExtension) o;
+            return value == that.value && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, value);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.dariolucia.reatmetric.remoting.stubs;
+
+import eu.dariolucia.reatmetric.api.activity.ActivityOccurrenceData;
+import eu.dariolucia.reatmetric.api.common.AbstractDataItem;
+import eu.dariolucia.reatmetric.api.common.DataItemStreamCodec;
+import eu.dariolucia.reatmetric.api.common.IDataItemStreamReceiver;
+import eu.dariolucia.reatmetric.api.common.LongUniqueId;
+import eu.dariolucia.reatmetric.api.events.EventData;
+import eu.dariolucia.reatmetric.api.messages.Severity;
+import eu.dariolucia.reatmetric.api.model.AlarmState;
+import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
+import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+import eu.dariolucia.reatmetric.api.parameters.Validity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataItemStreamSenderTest {
+
+    @Test
+    void testCoalesce() {
+        List<AbstractDataItem> items = Arrays.asList(
+                DataItemStreamCodecTest.parameter(1, 101, 1.0, null, Validity.VALID, AlarmState.NOMINAL, null, null),
+                event(2, 201),
+                DataItemStreamCodecTest.parameter(3, 102, 2.0, null, Validity.VALID, AlarmState.NOMINAL, null, null),
+                occurrence(4, 301),
+                DataItemStreamCodecTest.parameter(5, 101, 3.0, null, Validity.VALID, AlarmState.NOMINAL, null, null),
+                occurrence(4, 301),
+                event(6, 201)
+        );
+        List<AbstractDataItem> coalesced = DataItemStreamSender.coalesce(items);
+        // Latest parameter and occurrence updates, all events, original order
+        assertEquals(Arrays.asList(items.get(1), items.get(2), items.get(4), items.get(5), items.get(6)), coalesced);
+        assertSame(items.get(5), coalesced.get(3));
+    }
+
+    @Test
+    void testBackPressureCoalescing() throws Exception {
+        BlockingReceiver receiver = new BlockingReceiver();
+        AtomicInteger failures = new AtomicInteger(0);
+        DataItemStreamSender sender = new DataItemStreamSender(receiver, new DataItemStreamSettings(0, true, 1000, 10), failures::incrementAndGet);
+        sender.send(Collections.singletonList(DataItemStreamCodecTest.parameter(0, 100, 0.0, null, Validity.VALID, AlarmState.NOMINAL, null, null)));
+        assertTrue(receiver.blocked.await(5, TimeUnit.SECONDS));
+        // The receiver is blocked: 100 updates of 5 parameters are coalesced, whenever they exceed the limit, to the
+        // latest update of each parameter
+        for (int i = 1; i <= 100; ++i) {
+            sender.send(Collections.singletonList(DataItemStreamCodecTest.parameter(i, 100 + i % 5, (double) i, null, Validity.VALID, AlarmState.NOMINAL, null, null)));
+        }
+        receiver.release.countDown();
+        waitFor(() -> receiver.received.stream().anyMatch(o -> ((ParameterData) o).getEngValue().equals(100.0)));
+        assertEquals(0, failures.get());
+        assertTrue(receiver.received.size() <= 1 + 10);
+        Map<Integer, Object> latest = new HashMap<>();
+        for (AbstractDataItem item : receiver.received) {
+            latest.put(((ParameterData) item).getExternalId(), ((ParameterData) item).getEngValue());
+        }
+        assertEquals(Map.of(100, 100.0, 101, 96.0, 102, 97.0, 103, 98.0, 104, 99.0), latest);
+    }
+
+    @Test
+    void testBackPressureClose() throws Exception {
+        BlockingReceiver receiver = new BlockingReceiver();
+        CountDownLatch failure = new CountDownLatch(1);
+        DataItemStreamSender sender = new DataItemStreamSender(receiver, new DataItemStreamSettings(0, false, 1000, 10), failure::countDown);
+        sender.send(Collections.singletonList(event(0, 200)));
+        assertTrue(receiver.blocked.await(5, TimeUnit.SECONDS));
+        // Events cannot be coalesced: the stream is closed when the limit is exceeded
+        for (int i = 1; i <= 11; ++i) {
+            sender.send(Collections.singletonList(event(i, 200)));
+        }
+        assertTrue(failure.await(5, TimeUnit.SECONDS));
+        receiver.release.countDown();
+        sender.send(Collections.singletonList(event(12, 200)));
+        Thread.sleep(200);
+        assertEquals(1, receiver.received.size());
+    }
+
+    private static EventData event(long id, int externalId) {
+        return new EventData(new LongUniqueId(id), Instant.EPOCH.plusMillis(id), externalId, "EVENT" + externalId, SystemEntityPath.fromString("STATION.SYS.EVENT" + externalId),
+                null, "Type", "Route", "Source", Severity.INFO, null, null, Instant.EPOCH, null);
+    }
+
+    private static ActivityOccurrenceData occurrence(long id, int externalId) {
+        return new ActivityOccurrenceData(new LongUniqueId(id), Instant.EPOCH, null, externalId, "ACT" + externalId, SystemEntityPath.fromString("STATION.SYS.ACT" + externalId),
+                "TC", Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList(), "Route", "Source");
+    }
+
+    private static void waitFor(java.util.function.Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Receiver blocking the first batch until released, as a receiver with a full delivery window.
+     */
+    private static class BlockingReceiver implements IDataItemStreamReceiver {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<AbstractDataItem> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public long dataBatchReceived(long sequenceNumber, byte[] batch) {
+            try {
+                received.addAll(DataItemStreamCodec.decode(batch));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sequenceNumber;
+        }
+    }
+}
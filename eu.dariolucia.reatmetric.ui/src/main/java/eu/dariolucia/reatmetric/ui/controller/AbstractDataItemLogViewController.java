@@ -36,9 +36,12 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Bounds;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.control.skin.TableViewSkin;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
@@ -54,15 +57,51 @@ import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * FXML Controller class
  *
+ * The table keeps a sliding window of at most MAX_ENTRIES items, ordered from the most recent to the oldest. When the
+ * visible rows get close to one of the ends of the window, the adjacent page of items is retrieved from the archive in
+ * background and merged in the window; the items on the opposite end are discarded, if the window is full. Live items
+ * are merged in batches, without moving the visible rows if the user scrolled away from the top of the table.
+ *
  * @author dario
  */
 public abstract class AbstractDataItemLogViewController<T extends AbstractDataItem, V extends AbstractDataItemFilter<T>> extends AbstractDisplayController {
 
-    protected static final int MAX_ENTRIES = 100;
+    private static final Logger LOG = Logger.getLogger(AbstractDataItemLogViewController.class.getName());
+
+    public static final String REATMETRIC_LOG_WINDOW_SIZE_KEY = "reatmetric.ui.log.window.size";
+
+    private static final int DEFAULT_WINDOW_SIZE = 10000;
+
+    protected static final int MAX_ENTRIES;
+
+    // Number of items retrieved from the archive when the visible rows get close to one of the ends of the window
+    protected static final int PAGE_SIZE = 500;
+
+    // Distance (in rows) from one of the ends of the window, which triggers the retrieval of the adjacent page
+    private static final int PREFETCH_MARGIN = 100;
+
+    static {
+        int windowSize = DEFAULT_WINDOW_SIZE;
+        String windowSizeStr = System.getProperty(REATMETRIC_LOG_WINDOW_SIZE_KEY);
+        if(windowSizeStr != null) {
+            try {
+                windowSize = Integer.parseInt(windowSizeStr);
+                if(windowSize < PAGE_SIZE) {
+                    throw new NumberFormatException("Window size must be at least " + PAGE_SIZE);
+                }
+            } catch (NumberFormatException e) {
+                LOG.log(Level.WARNING, "Cannot use log window size " + windowSizeStr + " from property " + REATMETRIC_LOG_WINDOW_SIZE_KEY + ", using default " + DEFAULT_WINDOW_SIZE + ": " + e.getMessage());
+                windowSize = DEFAULT_WINDOW_SIZE;
+            }
+        }
+        MAX_ENTRIES = windowSize;
+    }
 
     // Pane control
     @FXML
@@ -122,6 +161,17 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
 
     private double zoomFactor = Font.getDefault().getSize() * 10;
 
+    // The virtual flow of the table, to know which rows are visible
+    private VirtualFlow<?> virtualFlow;
+
+    // Set when the window contains the oldest (resp. most recent) items that can be retrieved with the current filter
+    private boolean oldestEndReached = false;
+    private boolean newestEndReached = true;
+
+    private boolean prefetchInProgress = false;
+
+    // Incremented at each clear of the table, to discard pages retrieved for the previous contents
+    private long windowGeneration = 0;
 
     /**
      * Initializes the controller class.
@@ -189,9 +239,143 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
         filteredItemList = new FilteredList<>(dataItemList, p -> true);
         dataItemTableView.setItems(filteredItemList);
 
+        // Track the visible rows, to retrieve the adjacent pages when needed
+        attachToVirtualFlow(dataItemTableView.getSkin());
+        dataItemTableView.skinProperty().addListener((o, oldSkin, newSkin) -> attachToVirtualFlow(newSkin));
+
         Platform.runLater(() -> updateZoomFactor(0));
     }
 
+    private void attachToVirtualFlow(Skin<?> skin) {
+        if(skin instanceof TableViewSkin) {
+            for(Node n : ((TableViewSkin<?>) skin).getChildren()) {
+                if(n instanceof VirtualFlow) {
+                    this.virtualFlow = (VirtualFlow<?>) n;
+                    this.virtualFlow.positionProperty().addListener((o, oldV, newV) -> checkPrefetch());
+                    return;
+                }
+            }
+        }
+    }
+
+    private int getFirstVisibleIndex() {
+        IndexedCell<?> cell = this.virtualFlow != null ? this.virtualFlow.getFirstVisibleCell() : null;
+        return cell != null ? cell.getIndex() : 0;
+    }
+
+    private int getLastVisibleIndex() {
+        IndexedCell<?> cell = this.virtualFlow != null ? this.virtualFlow.getLastVisibleCell() : null;
+        return cell != null ? cell.getIndex() : this.filteredItemList.size() - 1;
+    }
+
+    /**
+     * If the visible rows are close to one of the ends of the window, retrieve the adjacent page in background. In live
+     * mode, the most recent items are never discarded: older pages are retrieved only until the window is full.
+     */
+    private void checkPrefetch() {
+        if(!isPrefetchEnabled() || this.prefetchInProgress || this.virtualFlow == null || this.displayTitledPane.isDisabled() || !isProcessingAvailable() || this.dataItemList.isEmpty()) {
+            return;
+        }
+        boolean live = this.liveTgl == null || this.liveTgl.isSelected();
+        if(!this.oldestEndReached && this.filteredItemList.size() - 1 - getLastVisibleIndex() < PREFETCH_MARGIN && (!live || this.dataItemList.size() < MAX_ENTRIES)) {
+            prefetch(RetrievalDirection.TO_PAST);
+        } else if(!live && !this.newestEndReached && getFirstVisibleIndex() < PREFETCH_MARGIN) {
+            prefetch(RetrievalDirection.TO_FUTURE);
+        }
+    }
+
+    /**
+     * Subclasses can override this method to disable the retrieval of adjacent pages, e.g. in live mode.
+     *
+     * @return true if adjacent pages shall be retrieved when the visible rows get close to one of the ends of the window
+     */
+    protected boolean isPrefetchEnabled() {
+        return true;
+    }
+
+    private void prefetch(RetrievalDirection direction) {
+        this.prefetchInProgress = true;
+        final long generation = this.windowGeneration;
+        final T from = direction == RetrievalDirection.TO_PAST ? this.dataItemList.get(this.dataItemList.size() - 1) : this.dataItemList.get(0);
+        final V filter = getCurrentFilter();
+        ReatmetricUI.threadPool(getClass()).execute(() -> {
+            List<T> messages = null;
+            try {
+                messages = doRetrieve(from, PAGE_SIZE, direction, filter);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Cannot retrieve page for " + doGetComponentId() + ": " + e.getMessage(), e);
+            }
+            final List<T> page = messages;
+            FxUtils.runLater(() -> {
+                this.prefetchInProgress = false;
+                if(generation != this.windowGeneration || this.displayTitledPane.isDisabled()) {
+                    // Table cleared in the meantime, page not relevant anymore
+                    return;
+                }
+                if(page == null) {
+                    return;
+                }
+                if(direction == RetrievalDirection.TO_PAST) {
+                    this.oldestEndReached = page.size() < PAGE_SIZE;
+                    addPage(page, false);
+                } else {
+                    this.newestEndReached = page.size() < PAGE_SIZE;
+                    // Items are provided in increasing time order
+                    Collections.reverse(page);
+                    addPage(page, true);
+                }
+                checkPrefetch();
+            });
+        });
+    }
+
+    /**
+     * Add the provided page to one end of the window and, if the window is full, discard the items at the opposite end.
+     * The visible rows are not moved. To be called in the UI thread.
+     */
+    private void addPage(List<T> page, boolean onTop) {
+        if(page.isEmpty()) {
+            return;
+        }
+        T anchor = getVisibleAnchor();
+        if(onTop) {
+            this.dataItemList.addAll(0, page);
+            if(this.dataItemList.size() > MAX_ENTRIES) {
+                this.dataItemList.remove(MAX_ENTRIES, this.dataItemList.size());
+                this.oldestEndReached = false;
+            }
+        } else {
+            boolean live = this.liveTgl == null || this.liveTgl.isSelected();
+            if(live) {
+                // Never discard the most recent items while live
+                int toAdd = Math.min(page.size(), MAX_ENTRIES - this.dataItemList.size());
+                this.dataItemList.addAll(toAdd < page.size() ? page.subList(0, Math.max(0, toAdd)) : page);
+            } else {
+                this.dataItemList.addAll(page);
+                if(this.dataItemList.size() > MAX_ENTRIES) {
+                    this.dataItemList.remove(0, this.dataItemList.size() - MAX_ENTRIES);
+                    this.newestEndReached = false;
+                }
+            }
+        }
+        restoreVisibleAnchor(anchor);
+        updateSelectTime();
+    }
+
+    private T getVisibleAnchor() {
+        int first = getFirstVisibleIndex();
+        return first < this.filteredItemList.size() ? this.filteredItemList.get(first) : null;
+    }
+
+    private void restoreVisibleAnchor(T anchor) {
+        if(anchor != null) {
+            int idx = this.filteredItemList.indexOf(anchor);
+            if(idx >= 0) {
+                this.dataItemTableView.scrollTo(idx);
+            }
+        }
+    }
+
     protected Consumer<List<T>> buildIncomingDataDelegatorAction() {
         return (List<T> t) -> addDataItems(t, true);
     }
@@ -275,6 +459,8 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
             startSubscription();
         } else {
             stopSubscription();
+            // Newer items can be retrieved from now on
+            this.newestEndReached = false;
             updateSelectTime();
         }
     }
@@ -439,13 +625,17 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
         }
         FxUtils.runLater(() -> {
             if (!this.displayTitledPane.isDisabled() && (!fromLive || (this.liveTgl == null || this.liveTgl.isSelected()))) {
+                // If the user scrolled away from the top, keep the visible rows where they are
+                T anchor = fromLive && getFirstVisibleIndex() > 0 ? getVisibleAnchor() : null;
                 this.dataItemList.addAll(0, messages);
-                if (this.filteredItemList.size() > MAX_ENTRIES) {
-                    int toRemove = dataItemList.size() - MAX_ENTRIES;
-                    dataItemList.remove(dataItemList.size() - toRemove, dataItemList.size());
+                if (this.dataItemList.size() > MAX_ENTRIES) {
+                    dataItemList.remove(MAX_ENTRIES, dataItemList.size());
+                    this.oldestEndReached = false;
                 }
                 if (!fromLive) {
                     this.dataItemTableView.scrollTo(0);
+                } else {
+                    restoreVisibleAnchor(anchor);
                 }
                 updateSelectTime();
             }
@@ -461,11 +651,13 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
                 int toRemoveTop = dataItemList.size() > n ? n : dataItemList.size() - 1;
                 if (toRemoveTop > 0) {
                     dataItemList.remove(0, toRemoveTop);
+                    this.newestEndReached = false;
                 }
                 dataItemList.addAll(messages);
-                if (this.filteredItemList.size() > MAX_ENTRIES) {
+                if (dataItemList.size() > MAX_ENTRIES) {
                     int toRemove = dataItemList.size() - MAX_ENTRIES;
                     dataItemList.remove(0, toRemove);
+                    this.newestEndReached = false;
                 }
                 this.dataItemTableView.scrollTo(0);
                 this.dataItemTableView.refresh();
@@ -513,6 +705,11 @@ public abstract class AbstractDataItemLogViewController<T extends AbstractDataIt
 
     protected void clearTable() {
         dataItemList.clear();
+        // Pages retrieved for the previous contents are discarded
+        this.windowGeneration++;
+        this.prefetchInProgress = false;
+        this.oldestEndReached = false;
+        this.newestEndReached = this.liveTgl == null || this.liveTgl.isSelected();
         this.dataItemTableView.layout();
         this.dataItemTableView.refresh();
         updateSelectTime();
@@ -205,6 +205,12 @@ public class AlarmParameterDataViewController
         }
     }
 
+	@Override
+	protected boolean isPrefetchEnabled() {
+		// In live mode, the table shows only the received alarms: history is retrieved only in retrieval mode
+		return this.liveTgl != null && !this.liveTgl.isSelected();
+	}
+
 	@Override
 	public void dataItemsReceived(List<AlarmParameterData> messages) {
 		informDataItemsReceived(messages);
@@ -81,6 +81,8 @@ public class ModelBrowserViewController extends AbstractDisplayController implem
 
     private static final Logger LOG = Logger.getLogger(ModelBrowserViewController.class.getName());
 
+    // Number of system entities retrieved per request when building the model tree
+    private static final int MODEL_PAGE_SIZE = 10000;
 
     private final Image containerImage = new Image(getClass().getResourceAsStream("/eu/dariolucia/reatmetric/ui/fxml/images/16px/box.svg.png"));
     private final Image parameterImage = new Image(getClass().getResourceAsStream("/eu/dariolucia/reatmetric/ui/fxml/images/16px/menu.svg.png"));
@@ -607,29 +609,31 @@ public class ModelBrowserViewController extends AbstractDisplayController implem
             // Get the root node
             this.root = ReatmetricUI.selectedSystem().getSystem().getSystemModelMonitorService().getRoot();
             List<TreeItem<SystemEntity>> leaves = new LinkedList<>();
-            Queue<SystemEntity> constructionQueue = new LinkedList<>();
-            constructionQueue.add(this.root);
-            while (!constructionQueue.isEmpty()) {
-                SystemEntity toProcess = constructionQueue.poll();
-                if (!this.path2item.containsKey(toProcess.getPath())) {
-                    TreeItem<SystemEntity> theItem = addOrUpdateItemToTree(toProcess);
-                    if (toProcess.getType() == SystemEntityType.CONTAINER) {
-                        List<SystemEntity> children = ReatmetricUI.selectedSystem().getSystem().getSystemModelMonitorService().getContainedEntities(toProcess.getPath());
-                        if (children != null) {
-                            constructionQueue.addAll(children);
+            // Retrieve the model tree in pages: each page is in pre-order, so parents are always added before their children
+            SystemEntityTreePage page;
+            int offset = 0;
+            do {
+                page = ReatmetricUI.selectedSystem().getSystem().getSystemModelMonitorService().getSubtree(this.root.getPath(), offset, MODEL_PAGE_SIZE);
+                for (SystemEntity toProcess : page.getEntities()) {
+                    if (!this.path2item.containsKey(toProcess.getPath())) {
+                        TreeItem<SystemEntity> theItem = addOrUpdateItemToTree(toProcess);
+                        if (toProcess.getType() == SystemEntityType.EVENT || toProcess.getType() == SystemEntityType.PARAMETER) {
+                            leaves.add(theItem);
                         }
-                    } else if (toProcess.getType() == SystemEntityType.EVENT || toProcess.getType() == SystemEntityType.PARAMETER) {
-                        leaves.add(theItem);
                     }
                 }
-            }
+                offset = page.getNextOffset();
+            } while (!page.isLast() && !page.getEntities().isEmpty());
             // Now you can update the alarm status of tree
             for (TreeItem<SystemEntity> item : leaves) {
                 updateAlarmStatus(item);
             }
             // Now you can ask the UI thread to set the root in the viewer
             FxUtils.runLater(() -> {
-                this.modelTree.setRoot(this.path2item.get(this.root.getPath()));
+                TreeItem<SystemEntity> rootItem = this.path2item.get(this.root.getPath());
+                // Descriptors of the elements shown by an expanded branch are retrieved in one request
+                rootItem.addEventHandler(TreeItem.branchExpandedEvent(), this::branchExpanded);
+                this.modelTree.setRoot(rootItem);
                 this.modelTree.layout();
                 this.modelTree.refresh();
             });
@@ -638,6 +642,38 @@ public class ModelBrowserViewController extends AbstractDisplayController implem
         }
     }
 
+    private void branchExpanded(TreeItem.TreeModificationEvent<SystemEntity> event) {
+        TreeItem<SystemEntity> expanded = event.getTreeItem();
+        if (expanded == null || !expanded.isExpanded()) {
+            return;
+        }
+        List<Integer> toRetrieve = new ArrayList<>();
+        for (TreeItem<SystemEntity> child : expanded.getChildren()) {
+            SystemEntity entity = child.getValue();
+            if (entity != null && entity.getType() != SystemEntityType.CONTAINER && !this.externalId2descriptor.containsKey(entity.getExternalId())) {
+                toRetrieve.add(entity.getExternalId());
+            }
+        }
+        if (toRetrieve.isEmpty()) {
+            return;
+        }
+        ReatmetricUI.threadPool(getClass()).execute(() -> {
+            try {
+                List<AbstractSystemEntityDescriptor> descriptors = ReatmetricUI.selectedSystem().getSystem().getSystemModelMonitorService().getDescriptorsOf(toRetrieve);
+                FxUtils.runLater(() -> {
+                    for (AbstractSystemEntityDescriptor descriptor : descriptors) {
+                        if (descriptor != null) {
+                            this.externalId2descriptor.put(descriptor.getExternalId(), descriptor);
+                            this.path2descriptor.put(descriptor.getPath().asString(), descriptor);
+                        }
+                    }
+                });
+            } catch (ReatmetricException | RemoteException e) {
+                LOG.log(Level.WARNING, "Cannot retrieve descriptors of " + expanded.getValue().getPath() + " children: " + e.getMessage(), e);
+            }
+        });
+    }
+
     private TreeItem<SystemEntity> addOrUpdateItemToTree(SystemEntity toAdd) {
         // If there is already an item in the map, update the item
         FilterableTreeItem<SystemEntity> item = this.path2item.get(toAdd.getPath());
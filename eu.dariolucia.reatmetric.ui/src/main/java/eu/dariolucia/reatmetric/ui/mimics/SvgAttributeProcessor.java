@@ -116,7 +116,14 @@ abstract public class SvgAttributeProcessor implements Comparable<SvgAttributePr
         return Objects.hash(attributeName);
     }
 
-    public abstract Runnable buildUpdate(ParameterData parameterData);
+    /**
+     * Compute the update of the element for the provided parameter sample. This method is called outside the UI thread
+     * and shall not access the DOM: the returned update applies the computed value to the DOM, when run in the UI thread.
+     *
+     * @param parameterData the parameter sample
+     * @return the update to apply, or null if the update cannot be computed
+     */
+    public abstract SvgElementUpdate buildUpdate(ParameterData parameterData);
 
     private static class FixedExtractor implements Function<ParameterData, Object> {
 
@@ -30,6 +30,8 @@ public class SvgElementProcessor {
 
     private final Element element;
     private final Map<SvgAttributeType, List<SvgAttributeProcessor>> type2processorList = new EnumMap<>(SvgAttributeType.class);
+    // Last value computed for each target of the element: accessed only by the thread computing the updates
+    private final Map<String, String> lastValues = new HashMap<>();
 
     public SvgElementProcessor(Element element) {
         this.element = element;
@@ -129,33 +131,37 @@ public class SvgElementProcessor {
         type2processorList.computeIfAbsent(SvgAttributeType.FILL, o -> new ArrayList<>()).add(proc);
     }
 
-    public Runnable buildUpdate(ParameterData parameterData) {
-        CompositeRunnable runnable = new CompositeRunnable();
+    /**
+     * Compute the updates of the element for the provided parameter sample. Updates that do not change the value
+     * of their target with respect to the last returned update are discarded. This method is called outside the UI thread.
+     *
+     * @param parameterData the parameter sample
+     * @return the list of updates that change the element, can be empty
+     */
+    public List<SvgElementUpdate> buildUpdates(ParameterData parameterData) {
+        List<SvgElementUpdate> updates = new ArrayList<>(type2processorList.size());
         for(SvgAttributeType type : SvgAttributeType.values()) {
             List<SvgAttributeProcessor> procs = type2processorList.get(type);
             if(procs != null) {
                 for(SvgAttributeProcessor processor : procs) {
                     if(processor.test(parameterData)) {
-                        runnable.add(processor.buildUpdate(parameterData));
+                        SvgElementUpdate update = processor.buildUpdate(parameterData);
+                        if(update != null && isChange(update)) {
+                            updates.add(update);
+                        }
                         break;
                     }
                 }
             }
         }
-        return runnable;
+        return updates;
     }
 
-    private static class CompositeRunnable implements Runnable {
-
-        private List<Runnable> runnables = new ArrayList<>();
-
-        public void add(Runnable r) {
-            runnables.add(r);
-        }
-
-        @Override
-        public void run() {
-            runnables.forEach(Runnable::run);
+    private boolean isChange(SvgElementUpdate update) {
+        if(lastValues.containsKey(update.getTarget()) && Objects.equals(lastValues.get(update.getTarget()), update.getValue())) {
+            return false;
         }
+        lastValues.put(update.getTarget(), update.getValue());
+        return true;
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.ui.mimics;
+
+import org.w3c.dom.Element;
+
+import java.util.function.Consumer;
+
+/**
+ * An update of an SVG element, computed outside the UI thread. The update carries the target (an attribute name or an
+ * identifier of the child node to set) and its new value, so that updates leaving the element unchanged can be discarded,
+ * and updates to the same target can be coalesced before being applied to the DOM in the UI thread.
+ *
+ * Objects of this class are immutable.
+ */
+public final class SvgElementUpdate implements Runnable {
+
+    private final Element element;
+    private final String target;
+    private final String value;
+    private final Consumer<String> applier;
+
+    /**
+     * Class constructor.
+     *
+     * @param element the element to update
+     * @param target the attribute or child node of the element affected by the update
+     * @param value the value to set, it can be null
+     * @param applier the function applying the value to the DOM, called in the UI thread
+     */
+    public SvgElementUpdate(Element element, String target, String value, Consumer<String> applier) {
+        this.element = element;
+        this.target = target;
+        this.value = value;
+        this.applier = applier;
+    }
+
+    public Element getElement() {
+        return element;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void run() {
+        applier.accept(value);
+    }
+}
@@ -16,10 +16,10 @@
 
 package eu.dariolucia.reatmetric.ui.mimics;
 
+import eu.dariolucia.reatmetric.api.common.Pair;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.ui.utils.FxUtils;
-import javafx.application.Platform;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
@@ -32,6 +32,9 @@ public class SvgMimicsEngine {
 
     private volatile Document svgDom;
     private final Map<SystemEntityPath, List<SvgElementProcessor>> path2processors;
+    // Updates waiting to be applied in the UI thread, by element and target
+    private final Map<Pair<Element, String>, SvgElementUpdate> pendingUpdates = new LinkedHashMap<>();
+    private boolean applicationScheduled = false;
 
     public SvgMimicsEngine(Document svgDom) {
         this.svgDom = svgDom;
@@ -74,27 +77,65 @@ public class SvgMimicsEngine {
         return path2processors.keySet().stream().map(SystemEntityPath::asString).collect(Collectors.toSet());
     }
 
-    public void refresh(Map<SystemEntityPath, ParameterData> toProcess) {
+    /**
+     * Compute the updates of the mimic for the provided parameter samples, and schedule their application to the DOM.
+     * The updates are computed in the caller thread: only updates changing the DOM are retained, and they are coalesced
+     * with the updates still pending, so that at most one update per element target is applied. All pending updates
+     * are applied in a single UI thread task, so that the document is rendered once per frame.
+     *
+     * @param toProcess the updated parameter samples
+     */
+    public synchronized void refresh(Map<SystemEntityPath, ParameterData> toProcess) {
         if(svgDom == null) {
             // Disposed or not inited
             return;
         }
-        List<Runnable> toBeApplied = new ArrayList<>();
+        List<SvgElementUpdate> toBeApplied = new ArrayList<>();
         for(ParameterData parameterData : toProcess.values()) {
             List<SvgElementProcessor> processors = path2processors.get(parameterData.getPath());
             if (processors != null) {
                 for (SvgElementProcessor proc : processors) {
-                    Runnable run = proc.buildUpdate(parameterData); // The Runnable is a mere applier of the change to the DOM. Good for further optimization.
-                    toBeApplied.add(run);
+                    toBeApplied.addAll(proc.buildUpdates(parameterData));
                 }
             }
         }
-        // Now run in UI thread
-        FxUtils.runLater(() -> toBeApplied.forEach(Runnable::run));
+        if(toBeApplied.isEmpty()) {
+            return;
+        }
+        boolean scheduleApplication;
+        synchronized (pendingUpdates) {
+            for(SvgElementUpdate update : toBeApplied) {
+                // Coalesce: the last update of an element target replaces any pending one
+                pendingUpdates.put(Pair.of(update.getElement(), update.getTarget()), update);
+            }
+            scheduleApplication = !applicationScheduled;
+            applicationScheduled = true;
+        }
+        // Now run in UI thread, if not already scheduled
+        if(scheduleApplication) {
+            FxUtils.runLater(this::applyPendingUpdates);
+        }
+    }
+
+    private void applyPendingUpdates() {
+        List<SvgElementUpdate> toBeApplied;
+        synchronized (pendingUpdates) {
+            toBeApplied = new ArrayList<>(pendingUpdates.values());
+            pendingUpdates.clear();
+            applicationScheduled = false;
+        }
+        if(svgDom == null) {
+            // Disposed in the meantime
+            return;
+        }
+        toBeApplied.forEach(SvgElementUpdate::run);
     }
 
     public void dispose() {
         svgDom = null;
         path2processors.clear();
+        synchronized (pendingUpdates) {
+            pendingUpdates.clear();
+        }
     }
 }
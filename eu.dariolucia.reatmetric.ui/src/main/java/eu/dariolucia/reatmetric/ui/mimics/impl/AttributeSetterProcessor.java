@@ -18,6 +18,7 @@ package eu.dariolucia.reatmetric.ui.mimics.impl;
 
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.ui.mimics.SvgAttributeProcessor;
+import eu.dariolucia.reatmetric.ui.mimics.SvgElementUpdate;
 import org.w3c.dom.Element;
 
 abstract public class AttributeSetterProcessor extends SvgAttributeProcessor {
@@ -27,33 +28,19 @@ abstract public class AttributeSetterProcessor extends SvgAttributeProcessor {
     }
 
     @Override
-    public Runnable buildUpdate(ParameterData parameterData) {
+    public SvgElementUpdate buildUpdate(ParameterData parameterData) {
         String valueToApply = expression.apply(parameterData);
         // If value is null, then the attribute is removed
-        return new AttributeValueApplier(element, getAttributeToChange(), valueToApply);
+        return new SvgElementUpdate(element, getAttributeToChange(), valueToApply, this::applyValue);
     }
 
     protected abstract String getAttributeToChange();
 
-    private static class AttributeValueApplier implements Runnable {
-
-        private final Element element;
-        private final String value;
-        private final String attributeName;
-
-        public AttributeValueApplier(Element element, String attributeName, String value) {
-            this.element = element;
-            this.value = value;
-            this.attributeName = attributeName;
-        }
-
-        @Override
-        public void run() {
-            if(value == null) {
-                element.removeAttribute(attributeName);
-            } else {
-                element.setAttribute(attributeName, value);
-            }
+    private void applyValue(String value) {
+        if(value == null) {
+            element.removeAttribute(getAttributeToChange());
+        } else {
+            element.setAttribute(getAttributeToChange(), value);
         }
     }
 }
@@ -18,6 +18,7 @@ package eu.dariolucia.reatmetric.ui.mimics.impl;
 
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.ui.mimics.SvgAttributeProcessor;
+import eu.dariolucia.reatmetric.ui.mimics.SvgElementUpdate;
 import eu.dariolucia.reatmetric.ui.mimics.SvgConstants;
 import javafx.scene.paint.Color;
 import org.w3c.dom.Element;
@@ -31,33 +32,48 @@ public class BlinkNodeProcessor extends SvgAttributeProcessor {
 
     private static final Logger LOG = Logger.getLogger(BlinkNodeProcessor.class.getName());
 
-    private volatile Runnable cachedOperation;
+    private static final String BLINK_TARGET = "#animate";
+
+    // Accessed only by the UI thread
+    private Element animateNode;
 
     public BlinkNodeProcessor(Element element, String name, String value) {
         super(element, name, value);
     }
 
     @Override
-    public Runnable buildUpdate(ParameterData parameterData) {
+    public SvgElementUpdate buildUpdate(ParameterData parameterData) {
         try {
             String colourText = expression.apply(parameterData);
-            // Build the node operation once
-            if(cachedOperation == null) {
-                if(colourText.equals(SvgConstants.NO_BLINK)) {
-                    cachedOperation = new BlinkNodeRemover(element);
-                } else {
-                    cachedOperation = new BlinkNodeApplier(element, deriveStringColour(colourText));
-                }
-            } else {
-                // If it is a blinker, set the new value
-                if(cachedOperation instanceof BlinkNodeApplier) {
-                    ((BlinkNodeApplier) cachedOperation).setColourText(deriveStringColour(colourText));
-                }
-            }
-            return cachedOperation;
+            // Derive the colour values here, to keep the UI thread free
+            String valueToApply = colourText.equals(SvgConstants.NO_BLINK) ? SvgConstants.NO_BLINK : deriveStringColour(colourText);
+            return new SvgElementUpdate(element, BLINK_TARGET, valueToApply, this::applyValue);
         } catch (Exception e) {
             LOG.log(Level.SEVERE, "Error when building blink update", e);
-            return () -> {};
+            return null;
+        }
+    }
+
+    private void applyValue(String colourValues) {
+        try {
+            if(colourValues.equals(SvgConstants.NO_BLINK)) {
+                removeAnimateNodeIfNotEqual(element, null);
+                return;
+            }
+            if(animateNode == null) {
+                animateNode = element.getOwnerDocument().createElementNS("http://www.w3.org/2000/svg", "animate");
+                animateNode.setAttribute("attributeType", "XML");
+                animateNode.setAttribute("attributeName", "fill");
+                animateNode.setAttribute("dur", "1.0s");
+                animateNode.setAttribute("repeatCount", "indefinite");
+            }
+            animateNode.setAttribute("values", colourValues);
+            // First remove the "animate" node if any. If the node to remove is exactly equals to animateNode, don't do anything, you are done
+            if(removeAnimateNodeIfNotEqual(element, animateNode)) {
+                element.appendChild(animateNode);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Error when applying blink update", e);
         }
     }
 
@@ -101,66 +117,4 @@ public class BlinkNodeProcessor extends SvgAttributeProcessor {
         }
         return true;
     }
-
-    private static class BlinkNodeApplier implements Runnable {
-
-        private final Element element;
-        private volatile String colourText;
-        private volatile boolean colourUpdate;
-        private Element toAdd;
-
-        public BlinkNodeApplier(Element element, String colourText) {
-            this.element = element;
-            this.colourText = colourText;
-            this.colourUpdate = true;
-        }
-
-        public void setColourText(String colourText) {
-            this.colourUpdate = !colourText.equals(this.colourText);
-            this.colourText = colourText;
-        }
-
-        @Override
-        public void run() {
-            try {
-                // No colour update? Do nothing.
-                if(!this.colourUpdate) {
-                    return;
-                }
-                if(toAdd == null) {
-                    toAdd = element.getOwnerDocument().createElementNS("http://www.w3.org/2000/svg", "animate");
-                    toAdd.setAttribute("attributeType", "XML");
-                    toAdd.setAttribute("attributeName", "fill");
-                    toAdd.setAttribute("dur", "1.0s");
-                    toAdd.setAttribute("repeatCount", "indefinite");
-                }
-                toAdd.setAttribute("values", colourText);
-                // First remove the "animate" node if any. If the node to remove is exactly equals to toAdd, don't do anything, you are done
-                if(removeAnimateNodeIfNotEqual(element, toAdd)) {
-                    element.appendChild(toAdd);
-                }
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error when running blink applier", e);
-            }
-        }
-    }
-
-    private static class BlinkNodeRemover implements Runnable {
-
-        private final Element element;
-
-        public BlinkNodeRemover(Element element) {
-            this.element = element;
-        }
-
-        @Override
-        public void run() {
-            try {
-                removeAnimateNodeIfNotEqual(element, null);
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error when running blink remover", e);
-            }
-        }
-    }
-
 }
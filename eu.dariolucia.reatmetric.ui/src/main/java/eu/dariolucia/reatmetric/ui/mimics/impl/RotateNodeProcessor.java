@@ -18,6 +18,7 @@ package eu.dariolucia.reatmetric.ui.mimics.impl;
 
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.ui.mimics.SvgAttributeProcessor;
+import eu.dariolucia.reatmetric.ui.mimics.SvgElementUpdate;
 import eu.dariolucia.reatmetric.ui.mimics.SvgConstants;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -30,33 +31,53 @@ public class RotateNodeProcessor extends SvgAttributeProcessor {
 
     private static final Logger LOG = Logger.getLogger(RotateNodeProcessor.class.getName());
 
-    private volatile Runnable cachedOperation;
+    private static final String ROTATE_TARGET = "#animateTransform";
+
+    // Accessed only by the UI thread
+    private Element animateNode;
 
     public RotateNodeProcessor(Element element, String name, String value) {
         super(element, name, value);
     }
 
     @Override
-    public Runnable buildUpdate(ParameterData parameterData) {
+    public SvgElementUpdate buildUpdate(ParameterData parameterData) {
         try {
             String valueExpression = expression.apply(parameterData);
-            // Build the node operation once
-            if(cachedOperation == null) {
-                if(valueExpression.equals(SvgConstants.NO_ROTATE)) {
-                    cachedOperation = new RotateNodeRemover(element);
-                } else {
-                    cachedOperation = new RotateNodeApplier(element, deriveSplitValues(valueExpression));
-                }
-            } else {
-                // If it is a rotate, set the new value
-                if(cachedOperation instanceof RotateNodeApplier) {
-                    ((RotateNodeApplier) cachedOperation).setRotateValues(deriveSplitValues(valueExpression));
-                }
+            if(!valueExpression.equals(SvgConstants.NO_ROTATE)) {
+                // Check the format here, to keep the UI thread free from malformed updates
+                deriveSplitValues(valueExpression);
             }
-            return cachedOperation;
+            return new SvgElementUpdate(element, ROTATE_TARGET, valueExpression, this::applyValue);
         } catch (Exception e) {
             LOG.log(Level.SEVERE, "Error when building rotate update", e);
-            return () -> {};
+            return null;
+        }
+    }
+
+    private void applyValue(String valueExpression) {
+        try {
+            if(valueExpression.equals(SvgConstants.NO_ROTATE)) {
+                removeAnimateNodeIfNotEqual(element, null);
+                return;
+            }
+            String[] values = deriveSplitValues(valueExpression);
+            if(animateNode == null) {
+                animateNode = element.getOwnerDocument().createElementNS("http://www.w3.org/2000/svg", "animateTransform");
+                animateNode.setAttribute("attributeType", "XML");
+                animateNode.setAttribute("attributeName", "transform");
+                animateNode.setAttribute("type", "rotate");
+                animateNode.setAttribute("repeatCount", "indefinite");
+            }
+            animateNode.setAttribute("from", "0 " + values[1]);
+            animateNode.setAttribute("to", "360 " + values[1]);
+            animateNode.setAttribute("dur", values[0] + "ms");
+            // First remove the "animateTransform" node if any. If the node to remove is exactly equals to animateNode, don't do anything, you are done
+            if(removeAnimateNodeIfNotEqual(element, animateNode)) {
+                element.appendChild(animateNode);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Error when applying rotate update", e);
         }
     }
 
@@ -90,71 +111,4 @@ public class RotateNodeProcessor extends SvgAttributeProcessor {
         }
         return true;
     }
-
-    private static class RotateNodeApplier implements Runnable {
-
-        private final Element element;
-        private volatile String duration;
-        private volatile String center;
-        private volatile boolean valueUpdates;
-        private Element toAdd;
-
-        public RotateNodeApplier(Element element, String[] values) {
-            this.element = element;
-            this.duration = values[0];
-            this.center = values[1];
-            this.valueUpdates = true;
-        }
-
-        public void setRotateValues(String[] values) {
-            this.valueUpdates = !values[0].equals(this.duration) || !values[1].equals(this.center);
-            this.duration = values[0];
-            this.center = values[1];
-        }
-
-        @Override
-        public void run() {
-            try {
-                // No update? Do nothing.
-                if(toAdd != null && !this.valueUpdates) {
-                    return;
-                }
-                if(toAdd == null) {
-                    toAdd = element.getOwnerDocument().createElementNS("http://www.w3.org/2000/svg", "animateTransform");
-                    toAdd.setAttribute("attributeType", "XML");
-                    toAdd.setAttribute("attributeName", "transform");
-                    toAdd.setAttribute("type", "rotate");
-                    toAdd.setAttribute("repeatCount", "indefinite");
-                }
-                toAdd.setAttribute("from", "0 " + center);
-                toAdd.setAttribute("to", "360 " + center);
-                toAdd.setAttribute("dur", duration + "ms");
-                // First remove the "animateTransform" node if any. If the node to remove is exactly equals to toAdd, don't do anything, you are done
-                if(removeAnimateNodeIfNotEqual(element, toAdd)) {
-                    element.appendChild(toAdd);
-                }
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error when running rotate applier", e);
-            }
-        }
-    }
-
-    private static class RotateNodeRemover implements Runnable {
-
-        private final Element element;
-
-        public RotateNodeRemover(Element element) {
-            this.element = element;
-        }
-
-        @Override
-        public void run() {
-            try {
-                removeAnimateNodeIfNotEqual(element, null);
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error when running rotate remover", e);
-            }
-        }
-    }
-
 }
@@ -18,11 +18,11 @@ package eu.dariolucia.reatmetric.ui.mimics.impl;
 
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
 import eu.dariolucia.reatmetric.ui.mimics.SvgAttributeProcessor;
+import eu.dariolucia.reatmetric.ui.mimics.SvgElementUpdate;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.Text;
 
-import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,29 +31,38 @@ public class TextNodeProcessor extends SvgAttributeProcessor {
 
     private static final Logger LOG = Logger.getLogger(TextNodeProcessor.class.getName());
 
-    private volatile Runnable cachedOperation;
+    private static final String TEXT_TARGET = "#text";
+
+    // Accessed only by the UI thread
+    private Text textNode;
 
     public TextNodeProcessor(Element element, String name, String value) {
         super(element, name, value);
     }
 
     @Override
-    public Runnable buildUpdate(ParameterData parameterData) {
+    public SvgElementUpdate buildUpdate(ParameterData parameterData) {
         try {
             String textToDisplay = expression.apply(parameterData);
-            // Build the node operation once
-            if(cachedOperation == null) {
-                cachedOperation = new TextNodeApplier(element, textToDisplay);
-            } else {
-                // If it is an applier, set the new value
-                if(cachedOperation instanceof TextNodeApplier) {
-                    ((TextNodeApplier) cachedOperation).setText(textToDisplay);
-                }
-            }
-            return cachedOperation;
+            return new SvgElementUpdate(element, TEXT_TARGET, textToDisplay == null ? "" : textToDisplay, this::applyValue);
         } catch (Exception e) {
             LOG.log(Level.SEVERE, "Error when building text update", e);
-            return () -> {};
+            return null;
+        }
+    }
+
+    private void applyValue(String text) {
+        try {
+            if(textNode == null) {
+                textNode = element.getOwnerDocument().createTextNode(text);
+            }
+            textNode.setTextContent(text);
+            // First remove the text node if any. If the node to remove is exactly equals to textNode, don't do anything, you are done
+            if(removeTextNodeIfNotEqual(element, textNode)) {
+                element.appendChild(textNode);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Error when applying text update", e);
         }
     }
 
@@ -79,49 +88,4 @@ public class TextNodeProcessor extends SvgAttributeProcessor {
         }
         return true;
     }
-
-    private static class TextNodeApplier implements Runnable {
-
-        private final Element element;
-        private volatile String text;
-        private volatile boolean textUpdate;
-        private Text toAdd;
-
-        public TextNodeApplier(Element element, String text) {
-            this.element = element;
-            this.text = text;
-            if(this.text == null) {
-                this.text = "";
-            }
-            this.textUpdate = true;
-        }
-
-        public void setText(String text) {
-            if(text == null) {
-                text = "";
-            }
-            this.textUpdate = !Objects.equals(text, this.text);
-            this.text = text;
-        }
-
-        @Override
-        public void run() {
-            try {
-                // No text update? Do nothing.
-                if(!this.textUpdate) {
-                    return;
-                }
-                if(toAdd == null) {
-                    toAdd = element.getOwnerDocument().createTextNode(this.text);
-                }
-                toAdd.setTextContent(this.text);
-                // First remove the text node if any. If the node to remove is exactly equals to toAdd, don't do anything, you are done
-                if(removeTextNodeIfNotEqual(element, toAdd)) {
-                    element.appendChild(toAdd);
-                }
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error when running blink applier", e);
-            }
-        }
-    }
 }
@@ -268,7 +268,7 @@ public abstract class AbstractChartManager<T, K> {
 		}
 	}
 
-	private void exportTo(PrintStream ps, XYChart.Series<T, K> series) {
+	protected void exportTo(PrintStream ps, XYChart.Series<T, K> series) {
 		for(XYChart.Data<T, K> d : series.getData()) {
 			ps.printf("%s, %s, %s%n", series.getName(), d.getXValue(), d.getYValue());
 		}
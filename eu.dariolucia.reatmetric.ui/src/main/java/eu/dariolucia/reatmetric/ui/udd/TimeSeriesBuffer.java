@@ -0,0 +1,243 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.ui.udd;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A bounded buffer of numeric samples, ordered by time and backed by primitive arrays used as a ring buffer. When the
+ * buffer is full, the oldest samples are discarded.
+ *
+ * The samples in a time range can be decimated with the M4 algorithm: the range is split in one bucket per pixel column,
+ * and only the first, minimum, maximum and last sample of each bucket are retained. The line drawn with the decimated
+ * samples is the same as the one drawn with all the samples, while the number of points is bounded by the width of the
+ * chart.
+ *
+ * Objects of this class are thread-safe.
+ */
+public final class TimeSeriesBuffer {
+
+    private final long[] times; // Nanoseconds from the epoch
+    private final double[] values;
+    private int head = 0;
+    private int size = 0;
+
+    public TimeSeriesBuffer(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, found " + capacity);
+        }
+        this.times = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Add a sample to the buffer. Samples are expected to be added in time order: samples out of order are moved to their
+     * position, with a cost proportional to the number of samples after them.
+     *
+     * @param time the time of the sample
+     * @param value the value of the sample
+     */
+    public synchronized void add(Instant time, double value) {
+        long t = toNanos(time);
+        if(size == times.length) {
+            if(t < times[head]) {
+                // Older than all the retained samples: it would be discarded immediately
+                return;
+            }
+            // Discard the oldest sample
+            head = (head + 1) % times.length;
+            --size;
+        }
+        int pos = size;
+        while(pos > 0 && times[index(pos - 1)] > t) {
+            times[index(pos)] = times[index(pos - 1)];
+            values[index(pos)] = values[index(pos - 1)];
+            --pos;
+        }
+        times[index(pos)] = t;
+        values[index(pos)] = value;
+        ++size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Invoke the provided consumer for each sample in the buffer, in time order.
+     *
+     * @param consumer the consumer of the samples
+     */
+    public synchronized void forEach(ObjDoubleConsumer<Instant> consumer) {
+        for(int i = 0; i < size; ++i) {
+            consumer.accept(toInstant(times[index(i)]), values[index(i)]);
+        }
+    }
+
+    /**
+     * Return the samples in the provided time range, decimated with the M4 algorithm over the provided number of columns.
+     * The closest sample before and after the range are included, if present, so that lines can be drawn up to the range
+     * boundaries. If the number of samples in the range is not larger than four times the number of columns, all
+     * the samples are returned.
+     *
+     * @param from the start of the time range
+     * @param to the end of the time range
+     * @param columns the number of columns (typically pixels) of the range
+     * @return the decimated samples, in time order
+     */
+    public synchronized Samples decimate(Instant from, Instant to, int columns) {
+        long start = toNanos(from);
+        long end = toNanos(to);
+        int first = lowerBound(start);
+        int last = lowerBound(end == Long.MAX_VALUE ? end : end + 1);
+        int i0 = Math.max(0, first - 1);
+        int i1 = Math.min(size, last + 1);
+        if(i1 <= i0) {
+            return new Samples(new long[0], new double[0], 0);
+        }
+        if(columns <= 0 || last - first <= 4 * columns || end <= start) {
+            Samples toReturn = new Samples(new long[i1 - i0], new double[i1 - i0], 0);
+            for(int i = i0; i < i1; ++i) {
+                toReturn.add(times[index(i)], values[index(i)]);
+            }
+            return toReturn;
+        }
+        Samples toReturn = new Samples(new long[4 * columns + 2], new double[4 * columns + 2], 0);
+        if(i0 < first) {
+            toReturn.add(times[index(i0)], values[index(i0)]);
+        }
+        double bucketWidth = (double) (end - start) / columns;
+        int currentBucket = -1;
+        int firstIdx = -1, minIdx = -1, maxIdx = -1, lastIdx = -1;
+        for(int i = first; i < last; ++i) {
+            int idx = index(i);
+            int bucket = (int) Math.min(columns - 1, (long) ((times[idx] - start) / bucketWidth));
+            if(bucket != currentBucket) {
+                if(currentBucket >= 0) {
+                    addBucket(toReturn, firstIdx, minIdx, maxIdx, lastIdx);
+                }
+                currentBucket = bucket;
+                firstIdx = minIdx = maxIdx = i;
+            }
+            if(values[idx] < values[index(minIdx)]) {
+                minIdx = i;
+            }
+            if(values[idx] > values[index(maxIdx)]) {
+                maxIdx = i;
+            }
+            lastIdx = i;
+        }
+        if(currentBucket >= 0) {
+            addBucket(toReturn, firstIdx, minIdx, maxIdx, lastIdx);
+        }
+        if(last < i1) {
+            toReturn.add(times[index(last)], values[index(last)]);
+        }
+        return toReturn;
+    }
+
+    private void addBucket(Samples toReturn, int firstIdx, int minIdx, int maxIdx, int lastIdx) {
+        int[] selected = new int[] { firstIdx, minIdx, maxIdx, lastIdx };
+        Arrays.sort(selected);
+        int previous = -1;
+        for(int i : selected) {
+            if(i != previous) {
+                toReturn.add(times[index(i)], values[index(i)]);
+                previous = i;
+            }
+        }
+    }
+
+    /**
+     * Return the logical position of the first sample with time greater or equal than the provided one.
+     */
+    private int lowerBound(long t) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(times[index(mid)] < t) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int index(int logicalPosition) {
+        return (head + logicalPosition) % times.length;
+    }
+
+    private static long toNanos(Instant time) {
+        try {
+            return Math.addExact(Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L), time.getNano());
+        } catch (ArithmeticException e) {
+            // Outside the representable range (years 1677-2262): saturate
+            return time.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static Instant toInstant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    /**
+     * A sequence of samples, in time order.
+     */
+    public static final class Samples {
+
+        private final long[] times;
+        private final double[] values;
+        private int size;
+
+        private Samples(long[] times, double[] values, int size) {
+            this.times = times;
+            this.values = values;
+            this.size = size;
+        }
+
+        private void add(long time, double value) {
+            times[size] = time;
+            values[size] = value;
+            ++size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Instant getTime(int i) {
+            return toInstant(times[i]);
+        }
+
+        public double getValue(int i) {
+            return values[i];
+        }
+    }
+}
@@ -22,6 +22,8 @@ import eu.dariolucia.reatmetric.api.model.SystemEntity;
 import eu.dariolucia.reatmetric.api.model.SystemEntityPath;
 import eu.dariolucia.reatmetric.api.model.SystemEntityType;
 import eu.dariolucia.reatmetric.api.parameters.ParameterData;
+import eu.dariolucia.reatmetric.ui.ReatmetricUI;
+import eu.dariolucia.reatmetric.ui.utils.FxUtils;
 import eu.dariolucia.reatmetric.ui.utils.SystemEntityDataFormats;
 import javafx.scene.chart.AreaChart;
 import javafx.scene.chart.LineChart;
@@ -32,14 +34,57 @@ import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.VBox;
 
+import java.io.PrintStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 
+	private static final Logger LOG = Logger.getLogger(XYTimeChartManager.class.getName());
+
+	public static final String REATMETRIC_CHART_BUFFER_CAPACITY_KEY = "reatmetric.ui.chart.buffer.capacity";
+
+	private static final int DEFAULT_BUFFER_CAPACITY = 100000;
+
+	private static final int BUFFER_CAPACITY;
+
+	// Used if the chart is not laid out yet
+	private static final int DEFAULT_COLUMNS = 1000;
+
+	static {
+		int capacity = DEFAULT_BUFFER_CAPACITY;
+		String capacityStr = System.getProperty(REATMETRIC_CHART_BUFFER_CAPACITY_KEY);
+		if(capacityStr != null) {
+			try {
+				capacity = Integer.parseInt(capacityStr);
+				if(capacity <= 0) {
+					throw new NumberFormatException("Capacity must be positive");
+				}
+			} catch (NumberFormatException e) {
+				LOG.log(Level.WARNING, "Cannot use chart buffer capacity " + capacityStr + " from property " + REATMETRIC_CHART_BUFFER_CAPACITY_KEY + ", using default " + DEFAULT_BUFFER_CAPACITY + ": " + e.getMessage());
+				capacity = DEFAULT_BUFFER_CAPACITY;
+			}
+		}
+		BUFFER_CAPACITY = capacity;
+	}
+
 	private final XYChart<Instant, Number> chart;
 
+	// The samples of each series: only the decimated samples in the visible range are added to the series
+	private final Map<SystemEntityPath, TimeSeriesBuffer> path2buffer = new HashMap<>();
+
+	// Accessed only by the UI thread
+	private boolean refreshInProgress = false;
+	private boolean refreshPending = false;
+	private boolean refreshDiscarded = false;
+
 	public XYTimeChartManager(Consumer<AbstractChartManager<Instant, Number>> informer, XYChart<Instant, Number> n) {
 		this(informer, n, true);
 	}
@@ -54,6 +99,8 @@ public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 			this.chart.setOnDragDropped(this::onDragDropped);
 			addMenu(this.chart);
 		}
+		// The number of decimated points depends on the chart width
+		this.chart.getXAxis().widthProperty().addListener((prop, oldValue, newValue) -> requestRefresh());
 	}
 
 	protected void onDragOver(DragEvent event) {
@@ -99,6 +146,7 @@ public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 		XYChart.Series<Instant, Number> series = new XYChart.Series<>();
         series.setName(content.getLastPathElement());
         addSerie(content, series);
+		path2buffer.put(content, new TimeSeriesBuffer(BUFFER_CAPACITY));
 		setSerieVisible(series.getName(), true);
 		this.chart.getData().add(series);
         
@@ -110,6 +158,7 @@ public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 		if(deleted) {
 			return;
 		}
+		boolean added = false;
 		for(AbstractDataItem item : datas) {
 			if(item instanceof ParameterData) {
 				ParameterData pd = (ParameterData) item;
@@ -117,22 +166,111 @@ public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 				if (s != null && pd.getEngValue() != null) {
 					// if not a number, remove the parameter from the plot
 					if(pd.getEngValue() instanceof Number) {
-						XYChart.Data<Instant, Number> data = new XYChart.Data<>(pd.getGenerationTime(), (Number) pd.getEngValue());
-						s.getData().add(data);
-						Tooltip.install(data.getNode(), new Tooltip(pd.getEngValue() + "\n" +
-								(pd.getGenerationTime().toString())));
+						path2buffer.get(pd.getPath()).add(pd.getGenerationTime(), ((Number) pd.getEngValue()).doubleValue());
 						if(pd.getGenerationTime().isAfter(maxGenerationTimeOnChart)) {
 							maxGenerationTimeOnChart = pd.getGenerationTime();
 						}
-						applySerieVisibility(s, isSerieVisible(s.getName()));
+						added = true;
 					} else {
 						removeSerie(pd.getPath());
+						path2buffer.remove(pd.getPath());
 						removeSerieVisibility(s.getName());
 						chart.getData().remove(s);
 					}
 				}
 			}
 		}
+		if(added) {
+			requestRefresh();
+		}
+	}
+
+	/**
+	 * Decimate the samples in the visible range in the chart thread pool, and replace the data of the series with the
+	 * result. At most one decimation is in progress: requests received in the meantime are coalesced in a single
+	 * decimation, started when the current one is applied. To be called in the UI thread.
+	 */
+	private void requestRefresh() {
+		if(deleted) {
+			return;
+		}
+		if(refreshInProgress) {
+			refreshPending = true;
+			return;
+		}
+		InstantAxis axis = (InstantAxis) this.chart.getXAxis();
+		Instant from = axis.getLowerBound();
+		Instant to = axis.getUpperBound();
+		if(from == null || to == null) {
+			return;
+		}
+		int columns = axis.getWidth() > 0 ? (int) axis.getWidth() : DEFAULT_COLUMNS;
+		Map<XYChart.Series<Instant, Number>, TimeSeriesBuffer> toDecimate = new LinkedHashMap<>();
+		path2buffer.entrySet().removeIf(e -> !containsSerie(e.getKey()));
+		for(Map.Entry<SystemEntityPath, TimeSeriesBuffer> entry : path2buffer.entrySet()) {
+			toDecimate.put(getSerie(entry.getKey()), entry.getValue());
+		}
+		refreshInProgress = true;
+		ReatmetricUI.threadPool(XYTimeChartManager.class).execute(() -> {
+			Map<XYChart.Series<Instant, Number>, TimeSeriesBuffer.Samples> decimated = new LinkedHashMap<>();
+			for(Map.Entry<XYChart.Series<Instant, Number>, TimeSeriesBuffer> entry : toDecimate.entrySet()) {
+				decimated.put(entry.getKey(), entry.getValue().decimate(from, to, columns));
+			}
+			FxUtils.runLater(() -> applyRefresh(decimated));
+		});
+	}
+
+	private void applyRefresh(Map<XYChart.Series<Instant, Number>, TimeSeriesBuffer.Samples> decimated) {
+		refreshInProgress = false;
+		if(refreshDiscarded) {
+			// The chart was cleared after the decimation was started
+			decimated.clear();
+			refreshDiscarded = false;
+		}
+		for(Map.Entry<XYChart.Series<Instant, Number>, TimeSeriesBuffer.Samples> entry : decimated.entrySet()) {
+			XYChart.Series<Instant, Number> s = entry.getKey();
+			if(!chart.getData().contains(s)) {
+				// Removed in the meantime
+				continue;
+			}
+			TimeSeriesBuffer.Samples samples = entry.getValue();
+			List<XYChart.Data<Instant, Number>> points = new ArrayList<>(samples.size());
+			for(int i = 0; i < samples.size(); ++i) {
+				points.add(new XYChart.Data<>(samples.getTime(i), samples.getValue(i)));
+			}
+			s.getData().setAll(points);
+			for(XYChart.Data<Instant, Number> data : points) {
+				if(data.getNode() != null) {
+					Tooltip.install(data.getNode(), new Tooltip(data.getYValue() + "\n" + data.getXValue().toString()));
+				}
+			}
+			applySerieVisibility(s, isSerieVisible(s.getName()));
+		}
+		if(refreshPending) {
+			refreshPending = false;
+			requestRefresh();
+		}
+	}
+
+	@Override
+	public void clear() {
+		path2buffer.values().forEach(TimeSeriesBuffer::clear);
+		if(refreshInProgress) {
+			refreshDiscarded = true;
+		}
+		super.clear();
+	}
+
+	@Override
+	protected void exportTo(PrintStream ps, XYChart.Series<Instant, Number> series) {
+		// Export all the buffered samples, not only the plotted ones
+		for(Map.Entry<SystemEntityPath, TimeSeriesBuffer> entry : path2buffer.entrySet()) {
+			if(getSerie(entry.getKey()) == series) {
+				entry.getValue().forEach((time, value) -> ps.printf("%s, %s, %s%n", series.getName(), time, value));
+				return;
+			}
+		}
+		super.exportTo(ps, series);
 	}
 
 	@Override
@@ -150,6 +288,7 @@ public class XYTimeChartManager extends AbstractChartManager<Instant, Number> {
 	public void setBoundaries(Instant min, Instant max) {
     	((InstantAxis) this.chart.getXAxis()).setLowerBound(min);
 		((InstantAxis) this.chart.getXAxis()).setUpperBound(max);
+		requestRefresh();
 	}
 
 	@Override
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c)  2020 Dario Lucia (https://www.dariolucia.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.dariolucia.reatmetric.ui.utils;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This object delivers the updates collected by all the {@link DataProcessingDelegator} objects of the UI, using a
+ * shared pool of threads and the JavaFX pulse.
+ *
+ * The delivery is organised in cycles, started by the JavaFX pulse: in each cycle, the updates collected by each ready
+ * delegator since the previous cycle are forwarded in a single list to its rendering function, in the pool threads. The
+ * UI tasks requested via {@link FxUtils#runLater(Runnable)} by the rendering functions are not posted individually to the
+ * JavaFX event queue: they are collected and run together in the next pulse, so that all the views are updated in the
+ * same frame.
+ *
+ * The period between two cycles adapts to the load of the JavaFX thread: if pulses are late or the collected UI tasks
+ * take more than a frame to run, the period is doubled (up to a maximum), and the updates are coalesced over a longer
+ * time. When the load decreases, the period is progressively reduced back to the minimum.
+ */
+public final class DataDeliveryScheduler {
+
+    private static final Logger LOG = Logger.getLogger(DataDeliveryScheduler.class.getName());
+
+    private static final long MIN_DELIVERY_PERIOD = 100_000_000L; // In nanoseconds
+    private static final long MAX_DELIVERY_PERIOD = 1_000_000_000L; // In nanoseconds
+    private static final long FRAME_BUDGET = 16_000_000L; // In nanoseconds
+    private static final long LATE_PULSE_THRESHOLD = 50_000_000L; // In nanoseconds
+
+    private static final int DELIVERY_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    // UI tasks requested by the rendering function running in the current thread, if delivering
+    private static final ThreadLocal<List<Runnable>> CURRENT_UI_TASKS = new ThreadLocal<>();
+
+    private static DataDeliveryScheduler INSTANCE;
+
+    public synchronized static DataDeliveryScheduler instance() {
+        if(INSTANCE == null) {
+            INSTANCE = new DataDeliveryScheduler();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * If the current thread is delivering updates to a rendering function, collect the provided UI task to run it in the
+     * next pulse.
+     *
+     * @param task the UI task
+     * @return true if the task was collected, false if the current thread is not delivering updates
+     */
+    static boolean collectUiTask(Runnable task) {
+        List<Runnable> tasks = CURRENT_UI_TASKS.get();
+        if(tasks == null) {
+            return false;
+        }
+        tasks.add(task);
+        return true;
+    }
+
+    private final ExecutorService deliveryPool;
+
+    private final ConcurrentLinkedQueue<DataProcessingDelegator<?>> readyDelegators = new ConcurrentLinkedQueue<>();
+
+    // UI tasks collected in the last completed cycle(s), to be run in the next pulse
+    private final AtomicReference<List<Runnable>> pendingUiTasks = new AtomicReference<>();
+
+    private final AtomicBoolean timerRunning = new AtomicBoolean(false);
+
+    private final AnimationTimer pulseTimer;
+
+    // Accessed only by the JavaFX thread
+    private boolean cycleInProgress = false;
+    private long lastPulseTime = 0;
+    private long lastCycleTime = 0;
+    private long deliveryPeriod = MIN_DELIVERY_PERIOD;
+
+    private DataDeliveryScheduler() {
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        this.deliveryPool = Executors.newFixedThreadPool(DELIVERY_THREADS, (r) -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Reatmetric UI Delivery Thread " + threadCounter.getAndIncrement());
+            return t;
+        });
+        this.pulseTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+    }
+
+    /**
+     * Mark the provided delegator as ready for the next delivery cycle.
+     *
+     * @param delegator the delegator with pending updates
+     */
+    void ready(DataProcessingDelegator<?> delegator) {
+        readyDelegators.add(delegator);
+        if(timerRunning.compareAndSet(false, true)) {
+            if(Platform.isFxApplicationThread()) {
+                pulseTimer.start();
+            } else {
+                Platform.runLater(pulseTimer::start);
+            }
+        }
+    }
+
+    private void pulse(long now) {
+        boolean latePulse = lastPulseTime != 0 && now - lastPulseTime > LATE_PULSE_THRESHOLD;
+        lastPulseTime = now;
+        // Run the UI tasks collected in the previous cycle
+        long uiTime = 0;
+        List<Runnable> tasks = pendingUiTasks.getAndSet(null);
+        if(tasks != null) {
+            long start = System.nanoTime();
+            for(Runnable r : tasks) {
+                try {
+                    r.run();
+                } catch (Exception e) {
+                    LOG.log(Level.SEVERE, "Error when running UI task: " + e.getMessage(), e);
+                }
+            }
+            uiTime = System.nanoTime() - start;
+        }
+        // Adapt the delivery period to the load of the JavaFX thread
+        if(latePulse || uiTime > FRAME_BUDGET) {
+            deliveryPeriod = Math.min(MAX_DELIVERY_PERIOD, deliveryPeriod * 2);
+        } else if(tasks != null) {
+            deliveryPeriod = Math.max(MIN_DELIVERY_PERIOD, deliveryPeriod * 3 / 4);
+        }
+        // Start a new cycle, if it is time to do so
+        if(!cycleInProgress && !readyDelegators.isEmpty() && now - lastCycleTime >= deliveryPeriod) {
+            lastCycleTime = now;
+            startCycle();
+        }
+        // Stop the timer if there is nothing to do
+        if(!cycleInProgress && readyDelegators.isEmpty() && pendingUiTasks.get() == null) {
+            pulseTimer.stop();
+            lastPulseTime = 0;
+            timerRunning.set(false);
+            // Check again, a delegator could have been marked ready in the meantime
+            if(!readyDelegators.isEmpty() && timerRunning.compareAndSet(false, true)) {
+                pulseTimer.start();
+            }
+        }
+    }
+
+    private void startCycle() {
+        List<DataProcessingDelegator<?>> toDeliver = new ArrayList<>();
+        DataProcessingDelegator<?> delegator;
+        while((delegator = readyDelegators.poll()) != null) {
+            toDeliver.add(delegator);
+        }
+        cycleInProgress = true;
+        // The UI tasks of each delegator are kept in delegator order
+        List<List<Runnable>> uiTasks = new ArrayList<>(toDeliver.size());
+        for(int i = 0; i < toDeliver.size(); ++i) {
+            uiTasks.add(new ArrayList<>());
+        }
+        AtomicInteger remaining = new AtomicInteger(toDeliver.size());
+        for(int i = 0; i < toDeliver.size(); ++i) {
+            final DataProcessingDelegator<?> theDelegator = toDeliver.get(i);
+            final List<Runnable> theTasks = uiTasks.get(i);
+            deliveryPool.execute(() -> {
+                CURRENT_UI_TASKS.set(theTasks);
+                try {
+                    theDelegator.deliver();
+                } catch (Exception e) {
+                    LOG.log(Level.SEVERE, "Error when delivering updates: " + e.getMessage(), e);
+                } finally {
+                    CURRENT_UI_TASKS.remove();
+                    // Always count down, also in case of errors, otherwise the cycle never completes
+                    if(remaining.decrementAndGet() == 0) {
+                        completeCycle(uiTasks);
+                    }
+                }
+            });
+        }
+    }
+
+    private void completeCycle(List<List<Runnable>> uiTasks) {
+        List<Runnable> tasks = new ArrayList<>();
+        uiTasks.forEach(tasks::addAll);
+        // Merge with the tasks not run yet, if any
+        pendingUiTasks.accumulateAndGet(tasks, (existing, added) -> {
+            if(existing == null) {
+                return added;
+            }
+            List<Runnable> merged = new ArrayList<>(existing);
+            merged.addAll(added);
+            return merged;
+        });
+        Platform.runLater(() -> cycleInProgress = false);
+    }
+}
@@ -13,17 +13,10 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
-
 package eu.dariolucia.reatmetric.ui.utils;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
@@ -33,28 +26,27 @@ import java.util.function.Consumer;
  * requests. This object implements a very simple sistem that allows to defer the rendering request if there are too many
  * requests packing together the updates. As optional feature that can be enabled, it can DROP the oldest updates, so that only
  * the specified (maximum) number of updates is forwarded for rendering.
+ *
+ * The delegator does not own a thread: the collected updates are forwarded by the {@link DataDeliveryScheduler}, shared
+ * by all the delegators of the UI, at most once per delivery cycle.
  */
 public final class DataProcessingDelegator<T> {
 
-	private static final int RENDERING_LATENCY_TIME = 100; // In milliseconds
-
 	// Temporary object queue
-	private final BlockingDeque<T> temporaryQueue = new LinkedBlockingDeque<>();
+	private final List<T> temporaryQueue = new ArrayList<>();
 
-	private final Lock temporaryQueueLock = new ReentrantLock();
-	private final Condition temporaryQueueCondition = this.temporaryQueueLock.newCondition();
-
-	// Delegator thread, set daemon so that it is killed if the application exits
-	private final ExecutorService delegator;
+	private final String name;
 
 	private final Consumer<List<T>> actionee;
 
 	private final Integer maxItemsToForward;
 
-	private long lastForwardingTime = System.currentTimeMillis();
-
 	private boolean suspended = false;
 
+	private boolean scheduled = false;
+
+	private boolean shutdown = false;
+
 	public DataProcessingDelegator(Consumer<List<T>> actionee) {
 		this(null, actionee, null);
 	}
@@ -64,113 +56,88 @@ public final class DataProcessingDelegator<T> {
 	}
 
 	public DataProcessingDelegator(String name, Consumer<List<T>> actionee, Integer maxItemsToForward) {
+		this.name = name;
 		this.maxItemsToForward = maxItemsToForward;
 		this.actionee = actionee;
-		this.delegator = Executors.newFixedThreadPool(1, (r) -> {
-			Thread t = new Thread(r);
-			t.setDaemon(true);
-			t.setName(name != null ? name : "Delegator Thread: " + actionee);
-			return t;
-		});
-		this.delegator.execute(this::delegatorRun);
 	}
 
-	private void delegatorRun() {
-		while (!this.delegator.isShutdown()) {
-			this.temporaryQueueLock.lock();
-			try {
-				// Until the delegation is suspended OR the queue is empty and the delegation is not shut down, wait
-				while (this.suspended || (this.temporaryQueue.isEmpty() && !this.delegator.isShutdown())) {
-					this.temporaryQueueCondition.await();
-				}
-				// At this stage, the delegator is not suspended, but it could be shut down, so check
-				if (this.delegator.isShutdown()) {
-					return;
-				}
-				// At this stage you have something in the queue: before draining it and send, let's see when was the last time forwarded it
-				long currentUpdate = System.currentTimeMillis();
-				boolean keepWaiting = true;
-				// Max 10 updates per second?
-				while(currentUpdate - this.lastForwardingTime < RENDERING_LATENCY_TIME && keepWaiting) {
-					// We wait
-					keepWaiting = this.temporaryQueueCondition.await(RENDERING_LATENCY_TIME, TimeUnit.MILLISECONDS);
-					currentUpdate = System.currentTimeMillis();
-				}
-				// Now we forward the contents of the queue ot the rendered
-				List<T> tempList = new LinkedList<>();
-				this.temporaryQueue.drainTo(tempList);
-				if(maxItemsToForward != null && maxItemsToForward < tempList.size()) {
-					tempList = tempList.subList(tempList.size() - maxItemsToForward, tempList.size());
-				}
-				// Remember when you are forwarding it
-				this.lastForwardingTime = currentUpdate;
-				// Send the whole queue to the rendering function
-				this.actionee.accept(tempList);
-			} catch (InterruptedException e) {
-				Thread.interrupted();
-			} finally {
-				this.temporaryQueueLock.unlock();
+	/**
+	 * Called by the {@link DataDeliveryScheduler} in one of its delivery threads: forward all the updates collected so far
+	 * to the rendering function. Only one delivery at a time is performed for each delegator.
+	 */
+	void deliver() {
+		List<T> tempList;
+		synchronized (this.temporaryQueue) {
+			this.scheduled = false;
+			if(this.shutdown || this.suspended || this.temporaryQueue.isEmpty()) {
+				return;
 			}
+			if(maxItemsToForward != null && maxItemsToForward < this.temporaryQueue.size()) {
+				tempList = new ArrayList<>(this.temporaryQueue.subList(this.temporaryQueue.size() - maxItemsToForward, this.temporaryQueue.size()));
+			} else {
+				tempList = new ArrayList<>(this.temporaryQueue);
+			}
+			this.temporaryQueue.clear();
 		}
+		// Send the whole queue to the rendering function
+		this.actionee.accept(tempList);
 	}
 
 	public void delegate(T object) {
-		this.temporaryQueueLock.lock();
-		try {
-			if (object != null) {
+		if (object != null) {
+			synchronized (this.temporaryQueue) {
+				if(this.shutdown) {
+					return;
+				}
 				this.temporaryQueue.add(object);
-				this.temporaryQueueCondition.signalAll();
+				scheduleIfNeeded();
 			}
-		} finally {
-			this.temporaryQueueLock.unlock();
 		}
 	}
 
 	public void delegate(List<T> objects) {
-		this.temporaryQueueLock.lock();
-		try {
-			if (objects != null && !objects.isEmpty()) {
+		if (objects != null && !objects.isEmpty()) {
+			synchronized (this.temporaryQueue) {
+				if(this.shutdown) {
+					return;
+				}
 				this.temporaryQueue.addAll(objects);
-				this.temporaryQueueCondition.signalAll();
+				scheduleIfNeeded();
 			}
-		} finally {
-			this.temporaryQueueLock.unlock();
 		}
 	}
 
-	public void shutdown() {
-		this.delegator.shutdown();
-		this.temporaryQueueLock.lock();
-		try {
-			this.temporaryQueueCondition.signalAll();
-		} finally {
-			this.temporaryQueueLock.unlock();
+	// To be called with the lock on the temporary queue
+	private void scheduleIfNeeded() {
+		if(!this.suspended && !this.scheduled && !this.temporaryQueue.isEmpty()) {
+			this.scheduled = true;
+			DataDeliveryScheduler.instance().ready(this);
 		}
-		try {
-			this.delegator.awaitTermination(5, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	}
+
+	public void shutdown() {
+		synchronized (this.temporaryQueue) {
+			this.shutdown = true;
+			this.temporaryQueue.clear();
 		}
 	}
 
 	public void suspend() {
-		this.temporaryQueueLock.lock();
-		try {
+		synchronized (this.temporaryQueue) {
 			this.suspended = true;
 			this.temporaryQueue.clear();
-			this.temporaryQueueCondition.signalAll();
-		} finally {
-			this.temporaryQueueLock.unlock();
 		}
 	}
 
 	public void resume() {
-		this.temporaryQueueLock.lock();
-		try {
+		synchronized (this.temporaryQueue) {
 			this.suspended = false;
-			this.temporaryQueueCondition.signalAll();
-		} finally {
-			this.temporaryQueueLock.unlock();
+			scheduleIfNeeded();
 		}
 	}
+
+	@Override
+	public String toString() {
+		return name != null ? name : "Delegator: " + actionee;
+	}
 }
@@ -21,6 +21,10 @@ import javafx.application.Platform;
 public class FxUtils {
 
     public static void runLater(Runnable r) {
+        // If called while delivering updates from a DataProcessingDelegator, the task is run in the next delivery pulse
+        if(DataDeliveryScheduler.collectUiTask(r)) {
+            return;
+        }
         Platform.runLater(() -> {
             try {
                 r.run();
@@ -33,6 +33,8 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -56,6 +58,21 @@ public class ParameterDisplayCoordinator implements IReatmetricServiceListener {
 
     private final List<ParameterDisplayTabWidgetController> registeredViews = new CopyOnWriteArrayList<>();
 
+    // Paths currently subscribed, globally and per view, used to compute incremental subscription updates
+    private Set<SystemEntityPath> subscribedPaths = Collections.emptySet();
+    private final Map<ParameterDisplayTabWidgetController, Set<SystemEntityPath>> subscribedViewPaths = new HashMap<>();
+
+    // Subscription, incremental updates and unsubscription are invoked in order, in this executor
+    private final ExecutorService subscriptionExecutor = Executors.newFixedThreadPool(1, r -> {
+        Thread t = new Thread(r);
+        t.setName(ParameterDisplayCoordinator.class.getSimpleName() + " Subscription Thread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Accessed only by the subscription executor: set if the subscription is in place on the system
+    private boolean subscriptionActive = false;
+
     public ParameterDisplayCoordinator() {
         this.parameterDelegator = new DataProcessingDelegator<>(getClass().getSimpleName(), buildIncomingParameterDataDelegatorAction());
         this.parameterSubscriber = parameterDelegator::delegate;
@@ -92,25 +109,79 @@ public class ParameterDisplayCoordinator implements IReatmetricServiceListener {
     }
 
     private void startSubscription(ParameterDataFilter currentParameterFilter) {
-        ReatmetricUI.threadPool(getClass()).execute(() -> {
+        rememberSubscribedPaths(currentParameterFilter);
+        subscriptionExecutor.execute(() -> subscribe(currentParameterFilter));
+    }
+
+    private void subscribe(ParameterDataFilter currentParameterFilter) {
+        try {
+            ReatmetricUI.selectedSystem().getSystem().getParameterDataMonitorService().subscribe(this.parameterSubscriber, currentParameterFilter);
+            subscriptionActive = true;
+        } catch (ReatmetricException | RemoteException e) {
+            subscriptionActive = false;
+            e.printStackTrace();
+        }
+    }
+
+    private ParameterDataFilter buildParameterFilter() {
+        Set<SystemEntityPath> params = new TreeSet<>();
+        for(ParameterDisplayTabWidgetController c : registeredViews) {
+            params.addAll(c.getCurrentParameterFilter().getParameterPathList());
+        }
+        return new ParameterDataFilter(null, new ArrayList<>(params),null,null,null, null);
+    }
+
+    private void updateSubscription(ParameterDataFilter currentParameterFilter, List<SystemEntityPath> added, List<SystemEntityPath> removed) {
+        rememberSubscribedPaths(currentParameterFilter);
+        subscriptionExecutor.execute(() -> {
+            if(!subscriptionActive) {
+                // The previous subscription failed: nothing to update
+                subscribe(currentParameterFilter);
+                return;
+            }
             try {
-                ReatmetricUI.selectedSystem().getSystem().getParameterDataMonitorService().subscribe(this.parameterSubscriber, currentParameterFilter);
+                if(!removed.isEmpty()) {
+                    ReatmetricUI.selectedSystem().getSystem().getParameterDataMonitorService().removeFromSubscription(this.parameterSubscriber, removed, null);
+                }
+                if(!added.isEmpty()) {
+                    ReatmetricUI.selectedSystem().getSystem().getParameterDataMonitorService().addToSubscription(this.parameterSubscriber, added, null);
+                }
             } catch (ReatmetricException | RemoteException e) {
                 e.printStackTrace();
+                subscribe(currentParameterFilter);
             }
         });
     }
 
-    private ParameterDataFilter buildParameterFilter() {
-        Set<SystemEntityPath> params = new TreeSet<>();
+    private void rememberSubscribedPaths(ParameterDataFilter currentParameterFilter) {
+        subscribedPaths = new HashSet<>(currentParameterFilter.getParameterPathList());
+        subscribedViewPaths.clear();
         for(ParameterDisplayTabWidgetController c : registeredViews) {
-            params.addAll(c.getCurrentParameterFilter().getParameterPathList());
+            subscribedViewPaths.put(c, new HashSet<>(c.getCurrentParameterFilter().getParameterPathList()));
         }
-        return new ParameterDataFilter(null, new ArrayList<>(params),null,null,null, null);
+    }
+
+    /**
+     * A view that adds a parameter already subscribed because of another view needs the current value of the parameter,
+     * which is delivered only by a full subscription.
+     */
+    private boolean isFullSubscriptionRequired() {
+        for(ParameterDisplayTabWidgetController c : registeredViews) {
+            Set<SystemEntityPath> previousViewPaths = subscribedViewPaths.getOrDefault(c, Collections.emptySet());
+            for(SystemEntityPath p : c.getCurrentParameterFilter().getParameterPathList()) {
+                if(!previousViewPaths.contains(p) && subscribedPaths.contains(p)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private void stopSubscription() {
-        ReatmetricUI.threadPool(getClass()).execute(() -> {
+        subscribedPaths = Collections.emptySet();
+        subscribedViewPaths.clear();
+        subscriptionExecutor.execute(() -> {
+            subscriptionActive = false;
             try {
                 IReatmetricSystem service = ReatmetricUI.selectedSystem().getSystem();
                 if(service != null && service.getParameterDataMonitorService() != null) {
@@ -122,12 +193,17 @@ public class ParameterDisplayCoordinator implements IReatmetricServiceListener {
         });
     }
 
-    public void filterUpdated() {
+    public synchronized void filterUpdated() {
         ParameterDataFilter globalParameterFilter = buildParameterFilter();
         if(globalParameterFilter.getParameterPathList().isEmpty()) {
             stopSubscription();
-        } else {
+        } else if(subscribedPaths.isEmpty() || isFullSubscriptionRequired()) {
             startSubscription(globalParameterFilter);
+        } else {
+            // Only the difference is sent, so that only the values of the new parameters are delivered
+            List<SystemEntityPath> added = globalParameterFilter.getParameterPathList().stream().filter(o -> !subscribedPaths.contains(o)).collect(Collectors.toList());
+            List<SystemEntityPath> removed = subscribedPaths.stream().filter(o -> !globalParameterFilter.getParameterPathList().contains(o)).collect(Collectors.toList());
+            updateSubscription(globalParameterFilter, added, removed);
         }
     }
 
@@ -142,7 +218,7 @@ public class ParameterDisplayCoordinator implements IReatmetricServiceListener {
     }
 
     @Override
-    public void systemConnected(IReatmetricSystem system) {
+    public synchronized void systemConnected(IReatmetricSystem system) {
         registeredViews.forEach(o -> o.systemConnected(system));
         ParameterDataFilter globalFilter = buildParameterFilter();
         if(mustSubscribe(globalFilter)) {
@@ -151,7 +227,7 @@ public class ParameterDisplayCoordinator implements IReatmetricServiceListener {
     }
 
     @Override
-    public void systemDisconnected(IReatmetricSystem system) {
+    public synchronized void systemDisconnected(IReatmetricSystem system) {
         stopSubscription();
         registeredViews.forEach(o -> o.systemDisconnected(system));
         registeredViews.clear();